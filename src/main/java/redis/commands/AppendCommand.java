@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -32,6 +33,7 @@ public class AppendCommand implements Command {
 
         String newValue = current + appendVal;
         db.set(key, newValue);
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "append", key);
 
         writer.writeInt(out, newValue.length());
     }
@@ -0,0 +1,45 @@
+package redis.commands;
+
+import redis.core.Database;
+import redis.persistence.AofManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.arity;
+
+public class BgRewriteAofCommand implements Command {
+
+    private final AofManager aof; // can be null
+
+    public BgRewriteAofCommand(AofManager aof) {
+        this.aof = aof;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!arity(writer, out, "BGREWRITEAOF", args.size(), 1))
+            return;
+
+        if (aof == null) {
+            writer.writeError(out, "AOF is disabled");
+            return;
+        }
+
+        if (!aof.isMultiPart()) {
+            writer.writeError(out, "AOF rewrite requires a multi-part AOF directory (REDIS_AOF_DIRNAME)");
+            return;
+        }
+
+        if (!aof.rewriteInBackground(db)) {
+            writer.writeError(out, "Background append only file rewriting already in progress");
+            return;
+        }
+
+        writer.writeSimple(out, "Background append only file rewriting started");
+    }
+}
@@ -0,0 +1,378 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.ClientRegistry;
+import redis.core.ClientTracking;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * CLIENT ID
+ * CLIENT LIST [TYPE normal|pubsub] [ID id ...]
+ * CLIENT INFO
+ * CLIENT KILL ip:port | CLIENT KILL [ID id] [ADDR ip:port] [TYPE normal|pubsub] [SKIPME yes|no] [MAXAGE secs] ...
+ * CLIENT SETNAME name | CLIENT GETNAME
+ * CLIENT NO-EVICT ON|OFF
+ * CLIENT TRACKING ON|OFF [REDIRECT id] [PREFIX prefix ...] [BCAST] [OPTIN] [OPTOUT]
+ * CLIENT CACHING YES|NO
+ * CLIENT GETREDIR
+ */
+public class ClientCommand implements ConnectionCommand {
+
+    private final ClientRegistry clients;
+
+    public ClientCommand(ClientRegistry clients) {
+        this.clients = clients;
+    }
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!minArity(writer, out, "CLIENT", args.size(), 2))
+            return;
+
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        switch (sub) {
+            case "ID":
+                if (!arity(writer, out, "CLIENT|ID", args.size(), 2))
+                    return;
+                writer.writeInt(out, client.id);
+                break;
+            case "LIST":
+                list(db, writer, out, args);
+                break;
+            case "INFO":
+                if (!arity(writer, out, "CLIENT|INFO", args.size(), 2))
+                    return;
+                writer.writeBulk(out, client.info(db.getClock().nowMillis()) + "\n");
+                break;
+            case "KILL":
+                kill(client, db, writer, out, args);
+                break;
+            case "SETNAME": {
+                if (!arity(writer, out, "CLIENT|SETNAME", args.size(), 3))
+                    return;
+                String name = args.get(2).str;
+                for (int i = 0; i < name.length(); i++) {
+                    char c = name.charAt(i);
+                    if (c < '!' || c > '~') {
+                        writer.writeError(out, "Client names cannot contain spaces, newlines or special characters.");
+                        return;
+                    }
+                }
+                client.setName(name);
+                writer.writeSimple(out, "OK");
+                break;
+            }
+            case "GETNAME": {
+                if (!arity(writer, out, "CLIENT|GETNAME", args.size(), 2))
+                    return;
+                String name = client.name();
+                writer.writeBulk(out, name.isEmpty() ? null : name);
+                break;
+            }
+            case "NO-EVICT": {
+                if (!arity(writer, out, "CLIENT|NO-EVICT", args.size(), 3))
+                    return;
+                String value = args.get(2).str.toUpperCase(Locale.ROOT);
+                if (!value.equals("ON") && !value.equals("OFF")) {
+                    writer.writeError(out, "syntax error");
+                    return;
+                }
+                client.setNoEvict(value.equals("ON"));
+                writer.writeSimple(out, "OK");
+                break;
+            }
+            case "TRACKING":
+                tracking(client, db, writer, out, args);
+                break;
+            case "CACHING": {
+                if (!arity(writer, out, "CLIENT|CACHING", args.size(), 3))
+                    return;
+                ClientTracking.Options options = client.tracking();
+                if (options == null || !(options.optIn || options.optOut)) {
+                    writer.writeError(out, "CLIENT CACHING can be called only when the client is in tracking mode"
+                            + " with OPTIN or OPTOUT mode enabled");
+                    return;
+                }
+                String value = args.get(2).str.toUpperCase(Locale.ROOT);
+                if (value.equals("YES") && options.optIn) {
+                    client.setCaching(true);
+                } else if (value.equals("NO") && options.optOut) {
+                    client.setCaching(false);
+                } else if (value.equals("YES") || value.equals("NO")) {
+                    writer.writeError(out, "CLIENT CACHING " + value + " is only valid when tracking is enabled in "
+                            + (value.equals("YES") ? "OPTIN" : "OPTOUT") + " mode.");
+                    return;
+                } else {
+                    writer.writeError(out, "syntax error");
+                    return;
+                }
+                writer.writeSimple(out, "OK");
+                break;
+            }
+            case "GETREDIR": {
+                if (!arity(writer, out, "CLIENT|GETREDIR", args.size(), 2))
+                    return;
+                ClientTracking.Options options = client.tracking();
+                long redirect = options == null ? -1 : options.redirect == null ? 0 : options.redirect.id;
+                writer.writeInt(out, redirect);
+                break;
+            }
+            default:
+                writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try CLIENT HELP.");
+        }
+    }
+
+    private void list(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        String type = null;
+        Set<Long> ids = null;
+        for (int i = 2; i < args.size(); i++) {
+            String opt = args.get(i).str.toUpperCase(Locale.ROOT);
+            if (opt.equals("TYPE") && i + 1 < args.size()) {
+                type = parseType(writer, out, args.get(++i).str);
+                if (type == null)
+                    return;
+            } else if (opt.equals("ID") && i + 1 < args.size()) {
+                ids = new HashSet<>();
+                while (i + 1 < args.size()) {
+                    Long id = parseLongArg(writer, out, args.get(++i).str);
+                    if (id == null)
+                        return;
+                    ids.add(id);
+                }
+            } else {
+                writer.writeError(out, "syntax error");
+                return;
+            }
+        }
+
+        long now = db.getClock().nowMillis();
+        StringBuilder sb = new StringBuilder();
+        for (Client c : clients.all()) {
+            if ((type == null || type.equals(typeOf(c))) && (ids == null || ids.contains(c.id))) {
+                sb.append(c.info(now)).append('\n');
+            }
+        }
+        writer.writeBulk(out, sb.toString());
+    }
+
+    /**
+     * CLIENT KILL: the old form with an address replies OK, or an error if no
+     * client has it; the filter form replies with the number of clients
+     * killed, and by default spares the calling connection.
+     */
+    private void kill(Client client, Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException {
+        if (!minArity(writer, out, "CLIENT|KILL", args.size(), 3))
+            return;
+
+        if (args.size() == 3) {
+            String address = args.get(2).str;
+            for (Client c : clients.all()) {
+                if (c.address.equals(address)) {
+                    writer.writeSimple(out, "OK");
+                    kill(client, c);
+                    return;
+                }
+            }
+            writer.writeError(out, "No such client");
+            return;
+        }
+        if (args.size() % 2 != 0) {
+            writer.writeError(out, "syntax error");
+            return;
+        }
+
+        Long id = null;
+        String address = null;
+        String type = null;
+        boolean skipMe = true;
+        long maxAge = 0;
+        for (int i = 2; i < args.size(); i += 2) {
+            String opt = args.get(i).str.toUpperCase(Locale.ROOT);
+            String value = args.get(i + 1).str;
+            switch (opt) {
+                case "ID":
+                    id = parseLongArg(writer, out, value);
+                    if (id == null)
+                        return;
+                    break;
+                case "ADDR":
+                    address = value;
+                    break;
+                case "TYPE":
+                    type = parseType(writer, out, value);
+                    if (type == null)
+                        return;
+                    break;
+                case "SKIPME": {
+                    String yesNo = value.toUpperCase(Locale.ROOT);
+                    if (!yesNo.equals("YES") && !yesNo.equals("NO")) {
+                        writer.writeError(out, "syntax error");
+                        return;
+                    }
+                    skipMe = yesNo.equals("YES");
+                    break;
+                }
+                case "MAXAGE": {
+                    Long seconds = parseLongArg(writer, out, value);
+                    if (seconds == null)
+                        return;
+                    maxAge = seconds;
+                    break;
+                }
+                default:
+                    writer.writeError(out, "syntax error");
+                    return;
+            }
+        }
+
+        long now = db.getClock().nowMillis();
+        List<Client> matched = new ArrayList<>();
+        for (Client c : clients.all()) {
+            if ((id == null || c.id == id)
+                    && (address == null || c.address.equals(address))
+                    && (type == null || type.equals(typeOf(c)))
+                    && (maxAge <= 0 || c.ageSeconds(now) >= maxAge)
+                    && !(skipMe && c == client)) {
+                matched.add(c);
+            }
+        }
+        writer.writeInt(out, matched.size());
+        for (Client c : matched) {
+            kill(client, c);
+        }
+    }
+
+    private static void kill(Client caller, Client target) {
+        if (target == caller) {
+            target.closeAfterReply();
+        } else {
+            target.kill();
+        }
+    }
+
+    private static String parseType(RespWriter writer, BufferedWriter out, String type) throws IOException {
+        String lower = type.toLowerCase(Locale.ROOT);
+        if (!lower.equals("normal") && !lower.equals("pubsub")) {
+            writer.writeError(out, "Unknown client type '" + type + "'");
+            return null;
+        }
+        return lower;
+    }
+
+    private static String typeOf(Client c) {
+        return c.isSubscribed() ? "pubsub" : "normal";
+    }
+
+    private void tracking(Client client, Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException {
+        if (!minArity(writer, out, "CLIENT|TRACKING", args.size(), 3))
+            return;
+
+        ClientTracking tracking = db.getClientTracking();
+        if (tracking == null) {
+            writer.writeError(out, "client tracking is not available");
+            return;
+        }
+
+        String mode = args.get(2).str.toUpperCase(Locale.ROOT);
+        if (mode.equals("OFF")) {
+            if (args.size() != 3) {
+                writer.writeError(out, "syntax error");
+                return;
+            }
+            tracking.disable(client);
+            writer.writeSimple(out, "OK");
+            return;
+        }
+        if (!mode.equals("ON")) {
+            writer.writeError(out, "syntax error");
+            return;
+        }
+
+        Client redirect = null;
+        boolean bcast = false;
+        boolean optIn = false;
+        boolean optOut = false;
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 3; i < args.size(); i++) {
+            String opt = args.get(i).str.toUpperCase(Locale.ROOT);
+            boolean hasValue = i + 1 < args.size();
+            if (opt.equals("REDIRECT") && hasValue) {
+                Long id = parseLongArg(writer, out, args.get(++i).str);
+                if (id == null)
+                    return;
+                redirect = clients.get(id);
+                if (redirect == null) {
+                    writer.writeError(out, "The client ID you want redirect to does not exist");
+                    return;
+                }
+            } else if (opt.equals("PREFIX") && hasValue) {
+                prefixes.add(args.get(++i).str);
+            } else if (opt.equals("BCAST")) {
+                bcast = true;
+            } else if (opt.equals("OPTIN")) {
+                optIn = true;
+            } else if (opt.equals("OPTOUT")) {
+                optOut = true;
+            } else {
+                writer.writeError(out, "syntax error");
+                return;
+            }
+        }
+
+        if (bcast && (optIn || optOut)) {
+            writer.writeError(out, "OPTIN and OPTOUT are not compatible with BCAST");
+            return;
+        }
+        if (optIn && optOut) {
+            writer.writeError(out, "You can't use both OPTIN and OPTOUT");
+            return;
+        }
+        if (!bcast && !prefixes.isEmpty()) {
+            writer.writeError(out, "PREFIX option requires BCAST mode to be enabled");
+            return;
+        }
+        String overlap = overlappingPrefixes(prefixes);
+        if (overlap != null) {
+            writer.writeError(out, overlap);
+            return;
+        }
+        if (redirect == null) {
+            // Without RESP3 push messages the invalidations need a second connection
+            writer.writeError(out, "this server only supports RESP2: use REDIRECT with the ID of a connection "
+                    + "subscribed to " + ClientTracking.INVALIDATE_CHANNEL);
+            return;
+        }
+
+        tracking.enable(client, new ClientTracking.Options(redirect, bcast, prefixes, optIn, optOut));
+        writer.writeSimple(out, "OK");
+    }
+
+    private static String overlappingPrefixes(List<String> prefixes) {
+        for (int i = 0; i < prefixes.size(); i++) {
+            for (int j = 0; j < prefixes.size(); j++) {
+                String a = prefixes.get(i);
+                String b = prefixes.get(j);
+                if (i != j && a.startsWith(b)) {
+                    return "Prefix '" + a + "' overlaps with another provided prefix '" + b
+                            + "'. Prefixes for a single client must not overlap.";
+                }
+            }
+        }
+        return null;
+    }
+}
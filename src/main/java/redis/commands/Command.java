@@ -17,4 +17,16 @@ public interface Command {
     default boolean isWriteCommand() {
         return false;
     }
+
+    /**
+     * Request to log to the AOF once this write has executed, or null to log
+     * nothing. Commands whose effect depends on when they run override this
+     * to log a deterministic equivalent (absolute expiry times), so replaying
+     * the AOF later reproduces exactly the same state. Commands whose effect
+     * cannot be worked out from the database afterwards implement
+     * {@link EffectCommand} instead.
+     */
+    default List<Value> aofRequest(Database db, List<Value> args) {
+        return args;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package redis.commands;
 
+import redis.core.CommandTable;
 import redis.core.Database;
 import redis.resp.RespWriter;
 import redis.resp.Value;
@@ -7,19 +8,93 @@ import redis.resp.Value;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
+/**
+ * COMMAND
+ * COMMAND COUNT
+ * COMMAND INFO [name ...]
+ * COMMAND LIST
+ */
 public class CommandCommand implements Command {
 
+    private final CommandTable table;
+
+    public CommandCommand(CommandTable table) {
+        this.table = table;
+    }
+
     @Override
     public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args)
             throws IOException {
 
-        // Redis: COMMAND with no args → return empty list or full command meta
-        if (args.size() != 1) {
-            writer.writeError(out, "wrong number of arguments for 'command' command");
+        if (args.size() == 1) {
+            writer.writeArrayHeader(out, table.size());
+            for (CommandTable.Spec spec : table.all()) {
+                writeInfo(writer, out, spec);
+            }
             return;
         }
 
-        writer.writeArrayHeader(out, 0);
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        switch (sub) {
+            case "COUNT":
+                if (args.size() != 2) {
+                    writer.writeError(out, "wrong number of arguments for 'command|count' command");
+                    return;
+                }
+                writer.writeInt(out, table.size());
+                break;
+            case "LIST":
+                if (args.size() != 2) {
+                    writer.writeError(out, "wrong number of arguments for 'command|list' command");
+                    return;
+                }
+                writer.writeArrayHeader(out, table.size());
+                for (CommandTable.Spec spec : table.all()) {
+                    writer.writeBulk(out, spec.name);
+                }
+                break;
+            case "INFO":
+                if (args.size() == 2) {
+                    // No names: every command, as COMMAND does
+                    writer.writeArrayHeader(out, table.size());
+                    for (CommandTable.Spec spec : table.all()) {
+                        writeInfo(writer, out, spec);
+                    }
+                    return;
+                }
+                writer.writeArrayHeader(out, args.size() - 2);
+                for (int i = 2; i < args.size(); i++) {
+                    CommandTable.Spec spec = table.lookup(args.get(i).str);
+                    if (spec == null) {
+                        writer.writeArrayHeader(out, -1);
+                    } else {
+                        writeInfo(writer, out, spec);
+                    }
+                }
+                break;
+            default:
+                writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try COMMAND HELP.");
+        }
+    }
+
+    /**
+     * The classic six-element reply: name, arity, flags, first key, last key
+     * and key step.
+     */
+    private static void writeInfo(RespWriter writer, BufferedWriter out, CommandTable.Spec spec)
+            throws IOException {
+        writer.writeArrayHeader(out, 6);
+        writer.writeBulk(out, spec.name);
+        writer.writeInt(out, spec.arity);
+        List<String> flags = spec.flagNames();
+        writer.writeArrayHeader(out, flags.size());
+        for (String flag : flags) {
+            writer.writeSimple(out, flag);
+        }
+        writer.writeInt(out, spec.firstKey);
+        writer.writeInt(out, spec.lastKey);
+        writer.writeInt(out, spec.keyStep);
     }
 }
@@ -0,0 +1,28 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * A command that needs the calling connection, e.g. to change its pub/sub
+ * subscriptions. {@link redis.core.CommandProcessor} passes the {@link Client}
+ * to these instead of only its output writer.
+ */
+public interface ConnectionCommand extends Command {
+
+    void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException;
+
+    /**
+     * Without a connection (AOF replay) there is nothing to act on.
+     */
+    @Override
+    default void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        writer.writeError(out, "command is only valid on a client connection");
+    }
+}
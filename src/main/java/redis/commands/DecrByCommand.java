@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -42,6 +43,7 @@ public class DecrByCommand implements Command {
 
         long result = base - decrement;
         db.set(key, Long.toString(result));
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "decrby", key);
 
         writer.writeInt(out, result);
     }
@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -37,6 +38,7 @@ public class DecrCommand implements Command {
 
         num -= 1;
         db.set(key, Long.toString(num));
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "decrby", key);
 
         writer.writeInt(out, num);
     }
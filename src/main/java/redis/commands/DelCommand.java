@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -20,7 +21,11 @@ public class DelCommand implements Command {
 
         int count = 0;
         for (int i = 1; i < args.size(); i++) {
-            count += db.del(args.get(i).str);
+            String key = args.get(i).str;
+            if (db.del(key) > 0) {
+                count++;
+                db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_GENERIC, "del", key);
+            }
         }
 
         writer.writeInt(out, count);
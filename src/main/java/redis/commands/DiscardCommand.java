@@ -0,0 +1,29 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class DiscardCommand implements ConnectionCommand {
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!arity(writer, out, "DISCARD", args.size(), 1))
+            return;
+
+        if (!client.inTransaction()) {
+            writer.writeError(out, "DISCARD without MULTI");
+            return;
+        }
+        client.discardTransaction(db);
+        writer.writeSimple(out, "OK");
+    }
+}
@@ -0,0 +1,36 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * A write whose effect cannot be worked out again once it has run: whether
+ * it wrote at all, which entries it delivered or claimed, the time it used.
+ * Instead of {@link #aofRequest}, execute returns what to log, so nothing is
+ * kept between the two on a command object shared by every client.
+ */
+public interface EffectCommand extends Command {
+
+    /**
+     * Execute, and return the requests that reproduce the effect on replay,
+     * in order, or null when nothing changed. Several requests are logged
+     * together as MULTI ... EXEC.
+     */
+    List<List<Value>> executeLogged(Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException;
+
+    @Override
+    default void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        executeLogged(db, writer, out, args);
+    }
+
+    @Override
+    default boolean isWriteCommand() {
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * EXEC: run the requests queued since MULTI, see
+ * {@link CommandProcessor#exec}.
+ */
+public class ExecCommand implements ConnectionCommand {
+
+    private final CommandProcessor processor;
+
+    public ExecCommand(CommandProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!arity(writer, out, "EXEC", args.size(), 1))
+            return;
+
+        if (!client.inTransaction()) {
+            writer.writeError(out, "EXEC without MULTI");
+            return;
+        }
+        processor.exec(client, db, writer);
+    }
+}
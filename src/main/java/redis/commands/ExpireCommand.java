@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -26,6 +27,10 @@ public class ExpireCommand implements Command {
             return;
 
         boolean success = db.expire(key, seconds);
+        if (success) {
+            // A non-positive timeout deletes the key
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_GENERIC, seconds <= 0 ? "del" : "expire", key);
+        }
 
         writer.writeInt(out, success ? 1 : 0);
     }
@@ -34,4 +39,31 @@ public class ExpireCommand implements Command {
     public boolean isWriteCommand() {
         return true;
     }
+
+    /**
+     * Logged as PEXPIREAT with the absolute time just set, or as DEL when
+     * a non-positive TTL removed the key.
+     */
+    @Override
+    public List<Value> aofRequest(Database db, List<Value> args) {
+        if (args.size() != 3)
+            return null;
+
+        int seconds;
+        try {
+            seconds = Integer.parseInt(args.get(2).str);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        Value key = args.get(1);
+        if (seconds <= 0)
+            return List.of(new Value("bulk", "DEL"), key);
+
+        Long expiry = db.getExpiry(key.str);
+        if (expiry == null)
+            return null; // key did not exist
+
+        return List.of(new Value("bulk", "PEXPIREAT"), key, new Value("bulk", Long.toString(expiry)));
+    }
 }
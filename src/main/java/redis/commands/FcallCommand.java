@@ -0,0 +1,109 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.functions.FunctionException;
+import redis.functions.FunctionRegistry;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * FCALL function numkeys [key ...] [arg ...]
+ * FCALL_RO function numkeys [key ...] [arg ...]
+ */
+public class FcallCommand implements Command {
+
+    private final CommandProcessor processor;
+    private final FunctionRegistry functions;
+    private final boolean readOnly;
+
+    public FcallCommand(CommandProcessor processor, FunctionRegistry functions, boolean readOnly) {
+        this.processor = processor;
+        this.functions = functions;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        execute(db, writer, out, args, null);
+    }
+
+    /**
+     * Inside EXEC, the function's writes go to the transaction's
+     * {@code transactionLog} rather than to the AOF on their own.
+     */
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args,
+            List<Value> transactionLog) throws IOException {
+        String name = readOnly ? "FCALL_RO" : "FCALL";
+        if (!minArity(writer, out, name, args.size(), 3))
+            return;
+
+        Integer numKeys = parseIntArg(writer, out, args.get(2).str);
+        if (numKeys == null)
+            return;
+        if (numKeys < 0) {
+            writer.writeError(out, "Number of keys can't be negative");
+            return;
+        }
+        if (numKeys > args.size() - 3) {
+            writer.writeError(out, "Number of keys can't be greater than number of args");
+            return;
+        }
+
+        FunctionRegistry.Function function = functions.get(args.get(1).str);
+        if (function == null) {
+            writer.writeError(out, "Function not found");
+            return;
+        }
+        if (readOnly && !function.readOnly) {
+            writer.writeError(out, "Can not execute a function with write flag using fcall_ro.");
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(numKeys);
+        List<String> rest = new ArrayList<>(args.size() - 3 - numKeys);
+        for (int i = 3; i < args.size(); i++) {
+            (i < 3 + numKeys ? keys : rest).add(args.get(i).str);
+        }
+
+        Object reply;
+        try {
+            reply = processor.callFunction(function, readOnly || function.readOnly, db, keys, rest,
+                    transactionLog);
+        } catch (FunctionException e) {
+            writer.writeError(out, e.getMessage());
+            return;
+        } catch (RuntimeException | LinkageError e) {
+            // Includes classes the function may not use (NoClassDefFoundError)
+            writer.writeError(out, "Error running function '" + function.name + "': " + e);
+            return;
+        }
+        writeReply(writer, out, reply);
+    }
+
+    private static void writeReply(RespWriter writer, BufferedWriter out, Object reply) throws IOException {
+        if (reply == null) {
+            writer.writeBulk(out, null);
+        } else if (reply instanceof Boolean) {
+            writer.writeInt(out, (Boolean) reply ? 1 : 0);
+        } else if (reply instanceof Long || reply instanceof Integer
+                || reply instanceof Short || reply instanceof Byte) {
+            writer.writeInt(out, ((Number) reply).longValue());
+        } else if (reply instanceof List) {
+            List<?> list = (List<?>) reply;
+            writer.writeArrayHeader(out, list.size());
+            for (Object item : list) {
+                writeReply(writer, out, item);
+            }
+        } else {
+            writer.writeBulk(out, reply.toString());
+        }
+    }
+}
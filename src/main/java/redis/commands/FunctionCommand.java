@@ -0,0 +1,100 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.functions.FunctionException;
+import redis.functions.FunctionRegistry;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * FUNCTION LOAD [REPLACE] class-name
+ * FUNCTION DELETE library
+ * FUNCTION FLUSH
+ * FUNCTION LIST
+ *
+ * A library is a compiled class in the functions directory, named by its
+ * fully qualified class name; see {@link redis.functions.FunctionLibrary}.
+ */
+public class FunctionCommand implements Command {
+
+    private final FunctionRegistry functions;
+
+    public FunctionCommand(FunctionRegistry functions) {
+        this.functions = functions;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        if (!minArity(writer, out, "FUNCTION", args.size(), 2))
+            return;
+
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        try {
+            switch (sub) {
+                case "LOAD": {
+                    boolean replace = args.size() == 4 && "REPLACE".equalsIgnoreCase(args.get(2).str);
+                    if (args.size() != 3 && !replace) {
+                        writer.writeError(out, "syntax error");
+                        return;
+                    }
+                    writer.writeBulk(out, functions.load(args.get(args.size() - 1).str, replace));
+                    break;
+                }
+                case "DELETE":
+                    if (!arity(writer, out, "FUNCTION|DELETE", args.size(), 3))
+                        return;
+                    if (!functions.delete(args.get(2).str)) {
+                        writer.writeError(out, "Library not found");
+                        return;
+                    }
+                    writer.writeSimple(out, "OK");
+                    break;
+                case "FLUSH":
+                    functions.flush();
+                    writer.writeSimple(out, "OK");
+                    break;
+                case "LIST":
+                    list(writer, out);
+                    break;
+                default:
+                    writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try FUNCTION HELP.");
+            }
+        } catch (FunctionException e) {
+            writer.writeError(out, e.getMessage());
+        }
+    }
+
+    private void list(RespWriter writer, BufferedWriter out) throws IOException {
+        Map<String, List<FunctionRegistry.Function>> libraries = functions.libraries();
+        writer.writeArrayHeader(out, libraries.size());
+        for (Map.Entry<String, List<FunctionRegistry.Function>> library : libraries.entrySet()) {
+            writer.writeArrayHeader(out, 6);
+            writer.writeBulk(out, "library_name");
+            writer.writeBulk(out, library.getKey());
+            writer.writeBulk(out, "engine");
+            writer.writeBulk(out, "JAVA");
+            writer.writeBulk(out, "functions");
+            writer.writeArrayHeader(out, library.getValue().size());
+            for (FunctionRegistry.Function f : library.getValue()) {
+                writer.writeArrayHeader(out, 6);
+                writer.writeBulk(out, "name");
+                writer.writeBulk(out, f.name);
+                writer.writeBulk(out, "description");
+                writer.writeBulk(out, null);
+                writer.writeBulk(out, "flags");
+                writer.writeArrayHeader(out, f.readOnly ? 1 : 0);
+                if (f.readOnly) {
+                    writer.writeSimple(out, "no-writes");
+                }
+            }
+        }
+    }
+}
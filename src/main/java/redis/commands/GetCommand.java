@@ -19,6 +19,7 @@ public class GetCommand implements Command {
 
         String key = args.get(1).str;
         String value = db.get(key);
+        db.recordKeyspaceRead(value != null);
 
         writer.writeBulk(out, value);
     }
@@ -31,6 +31,7 @@ public class GetRangeCommand implements Command {
         if (end == null) return;
 
         String value = db.get(key);
+        db.recordKeyspaceRead(value != null);
         if (value == null) {
             writer.writeBulk(out, "");
             return;
@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -31,6 +32,7 @@ public class GetSetCommand implements Command {
         Long oldTTL = db.getExpiry(key);
 
         db.set(key, newValue);
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "set", key);
 
         if (oldTTL != null) {
             db.setExpiry(key, oldTTL);
@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -31,6 +32,12 @@ public class HDelCommand implements Command {
             String field = args.get(i).str;
             deleted += db.deleteHashField(key, field);
         }
+        if (deleted > 0) {
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_HASH, "hdel", key);
+            if (!db.containsHashKey(key)) {
+                db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_GENERIC, "del", key);
+            }
+        }
 
         writer.writeInt(out, deleted);
     }
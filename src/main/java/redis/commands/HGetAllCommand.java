@@ -25,7 +25,9 @@ public class HGetAllCommand implements Command {
             return;
         }
 
-        if (!db.containsHashKey(key)) {
+        boolean found = db.containsHashKey(key);
+        db.recordKeyspaceRead(found);
+        if (!found) {
             writer.writeArrayHeader(out, 0);
             return;
         }
@@ -26,6 +26,7 @@ public class HGetCommand implements Command {
 
         String field = args.get(2).str;
         String value = db.hashget(key, field);
+        db.recordKeyspaceRead(db.containsHashKey(key));
 
         writer.writeBulk(out, value);
     }
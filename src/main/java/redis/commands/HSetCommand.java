@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -33,6 +34,7 @@ public class HSetCommand implements Command {
 
             newFields += db.hset(key, field, value);
         }
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_HASH, "hset", key);
 
         writer.writeInt(out, newFields);
     }
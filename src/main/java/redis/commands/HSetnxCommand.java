@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -29,6 +30,9 @@ public class HSetnxCommand implements Command {
         String value = args.get(3).str;
 
         int result = db.hsetnx(key, field, value);
+        if (result == 1) {
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_HASH, "hset", key);
+        }
         writer.writeInt(out, result);
     }
 
@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -44,6 +45,7 @@ public class IncrByFloatCommand implements Command {
         Double result = base + incVal;
 
         db.set(key, Double.toString(result));
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "incrbyfloat", key);
         writer.writeBulk(out, result.toString());
     }
 
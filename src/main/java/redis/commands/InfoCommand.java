@@ -0,0 +1,227 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import redis.core.CommandProcessor;
+import redis.core.CommandStats;
+import redis.core.CommandTable;
+import redis.core.Database;
+import redis.persistence.AofManager;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+import redis.utils.LatencyHistogram;
+
+/**
+ * INFO [section ...]
+ *
+ * Sections: server, clients, memory, persistence, stats, keyspace (the
+ * default ones), commandstats and latencystats; "all" and "everything" select
+ * every section. Unknown sections are ignored, as in Redis.
+ *
+ * Everything is read from counters kept by the components themselves, so
+ * INFO costs nothing until it is called.
+ */
+public class InfoCommand implements Command {
+
+    private static final List<String> DEFAULT_SECTIONS = List.of(
+            "server", "clients", "memory", "persistence", "stats", "keyspace");
+
+    private final CommandProcessor processor;
+    private final long startMillis = System.currentTimeMillis();
+
+    public InfoCommand(CommandProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        Set<String> sections = new HashSet<>();
+        for (int i = 1; i < args.size(); i++) {
+            sections.add(args.get(i).str.toLowerCase(Locale.ROOT));
+        }
+        boolean all = sections.contains("all") || sections.contains("everything");
+        if (sections.isEmpty() || all || sections.contains("default")) {
+            sections.addAll(DEFAULT_SECTIONS);
+        }
+
+        StringBuilder info = new StringBuilder();
+        if (sections.contains("server")) {
+            server(info);
+        }
+        if (sections.contains("clients")) {
+            clients(info);
+        }
+        if (sections.contains("memory")) {
+            memory(info);
+        }
+        if (sections.contains("persistence")) {
+            persistence(info);
+        }
+        if (sections.contains("stats")) {
+            stats(info, db);
+        }
+        if (all || sections.contains("commandstats")) {
+            commandStats(info);
+        }
+        if (all || sections.contains("latencystats")) {
+            latencyStats(info);
+        }
+        if (sections.contains("keyspace")) {
+            keyspace(info, db);
+        }
+        writer.writeBulk(out, info.toString());
+    }
+
+    private void server(StringBuilder info) {
+        section(info, "Server");
+        long now = System.currentTimeMillis();
+        long uptime = (now - startMillis) / 1000;
+        field(info, "redis_mode", "standalone");
+        field(info, "os", System.getProperty("os.name") + " " + System.getProperty("os.version") + " "
+                + System.getProperty("os.arch"));
+        field(info, "arch_bits", System.getProperty("sun.arch.data.model", "64"));
+        field(info, "java_version", System.getProperty("java.version"));
+        field(info, "process_id", ProcessHandle.current().pid());
+        field(info, "server_time_usec", now * 1000);
+        field(info, "uptime_in_seconds", uptime);
+        field(info, "uptime_in_days", uptime / 86400);
+    }
+
+    private void clients(StringBuilder info) {
+        section(info, "Clients");
+        field(info, "connected_clients", processor.clients().size());
+    }
+
+    private void memory(StringBuilder info) {
+        section(info, "Memory");
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        field(info, "used_memory", used);
+        field(info, "used_memory_human", human(used));
+        field(info, "jvm_heap_committed", runtime.totalMemory());
+        field(info, "jvm_heap_max", runtime.maxMemory());
+        // No maxmemory: keys are never evicted
+        field(info, "maxmemory", 0);
+        field(info, "maxmemory_policy", "noeviction");
+        field(info, "mem_allocator", "jvm");
+    }
+
+    private void persistence(StringBuilder info) {
+        section(info, "Persistence");
+        AofManager aof = processor.aof();
+        field(info, "loading", 0);
+        field(info, "aof_enabled", aof == null ? 0 : 1);
+        if (aof == null) {
+            return;
+        }
+        field(info, "aof_rewrite_in_progress", aof.isRewriting() ? 1 : 0);
+        field(info, "aof_rewrites", aof.rewriteCount());
+        long rewriteMillis = aof.lastRewriteMillis();
+        field(info, "aof_last_rewrite_time_sec", rewriteMillis < 0 ? -1 : rewriteMillis / 1000);
+        field(info, "aof_last_bgrewrite_status", aof.lastRewriteOk() ? "ok" : "err");
+        field(info, "aof_current_size", aof.currentSize());
+        field(info, "aof_base_size", aof.baseSize());
+        field(info, "aof_last_fsync_time", aof.lastFsyncMillis() / 1000);
+    }
+
+    private void stats(StringBuilder info, Database db) {
+        section(info, "Stats");
+        long commands = 0;
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            commands += spec.stats.calls();
+        }
+        field(info, "total_connections_received", processor.clients().totalRegistered());
+        field(info, "total_commands_processed", commands);
+        field(info, "keyspace_hits", db.keyspaceHits());
+        field(info, "keyspace_misses", db.keyspaceMisses());
+        field(info, "expired_keys", db.expiredKeys());
+        field(info, "evicted_keys", 0);
+        PubSubManager pubsub = processor.pubsub();
+        field(info, "pubsub_channels", pubsub == null ? 0 : pubsub.channelCount());
+        field(info, "pubsub_patterns", pubsub == null ? 0 : pubsub.patternCount());
+        field(info, "pubsub_shardchannels", pubsub == null ? 0 : pubsub.shardChannels(null).size());
+        field(info, "client_output_buffer_limit_disconnections",
+                pubsub == null ? 0 : pubsub.outputLimitDisconnections());
+    }
+
+    private void commandStats(StringBuilder info) {
+        section(info, "Commandstats");
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            CommandStats stats = spec.stats;
+            long calls = stats.calls();
+            if (calls == 0 && stats.rejectedCalls() == 0) {
+                continue;
+            }
+            long usec = stats.micros();
+            info.append("cmdstat_").append(spec.name)
+                    .append(":calls=").append(calls)
+                    .append(",usec=").append(usec)
+                    .append(",usec_per_call=").append(format2(calls == 0 ? 0 : (double) usec / calls))
+                    .append(",rejected_calls=").append(stats.rejectedCalls())
+                    .append(",failed_calls=").append(stats.failedCalls())
+                    .append("\r\n");
+        }
+    }
+
+    private void latencyStats(StringBuilder info) {
+        section(info, "Latencystats");
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            LatencyHistogram latency = spec.stats.latency();
+            if (latency.count() == 0) {
+                continue;
+            }
+            info.append("latency_percentiles_usec_").append(spec.name)
+                    .append(":p50=").append(micros(latency.percentile(50)))
+                    .append(",p99=").append(micros(latency.percentile(99)))
+                    .append(",p99.9=").append(micros(latency.percentile(99.9)))
+                    .append("\r\n");
+        }
+    }
+
+    private static void keyspace(StringBuilder info, Database db) {
+        section(info, "Keyspace");
+        int keys = db.keyCount();
+        if (keys > 0) {
+            info.append("db0:keys=").append(keys).append(",expires=").append(db.expiringKeyCount()).append("\r\n");
+        }
+    }
+
+    private static void section(StringBuilder info, String name) {
+        if (info.length() > 0) {
+            info.append("\r\n");
+        }
+        info.append("# ").append(name).append("\r\n");
+    }
+
+    private static void field(StringBuilder info, String name, Object value) {
+        info.append(name).append(':').append(value).append("\r\n");
+    }
+
+    private static String human(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        String units = "KMGT";
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length() - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ROOT, "%.2f%c", value, units.charAt(unit));
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String format2(double d) {
+        return String.format(Locale.ROOT, "%.2f", d);
+    }
+}
@@ -0,0 +1,150 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.LatencyMonitor;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * LATENCY LATEST | HISTORY event | RESET [event ...] | DOCTOR
+ */
+public class LatencyCommand implements Command {
+
+    private final CommandProcessor processor;
+
+    public LatencyCommand(CommandProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        if (!minArity(writer, out, "LATENCY", args.size(), 2)) return;
+
+        LatencyMonitor monitor = processor.latencyMonitor();
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        switch (sub) {
+            case "LATEST": {
+                if (!arity(writer, out, "latency|latest", args.size(), 2)) return;
+                Map<String, LatencyMonitor.Series> events = monitor.events();
+                writer.writeArrayHeader(out, events.size());
+                for (Map.Entry<String, LatencyMonitor.Series> e : events.entrySet()) {
+                    LatencyMonitor.Sample latest = e.getValue().latest();
+                    writer.writeArrayHeader(out, 4);
+                    writer.writeBulk(out, e.getKey());
+                    writer.writeInt(out, latest.timeSeconds);
+                    writer.writeInt(out, latest.latencyMillis);
+                    writer.writeInt(out, e.getValue().maxMillis());
+                }
+                break;
+            }
+            case "HISTORY": {
+                if (!arity(writer, out, "latency|history", args.size(), 3)) return;
+                LatencyMonitor.Series series = monitor.series(args.get(2).str);
+                List<LatencyMonitor.Sample> history = series == null ? List.of() : series.history();
+                writer.writeArrayHeader(out, history.size());
+                for (LatencyMonitor.Sample sample : history) {
+                    writer.writeArrayHeader(out, 2);
+                    writer.writeInt(out, sample.timeSeconds);
+                    writer.writeInt(out, sample.latencyMillis);
+                }
+                break;
+            }
+            case "RESET": {
+                List<String> names = new ArrayList<>();
+                for (int i = 2; i < args.size(); i++) {
+                    names.add(args.get(i).str);
+                }
+                writer.writeInt(out, monitor.reset(names));
+                break;
+            }
+            case "DOCTOR":
+                if (!arity(writer, out, "latency|doctor", args.size(), 2)) return;
+                writer.writeBulk(out, doctor(monitor));
+                break;
+            default:
+                writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try LATENCY HELP.");
+        }
+    }
+
+    /**
+     * A human-readable summary of the spikes, with advice per kind of event.
+     */
+    static String doctor(LatencyMonitor monitor) {
+        if (!monitor.isEnabled()) {
+            return "Latency monitoring is disabled. Set REDIS_LATENCY_MONITOR_THRESHOLD to a number of"
+                    + " milliseconds to record the internal events that take at least that long.\n";
+        }
+        Map<String, LatencyMonitor.Series> events = monitor.events();
+        if (events.isEmpty()) {
+            return "No latency spike over " + monitor.thresholdMillis()
+                    + " ms was observed since startup or the last LATENCY RESET.\n";
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("Latency spikes over ").append(monitor.thresholdMillis()).append(" ms were observed:\n\n");
+        Set<String> advice = new LinkedHashSet<>();
+        int n = 1;
+        for (Map.Entry<String, LatencyMonitor.Series> e : events.entrySet()) {
+            List<LatencyMonitor.Sample> history = e.getValue().history();
+            double avg = 0;
+            for (LatencyMonitor.Sample s : history) {
+                avg += s.latencyMillis;
+            }
+            avg /= history.size();
+            double deviation = 0;
+            for (LatencyMonitor.Sample s : history) {
+                deviation += Math.abs(s.latencyMillis - avg);
+            }
+            deviation /= history.size();
+            long period = history.size() < 2 ? 0
+                    : (history.get(history.size() - 1).timeSeconds - history.get(0).timeSeconds)
+                            / (history.size() - 1);
+
+            report.append(n++).append(". ").append(e.getKey()).append(": ")
+                    .append(history.size()).append(" latency spikes (average ").append(Math.round(avg))
+                    .append(" ms, mean deviation ").append(Math.round(deviation))
+                    .append(" ms, period ").append(period).append(" sec). Worst all time event ")
+                    .append(e.getValue().maxMillis()).append(" ms.\n");
+            advice.add(adviceFor(e.getKey()));
+        }
+        report.append("\nAdvice:\n\n");
+        for (String a : advice) {
+            report.append("- ").append(a).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String adviceFor(String event) {
+        switch (event) {
+            case LatencyMonitor.COMMAND:
+                return "Slow commands: check SLOWLOG GET and INFO commandstats. Avoid KEYS and commands over"
+                        + " whole large hashes or streams on a big dataset.";
+            case LatencyMonitor.FAST_COMMAND:
+                return "Commands that should be O(1) were slow: look for GC pauses, CPU starvation, or clients"
+                        + " waiting for the database lock behind slow commands or transactions.";
+            case LatencyMonitor.AOF_WRITE:
+            case LatencyMonitor.AOF_FSYNC:
+            case LatencyMonitor.AOF_FSYNC_ALWAYS:
+                return "The disk is slow for the AOF: use REDIS_AOF_FSYNC=EVERYSEC (or NO) instead of ALWAYS,"
+                        + " or a faster disk not shared with other I/O heavy processes.";
+            case LatencyMonitor.AOF_REWRITE_SNAPSHOT:
+                return "Writes pause while an AOF rewrite copies the dataset: rewrite when traffic is low.";
+            case LatencyMonitor.EXPIRE_CYCLE:
+                return "Many keys expire at the same time: spread their expiry times.";
+            default:
+                return "No advice for event '" + event + "'.";
+        }
+    }
+}
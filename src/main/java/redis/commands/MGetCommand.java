@@ -30,6 +30,7 @@ public class MGetCommand implements Command {
             }
 
             String val = db.get(key);
+            db.recordKeyspaceRead(val != null);
             writer.writeBulk(out, val);
         }
     }
@@ -1,6 +1,7 @@
 package redis.commands;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -24,6 +25,7 @@ public class MSetCommand implements Command {
 
             // Convert from hash to string if necessary
             db.setAndRemoveOlder(key, value);
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "set", key);
         }
 
         writer.writeSimple(out, "OK");
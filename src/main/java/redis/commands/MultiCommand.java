@@ -0,0 +1,33 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * MULTI: queue the following requests until EXEC or DISCARD. Queueing itself
+ * is done by {@link redis.core.CommandProcessor}.
+ */
+public class MultiCommand implements ConnectionCommand {
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!arity(writer, out, "MULTI", args.size(), 1))
+            return;
+
+        if (client.inTransaction()) {
+            writer.writeError(out, "MULTI calls can not be nested");
+            return;
+        }
+        client.beginTransaction();
+        writer.writeSimple(out, "OK");
+    }
+}
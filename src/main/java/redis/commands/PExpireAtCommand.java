@@ -0,0 +1,41 @@
+package redis.commands;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+public class PExpireAtCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!arity(writer, out, "PEXPIREAT", args.size(), 3))
+            return;
+
+        String key = args.get(1).str;
+
+        Long unixTimeMillis = parseLongArg(writer, out, args.get(2).str);
+        if (unixTimeMillis == null)
+            return;
+
+        boolean success = db.expireAt(key, unixTimeMillis);
+        if (success) {
+            // A deadline in the past deletes the key
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_GENERIC, db.keyExists(key) ? "expire" : "del", key);
+        }
+
+        writer.writeInt(out, success ? 1 : 0);
+    }
+
+    @Override
+    public boolean isWriteCommand() {
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class PSubscribeCommand implements ConnectionCommand {
+
+    private final PubSubManager pubsub;
+
+    public PSubscribeCommand(PubSubManager pubsub) {
+        this.pubsub = pubsub;
+    }
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!minArity(writer, out, "PSUBSCRIBE", args.size(), 2))
+            return;
+
+        // Subscribe to each pattern
+        for (int i = 1; i < args.size(); i++) {
+            String pattern = args.get(i).str;
+            int subCount = pubsub.psubscribe(client.subscriber, pattern);
+
+            // Send confirmation: ["psubscribe", pattern, count]
+            writer.writeArrayHeader(out, 3);
+            writer.writeBulk(out, "psubscribe");
+            writer.writeBulk(out, pattern);
+            writer.writeInt(out, subCount);
+        }
+        out.flush();
+    }
+}
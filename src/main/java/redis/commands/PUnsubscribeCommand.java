@@ -0,0 +1,54 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class PUnsubscribeCommand implements ConnectionCommand {
+
+    private final PubSubManager pubsub;
+
+    public PUnsubscribeCommand(PubSubManager pubsub) {
+        this.pubsub = pubsub;
+    }
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (args.size() == 1) {
+            // Unsubscribe from all patterns, one reply per pattern
+            List<String> patterns = pubsub.punsubscribeAll(client.subscriber);
+            int remaining = client.subscriber.subscriptionCount() + patterns.size();
+            if (patterns.isEmpty()) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "punsubscribe");
+                writer.writeBulk(out, null); // null pattern
+                writer.writeInt(out, remaining);
+            }
+            for (String pattern : patterns) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "punsubscribe");
+                writer.writeBulk(out, pattern);
+                writer.writeInt(out, --remaining);
+            }
+        } else {
+            // Unsubscribe from specific patterns
+            for (int i = 1; i < args.size(); i++) {
+                String pattern = args.get(i).str;
+                int remaining = pubsub.punsubscribe(client.subscriber, pattern);
+
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "punsubscribe");
+                writer.writeBulk(out, pattern);
+                writer.writeInt(out, remaining);
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,69 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * PUBSUB CHANNELS [pattern] | NUMSUB [channel ...] | NUMPAT
+ *      | SHARDCHANNELS [pattern] | SHARDNUMSUB [channel ...]
+ */
+public class PubSubCommand implements Command {
+
+    private final PubSubManager pubsub;
+
+    public PubSubCommand(PubSubManager pubsub) {
+        this.pubsub = pubsub;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        if (!minArity(writer, out, "PUBSUB", args.size(), 2)) return;
+
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        switch (sub) {
+            case "CHANNELS":
+            case "SHARDCHANNELS": {
+                if (args.size() > 3) {
+                    writer.writeError(out, "wrong number of arguments for 'pubsub|" + sub.toLowerCase(Locale.ROOT)
+                            + "' command");
+                    return;
+                }
+                String pattern = args.size() == 3 ? args.get(2).str : null;
+                List<String> channels = sub.equals("CHANNELS")
+                        ? pubsub.channels(pattern)
+                        : pubsub.shardChannels(pattern);
+                writer.writeArrayHeader(out, channels.size());
+                for (String channel : channels) {
+                    writer.writeBulk(out, channel);
+                }
+                break;
+            }
+            case "NUMSUB":
+            case "SHARDNUMSUB": {
+                boolean sharded = sub.equals("SHARDNUMSUB");
+                writer.writeArrayHeader(out, (args.size() - 2) * 2);
+                for (int i = 2; i < args.size(); i++) {
+                    String channel = args.get(i).str;
+                    writer.writeBulk(out, channel);
+                    writer.writeInt(out, sharded ? pubsub.shardNumsub(channel) : pubsub.numsub(channel));
+                }
+                break;
+            }
+            case "NUMPAT":
+                if (!arity(writer, out, "PUBSUB|NUMPAT", args.size(), 2)) return;
+                writer.writeInt(out, pubsub.patternCount());
+                break;
+            default:
+                writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try PUBSUB HELP.");
+        }
+    }
+}
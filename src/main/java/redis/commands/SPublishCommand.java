@@ -0,0 +1,32 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class SPublishCommand implements Command {
+    
+    private final PubSubManager pubsub;
+    
+    public SPublishCommand(PubSubManager pubsub) {
+        this.pubsub = pubsub;
+    }
+    
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        if (!arity(writer, out, "SPUBLISH", args.size(), 3)) return;
+        
+        String channel = args.get(1).str;
+        String message = args.get(2).str;
+        
+        int receivers = pubsub.spublish(channel, message);
+        writer.writeInt(out, receivers);
+    }
+}
\ No newline at end of file
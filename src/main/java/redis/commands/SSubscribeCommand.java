@@ -0,0 +1,42 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class SSubscribeCommand implements ConnectionCommand {
+
+    private final PubSubManager pubsub;
+
+    public SSubscribeCommand(PubSubManager pubsub) {
+        this.pubsub = pubsub;
+    }
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!minArity(writer, out, "SSUBSCRIBE", args.size(), 2))
+            return;
+
+        // Subscribe to each shard channel
+        for (int i = 1; i < args.size(); i++) {
+            String channel = args.get(i).str;
+            int subCount = pubsub.ssubscribe(client.subscriber, channel);
+
+            // Send confirmation: ["ssubscribe", channel, count]
+            writer.writeArrayHeader(out, 3);
+            writer.writeBulk(out, "ssubscribe");
+            writer.writeBulk(out, channel);
+            writer.writeInt(out, subCount);
+        }
+        out.flush();
+    }
+}
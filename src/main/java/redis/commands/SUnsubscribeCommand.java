@@ -0,0 +1,54 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class SUnsubscribeCommand implements ConnectionCommand {
+
+    private final PubSubManager pubsub;
+
+    public SUnsubscribeCommand(PubSubManager pubsub) {
+        this.pubsub = pubsub;
+    }
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (args.size() == 1) {
+            // Unsubscribe from all shard channels, one reply per channel
+            List<String> channels = pubsub.sunsubscribeAll(client.subscriber);
+            int remaining = client.subscriber.shardSubscriptionCount() + channels.size();
+            if (channels.isEmpty()) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "sunsubscribe");
+                writer.writeBulk(out, null); // null channel
+                writer.writeInt(out, remaining);
+            }
+            for (String channel : channels) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "sunsubscribe");
+                writer.writeBulk(out, channel);
+                writer.writeInt(out, --remaining);
+            }
+        } else {
+            // Unsubscribe from specific shard channels
+            for (int i = 1; i < args.size(); i++) {
+                String channel = args.get(i).str;
+                int remaining = pubsub.sunsubscribe(client.subscriber, channel);
+
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "sunsubscribe");
+                writer.writeBulk(out, channel);
+                writer.writeInt(out, remaining);
+            }
+        }
+        out.flush();
+    }
+}
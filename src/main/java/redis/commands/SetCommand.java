@@ -3,6 +3,7 @@ package redis.commands;
 import static redis.utils.CommandUtils.*;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -10,23 +11,27 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.List;
 
-public class SetCommand implements Command {
+public class SetCommand implements EffectCommand {
 
+    /**
+     * Logs nothing unless the key was written. SET with EX/PX/EXAT/PXAT is
+     * logged as the resulting state of the key: {@code SET key value PXAT
+     * <absolute ms>}, or DEL if the deadline had already passed. Without an
+     * expire option the request is logged as is.
+     */
     @Override
-    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+    public List<List<Value>> executeLogged(Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException {
 
         if (!minArity(writer, out, "SET", args.size(), 3)) {
-            return;
+            return null;
         }
 
-        String key = args.get(1).str;
-        if (db.containsHashKey(key)) {
-            db.deleteHashKey(key);
-        }
+        Value key = args.get(1);
         String value = args.get(2).str;
         boolean keepTTL = false;
         boolean nx = false, xx = false;
-        Integer expireSeconds = null;
+        Long expireAtMillis = null;
         boolean hasExpireOption = false;
         boolean abort = false;
 
@@ -50,34 +55,35 @@ public class SetCommand implements Command {
                     }
                     String num = args.get(++i).str;
 
+                    long now = db.getClock().nowMillis();
                     if (token.equals("EX")) {
                         Integer sec = parseIntArg(writer, out, num);
                         if (sec == null) {
                             abort = true;
                             break;
                         }
-                        expireSeconds = sec;
+                        expireAtMillis = now + sec * 1000L;
                     } else if (token.equals("PX")) {
                         Long ms = parseLongArg(writer, out, num);
                         if (ms == null) {
                             abort = true;
                             break;
                         }
-                        expireSeconds = (int) (ms / 1000L);
+                        expireAtMillis = now + ms;
                     } else if (token.equals("EXAT")) {
                         Long unixSec = parseLongArg(writer, out, num);
                         if (unixSec == null) {
                             abort = true;
                             break;
                         }
-                        expireSeconds = (int) (unixSec - (db.getClock().nowMillis() / 1000L));
+                        expireAtMillis = unixSec * 1000L;
                     } else { // PXAT
                         Long unixMs = parseLongArg(writer, out, num);
                         if (unixMs == null) {
                             abort = true;
                             break;
                         }
-                        expireSeconds = (int) ((unixMs - db.getClock().nowMillis()) / 1000L);
+                        expireAtMillis = unixMs;
                     }
                     hasExpireOption = true;
                     break;
@@ -101,51 +107,55 @@ public class SetCommand implements Command {
         }
 
         if (abort)
-            return;
+            return null;
 
         if (nx && xx) {
             writer.writeError(out, "NX and XX options at the same time are not compatible");
-            return;
+            return null;
         }
 
         if (keepTTL && hasExpireOption) {
             writer.writeError(out, "KEEPTTL and EX/PX/EXAT/PXAT options at the same time are not compatible");
-            return;
+            return null;
         }
 
-        if (nx && db.get(key) != null) {
+        if (nx && db.get(key.str) != null) {
             writer.writeBulk(out, null);
-            return;
+            return null;
         }
-        if (xx && db.get(key) == null) {
+        if (xx && db.get(key.str) == null) {
             writer.writeBulk(out, null);
-            return;
-        }
-
-        if (keepTTL) {
-            Long expiry = db.getExpiry(key);
-            db.set(key, value);
-            if (expiry != null)
-                db.setExpiry(key, expiry);
-        } else {
-            db.setAndRemoveOlder(key, value);
+            return null;
         }
 
-        if (expireSeconds != null && expireSeconds <= 0) {
-            db.del(key);
+        // Already expired (e.g. replaying an old SET ... PXAT): never store it
+        if (expireAtMillis != null && expireAtMillis <= db.getClock().nowMillis()) {
             writer.writeSimple(out, "OK");
-            return;
+            // Any type: the key may be a hash or a stream SET replaces
+            if (!db.keyExists(key.str))
+                return null;
+            db.del(key.str);
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_GENERIC, "del", key.str);
+            return List.of(List.of(new Value("bulk", "DEL"), key));
         }
 
-        if (expireSeconds != null) {
-            db.expire(key, expireSeconds);
+        Long expiry = keepTTL ? db.getExpiry(key.str) : null;
+        db.setAndRemoveOlder(key.str, value);
+        if (expiry != null)
+            db.setExpiry(key.str, expiry);
+
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "set", key.str);
+
+        if (expireAtMillis != null) {
+            db.expireAt(key.str, expireAtMillis);
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_GENERIC, "expire", key.str);
         }
 
         writer.writeSimple(out, "OK");
-    }
 
-    @Override
-    public boolean isWriteCommand() {
-        return true;
+        if (expireAtMillis == null)
+            return List.of(args);
+        return List.of(List.of(new Value("bulk", "SET"), key, new Value("bulk", value),
+                new Value("bulk", "PXAT"), new Value("bulk", Long.toString(expireAtMillis))));
     }
 }
@@ -4,6 +4,7 @@ import java.io.*;
 import java.util.*;
 
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -30,6 +31,7 @@ public class SetnxCommand implements Command {
         }
 
         db.set(snxKey, snxValue);
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STRING, "set", snxKey);
         writer.writeInt(out, 1);
     }
 
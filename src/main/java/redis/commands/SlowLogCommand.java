@@ -0,0 +1,80 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.SlowLog;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * SLOWLOG GET [count] | LEN | RESET
+ */
+public class SlowLogCommand implements Command {
+
+    private static final int DEFAULT_COUNT = 10;
+
+    private final CommandProcessor processor;
+
+    public SlowLogCommand(CommandProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        if (!minArity(writer, out, "SLOWLOG", args.size(), 2)) return;
+
+        SlowLog slowLog = processor.slowLog();
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        switch (sub) {
+            case "GET": {
+                if (args.size() > 3) {
+                    writer.writeError(out, "wrong number of arguments for 'slowlog|get' command");
+                    return;
+                }
+                int count = DEFAULT_COUNT;
+                if (args.size() == 3) {
+                    Integer n = parseIntArg(writer, out, args.get(2).str);
+                    if (n == null) return;
+                    if (n < -1) {
+                        writer.writeError(out, "count should be greater than or equal to -1");
+                        return;
+                    }
+                    count = n;
+                }
+                List<SlowLog.Entry> entries = slowLog.get(count);
+                writer.writeArrayHeader(out, entries.size());
+                for (SlowLog.Entry e : entries) {
+                    writer.writeArrayHeader(out, 6);
+                    writer.writeInt(out, e.id);
+                    writer.writeInt(out, e.timestampSeconds);
+                    writer.writeInt(out, e.durationMicros);
+                    writer.writeArrayHeader(out, e.args.size());
+                    for (String arg : e.args) {
+                        writer.writeBulk(out, arg);
+                    }
+                    writer.writeBulk(out, e.clientAddress);
+                    writer.writeBulk(out, e.clientName);
+                }
+                break;
+            }
+            case "LEN":
+                if (!arity(writer, out, "slowlog|len", args.size(), 2)) return;
+                writer.writeInt(out, slowLog.length());
+                break;
+            case "RESET":
+                if (!arity(writer, out, "slowlog|reset", args.size(), 2)) return;
+                slowLog.reset();
+                writer.writeSimple(out, "OK");
+                break;
+            default:
+                writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try SLOWLOG HELP.");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import redis.core.Stream;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * Argument parsing and replies shared by the stream commands.
+ */
+final class StreamArgs {
+
+    static final String WRONGTYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+    static final String INVALID_ID = "Invalid stream ID specified as stream command argument";
+    static final String SYNTAX = "syntax error";
+
+    private StreamArgs() {
+    }
+
+    /**
+     * {@code MAXLEN [=|~] threshold}, as used by XADD and XTRIM.
+     */
+    static final class Trim {
+        long maxLen = -1; // -1 = no trimming
+        boolean approximate;
+        int next; // index after the option, -1 on a syntax error
+    }
+
+    /**
+     * Parse the MAXLEN option starting at {@code args[i]} (the MAXLEN keyword).
+     */
+    static Trim parseMaxLen(List<Value> args, int i) {
+        Trim trim = new Trim();
+        trim.next = -1;
+        i++;
+        if (i < args.size() && ("~".equals(args.get(i).str) || "=".equals(args.get(i).str))) {
+            trim.approximate = "~".equals(args.get(i).str);
+            i++;
+        }
+        if (i >= args.size()) {
+            return trim;
+        }
+        try {
+            trim.maxLen = Long.parseLong(args.get(i).str);
+        } catch (NumberFormatException e) {
+            return trim;
+        }
+        if (trim.maxLen >= 0) {
+            trim.next = i + 1;
+        }
+        return trim;
+    }
+
+    static boolean is(Value arg, String keyword) {
+        return keyword.equals(arg.str.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Reply with an array of {@code [id, [field, value, ...]]} entries; entries
+     * that no longer exist have a null field list.
+     */
+    static void writeEntries(RespWriter writer, BufferedWriter out, List<Stream.Entry> entries)
+            throws IOException {
+        writer.writeArrayHeader(out, entries.size());
+        for (Stream.Entry e : entries) {
+            writer.writeArrayHeader(out, 2);
+            writer.writeBulk(out, e.id.toString());
+            if (e.fields == null) {
+                writer.writeArrayHeader(out, -1);
+                continue;
+            }
+            writer.writeArrayHeader(out, e.fields.length);
+            for (String s : e.fields) {
+                writer.writeBulk(out, s);
+            }
+        }
+    }
+
+    /**
+     * XREAD/XREADGROUP reply: one {@code [key, entries]} pair per stream.
+     */
+    static void writeStreams(RespWriter writer, BufferedWriter out, List<String> keys,
+            List<List<Stream.Entry>> entries) throws IOException {
+        writer.writeArrayHeader(out, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            writer.writeArrayHeader(out, 2);
+            writer.writeBulk(out, keys.get(i));
+            writeEntries(writer, out, entries.get(i));
+        }
+    }
+
+    /**
+     * A request to log to the AOF, e.g. {@code request("XGROUP", "SETID", key, group, id)}.
+     */
+    static List<Value> request(String... parts) {
+        List<Value> request = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            request.add(new Value("bulk", part));
+        }
+        return request;
+    }
+
+    static InterruptedIOException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        InterruptedIOException ex = new InterruptedIOException("interrupted while blocked on a stream");
+        ex.initCause(e);
+        return ex;
+    }
+}
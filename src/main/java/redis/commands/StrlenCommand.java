@@ -25,6 +25,7 @@ public class StrlenCommand implements Command {
         }
 
         String val = db.get(key);
+        db.recordKeyspaceRead(val != null);
         int len = (val == null) ? 0 : val.length();
 
         writer.writeInt(out, len);
@@ -6,12 +6,13 @@ import java.util.List;
 
 import static redis.utils.CommandUtils.*;
 
+import redis.core.Client;
 import redis.core.Database;
 import redis.pubsub.PubSubManager;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
-public class SubscribeCommand implements Command {
+public class SubscribeCommand implements ConnectionCommand {
 
     private final PubSubManager pubsub;
 
@@ -20,14 +21,15 @@ public class SubscribeCommand implements Command {
     }
 
     @Override
-    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
         if (!minArity(writer, out, "SUBSCRIBE", args.size(), 2))
             return;
 
         // Subscribe to each channel
         for (int i = 1; i < args.size(); i++) {
             String channel = args.get(i).str;
-            int subCount = pubsub.subscribe(out, channel);
+            int subCount = pubsub.subscribe(client.subscriber, channel);
 
             // Send confirmation: ["subscribe", channel, count]
             writer.writeArrayHeader(out, 3);
@@ -4,12 +4,13 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.List;
 
+import redis.core.Client;
 import redis.core.Database;
 import redis.pubsub.PubSubManager;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
-public class UnsubscribeCommand implements Command {
+public class UnsubscribeCommand implements ConnectionCommand {
 
     private final PubSubManager pubsub;
 
@@ -18,19 +19,29 @@ public class UnsubscribeCommand implements Command {
     }
 
     @Override
-    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
         if (args.size() == 1) {
-            // Unsubscribe from all
-            pubsub.unsubscribeAll(out);
-            writer.writeArrayHeader(out, 3);
-            writer.writeBulk(out, "unsubscribe");
-            writer.writeBulk(out, null); // null channel
-            writer.writeInt(out, 0);
+            // Unsubscribe from all channels, one reply per channel
+            List<String> channels = pubsub.unsubscribeAllChannels(client.subscriber);
+            int remaining = client.subscriber.subscriptionCount() + channels.size();
+            if (channels.isEmpty()) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "unsubscribe");
+                writer.writeBulk(out, null); // null channel
+                writer.writeInt(out, remaining);
+            }
+            for (String channel : channels) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "unsubscribe");
+                writer.writeBulk(out, channel);
+                writer.writeInt(out, --remaining);
+            }
         } else {
             // Unsubscribe from specific channels
             for (int i = 1; i < args.size(); i++) {
                 String channel = args.get(i).str;
-                int remaining = pubsub.unsubscribe(out, channel);
+                int remaining = pubsub.unsubscribe(client.subscriber, channel);
 
                 writer.writeArrayHeader(out, 3);
                 writer.writeBulk(out, "unsubscribe");
@@ -40,4 +51,4 @@ public class UnsubscribeCommand implements Command {
         }
         out.flush();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class UnwatchCommand implements ConnectionCommand {
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!arity(writer, out, "UNWATCH", args.size(), 1))
+            return;
+
+        client.unwatchAll(db);
+        writer.writeSimple(out, "OK");
+    }
+}
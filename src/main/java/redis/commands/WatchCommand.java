@@ -0,0 +1,36 @@
+package redis.commands;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Client;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * WATCH key [key ...]: the next EXEC fails if one of the keys changes before
+ * it. Nothing is locked; each watched key has a version counter in
+ * {@link Database} that EXEC compares.
+ */
+public class WatchCommand implements ConnectionCommand {
+
+    @Override
+    public void execute(Client client, Database db, RespWriter writer, List<Value> args) throws IOException {
+        BufferedWriter out = client.out;
+        if (!minArity(writer, out, "WATCH", args.size(), 2))
+            return;
+
+        if (client.inTransaction()) {
+            writer.writeError(out, "WATCH inside MULTI is not allowed");
+            return;
+        }
+        for (int i = 1; i < args.size(); i++) {
+            client.watch(db, args.get(i).str);
+        }
+        writer.writeSimple(out, "OK");
+    }
+}
@@ -0,0 +1,65 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XACK key group id [id ...]: remove entries from the group's pending
+ * entries list once a consumer has processed them.
+ */
+public class XAckCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!minArity(writer, out, "XACK", args.size(), 4))
+            return;
+
+        String key = args.get(1).str;
+        List<StreamId> ids = new ArrayList<>(args.size() - 3);
+        for (int i = 3; i < args.size(); i++) {
+            StreamId id = StreamId.parse(args.get(i).str, 0);
+            if (id == null) {
+                writer.writeError(out, StreamArgs.INVALID_ID);
+                return;
+            }
+            ids.add(id);
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        Stream stream = db.getStream(key);
+        Stream.ConsumerGroup group = stream == null ? null : stream.group(args.get(2).str);
+        int acked = 0;
+        if (group != null) {
+            for (StreamId id : ids) {
+                if (group.ack(id)) {
+                    acked++;
+                }
+            }
+        }
+
+        if (acked > 0) {
+            db.signalModifiedKey(key);
+        }
+        writer.writeInt(out, acked);
+    }
+
+    @Override
+    public boolean isWriteCommand() {
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XADD key [NOMKSTREAM] [MAXLEN [=|~] threshold] *|ms-*|id field value [field value ...]
+ *
+ * Logged with the ID actually assigned in place of {@code *} and with an
+ * exact MAXLEN of the length left after trimming, so replay neither depends
+ * on the clock nor on how entries happened to be split into nodes. An XADD
+ * that added nothing is not logged.
+ */
+public class XAddCommand implements EffectCommand {
+
+    @Override
+    public List<List<Value>> executeLogged(Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException {
+
+        if (!minArity(writer, out, "XADD", args.size(), 5))
+            return null;
+
+        String key = args.get(1).str;
+        boolean noMkStream = false;
+        StreamArgs.Trim trim = null;
+
+        int i = 2;
+        while (i < args.size()) {
+            if (StreamArgs.is(args.get(i), "NOMKSTREAM")) {
+                noMkStream = true;
+                i++;
+            } else if (StreamArgs.is(args.get(i), "MAXLEN")) {
+                trim = StreamArgs.parseMaxLen(args, i);
+                if (trim.next < 0) {
+                    writer.writeError(out, StreamArgs.SYNTAX);
+                    return null;
+                }
+                i = trim.next;
+            } else {
+                break;
+            }
+        }
+
+        int fieldCount = args.size() - i - 1;
+        if (fieldCount < 2 || fieldCount % 2 != 0) {
+            writer.writeError(out, "wrong number of arguments for 'xadd' command");
+            return null;
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return null;
+        }
+
+        Stream stream = db.getStream(key);
+        if (stream == null && noMkStream) {
+            writer.writeBulk(out, null);
+            return null;
+        }
+
+        StreamId last = stream == null ? StreamId.MIN : stream.lastId();
+        String idArg = args.get(i).str;
+        StreamId id;
+        if ("*".equals(idArg)) {
+            id = stream == null ? new StreamId(db.getClock().nowMillis(), 0)
+                    : stream.nextId(db.getClock().nowMillis());
+        } else if (idArg.endsWith("-*")) {
+            StreamId ms = StreamId.parse(idArg.substring(0, idArg.length() - 2), 0);
+            if (ms == null) {
+                writer.writeError(out, StreamArgs.INVALID_ID);
+                return null;
+            }
+            id = ms.ms == last.ms ? last.next() : ms;
+        } else {
+            id = StreamId.parse(idArg, 0);
+            if (id == null) {
+                writer.writeError(out, StreamArgs.INVALID_ID);
+                return null;
+            }
+        }
+
+        if (id != null && id.equals(StreamId.MIN)) {
+            writer.writeError(out, "The ID specified in XADD must be greater than 0-0");
+            return null;
+        }
+        if (id == null || id.compareTo(last) <= 0) {
+            writer.writeError(out, "The ID specified in XADD is equal or smaller than the target stream top item");
+            return null;
+        }
+
+        String[] fieldValues = new String[fieldCount];
+        for (int f = 0; f < fieldCount; f++) {
+            fieldValues[f] = args.get(i + 1 + f).str;
+        }
+
+        stream = db.getOrCreateStream(key);
+        stream.add(id, fieldValues);
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xadd", key);
+        if (trim != null && stream.trim(trim.maxLen, trim.approximate) > 0) {
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xtrim", key);
+        }
+        db.signalStreamWrite();
+
+        writer.writeBulk(out, id.toString());
+
+        List<Value> logged = new ArrayList<>(args.size() + 3);
+        logged.add(args.get(0));
+        logged.add(args.get(1));
+        if (trim != null) {
+            logged.add(new Value("bulk", "MAXLEN"));
+            logged.add(new Value("bulk", "="));
+            logged.add(new Value("bulk", Long.toString(stream.length())));
+        }
+        logged.add(new Value("bulk", id.toString()));
+        logged.addAll(args.subList(i + 1, args.size()));
+        return List.of(logged);
+    }
+}
@@ -0,0 +1,163 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XCLAIM key group consumer min-idle-time id [id ...] [IDLE ms] [TIME unix-ms]
+ * [RETRYCOUNT count] [FORCE] [JUSTID]
+ *
+ * Moves pending entries idle for at least min-idle-time to another consumer,
+ * typically to recover the work of a consumer that died. Which entries were
+ * idle long enough cannot be worked out again afterwards, so execute returns
+ * the claim as replay must redo it.
+ */
+public class XClaimCommand implements EffectCommand {
+
+    @Override
+    public List<List<Value>> executeLogged(Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException {
+        if (!minArity(writer, out, "XCLAIM", args.size(), 6))
+            return null;
+
+        String key = args.get(1).str;
+        String groupName = args.get(2).str;
+        String consumerName = args.get(3).str;
+        Long minIdle = parseLongArg(writer, out, args.get(4).str);
+        if (minIdle == null)
+            return null;
+
+        long now = db.getClock().nowMillis();
+        long deliveryTime = now;
+        long retryCount = -1;
+        boolean force = false;
+        boolean justId = false;
+
+        List<StreamId> ids = new ArrayList<>();
+        int i = 5;
+        for (; i < args.size(); i++) {
+            StreamId id = StreamId.parse(args.get(i).str, 0);
+            if (id == null)
+                break;
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            writer.writeError(out, StreamArgs.INVALID_ID);
+            return null;
+        }
+        for (; i < args.size(); i++) {
+            Value opt = args.get(i);
+            boolean hasValue = i + 1 < args.size();
+            if (StreamArgs.is(opt, "FORCE")) {
+                force = true;
+            } else if (StreamArgs.is(opt, "JUSTID")) {
+                justId = true;
+            } else if (StreamArgs.is(opt, "IDLE") && hasValue) {
+                Long idle = parseLongArg(writer, out, args.get(++i).str);
+                if (idle == null)
+                    return null;
+                deliveryTime = now - idle;
+            } else if (StreamArgs.is(opt, "TIME") && hasValue) {
+                Long time = parseLongArg(writer, out, args.get(++i).str);
+                if (time == null)
+                    return null;
+                deliveryTime = time;
+            } else if (StreamArgs.is(opt, "RETRYCOUNT") && hasValue) {
+                Long n = parseLongArg(writer, out, args.get(++i).str);
+                if (n == null)
+                    return null;
+                retryCount = n;
+            } else {
+                writer.writeError(out, "Unrecognized XCLAIM option '" + opt.str + "'");
+                return null;
+            }
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return null;
+        }
+
+        Stream stream = db.getStream(key);
+        Stream.ConsumerGroup group = stream == null ? null : stream.group(groupName);
+        if (group == null) {
+            writer.writeError(out, "NOGROUP No such key '" + key + "' or consumer group '" + groupName + "'");
+            return null;
+        }
+
+        List<List<Value>> logged = new ArrayList<>();
+        Stream.GroupConsumer consumer = group.consumer(consumerName);
+        if (consumer == null) {
+            consumer = group.createConsumer(consumerName, now);
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-createconsumer", key);
+            logged.add(StreamArgs.request("XGROUP", "CREATECONSUMER", key, groupName, consumerName));
+        }
+
+        List<StreamId> claimed = new ArrayList<>();
+        List<Stream.Entry> entries = new ArrayList<>();
+        for (StreamId id : ids) {
+            if (group.claim(stream, id, consumer, minIdle, deliveryTime, retryCount, force, justId, now) == null) {
+                continue;
+            }
+            claimed.add(id);
+            if (justId) {
+                continue;
+            }
+            // Entries trimmed away stay pending but are not returned
+            Stream.Entry entry = stream.get(id);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+
+        if (!claimed.isEmpty()) {
+            db.signalModifiedKey(key);
+            logged.add(aofForm(args, claimed, deliveryTime, retryCount, force, justId));
+        }
+
+        if (justId) {
+            writer.writeArrayHeader(out, claimed.size());
+            for (StreamId id : claimed) {
+                writer.writeBulk(out, id.toString());
+            }
+        } else {
+            StreamArgs.writeEntries(writer, out, entries);
+        }
+        return logged;
+    }
+
+    /**
+     * The claim as replay must redo it: only the IDs actually claimed, a zero
+     * minimum idle time and the absolute delivery time that was set.
+     */
+    private static List<Value> aofForm(List<Value> args, List<StreamId> claimed, long deliveryTime,
+            long retryCount, boolean force, boolean justId) {
+        List<Value> cmd = new ArrayList<>(args.subList(0, 4));
+        cmd.add(new Value("bulk", "0"));
+        for (StreamId id : claimed) {
+            cmd.add(new Value("bulk", id.toString()));
+        }
+        cmd.add(new Value("bulk", "TIME"));
+        cmd.add(new Value("bulk", Long.toString(deliveryTime)));
+        if (retryCount >= 0) {
+            cmd.add(new Value("bulk", "RETRYCOUNT"));
+            cmd.add(new Value("bulk", Long.toString(retryCount)));
+        }
+        if (force)
+            cmd.add(new Value("bulk", "FORCE"));
+        if (justId)
+            cmd.add(new Value("bulk", "JUSTID"));
+        return cmd;
+    }
+}
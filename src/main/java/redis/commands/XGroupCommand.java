@@ -0,0 +1,170 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * XGROUP CREATE key group id|$ [MKSTREAM]
+ * XGROUP SETID key group id|$
+ * XGROUP DESTROY key group
+ * XGROUP CREATECONSUMER key group consumer
+ * XGROUP DELCONSUMER key group consumer
+ */
+public class XGroupCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!minArity(writer, out, "XGROUP", args.size(), 4))
+            return;
+
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        String key = args.get(2).str;
+        String groupName = args.get(3).str;
+
+        boolean mkStream = false;
+        switch (sub) {
+            case "CREATE":
+                mkStream = args.size() == 6 && StreamArgs.is(args.get(5), "MKSTREAM");
+                if (args.size() != 5 && !mkStream) {
+                    writer.writeError(out, StreamArgs.SYNTAX);
+                    return;
+                }
+                break;
+            case "SETID":
+            case "CREATECONSUMER":
+            case "DELCONSUMER":
+                if (!arity(writer, out, "XGROUP|" + sub, args.size(), 5))
+                    return;
+                break;
+            case "DESTROY":
+                if (!arity(writer, out, "XGROUP|" + sub, args.size(), 4))
+                    return;
+                break;
+            default:
+                writer.writeError(out, "unknown subcommand '" + args.get(1).str + "'. Try XGROUP HELP.");
+                return;
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        Stream stream = db.getStream(key);
+        if (stream == null && !mkStream) {
+            writer.writeError(out, "The XGROUP subcommand requires the key to exist. "
+                    + "Note that for CREATE you may want to use the MKSTREAM option to create an empty stream automatically.");
+            return;
+        }
+
+        if (sub.equals("CREATE")) {
+            StreamId id = parseGroupId(args.get(4).str, stream);
+            if (id == null) {
+                writer.writeError(out, StreamArgs.INVALID_ID);
+                return;
+            }
+            if (stream != null && stream.group(groupName) != null) {
+                writer.writeError(out, "BUSYGROUP Consumer Group name already exists");
+                return;
+            }
+            db.getOrCreateStream(key).createGroup(groupName, id);
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-create", key);
+            writer.writeSimple(out, "OK");
+            return;
+        }
+
+        Stream.ConsumerGroup group = stream.group(groupName);
+        if (group == null) {
+            writer.writeError(out, "NOGROUP No such consumer group '" + groupName + "' for key name '" + key + "'");
+            return;
+        }
+
+        switch (sub) {
+            case "SETID": {
+                StreamId id = parseGroupId(args.get(4).str, stream);
+                if (id == null) {
+                    writer.writeError(out, StreamArgs.INVALID_ID);
+                    return;
+                }
+                group.setLastDelivered(id);
+                db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-setid", key);
+                writer.writeSimple(out, "OK");
+                break;
+            }
+            case "DESTROY":
+                stream.destroyGroup(groupName);
+                db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-destroy", key);
+                // Consumers blocked on the group get their NOGROUP error
+                db.signalStreamWrite();
+                writer.writeInt(out, 1);
+                break;
+            case "CREATECONSUMER": {
+                boolean created = group.createConsumer(args.get(4).str, db.getClock().nowMillis()) != null;
+                if (created) {
+                    db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-createconsumer", key);
+                }
+                writer.writeInt(out, created ? 1 : 0);
+                break;
+            }
+            default: { // DELCONSUMER
+                int pending = group.deleteConsumer(args.get(4).str);
+                if (pending >= 0) {
+                    db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-delconsumer", key);
+                }
+                writer.writeInt(out, Math.max(pending, 0));
+                break;
+            }
+        }
+    }
+
+    /**
+     * {@code $} is the stream's last ID, or 0-0 for a stream about to be created.
+     */
+    private static StreamId parseGroupId(String s, Stream stream) {
+        if ("$".equals(s)) {
+            return stream == null ? StreamId.MIN : stream.lastId();
+        }
+        return StreamId.parse(s, 0);
+    }
+
+    @Override
+    public boolean isWriteCommand() {
+        return true;
+    }
+
+    /**
+     * CREATE and SETID with {@code $} are logged with the group's resulting
+     * last delivered ID, which does not depend on entries added later.
+     */
+    @Override
+    public List<Value> aofRequest(Database db, List<Value> args) {
+        if (args.size() < 5 || !"$".equals(args.get(4).str))
+            return args;
+
+        String sub = args.get(1).str.toUpperCase(Locale.ROOT);
+        if (!sub.equals("CREATE") && !sub.equals("SETID"))
+            return args;
+
+        Stream stream = db.getStream(args.get(2).str);
+        Stream.ConsumerGroup group = stream == null ? null : stream.group(args.get(3).str);
+        if (group == null)
+            return null;
+
+        List<Value> logged = new ArrayList<>(args);
+        logged.set(4, new Value("bulk", group.lastDelivered().toString()));
+        return logged;
+    }
+}
@@ -0,0 +1,35 @@
+package redis.commands;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import static redis.utils.CommandUtils.arity;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+public class XLenCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!arity(writer, out, "XLEN", args.size(), 2)) return;
+
+        String key = args.get(1).str;
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        long len = db.underLock(() -> {
+            Stream stream = db.getStream(key);
+            db.recordKeyspaceRead(stream != null);
+            return stream == null ? 0L : stream.length();
+        });
+        writer.writeInt(out, len);
+    }
+}
@@ -0,0 +1,190 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * XPENDING key group [[IDLE min-idle-time] start end count [consumer]]
+ *
+ * The short form summarizes the group's pending entries list: its size,
+ * smallest and greatest IDs, and how many entries each consumer holds. The
+ * extended form lists entries with their consumer, idle time and delivery count.
+ */
+public class XPendingCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!minArity(writer, out, "XPENDING", args.size(), 3))
+            return;
+
+        String key = args.get(1).str;
+        String groupName = args.get(2).str;
+
+        boolean extended = args.size() > 3;
+        long minIdle = 0;
+        StreamId start = null;
+        StreamId end = null;
+        long count = 0;
+        String consumerName = null;
+        if (extended) {
+            int i = 3;
+            if (StreamArgs.is(args.get(i), "IDLE") && i + 1 < args.size()) {
+                Long idle = parseLongArg(writer, out, args.get(i + 1).str);
+                if (idle == null)
+                    return;
+                minIdle = idle;
+                i += 2;
+            }
+            if (args.size() - i != 3 && args.size() - i != 4) {
+                writer.writeError(out, StreamArgs.SYNTAX);
+                return;
+            }
+            start = StreamId.parseRangeBound(args.get(i).str, true);
+            end = StreamId.parseRangeBound(args.get(i + 1).str, false);
+            if (start == null || end == null) {
+                writer.writeError(out, StreamArgs.INVALID_ID);
+                return;
+            }
+            Long n = parseLongArg(writer, out, args.get(i + 2).str);
+            if (n == null)
+                return;
+            count = n;
+            if (i + 3 < args.size()) {
+                consumerName = args.get(i + 3).str;
+            }
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        if (!extended) {
+            // Collected under the lock, written outside it
+            Summary summary = db.underLock(() -> summary(db, key, groupName));
+            if (summary == null) {
+                writeNoGroup(writer, out, key, groupName);
+                return;
+            }
+            writer.writeArrayHeader(out, 4);
+            writer.writeInt(out, summary.count);
+            writer.writeBulk(out, summary.min);
+            writer.writeBulk(out, summary.max);
+            if (summary.count == 0) {
+                writer.writeArrayHeader(out, -1);
+                return;
+            }
+            writer.writeArrayHeader(out, summary.consumers.size());
+            for (String[] c : summary.consumers) {
+                writer.writeArrayHeader(out, 2);
+                writer.writeBulk(out, c[0]);
+                writer.writeBulk(out, c[1]);
+            }
+            return;
+        }
+
+        StreamId from = start;
+        StreamId to = end;
+        long limit = count;
+        long idleAtLeast = minIdle;
+        String only = consumerName;
+        long now = db.getClock().nowMillis();
+        List<Row> rows = db.underLock(() -> {
+            Stream stream = db.getStream(key);
+            Stream.ConsumerGroup group = stream == null ? null : stream.group(groupName);
+            if (group == null) {
+                return null;
+            }
+            List<Row> result = new ArrayList<>();
+            if (from.compareTo(to) > 0) {
+                return result;
+            }
+            for (Stream.PendingEntry p : group.pending().subMap(from, true, to, true).values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                long idle = now - p.deliveryTime();
+                if (idle < idleAtLeast || (only != null && !only.equals(p.consumer().name))) {
+                    continue;
+                }
+                result.add(new Row(p.id.toString(), p.consumer().name, idle, p.deliveryCount()));
+            }
+            return result;
+        });
+
+        if (rows == null) {
+            writeNoGroup(writer, out, key, groupName);
+            return;
+        }
+        writer.writeArrayHeader(out, rows.size());
+        for (Row row : rows) {
+            writer.writeArrayHeader(out, 4);
+            writer.writeBulk(out, row.id);
+            writer.writeBulk(out, row.consumer);
+            writer.writeInt(out, row.idle);
+            writer.writeInt(out, row.deliveryCount);
+        }
+    }
+
+    private static final class Summary {
+        long count;
+        String min;
+        String max;
+        final List<String[]> consumers = new ArrayList<>(); // name, pending count
+    }
+
+    private static final class Row {
+        final String id;
+        final String consumer;
+        final long idle;
+        final long deliveryCount;
+
+        Row(String id, String consumer, long idle, long deliveryCount) {
+            this.id = id;
+            this.consumer = consumer;
+            this.idle = idle;
+            this.deliveryCount = deliveryCount;
+        }
+    }
+
+    /**
+     * Null when the key or group does not exist.
+     */
+    private static Summary summary(Database db, String key, String groupName) {
+        Stream stream = db.getStream(key);
+        Stream.ConsumerGroup group = stream == null ? null : stream.group(groupName);
+        if (group == null) {
+            return null;
+        }
+        NavigableMap<StreamId, Stream.PendingEntry> pending = group.pending();
+        Summary summary = new Summary();
+        summary.count = pending.size();
+        if (!pending.isEmpty()) {
+            summary.min = pending.firstKey().toString();
+            summary.max = pending.lastKey().toString();
+        }
+        for (Stream.GroupConsumer c : group.consumers()) {
+            if (c.pendingCount() > 0) {
+                summary.consumers.add(new String[] { c.name, Integer.toString(c.pendingCount()) });
+            }
+        }
+        return summary;
+    }
+
+    private static void writeNoGroup(RespWriter writer, BufferedWriter out, String key, String group)
+            throws IOException {
+        writer.writeError(out, "NOGROUP No such key '" + key + "' or consumer group '" + group + "'");
+    }
+}
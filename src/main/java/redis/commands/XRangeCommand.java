@@ -0,0 +1,62 @@
+package redis.commands;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import static redis.utils.CommandUtils.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XRANGE key start end [COUNT count]
+ */
+public class XRangeCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!minArity(writer, out, "XRANGE", args.size(), 4)) return;
+
+        String key = args.get(1).str;
+        StreamId start = StreamId.parseRangeBound(args.get(2).str, true);
+        StreamId end = StreamId.parseRangeBound(args.get(3).str, false);
+        if (start == null || end == null) {
+            writer.writeError(out, StreamArgs.INVALID_ID);
+            return;
+        }
+
+        int count = 0;
+        if (args.size() != 4) {
+            if (args.size() != 6 || !StreamArgs.is(args.get(4), "COUNT")) {
+                writer.writeError(out, StreamArgs.SYNTAX);
+                return;
+            }
+            Integer n = parseIntArg(writer, out, args.get(5).str);
+            if (n == null) return;
+            if (n <= 0) {
+                writer.writeArrayHeader(out, 0);
+                return;
+            }
+            count = n;
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        int limit = count;
+        List<Stream.Entry> entries = db.underLock(() -> {
+            Stream stream = db.getStream(key);
+            db.recordKeyspaceRead(stream != null);
+            return stream == null ? new ArrayList<Stream.Entry>() : stream.range(start, end, limit);
+        });
+        StreamArgs.writeEntries(writer, out, entries);
+    }
+}
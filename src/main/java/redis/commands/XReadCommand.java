@@ -0,0 +1,133 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XREAD [COUNT count] [BLOCK milliseconds] STREAMS key [key ...] id [id ...]
+ *
+ * With BLOCK the connection waits until one of the streams gets entries past
+ * its ID; {@code $} stands for the stream's last ID when the command arrives.
+ */
+public class XReadCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!minArity(writer, out, "XREAD", args.size(), 4))
+            return;
+
+        int count = 0;
+        long block = -1;
+        int i = 1;
+        while (i < args.size() && !StreamArgs.is(args.get(i), "STREAMS")) {
+            if (StreamArgs.is(args.get(i), "COUNT") && i + 1 < args.size()) {
+                Integer n = parseIntArg(writer, out, args.get(i + 1).str);
+                if (n == null)
+                    return;
+                count = Math.max(n, 0);
+            } else if (StreamArgs.is(args.get(i), "BLOCK") && i + 1 < args.size()) {
+                Long ms = parseLongArg(writer, out, args.get(i + 1).str);
+                if (ms == null)
+                    return;
+                if (ms < 0) {
+                    writer.writeError(out, "timeout is negative");
+                    return;
+                }
+                block = ms;
+            } else {
+                writer.writeError(out, StreamArgs.SYNTAX);
+                return;
+            }
+            i += 2;
+        }
+
+        int streams = args.size() - i - 1;
+        if (i == args.size() || streams == 0 || streams % 2 != 0) {
+            writer.writeError(out, "Unbalanced 'xread' list of streams: for each stream key an ID or '$' must be specified.");
+            return;
+        }
+        streams /= 2;
+
+        List<String> keys = new ArrayList<>(streams);
+        for (int k = 0; k < streams; k++) {
+            String key = args.get(i + 1 + k).str;
+            if (db.ifStreamKeyTypeMismatch(key)) {
+                writer.writeError(out, StreamArgs.WRONGTYPE);
+                return;
+            }
+            keys.add(key);
+        }
+
+        StreamId[] ids = new StreamId[streams];
+        for (int k = 0; k < streams; k++) {
+            String id = args.get(i + 1 + streams + k).str;
+            if (!"$".equals(id)) {
+                ids[k] = StreamId.parse(id, 0);
+                if (ids[k] == null) {
+                    writer.writeError(out, StreamArgs.INVALID_ID);
+                    return;
+                }
+            }
+        }
+
+        int limit = count;
+        List<List<Stream.Entry>> result = db.underLock(() -> {
+            for (int k = 0; k < ids.length; k++) {
+                if (ids[k] == null) {
+                    Stream stream = db.getStream(keys.get(k));
+                    ids[k] = stream == null ? StreamId.MIN : stream.lastId();
+                }
+            }
+            return read(db, keys, ids, limit);
+        });
+
+        if (result == null && block >= 0) {
+            try {
+                result = db.awaitStreams(() -> read(db, keys, ids, limit), block);
+            } catch (InterruptedException e) {
+                throw StreamArgs.interrupted(e);
+            }
+        }
+
+        if (result == null) {
+            writer.writeArrayHeader(out, -1);
+            return;
+        }
+
+        List<String> readKeys = new ArrayList<>();
+        List<List<Stream.Entry>> readEntries = new ArrayList<>();
+        for (int k = 0; k < keys.size(); k++) {
+            if (!result.get(k).isEmpty()) {
+                readKeys.add(keys.get(k));
+                readEntries.add(result.get(k));
+            }
+        }
+        StreamArgs.writeStreams(writer, out, readKeys, readEntries);
+    }
+
+    /**
+     * Entries past each ID, or null when there are none in any stream.
+     */
+    private static List<List<Stream.Entry>> read(Database db, List<String> keys, StreamId[] ids, int count) {
+        List<List<Stream.Entry>> result = new ArrayList<>(keys.size());
+        boolean any = false;
+        for (int k = 0; k < keys.size(); k++) {
+            Stream stream = db.getStream(keys.get(k));
+            List<Stream.Entry> entries = stream == null ? new ArrayList<>() : stream.after(ids[k], count);
+            any |= !entries.isEmpty();
+            result.add(entries);
+        }
+        return any ? result : null;
+    }
+}
@@ -0,0 +1,214 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XREADGROUP GROUP group consumer [COUNT count] [BLOCK milliseconds] [NOACK]
+ * STREAMS key [key ...] id [id ...]
+ *
+ * {@code >} reads entries never delivered to the group, adding them to the
+ * consumer's pending entries; any other ID re-reads the consumer's own
+ * pending entries after it. Only {@code >} reads block.
+ *
+ * Logged as its effect on the group rather than as a read, which replay
+ * would time at restart: one {@code XCLAIM ... TIME <ms> RETRYCOUNT <n> FORCE
+ * JUSTID} per entry delivered, XGROUP SETID for the group's new last
+ * delivered ID and XGROUP CREATECONSUMER for a consumer it created.
+ */
+public class XReadGroupCommand implements EffectCommand {
+
+    private static final class Request {
+        String group;
+        String consumer;
+        int count;
+        long block = -1;
+        boolean noAck;
+        List<String> keys;
+        List<StreamId> ids; // null for '>'
+    }
+
+    private static final class Result {
+        String error;
+        List<String> keys = new ArrayList<>();
+        List<List<Stream.Entry>> entries = new ArrayList<>();
+    }
+
+    @Override
+    public List<List<Value>> executeLogged(Database db, RespWriter writer, BufferedWriter out, List<Value> args)
+            throws IOException {
+
+        if (!minArity(writer, out, "XREADGROUP", args.size(), 7))
+            return null;
+
+        Request req = parse(writer, out, args);
+        if (req == null)
+            return null;
+
+        for (String key : req.keys) {
+            if (db.ifStreamKeyTypeMismatch(key)) {
+                writer.writeError(out, StreamArgs.WRONGTYPE);
+                return null;
+            }
+        }
+
+        // Runs under the database lock: XREADGROUP is a write command. Every
+        // attempt adds what it changed to the log, including consumers
+        // created by one that found nothing.
+        List<List<Value>> logged = new ArrayList<>();
+        Result result = read(db, req, logged);
+        if (result == null && req.block >= 0) {
+            try {
+                result = db.awaitStreams(() -> read(db, req, logged), req.block);
+            } catch (InterruptedException e) {
+                throw StreamArgs.interrupted(e);
+            }
+        }
+
+        if (result == null) {
+            writer.writeArrayHeader(out, -1);
+        } else if (result.error != null) {
+            writer.writeError(out, result.error);
+        } else {
+            StreamArgs.writeStreams(writer, out, result.keys, result.entries);
+        }
+        return logged;
+    }
+
+    private static Request parse(RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+        if (!StreamArgs.is(args.get(1), "GROUP")) {
+            writer.writeError(out, "Missing GROUP option for XREADGROUP");
+            return null;
+        }
+        Request req = new Request();
+        req.group = args.get(2).str;
+        req.consumer = args.get(3).str;
+
+        int i = 4;
+        while (i < args.size() && !StreamArgs.is(args.get(i), "STREAMS")) {
+            if (StreamArgs.is(args.get(i), "NOACK")) {
+                req.noAck = true;
+                i++;
+                continue;
+            }
+            if (StreamArgs.is(args.get(i), "COUNT") && i + 1 < args.size()) {
+                Integer n = parseIntArg(writer, out, args.get(i + 1).str);
+                if (n == null)
+                    return null;
+                req.count = Math.max(n, 0);
+            } else if (StreamArgs.is(args.get(i), "BLOCK") && i + 1 < args.size()) {
+                Long ms = parseLongArg(writer, out, args.get(i + 1).str);
+                if (ms == null)
+                    return null;
+                if (ms < 0) {
+                    writer.writeError(out, "timeout is negative");
+                    return null;
+                }
+                req.block = ms;
+            } else {
+                writer.writeError(out, StreamArgs.SYNTAX);
+                return null;
+            }
+            i += 2;
+        }
+
+        int streams = args.size() - i - 1;
+        if (i == args.size() || streams == 0 || streams % 2 != 0) {
+            writer.writeError(out, "Unbalanced 'xreadgroup' list of streams: for each stream key an ID or '>' must be specified.");
+            return null;
+        }
+        streams /= 2;
+
+        req.keys = new ArrayList<>(streams);
+        req.ids = new ArrayList<>(streams);
+        for (int k = 0; k < streams; k++) {
+            req.keys.add(args.get(i + 1 + k).str);
+            String id = args.get(i + 1 + streams + k).str;
+            if (">".equals(id)) {
+                req.ids.add(null);
+                continue;
+            }
+            StreamId parsed = StreamId.parse(id, 0);
+            if (parsed == null) {
+                writer.writeError(out, StreamArgs.INVALID_ID);
+                return null;
+            }
+            req.ids.add(parsed);
+        }
+        return req;
+    }
+
+    /**
+     * Read every stream, or return null when only {@code >} was asked for and
+     * nothing new has arrived. A stream or group that does not exist (or was
+     * removed while blocked) ends the read with a NOGROUP error.
+     */
+    private static Result read(Database db, Request req, List<List<Value>> logged) {
+        Result result = new Result();
+        long now = db.getClock().nowMillis();
+        boolean reply = false;
+        for (int k = 0; k < req.keys.size(); k++) {
+            String key = req.keys.get(k);
+            Stream stream = db.getStream(key);
+            Stream.ConsumerGroup group = stream == null ? null : stream.group(req.group);
+            if (group == null) {
+                result.error = "NOGROUP No such key '" + key + "' or consumer group '" + req.group
+                        + "' in XREADGROUP with GROUP option";
+                return result;
+            }
+            Stream.GroupConsumer consumer = group.consumer(req.consumer);
+            if (consumer == null) {
+                consumer = group.createConsumer(req.consumer, now);
+                db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xgroup-createconsumer", key);
+                logged.add(StreamArgs.request("XGROUP", "CREATECONSUMER", key, req.group, req.consumer));
+            }
+
+            StreamId after = req.ids.get(k);
+            List<Stream.Entry> entries = after == null
+                    ? group.readNew(stream, consumer, req.count, req.noAck, now)
+                    : group.readPending(stream, consumer, after, req.count, now);
+            if (!entries.isEmpty()) {
+                // Delivered: the group's last ID or pending entries changed
+                db.signalModifiedKey(key);
+            }
+            if (after == null && !entries.isEmpty()) {
+                logDelivery(group, key, req, entries, logged);
+            }
+            if (after != null || !entries.isEmpty()) {
+                result.keys.add(key);
+                result.entries.add(entries);
+                reply = true;
+            }
+        }
+        return reply ? result : null;
+    }
+
+    /**
+     * New entries delivered: each one now pending for the consumer (unless
+     * NOACK) with its absolute delivery time, and the group's last ID.
+     * Re-reading pending entries changes neither, so logs nothing.
+     */
+    private static void logDelivery(Stream.ConsumerGroup group, String key, Request req,
+            List<Stream.Entry> entries, List<List<Value>> logged) {
+        if (!req.noAck) {
+            for (Stream.Entry e : entries) {
+                Stream.PendingEntry p = group.pending().get(e.id);
+                logged.add(StreamArgs.request("XCLAIM", key, req.group, req.consumer, "0", e.id.toString(),
+                        "TIME", Long.toString(p.deliveryTime()),
+                        "RETRYCOUNT", Long.toString(p.deliveryCount()), "FORCE", "JUSTID"));
+            }
+        }
+        logged.add(StreamArgs.request("XGROUP", "SETID", key, req.group, group.lastDelivered().toString()));
+    }
+}
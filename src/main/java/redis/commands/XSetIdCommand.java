@@ -0,0 +1,59 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * XSETID key last-id: set the ID new entries must be greater than.
+ */
+public class XSetIdCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!arity(writer, out, "XSETID", args.size(), 3))
+            return;
+
+        String key = args.get(1).str;
+        StreamId id = StreamId.parse(args.get(2).str, 0);
+        if (id == null) {
+            writer.writeError(out, StreamArgs.INVALID_ID);
+            return;
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        Stream stream = db.getStream(key);
+        if (stream == null) {
+            writer.writeError(out, "no such key");
+            return;
+        }
+        StreamId top = stream.lastEntryId();
+        if (top != null && id.compareTo(top) < 0) {
+            writer.writeError(out, "The ID specified in XSETID is smaller than the target stream top item");
+            return;
+        }
+
+        stream.setLastId(id);
+        db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xsetid", key);
+        writer.writeSimple(out, "OK");
+    }
+
+    @Override
+    public boolean isWriteCommand() {
+        return true;
+    }
+}
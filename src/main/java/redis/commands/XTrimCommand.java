@@ -0,0 +1,69 @@
+package redis.commands;
+
+import static redis.utils.CommandUtils.*;
+
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.Stream;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * XTRIM key MAXLEN [=|~] threshold
+ */
+public class XTrimCommand implements Command {
+
+    @Override
+    public void execute(Database db, RespWriter writer, BufferedWriter out, List<Value> args) throws IOException {
+
+        if (!minArity(writer, out, "XTRIM", args.size(), 4))
+            return;
+
+        String key = args.get(1).str;
+        if (!StreamArgs.is(args.get(2), "MAXLEN")) {
+            writer.writeError(out, StreamArgs.SYNTAX);
+            return;
+        }
+        StreamArgs.Trim trim = StreamArgs.parseMaxLen(args, 2);
+        if (trim.next != args.size()) {
+            writer.writeError(out, StreamArgs.SYNTAX);
+            return;
+        }
+
+        if (db.ifStreamKeyTypeMismatch(key)) {
+            writer.writeError(out, StreamArgs.WRONGTYPE);
+            return;
+        }
+
+        Stream stream = db.getStream(key);
+        long removed = stream == null ? 0 : stream.trim(trim.maxLen, trim.approximate);
+        if (removed > 0) {
+            db.notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_STREAM, "xtrim", key);
+        }
+
+        writer.writeInt(out, removed);
+    }
+
+    @Override
+    public boolean isWriteCommand() {
+        return true;
+    }
+
+    /**
+     * Logged as an exact trim to the length left, since what approximate
+     * trimming removes depends on the node layout.
+     */
+    @Override
+    public List<Value> aofRequest(Database db, List<Value> args) {
+        Stream stream = db.getStream(args.get(1).str);
+        if (stream == null)
+            return null;
+
+        return List.of(args.get(0), args.get(1), new Value("bulk", "MAXLEN"), new Value("bulk", "="),
+                new Value("bulk", Long.toString(stream.length())));
+    }
+}
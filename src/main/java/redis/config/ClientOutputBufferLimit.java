@@ -0,0 +1,110 @@
+package redis.config;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One class of Redis' {@code client-output-buffer-limit}: a client whose
+ * pending output reaches {@code hardLimitBytes} is disconnected at once; one
+ * that stays at or above {@code softLimitBytes} for {@code softSeconds} is
+ * disconnected too. A limit of 0 disables that check.
+ */
+public final class ClientOutputBufferLimit {
+
+    public enum ClientClass {
+        NORMAL, PUBSUB, REPLICA
+    }
+
+    public static final ClientOutputBufferLimit NONE = new ClientOutputBufferLimit(0, 0, 0);
+
+    // Redis defaults
+    public static final String DEFAULT_SPEC = "normal 0 0 0 pubsub 32mb 8mb 60 replica 256mb 64mb 60";
+
+    public final long hardLimitBytes;
+    public final long softLimitBytes;
+    public final long softSeconds;
+
+    public ClientOutputBufferLimit(long hardLimitBytes, long softLimitBytes, long softSeconds) {
+        this.hardLimitBytes = hardLimitBytes;
+        this.softLimitBytes = softLimitBytes;
+        this.softSeconds = softSeconds;
+    }
+
+    public boolean isHardLimitReached(long pendingBytes) {
+        return hardLimitBytes > 0 && pendingBytes >= hardLimitBytes;
+    }
+
+    public boolean isSoftLimitReached(long pendingBytes) {
+        return softLimitBytes > 0 && pendingBytes >= softLimitBytes;
+    }
+
+    /**
+     * Parse a {@code <class> <hard> <soft> <seconds>} list, e.g.
+     * {@code "pubsub 32mb 8mb 60 normal 0 0 0"}. Classes not mentioned keep their
+     * Redis default. Sizes accept the k/kb/m/mb/g/gb suffixes.
+     */
+    public static Map<ClientClass, ClientOutputBufferLimit> parse(String spec) {
+        Map<ClientClass, ClientOutputBufferLimit> limits = new EnumMap<>(ClientClass.class);
+        if (!DEFAULT_SPEC.equals(spec)) {
+            limits.putAll(parse(DEFAULT_SPEC));
+        }
+
+        String[] parts = spec.trim().split("\\s+");
+        if (parts.length % 4 != 0) {
+            throw new IllegalArgumentException("Invalid client-output-buffer-limit: " + spec);
+        }
+        for (int i = 0; i < parts.length; i += 4) {
+            ClientClass clientClass = parseClass(parts[i]);
+            long hard = parseSize(parts[i + 1]);
+            long soft = parseSize(parts[i + 2]);
+            long seconds = Long.parseLong(parts[i + 3]);
+            if (hard < 0 || soft < 0 || seconds < 0) {
+                throw new IllegalArgumentException("Invalid client-output-buffer-limit: " + spec);
+            }
+            limits.put(clientClass, new ClientOutputBufferLimit(hard, soft, seconds));
+        }
+        return limits;
+    }
+
+    private static ClientClass parseClass(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "normal":
+                return ClientClass.NORMAL;
+            case "pubsub":
+                return ClientClass.PUBSUB;
+            case "replica":
+            case "slave":
+                return ClientClass.REPLICA;
+            default:
+                throw new IllegalArgumentException("Invalid client class in client-output-buffer-limit: " + name);
+        }
+    }
+
+    /**
+     * Parse a memory size the way redis.conf does (1k = 1000, 1kb = 1024).
+     */
+    static long parseSize(String value) {
+        String v = value.toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        String[][] units = { { "gb", "1073741824" }, { "mb", "1048576" }, { "kb", "1024" },
+                { "g", "1000000000" }, { "m", "1000000" }, { "k", "1000" }, { "b", "1" } };
+        for (String[] unit : units) {
+            if (v.endsWith(unit[0])) {
+                multiplier = Long.parseLong(unit[1]);
+                v = v.substring(0, v.length() - unit[0].length());
+                break;
+            }
+        }
+        try {
+            return Long.parseLong(v) * multiplier;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid memory size: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return hardLimitBytes + " " + softLimitBytes + " " + softSeconds;
+    }
+}
@@ -2,7 +2,10 @@ package redis.config;
 
 import java.nio.file.Path;
 import java.util.Locale;
+import java.util.Map;
 
+import redis.core.KeyspaceNotifier;
+import redis.core.SlowLog;
 import redis.persistence.AofManager.FsyncPolicy;
 
 public class ServerConfig {
@@ -12,18 +15,213 @@ public class ServerConfig {
         public final Path aofPath;
         public final FsyncPolicy fsyncPolicy;
         public final int maxThreads;
+        // Multi-part AOF directory (next to aofPath); null or blank = single file
+        public final String aofDirName;
+        // Write CRC32C-checksummed batches to the AOF
+        public final boolean aofChecksum;
+        // Truncate a torn AOF tail at startup instead of refusing to start
+        public final boolean aofLoadTruncated;
+        // Write rewrite base files as binary snapshots instead of RESP
+        public final boolean aofSnapshotBase;
+        // Minimum value size LZF-compressed in snapshot bases, 0 = off
+        public final int aofCompressionThreshold;
+        // Output buffer limits per client class (client-output-buffer-limit)
+        public final Map<ClientOutputBufferLimit.ClientClass, ClientOutputBufferLimit> clientOutputBufferLimits;
+        // Keyspace notification classes (notify-keyspace-events), "" = off
+        public final String notifyKeyspaceEvents;
+        // Keys remembered for CLIENT TRACKING (tracking-table-max-keys), 0 = unlimited
+        public final int trackingTableMaxKeys;
+        // Directory FUNCTION LOAD loads library classes from, null = functions disabled
+        public final Path functionsDir;
+        // SLOWLOG threshold in microseconds (slowlog-log-slower-than), negative = off
+        public final long slowlogLogSlowerThan;
+        // Entries kept by SLOWLOG (slowlog-max-len)
+        public final int slowlogMaxLen;
+        // LATENCY event threshold in milliseconds (latency-monitor-threshold), 0 = off
+        public final long latencyMonitorThreshold;
+        // Port of the Prometheus /metrics listener, 0 = off
+        public final int metricsPort;
 
+        public static final String DEFAULT_AOF_DIRNAME = "appendonlydir";
+        public static final int DEFAULT_AOF_COMPRESSION_THRESHOLD = 64;
+        public static final int DEFAULT_TRACKING_TABLE_MAX_KEYS = 1_000_000;
+
+        /**
+         * A server with the given basics and defaults for everything else:
+         * single-file AOF, no checksums, RESP rewrite bases.
+         */
         public ServerConfig(
                         int port,
                         boolean aofEnabled,
                         Path aofPath,
                         FsyncPolicy fsyncPolicy,
                         int maxThreads) {
-                this.port = port;
-                this.aofEnabled = aofEnabled;
-                this.aofPath = aofPath;
-                this.fsyncPolicy = fsyncPolicy;
-                this.maxThreads = maxThreads;
+                this(builder()
+                                .port(port)
+                                .aofEnabled(aofEnabled)
+                                .aofPath(aofPath)
+                                .fsyncPolicy(fsyncPolicy)
+                                .maxThreads(maxThreads));
+        }
+
+        private ServerConfig(Builder b) {
+                this.port = b.port;
+                this.aofEnabled = b.aofEnabled;
+                this.aofPath = b.aofPath;
+                this.fsyncPolicy = b.fsyncPolicy;
+                this.maxThreads = b.maxThreads;
+                this.aofDirName = b.aofDirName;
+                this.aofChecksum = b.aofChecksum;
+                this.aofLoadTruncated = b.aofLoadTruncated;
+                this.aofSnapshotBase = b.aofSnapshotBase;
+                this.aofCompressionThreshold = b.aofCompressionThreshold;
+                this.clientOutputBufferLimits = b.clientOutputBufferLimits;
+                this.notifyKeyspaceEvents = b.notifyKeyspaceEvents;
+                this.trackingTableMaxKeys = b.trackingTableMaxKeys;
+                this.functionsDir = b.functionsDir;
+                this.slowlogLogSlowerThan = b.slowlogLogSlowerThan;
+                this.slowlogMaxLen = b.slowlogMaxLen;
+                this.latencyMonitorThreshold = b.latencyMonitorThreshold;
+                this.metricsPort = b.metricsPort;
+        }
+
+        /**
+         * A builder starting from the defaults of the short constructor.
+         */
+        public static Builder builder() {
+                return new Builder();
+        }
+
+        public static final class Builder {
+                private int port = 6379;
+                private boolean aofEnabled;
+                private Path aofPath = Path.of("appendonly.aof");
+                private FsyncPolicy fsyncPolicy = FsyncPolicy.EVERYSEC;
+                private int maxThreads;
+                private String aofDirName;
+                private boolean aofChecksum;
+                private boolean aofLoadTruncated = true;
+                private boolean aofSnapshotBase;
+                private int aofCompressionThreshold = DEFAULT_AOF_COMPRESSION_THRESHOLD;
+                private Map<ClientOutputBufferLimit.ClientClass, ClientOutputBufferLimit> clientOutputBufferLimits =
+                                ClientOutputBufferLimit.parse(ClientOutputBufferLimit.DEFAULT_SPEC);
+                private String notifyKeyspaceEvents = "";
+                private int trackingTableMaxKeys = DEFAULT_TRACKING_TABLE_MAX_KEYS;
+                private Path functionsDir;
+                private long slowlogLogSlowerThan = SlowLog.DEFAULT_SLOWER_THAN_MICROS;
+                private int slowlogMaxLen = SlowLog.DEFAULT_MAX_LEN;
+                private long latencyMonitorThreshold;
+                private int metricsPort;
+
+                private Builder() {
+                }
+
+                public Builder port(int port) {
+                        this.port = port;
+                        return this;
+                }
+
+                public Builder aofEnabled(boolean aofEnabled) {
+                        this.aofEnabled = aofEnabled;
+                        return this;
+                }
+
+                public Builder aofPath(Path aofPath) {
+                        this.aofPath = aofPath;
+                        return this;
+                }
+
+                public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+                        this.fsyncPolicy = fsyncPolicy;
+                        return this;
+                }
+
+                public Builder maxThreads(int maxThreads) {
+                        this.maxThreads = maxThreads;
+                        return this;
+                }
+
+                /**
+                 * Multi-part AOF directory next to the AOF path; null for a
+                 * single file (the default).
+                 */
+                public Builder aofDirName(String aofDirName) {
+                        this.aofDirName = aofDirName;
+                        return this;
+                }
+
+                public Builder aofChecksum(boolean aofChecksum) {
+                        this.aofChecksum = aofChecksum;
+                        return this;
+                }
+
+                public Builder aofLoadTruncated(boolean aofLoadTruncated) {
+                        this.aofLoadTruncated = aofLoadTruncated;
+                        return this;
+                }
+
+                public Builder aofSnapshotBase(boolean aofSnapshotBase) {
+                        this.aofSnapshotBase = aofSnapshotBase;
+                        return this;
+                }
+
+                public Builder aofCompressionThreshold(int aofCompressionThreshold) {
+                        this.aofCompressionThreshold = aofCompressionThreshold;
+                        return this;
+                }
+
+                public Builder clientOutputBufferLimits(
+                                Map<ClientOutputBufferLimit.ClientClass, ClientOutputBufferLimit> limits) {
+                        this.clientOutputBufferLimits = limits;
+                        return this;
+                }
+
+                public Builder notifyKeyspaceEvents(String notifyKeyspaceEvents) {
+                        this.notifyKeyspaceEvents = notifyKeyspaceEvents;
+                        return this;
+                }
+
+                public Builder trackingTableMaxKeys(int trackingTableMaxKeys) {
+                        this.trackingTableMaxKeys = trackingTableMaxKeys;
+                        return this;
+                }
+
+                public Builder functionsDir(Path functionsDir) {
+                        this.functionsDir = functionsDir;
+                        return this;
+                }
+
+                public Builder slowlogLogSlowerThan(long slowlogLogSlowerThan) {
+                        this.slowlogLogSlowerThan = slowlogLogSlowerThan;
+                        return this;
+                }
+
+                public Builder slowlogMaxLen(int slowlogMaxLen) {
+                        this.slowlogMaxLen = slowlogMaxLen;
+                        return this;
+                }
+
+                public Builder latencyMonitorThreshold(long latencyMonitorThreshold) {
+                        this.latencyMonitorThreshold = latencyMonitorThreshold;
+                        return this;
+                }
+
+                public Builder metricsPort(int metricsPort) {
+                        this.metricsPort = metricsPort;
+                        return this;
+                }
+
+                public ServerConfig build() {
+                        return new ServerConfig(this);
+                }
+        }
+
+        public ClientOutputBufferLimit outputBufferLimit(ClientOutputBufferLimit.ClientClass clientClass) {
+                return clientOutputBufferLimits.getOrDefault(clientClass, ClientOutputBufferLimit.NONE);
+        }
+
+        public boolean aofMultiPart() {
+                return aofDirName != null && !aofDirName.isBlank();
         }
 
         public static ServerConfig fromEnv() {
@@ -42,12 +240,75 @@ public class ServerConfig {
                 int maxThreads = Integer.parseInt(
                                 env("REDIS_MAX_THREADS", "0"));
 
-                return new ServerConfig(
-                                port,
-                                aofEnabled,
-                                aofPath,
-                                fsyncPolicy,
-                                maxThreads);
+                // Set to "none" to keep the legacy single-file AOF
+                String aofDirName = env("REDIS_AOF_DIRNAME", DEFAULT_AOF_DIRNAME);
+                if ("none".equalsIgnoreCase(aofDirName)) {
+                        aofDirName = null;
+                }
+
+                boolean aofChecksum = Boolean.parseBoolean(
+                                env("REDIS_AOF_CHECKSUM", "false"));
+
+                boolean aofLoadTruncated = Boolean.parseBoolean(
+                                env("REDIS_AOF_LOAD_TRUNCATED", "true"));
+
+                // "aof" (RESP) or "snapshot" (compact binary, see SnapshotFile)
+                boolean aofSnapshotBase = "snapshot".equalsIgnoreCase(
+                                env("REDIS_AOF_BASE_FORMAT", "aof"));
+
+                int aofCompressionThreshold = Integer.parseInt(
+                                env("REDIS_AOF_COMPRESSION_THRESHOLD",
+                                                String.valueOf(DEFAULT_AOF_COMPRESSION_THRESHOLD)));
+
+                // "<class> <hard> <soft> <seconds>" groups, e.g. "pubsub 32mb 8mb 60"
+                Map<ClientOutputBufferLimit.ClientClass, ClientOutputBufferLimit> clientOutputBufferLimits =
+                                ClientOutputBufferLimit.parse(env("REDIS_CLIENT_OUTPUT_BUFFER_LIMIT",
+                                                ClientOutputBufferLimit.DEFAULT_SPEC));
+
+                // Event classes as in redis.conf, e.g. "KEA" or "Ex"
+                String notifyKeyspaceEvents = env("REDIS_NOTIFY_KEYSPACE_EVENTS", "");
+                KeyspaceNotifier.parseFlags(notifyKeyspaceEvents);
+
+                int trackingTableMaxKeys = Integer.parseInt(
+                                env("REDIS_TRACKING_TABLE_MAX_KEYS",
+                                                String.valueOf(DEFAULT_TRACKING_TABLE_MAX_KEYS)));
+
+                // Compiled FunctionLibrary classes (and jars) for FUNCTION LOAD; unset = disabled
+                String functions = env("REDIS_FUNCTIONS_DIR", "");
+                Path functionsDir = functions.isEmpty() ? null : Path.of(functions);
+
+                long slowlogLogSlowerThan = Long.parseLong(
+                                env("REDIS_SLOWLOG_LOG_SLOWER_THAN",
+                                                String.valueOf(SlowLog.DEFAULT_SLOWER_THAN_MICROS)));
+
+                int slowlogMaxLen = Integer.parseInt(
+                                env("REDIS_SLOWLOG_MAX_LEN", String.valueOf(SlowLog.DEFAULT_MAX_LEN)));
+
+                long latencyMonitorThreshold = Long.parseLong(
+                                env("REDIS_LATENCY_MONITOR_THRESHOLD", "0"));
+
+                int metricsPort = Integer.parseInt(env("REDIS_METRICS_PORT", "0"));
+
+                return builder()
+                                .port(port)
+                                .aofEnabled(aofEnabled)
+                                .aofPath(aofPath)
+                                .fsyncPolicy(fsyncPolicy)
+                                .maxThreads(maxThreads)
+                                .aofDirName(aofDirName)
+                                .aofChecksum(aofChecksum)
+                                .aofLoadTruncated(aofLoadTruncated)
+                                .aofSnapshotBase(aofSnapshotBase)
+                                .aofCompressionThreshold(aofCompressionThreshold)
+                                .clientOutputBufferLimits(clientOutputBufferLimits)
+                                .notifyKeyspaceEvents(notifyKeyspaceEvents)
+                                .trackingTableMaxKeys(trackingTableMaxKeys)
+                                .functionsDir(functionsDir)
+                                .slowlogLogSlowerThan(slowlogLogSlowerThan)
+                                .slowlogMaxLen(slowlogMaxLen)
+                                .latencyMonitorThreshold(latencyMonitorThreshold)
+                                .metricsPort(metricsPort)
+                                .build();
         }
 
         private static final java.util.Map<String, String> dotenv = new java.util.HashMap<>();
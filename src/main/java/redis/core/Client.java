@@ -0,0 +1,274 @@
+package redis.core;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import redis.pubsub.Subscriber;
+import redis.resp.Value;
+
+/**
+ * One client connection, created by its handler when the connection is
+ * accepted and passed to commands that act on the connection itself rather
+ * than only on the database.
+ */
+public class Client {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    // Unique for the life of the server (CLIENT ID)
+    public final long id;
+    public final BufferedWriter out;
+    // Peer ip:port, "" when not a network connection
+    public final String address;
+    // Pub/sub identity and subscriptions of this connection
+    public final Subscriber subscriber;
+    // The socket, closed by CLIENT KILL; null when not a network connection
+    private final Closeable connection;
+    private final long createdMillis;
+
+    // CLIENT SETNAME, "" when not set
+    private volatile String name = "";
+    // CLIENT NO-EVICT
+    private volatile boolean noEvict;
+    // CLIENT KILL of the connection itself: close once the reply is sent
+    private volatile boolean closeAfterReply;
+
+    // Written by the connection's own thread only, read by CLIENT LIST:
+    // the last command, when it ended, and totals since the connection opened
+    private volatile String lastCommand = "NULL";
+    private volatile long lastArgumentChars;
+    private volatile long lastInteractionMillis;
+    private volatile long commands;
+    private volatile long netIn;
+    private volatile long netOut;
+
+    // CLIENT TRACKING settings, null while tracking is off
+    volatile ClientTracking.Options tracking;
+    // CLIENT CACHING yes/no, applying to the next command only; null if not given
+    volatile Boolean caching;
+
+    // Only touched by the connection's own thread (CLIENT LIST only peeks):
+    // MULTI: the queued requests, null outside a transaction
+    private List<List<Value>> queued;
+    // A request was rejected while queueing, so EXEC must fail
+    private boolean queueFailed;
+    // WATCH: key → its version when watched
+    private final Map<String, Long> watchedKeys = new HashMap<>();
+
+    public Client(BufferedWriter out) {
+        this(out, "");
+    }
+
+    public Client(BufferedWriter out, String address) {
+        this(out, address, null, System.currentTimeMillis());
+    }
+
+    /**
+     * A network connection, accepted at {@code nowMillis}. Closing
+     * {@code connection} must end its handler.
+     */
+    public Client(BufferedWriter out, String address, Closeable connection, long nowMillis) {
+        this.id = NEXT_ID.getAndIncrement();
+        this.out = out;
+        this.address = address;
+        this.subscriber = new Subscriber(out, connection);
+        this.connection = connection;
+        this.createdMillis = nowMillis;
+        this.lastInteractionMillis = nowMillis;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * CLIENT SETNAME: "" clears the name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setNoEvict(boolean noEvict) {
+        this.noEvict = noEvict;
+    }
+
+    public long ageSeconds(long nowMillis) {
+        return Math.max(0, nowMillis - createdMillis) / 1000;
+    }
+
+    /**
+     * Count a command run for this connection, with the size of its arguments
+     * and reply. Called by the connection's own thread once it ran.
+     */
+    void recordCommand(String name, long argumentChars, long replyChars, long nowMillis) {
+        lastCommand = name.toLowerCase(Locale.ROOT);
+        lastArgumentChars = argumentChars;
+        lastInteractionMillis = nowMillis;
+        commands++;
+        netIn += argumentChars;
+        netOut += replyChars;
+    }
+
+    /**
+     * CLIENT KILL: close the connection, which ends its handler. Returns false
+     * if this client is not a network connection.
+     */
+    public boolean kill() {
+        if (connection == null) {
+            return false;
+        }
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+            // Closed anyway
+        }
+        return true;
+    }
+
+    /**
+     * CLIENT KILL of the connection itself, which must still get the reply.
+     */
+    public void closeAfterReply() {
+        closeAfterReply = true;
+    }
+
+    public boolean isClosingAfterReply() {
+        return closeAfterReply;
+    }
+
+    /**
+     * The CLIENT LIST line of this connection, without the line break.
+     */
+    public String info(long nowMillis) {
+        ClientTracking.Options options = tracking;
+        List<List<Value>> transaction = queued;
+        StringBuilder flags = new StringBuilder();
+        if (isSubscribed()) {
+            flags.append('P');
+        }
+        if (transaction != null) {
+            flags.append('x');
+        }
+        if (options != null) {
+            flags.append('t');
+        }
+        if (noEvict) {
+            flags.append('e');
+        }
+        if (closeAfterReply) {
+            flags.append('c');
+        }
+        if (flags.length() == 0) {
+            flags.append('N');
+        }
+        return "id=" + id
+                + " addr=" + address
+                + " name=" + name
+                + " age=" + ageSeconds(nowMillis)
+                + " idle=" + Math.max(0, nowMillis - lastInteractionMillis) / 1000
+                + " flags=" + flags
+                + " db=0"
+                + " sub=" + subscriber.channelSubscriptionCount()
+                + " psub=" + subscriber.patternSubscriptionCount()
+                + " ssub=" + subscriber.shardSubscriptionCount()
+                + " multi=" + (transaction == null ? -1 : transaction.size())
+                + " argv-mem=" + lastArgumentChars
+                + " omem=" + subscriber.pendingBytes()
+                + " tot-cmds=" + commands
+                + " tot-net-in=" + netIn
+                + " tot-net-out=" + netOut
+                + " cmd=" + lastCommand
+                + " redir=" + (options == null ? -1 : options.redirect == null ? 0 : options.redirect.id);
+    }
+
+    /**
+     * True while the connection is in subscribed mode.
+     */
+    public boolean isSubscribed() {
+        return subscriber.isSubscribed();
+    }
+
+    public ClientTracking.Options tracking() {
+        return tracking;
+    }
+
+    /**
+     * CLIENT CACHING: whether the keys read by the next command are tracked,
+     * overriding the OPTIN/OPTOUT default.
+     */
+    public void setCaching(boolean yes) {
+        caching = yes;
+    }
+
+    public boolean inTransaction() {
+        return queued != null;
+    }
+
+    /**
+     * MULTI: start queueing requests.
+     */
+    public void beginTransaction() {
+        queued = new ArrayList<>();
+        queueFailed = false;
+    }
+
+    void queue(List<Value> args) {
+        queued.add(args);
+    }
+
+    void queueFailed() {
+        queueFailed = true;
+    }
+
+    /**
+     * Leave MULTI and return the queued requests, or null when one of them was
+     * rejected and the transaction must be aborted.
+     */
+    List<List<Value>> endTransaction() {
+        List<List<Value>> requests = queueFailed ? null : queued;
+        queued = null;
+        queueFailed = false;
+        return requests;
+    }
+
+    /**
+     * DISCARD: drop the queued requests and the watched keys.
+     */
+    public void discardTransaction(Database db) {
+        queued = null;
+        queueFailed = false;
+        unwatchAll(db);
+    }
+
+    public void watch(Database db, String key) {
+        if (!watchedKeys.containsKey(key)) {
+            watchedKeys.put(key, db.watch(key));
+        }
+    }
+
+    public void unwatchAll(Database db) {
+        for (String key : watchedKeys.keySet()) {
+            db.unwatch(key);
+        }
+        watchedKeys.clear();
+    }
+
+    /**
+     * True if a watched key changed since WATCH. Call under the database lock.
+     */
+    boolean watchedKeyChanged(Database db) {
+        for (Map.Entry<String, Long> e : watchedKeys.entrySet()) {
+            if (db.keyVersion(e.getKey()) != e.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
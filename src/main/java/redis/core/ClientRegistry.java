@@ -0,0 +1,52 @@
+package redis.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The connected clients, by {@link Client#id}. Handlers register their client
+ * when the connection is accepted and remove it when it closes.
+ */
+public class ClientRegistry {
+
+    private final Map<Long, Client> clients = new ConcurrentHashMap<>();
+    // Connections accepted since startup (total_connections_received)
+    private final LongAdder registered = new LongAdder();
+
+    public void register(Client client) {
+        clients.put(client.id, client);
+        registered.increment();
+    }
+
+    public void unregister(Client client) {
+        clients.remove(client.id, client);
+    }
+
+    /**
+     * The connected client with this ID, or null.
+     */
+    public Client get(long id) {
+        return clients.get(id);
+    }
+
+    /**
+     * The connected clients, oldest first.
+     */
+    public List<Client> all() {
+        List<Client> all = new ArrayList<>(clients.values());
+        all.sort(Comparator.comparingLong(c -> c.id));
+        return all;
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    public long totalRegistered() {
+        return registered.sum();
+    }
+}
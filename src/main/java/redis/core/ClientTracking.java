@@ -0,0 +1,211 @@
+package redis.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import redis.pubsub.Message;
+import redis.pubsub.PubSubManager;
+
+/**
+ * Server-assisted client-side caching (CLIENT TRACKING).
+ *
+ * In the default mode the server remembers which clients read which keys, in
+ * a table bounded to {@code maxKeys} keys, and sends an invalidation message
+ * to those clients when a key changes or expires. The key is then forgotten
+ * until a client reads it again. When the table is full the oldest keys are
+ * evicted, and their clients are told to drop them as if they had changed.
+ *
+ * In broadcasting mode (BCAST) nothing is recorded per key: clients register
+ * key prefixes and are told about every change to a matching key.
+ *
+ * Invalidations are {@code message} frames on {@value #INVALIDATE_CHANNEL},
+ * sent to the connection given as REDIRECT, which must be subscribed to that
+ * channel. This is the RESP2 way of doing it; there are no RESP3 pushes.
+ */
+public class ClientTracking {
+
+    public static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+
+    /**
+     * Tracking settings of one client.
+     */
+    public static final class Options {
+        public final Client redirect;
+        public final boolean bcast;
+        public final List<String> prefixes; // BCAST only; empty = every key
+        public final boolean optIn;
+        public final boolean optOut;
+
+        public Options(Client redirect, boolean bcast, List<String> prefixes, boolean optIn, boolean optOut) {
+            this.redirect = redirect;
+            this.bcast = bcast;
+            this.prefixes = List.copyOf(prefixes);
+            this.optIn = optIn;
+            this.optOut = optOut;
+        }
+    }
+
+    private final PubSubManager pubsub;
+    private final int maxKeys; // 0 = unbounded
+
+    // Key → clients that read it, oldest key first. Guarded by this.
+    private final LinkedHashMap<String, Set<Client>> table = new LinkedHashMap<>();
+    // BCAST prefix → clients. Guarded by this.
+    private final Map<String, Set<Client>> prefixes = new HashMap<>();
+    // Every client with tracking on. Guarded by this.
+    private final Set<Client> clients = new HashSet<>();
+
+    // Lets key changes skip the lock entirely while nobody tracks anything
+    private volatile boolean active;
+
+    public ClientTracking(PubSubManager pubsub, int maxKeys) {
+        this.pubsub = pubsub;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Turn tracking on for a client, or change its settings.
+     */
+    public synchronized void enable(Client client, Options options) {
+        removePrefixes(client);
+        client.tracking = options;
+        client.caching = null;
+        clients.add(client);
+        if (options.bcast) {
+            List<String> registered = options.prefixes.isEmpty() ? List.of("") : options.prefixes;
+            for (String prefix : registered) {
+                prefixes.computeIfAbsent(prefix, p -> new HashSet<>()).add(client);
+            }
+        }
+        active = true;
+    }
+
+    /**
+     * Turn tracking off (CLIENT TRACKING off, or the connection closed). Keys
+     * the client read stay in the table until they change or are evicted, and
+     * are then skipped.
+     */
+    public synchronized void disable(Client client) {
+        removePrefixes(client);
+        client.tracking = null;
+        client.caching = null;
+        clients.remove(client);
+        active = !clients.isEmpty();
+    }
+
+    private void removePrefixes(Client client) {
+        Options old = client.tracking;
+        if (old == null || !old.bcast) {
+            return;
+        }
+        for (Iterator<Set<Client>> it = prefixes.values().iterator(); it.hasNext();) {
+            Set<Client> subs = it.next();
+            subs.remove(client);
+            if (subs.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Record that a client is about to read these keys with a read-only
+     * command. Consumes the client's CLIENT CACHING setting.
+     */
+    public void keysRead(Client client, List<String> keys) {
+        Options options = client.tracking;
+        Boolean caching = client.caching;
+        client.caching = null;
+        if (options == null || options.bcast || keys.isEmpty()) {
+            return;
+        }
+        if (options.optIn && !Boolean.TRUE.equals(caching)) {
+            return;
+        }
+        if (options.optOut && Boolean.FALSE.equals(caching)) {
+            return;
+        }
+
+        List<Map.Entry<String, Set<Client>>> evicted = null;
+        synchronized (this) {
+            for (String key : keys) {
+                table.computeIfAbsent(key, k -> new HashSet<>()).add(client);
+            }
+            while (maxKeys > 0 && table.size() > maxKeys) {
+                if (evicted == null) {
+                    evicted = new ArrayList<>();
+                }
+                Iterator<Map.Entry<String, Set<Client>>> it = table.entrySet().iterator();
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        if (evicted != null) {
+            for (Map.Entry<String, Set<Client>> e : evicted) {
+                send(e.getValue(), List.of(e.getKey()));
+            }
+        }
+    }
+
+    /**
+     * A key changed or expired: tell the clients that read it, and the
+     * broadcasting clients with a matching prefix.
+     */
+    public void invalidate(String key) {
+        if (!active) {
+            return;
+        }
+        Set<Client> targets;
+        synchronized (this) {
+            targets = table.remove(key);
+            for (Map.Entry<String, Set<Client>> e : prefixes.entrySet()) {
+                if (key.startsWith(e.getKey())) {
+                    if (targets == null) {
+                        targets = new HashSet<>();
+                    }
+                    targets.addAll(e.getValue());
+                }
+            }
+        }
+        if (targets != null) {
+            send(targets, List.of(key));
+        }
+    }
+
+    /**
+     * FLUSHALL: every tracking client drops its whole cache (a null key list).
+     */
+    public void invalidateAll() {
+        if (!active) {
+            return;
+        }
+        List<Client> targets;
+        synchronized (this) {
+            table.clear();
+            targets = new ArrayList<>(clients);
+        }
+        send(targets, null);
+    }
+
+    private void send(Iterable<Client> targets, List<String> keys) {
+        Message message = Message.invalidation(INVALIDATE_CHANNEL, keys);
+        for (Client client : targets) {
+            Options options = client.tracking;
+            if (options != null && options.redirect != null) {
+                pubsub.sendTo(options.redirect.subscriber, message);
+            }
+        }
+    }
+
+    /**
+     * Number of keys in the tracking table.
+     */
+    public synchronized int trackedKeys() {
+        return table.size();
+    }
+}
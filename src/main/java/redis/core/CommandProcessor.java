@@ -1,16 +1,26 @@
 package redis.core;
 
+import static redis.core.CommandTable.*;
+
 import java.util.*;
 
 import redis.commands.AppendCommand;
+import redis.commands.BgRewriteAofCommand;
+import redis.commands.ClientCommand;
 import redis.commands.Command;
 import redis.commands.CommandCommand;
+import redis.commands.ConnectionCommand;
 import redis.commands.DecrByCommand;
 import redis.commands.DecrCommand;
 import redis.commands.DelCommand;
+import redis.commands.DiscardCommand;
+import redis.commands.EffectCommand;
+import redis.commands.ExecCommand;
 import redis.commands.ExistsCommand;
 import redis.commands.ExpireCommand;
+import redis.commands.FcallCommand;
 import redis.commands.FlushAllCommand;
+import redis.commands.FunctionCommand;
 import redis.commands.GetCommand;
 import redis.commands.GetRangeCommand;
 import redis.commands.GetSetCommand;
@@ -24,20 +34,49 @@ import redis.commands.HSetnxCommand;
 import redis.commands.IncrByCommand;
 import redis.commands.IncrByFloatCommand;
 import redis.commands.IncrCommand;
+import redis.commands.InfoCommand;
 import redis.commands.KeysCommand;
+import redis.commands.LatencyCommand;
 import redis.commands.MGetCommand;
 import redis.commands.MSetCommand;
+import redis.commands.MultiCommand;
+import redis.commands.PExpireAtCommand;
+import redis.commands.PSubscribeCommand;
+import redis.commands.PUnsubscribeCommand;
 import redis.commands.PingCommand;
+import redis.commands.PubSubCommand;
 import redis.commands.PublishCommand;
+import redis.commands.SPublishCommand;
+import redis.commands.SSubscribeCommand;
+import redis.commands.SUnsubscribeCommand;
 import redis.commands.SetCommand;
 import redis.commands.SetnxCommand;
+import redis.commands.SlowLogCommand;
 import redis.commands.StrlenCommand;
 import redis.commands.SubscribeCommand;
 import redis.commands.TTLCommand;
 import redis.commands.TypeCommand;
 import redis.commands.UnsubscribeCommand;
+import redis.commands.UnwatchCommand;
+import redis.commands.WatchCommand;
+import redis.commands.XAckCommand;
+import redis.commands.XAddCommand;
+import redis.commands.XClaimCommand;
+import redis.commands.XGroupCommand;
+import redis.commands.XLenCommand;
+import redis.commands.XPendingCommand;
+import redis.commands.XRangeCommand;
+import redis.commands.XReadCommand;
+import redis.commands.XReadGroupCommand;
+import redis.commands.XSetIdCommand;
+import redis.commands.XTrimCommand;
+import redis.functions.FunctionException;
+import redis.functions.FunctionRegistry;
+import redis.jfr.CommandExecutedEvent;
 import redis.persistence.AofManager;
 import redis.pubsub.PubSubManager;
+import redis.resp.RespParseException;
+import redis.resp.RespParser;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -45,9 +84,18 @@ import java.io.*;
 
 public class CommandProcessor {
 
-    private final Map<String, Command> commands = new HashMap<>();
+    // Run at once inside MULTI instead of being queued
+    private static final Set<String> RUN_IN_MULTI = Set.of("multi", "exec", "discard", "watch");
+
+    private final CommandTable table = new CommandTable();
+    private final ClientRegistry clients = new ClientRegistry();
     private final PubSubManager pubsub;
     private final AofManager aof; // can be null
+    private final FunctionRegistry functions;
+    // Formats the replies of commands called by functions, parsed back for them
+    private final RespWriter functionReplies = new RespWriter();
+    private volatile SlowLog slowLog = new SlowLog();
+    private volatile LatencyMonitor latencyMonitor = new LatencyMonitor();
 
     public CommandProcessor() {
         this(null, null);
@@ -58,55 +106,169 @@ public class CommandProcessor {
     }
 
     public CommandProcessor(PubSubManager pubsub, AofManager aof) {
+        this(pubsub, aof, new FunctionRegistry(null));
+    }
+
+    public CommandProcessor(PubSubManager pubsub, AofManager aof, FunctionRegistry functions) {
         this.pubsub = pubsub;
         this.aof = aof;
+        this.functions = functions;
         registerCommands();
     }
 
+    /**
+     * The connected clients; handlers register theirs here.
+     */
+    public ClientRegistry clients() {
+        return clients;
+    }
+
     private void registerCommands() {
-        commands.put("PING", new PingCommand());
-        commands.put("SET", new SetCommand());
-        commands.put("SETNX", new SetnxCommand());
-        commands.put("GET", new GetCommand());
-        commands.put("GETSET", new GetSetCommand());
-        commands.put("DEL", new DelCommand());
-        commands.put("EXPIRE", new ExpireCommand());
-        commands.put("TTL", new TTLCommand());
-
-        commands.put("HSET", new HSetCommand());
-        commands.put("HSETNX", new HSetnxCommand());
-        commands.put("HGET", new HGetCommand());
-        commands.put("HGETALL", new HGetAllCommand());
-        commands.put("HDEL", new HDelCommand());
-        commands.put("HLEN", new HLenCommand());
-        commands.put("HEXISTS", new HExistsCommand());
-
-        commands.put("INCR", new IncrCommand());
-        commands.put("DECR", new DecrCommand());
-        commands.put("INCRBY", new IncrByCommand());
-        commands.put("DECRBY", new DecrByCommand());
-        commands.put("INCRBYFLOAT", new IncrByFloatCommand());
-
-        commands.put("APPEND", new AppendCommand());
-        commands.put("GETRANGE", new GetRangeCommand());
-        commands.put("STRLEN", new StrlenCommand());
-
-        commands.put("MSET", new MSetCommand());
-        commands.put("MGET", new MGetCommand());
-
-        commands.put("EXISTS", new ExistsCommand());
-        commands.put("KEYS", new KeysCommand());
-
-        commands.put("FLUSHALL", new FlushAllCommand());
-        commands.put("TYPE", new TypeCommand());
-        commands.put("COMMAND", new CommandCommand());
-
-        commands.put("SUBSCRIBE", new SubscribeCommand(pubsub));
-        commands.put("UNSUBSCRIBE", new UnsubscribeCommand(pubsub));
-        commands.put("PUBLISH", new PublishCommand(pubsub));
-        // Add others...
+        // name, command, arity, flags (write comes from the command), first key, last key, key step
+        table.register("PING", new PingCommand(), -1, FAST | STALE, 0, 0, 0);
+        table.register("SET", new SetCommand(), -3, DENYOOM, 1, 1, 1);
+        table.register("SETNX", new SetnxCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+        table.register("GET", new GetCommand(), 2, READONLY | FAST, 1, 1, 1);
+        table.register("GETSET", new GetSetCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+        table.register("DEL", new DelCommand(), -2, 0, 1, -1, 1);
+        table.register("EXPIRE", new ExpireCommand(), 3, FAST, 1, 1, 1);
+        table.register("PEXPIREAT", new PExpireAtCommand(), 3, FAST, 1, 1, 1);
+        table.register("TTL", new TTLCommand(), 2, READONLY | FAST, 1, 1, 1);
+
+        table.register("HSET", new HSetCommand(), -4, DENYOOM | FAST, 1, 1, 1);
+        table.register("HSETNX", new HSetnxCommand(), 4, DENYOOM | FAST, 1, 1, 1);
+        table.register("HGET", new HGetCommand(), 3, READONLY | FAST, 1, 1, 1);
+        table.register("HGETALL", new HGetAllCommand(), 2, READONLY, 1, 1, 1);
+        table.register("HDEL", new HDelCommand(), -3, FAST, 1, 1, 1);
+        table.register("HLEN", new HLenCommand(), 2, READONLY | FAST, 1, 1, 1);
+        table.register("HEXISTS", new HExistsCommand(), 3, READONLY | FAST, 1, 1, 1);
+
+        table.register("INCR", new IncrCommand(), 2, DENYOOM | FAST, 1, 1, 1);
+        table.register("DECR", new DecrCommand(), 2, DENYOOM | FAST, 1, 1, 1);
+        table.register("INCRBY", new IncrByCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+        table.register("DECRBY", new DecrByCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+        table.register("INCRBYFLOAT", new IncrByFloatCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+
+        table.register("APPEND", new AppendCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+        table.register("GETRANGE", new GetRangeCommand(), 4, READONLY, 1, 1, 1);
+        table.register("STRLEN", new StrlenCommand(), 2, READONLY | FAST, 1, 1, 1);
+
+        table.register("MSET", new MSetCommand(), -3, DENYOOM, 1, -1, 2);
+        table.register("MGET", new MGetCommand(), -2, READONLY | FAST, 1, -1, 1);
+
+        table.register("EXISTS", new ExistsCommand(), -2, READONLY | FAST, 1, -1, 1);
+        table.register("KEYS", new KeysCommand(), 2, READONLY, 0, 0, 0);
+
+        table.register("FLUSHALL", new FlushAllCommand(), 1, 0, 0, 0, 0);
+        table.register("TYPE", new TypeCommand(), 2, READONLY | FAST, 1, 1, 1);
+        table.register("COMMAND", new CommandCommand(table), -1, LOADING | STALE, 0, 0, 0);
+        table.register("INFO", new InfoCommand(this), -1, LOADING | STALE, 0, 0, 0);
+        table.register("LATENCY", new LatencyCommand(this), -2, ADMIN | NOSCRIPT | LOADING | STALE, 0, 0, 0);
+        table.register("SLOWLOG", new SlowLogCommand(this), -2, ADMIN | LOADING | STALE, 0, 0, 0);
+        table.register("BGREWRITEAOF", new BgRewriteAofCommand(aof), 1, ADMIN | NOSCRIPT, 0, 0, 0);
+        table.register("CLIENT", new ClientCommand(clients), -2, ADMIN | NOSCRIPT | LOADING | STALE, 0, 0, 0);
+
+        table.register("MULTI", new MultiCommand(), 1, NOSCRIPT | LOADING | STALE | FAST, 0, 0, 0);
+        table.register("EXEC", new ExecCommand(this), 1, NOSCRIPT | LOADING | STALE, 0, 0, 0);
+        table.register("DISCARD", new DiscardCommand(), 1, NOSCRIPT | LOADING | STALE | FAST, 0, 0, 0);
+        table.register("WATCH", new WatchCommand(), -2, NOSCRIPT | LOADING | STALE | FAST, 1, -1, 1);
+        table.register("UNWATCH", new UnwatchCommand(), 1, NOSCRIPT | LOADING | STALE | FAST, 0, 0, 0);
+
+        table.register("FUNCTION", new FunctionCommand(functions), -2, NOSCRIPT, 0, 0, 0);
+        table.register("FCALL", new FcallCommand(this, functions, false), -3, NOSCRIPT | MOVABLEKEYS, 0, 0, 0);
+        table.register("FCALL_RO", new FcallCommand(this, functions, true), -3,
+                NOSCRIPT | READONLY | MOVABLEKEYS, 0, 0, 0);
+
+        int subscribe = PUBSUB | NOSCRIPT | LOADING | STALE;
+        table.register("SUBSCRIBE", new SubscribeCommand(pubsub), -2, subscribe, 0, 0, 0);
+        table.register("UNSUBSCRIBE", new UnsubscribeCommand(pubsub), -1, subscribe, 0, 0, 0);
+        table.register("PSUBSCRIBE", new PSubscribeCommand(pubsub), -2, subscribe, 0, 0, 0);
+        table.register("PUNSUBSCRIBE", new PUnsubscribeCommand(pubsub), -1, subscribe, 0, 0, 0);
+        table.register("PUBLISH", new PublishCommand(pubsub), 3, PUBSUB | LOADING | STALE | FAST, 0, 0, 0);
+        table.register("SSUBSCRIBE", new SSubscribeCommand(pubsub), -2, subscribe, 0, 0, 0);
+        table.register("SUNSUBSCRIBE", new SUnsubscribeCommand(pubsub), -1, subscribe, 0, 0, 0);
+        table.register("SPUBLISH", new SPublishCommand(pubsub), 3, PUBSUB | LOADING | STALE | FAST, 0, 0, 0);
+        table.register("PUBSUB", new PubSubCommand(pubsub), -2, PUBSUB | LOADING | STALE, 0, 0, 0);
+
+        table.register("XADD", new XAddCommand(), -5, DENYOOM | FAST, 1, 1, 1);
+        table.register("XLEN", new XLenCommand(), 2, READONLY | FAST, 1, 1, 1);
+        table.register("XRANGE", new XRangeCommand(), -4, READONLY, 1, 1, 1);
+        table.register("XTRIM", new XTrimCommand(), -4, 0, 1, 1, 1);
+        table.register("XSETID", new XSetIdCommand(), 3, DENYOOM | FAST, 1, 1, 1);
+        table.register("XREAD", new XReadCommand(), -4, READONLY | BLOCKING | MOVABLEKEYS, 0, 0, 0);
+        table.register("XGROUP", new XGroupCommand(), -2, 0, 2, 2, 1);
+        table.register("XREADGROUP", new XReadGroupCommand(), -7, BLOCKING | MOVABLEKEYS, 0, 0, 0);
+        table.register("XACK", new XAckCommand(), -4, FAST, 1, 1, 1);
+        table.register("XPENDING", new XPendingCommand(), -3, READONLY, 1, 1, 1);
+        table.register("XCLAIM", new XClaimCommand(), -6, FAST, 1, 1, 1);
+    }
+
+    public CommandTable commands() {
+        return table;
     }
 
+    public LatencyMonitor latencyMonitor() {
+        return latencyMonitor;
+    }
+
+    /**
+     * Replace the latency monitor, e.g. with one having the configured
+     * threshold. Commands over it are recorded as "command" or
+     * "fast-command" events.
+     */
+    public void setLatencyMonitor(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    /**
+     * The pub/sub manager, null if there is none (tools, some tests).
+     */
+    public PubSubManager pubsub() {
+        return pubsub;
+    }
+
+    /**
+     * The AOF, null when persistence is off.
+     */
+    public AofManager aof() {
+        return aof;
+    }
+
+    public SlowLog slowLog() {
+        return slowLog;
+    }
+
+    /**
+     * Replace the slow log, e.g. with the configured threshold and length.
+     */
+    public void setSlowLog(SlowLog slowLog) {
+        this.slowLog = slowLog;
+    }
+
+    /**
+     * Execute a command sent by a client connection, and count it in the
+     * connection's CLIENT LIST figures.
+     */
+    public void executeCommand(
+            String name,
+            Client client,
+            Database db,
+            RespWriter writer,
+            List<Value> args)
+            throws IOException {
+        long written = writer.writtenChars();
+        try {
+            execute(name, client, db, writer, client.out, args, false);
+        } finally {
+            client.recordCommand(name, argumentChars(args), writer.writtenChars() - written,
+                    db.getClock().nowMillis());
+        }
+    }
+
+    /**
+     * Execute a command with only an output writer (AOF replay, tools).
+     * Commands acting on a connection reply with an error.
+     */
     public void executeCommand(
             String name,
             Database db,
@@ -115,23 +277,312 @@ public class CommandProcessor {
             List<Value> args,
             boolean fromReplay)
             throws IOException {
+        execute(name, null, db, writer, out, args, fromReplay);
+    }
 
-        Command cmd = commands.get(name);
+    private void execute(
+            String name,
+            Client client,
+            Database db,
+            RespWriter writer,
+            BufferedWriter out,
+            List<Value> args,
+            boolean fromReplay)
+            throws IOException {
 
-        if (cmd == null) {
-            writer.writeError(out, "unknown command '" + name.toLowerCase() + "'");
+        CommandTable.Spec spec = table.lookup(name);
+        boolean queueing = client != null && client.inTransaction();
+        if (spec == null) {
+            if (queueing) {
+                client.queueFailed();
+            }
+            writer.writeError(out, "unknown command '" + name + "'");
             return;
         }
+        if (!spec.arityMatches(args.size())) {
+            if (queueing) {
+                client.queueFailed();
+            }
+            spec.stats.recordRejected();
+            writer.writeError(out, "wrong number of arguments for '" + spec.name + "' command");
+            return;
+        }
+        if (queueing && !RUN_IN_MULTI.contains(spec.name)) {
+            client.queue(args);
+            writer.writeSimple(out, "QUEUED");
+            return;
+        }
+        run(spec, client, db, writer, out, args, fromReplay, null);
+    }
 
-        cmd.execute(db, writer, out, args);
+    /**
+     * EXEC: run the requests queued since MULTI as one unit, holding the
+     * database lock so no other client's command runs in between. Aborts if a
+     * request was rejected while queueing, and replies null if a WATCHed key
+     * changed. The writes are logged to the AOF together as MULTI ... EXEC.
+     */
+    public void exec(Client client, Database db, RespWriter writer) throws IOException {
+        BufferedWriter out = client.out;
+        List<List<Value>> requests = client.endTransaction();
+        try {
+            if (requests == null) {
+                writer.writeError(out, "EXECABORT", "Transaction discarded because of previous errors.");
+                return;
+            }
+            db.atomically(() -> {
+                if (client.watchedKeyChanged(db)) {
+                    writer.writeArrayHeader(out, -1);
+                    return;
+                }
+                List<Value> logged = new ArrayList<>();
+                writer.writeArrayHeader(out, requests.size());
+                for (List<Value> args : requests) {
+                    try {
+                        run(table.lookup(args.get(0).str), client, db, writer, out, args, false, logged);
+                    } catch (RuntimeException e) {
+                        // One reply per request, whatever happens
+                        writer.writeError(out, "internal server error");
+                    }
+                }
+                if (aof != null && !logged.isEmpty()) {
+                    aof.appendTransaction(logged);
+                }
+            });
+        } finally {
+            client.unwatchAll(db);
+        }
+    }
 
-        // Append to AOF if:
-        // - not from replay
-        // - AOF configured
-        // - command is mutating
-        if (!fromReplay && aof != null && cmd.isWriteCommand()) {
-            Value req = new Value("array", args);
-            aof.append(req);
+    /**
+     * FCALL: run a function holding the database lock, like EXEC. The
+     * commands it calls run as if queued in a transaction, and their writes
+     * are logged to the AOF together as MULTI ... EXEC, so replay repeats the
+     * effects without needing the function. Inside EXEC, {@code
+     * transactionLog} is the transaction's and the writes join it in order,
+     * logged by EXEC. Returns the function's reply.
+     */
+    public Object callFunction(
+            FunctionRegistry.Function function,
+            boolean readOnly,
+            Database db,
+            List<String> keys,
+            List<String> args,
+            List<Value> transactionLog)
+            throws IOException {
+        Object[] reply = new Object[1];
+        db.atomically(() -> {
+            List<Value> logged = transactionLog != null ? transactionLog : new ArrayList<>();
+            try {
+                reply[0] = function.body.call(command -> callFromFunction(readOnly, db, logged, command), keys, args);
+            } finally {
+                // Whatever ran before a failure has happened and must be logged
+                if (transactionLog == null && aof != null && !logged.isEmpty()) {
+                    aof.appendTransaction(logged);
+                }
+            }
+        });
+        return reply[0];
+    }
+
+    private Object callFromFunction(boolean readOnly, Database db, List<Value> logged, String... command) {
+        if (command.length == 0) {
+            throw new FunctionException("Please specify at least one argument for this call");
+        }
+        CommandTable.Spec spec = table.lookup(command[0]);
+        if (spec == null) {
+            throw new FunctionException("Unknown command called from function");
+        }
+        if (spec.is(NOSCRIPT)) {
+            throw new FunctionException("This command is not allowed from functions");
+        }
+        if (readOnly && spec.is(WRITE)) {
+            throw new FunctionException("Write commands are not allowed from read-only functions");
+        }
+        if (!spec.arityMatches(command.length)) {
+            throw new FunctionException("wrong number of arguments for '" + spec.name + "' command");
+        }
+
+        List<Value> args = new ArrayList<>(command.length);
+        for (String arg : command) {
+            args.add(new Value("bulk", arg));
+        }
+        StringWriter reply = new StringWriter();
+        try (BufferedWriter out = new BufferedWriter(reply)) {
+            run(spec, null, db, functionReplies, out, args, false, logged);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return toObject(RespParser.readValue(new BufferedReader(new StringReader(reply.toString()))));
+        } catch (IOException | RespParseException e) {
+            throw new FunctionException("unreadable reply from '" + spec.name + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static Object toObject(Value reply) {
+        switch (reply.typ) {
+            case "integer":
+                return Long.parseLong(reply.str);
+            case "error":
+                // Replied again through writeError, which adds the ERR back
+                throw new FunctionException(reply.str.startsWith("ERR ") ? reply.str.substring(4) : reply.str);
+            case "null":
+                return null;
+            case "array":
+                List<Object> list = new ArrayList<>(reply.array.size());
+                for (Value v : reply.array) {
+                    list.add(toObject(v));
+                }
+                return list;
+            default:
+                return reply.str;
+        }
+    }
+
+    /**
+     * Run one command and count it in its stats, the slow log, the latency
+     * monitor and a {@link CommandExecutedEvent}, unless replayed from the
+     * AOF. The event's extra fields are only computed when it is recorded.
+     * The time is as clients see it: it includes waiting for the database
+     * lock, and for entries when a read blocks.
+     */
+    private void run(
+            CommandTable.Spec spec,
+            Client client,
+            Database db,
+            RespWriter writer,
+            BufferedWriter out,
+            List<Value> args,
+            boolean fromReplay,
+            List<Value> transactionLog)
+            throws IOException {
+        if (fromReplay) {
+            invoke(spec, client, db, writer, out, args, true, transactionLog);
+            return;
+        }
+        long errors = writer.errorCount();
+        long written = writer.writtenChars();
+        CommandExecutedEvent event = new CommandExecutedEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            invoke(spec, client, db, writer, out, args, false, transactionLog);
+            completed = true;
+        } finally {
+            long duration = System.nanoTime() - start;
+            boolean failed = !completed || writer.errorCount() != errors;
+            spec.stats.recordCall(duration, failed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = spec.name;
+                event.keyCount = spec.keys(args).size();
+                event.bytesIn = argumentChars(args);
+                event.bytesOut = writer.writtenChars() - written;
+                event.failed = failed;
+                event.commit();
+            }
+            SlowLog log = slowLog;
+            if (log.isSlow(duration)) {
+                log.add(args, duration, db.getClock().nowMillis(), client);
+            }
+            latencyMonitor.record(spec.is(FAST) ? LatencyMonitor.FAST_COMMAND : LatencyMonitor.COMMAND, duration);
+        }
+    }
+
+    private static long argumentChars(List<Value> args) {
+        long chars = 0;
+        for (Value arg : args) {
+            chars += arg.str == null ? 0 : arg.str.length();
+        }
+        return chars;
+    }
+
+    /**
+     * Writes are appended to the AOF right away, or collected into
+     * {@code transactionLog} when running inside EXEC.
+     */
+    private void invoke(
+            CommandTable.Spec spec,
+            Client client,
+            Database db,
+            RespWriter writer,
+            BufferedWriter out,
+            List<Value> args,
+            boolean fromReplay,
+            List<Value> transactionLog)
+            throws IOException {
+        Command cmd = spec.command;
+
+        if (!cmd.isWriteCommand()) {
+            // Track the keys before reading them: a write landing in between
+            // then sends an invalidation, rather than the client caching a
+            // value nobody will tell it has changed
+            if (client != null && client.tracking != null) {
+                trackKeysRead(spec, client, db, args);
+            }
+            if (client != null && cmd instanceof ConnectionCommand) {
+                ((ConnectionCommand) cmd).execute(client, db, writer, args);
+            } else if (cmd instanceof FcallCommand) {
+                ((FcallCommand) cmd).execute(db, writer, out, args, fromReplay ? null : transactionLog);
+            } else {
+                cmd.execute(db, writer, out, args);
+            }
+            return;
+        }
+
+        // Writes run under the database monitor so the AOF sees them in
+        // execution order and a rewrite can snapshot between two writes.
+        synchronized (db) {
+            List<List<Value>> effects = null;
+            if (cmd instanceof EffectCommand) {
+                effects = ((EffectCommand) cmd).executeLogged(db, writer, out, args);
+            } else {
+                cmd.execute(db, writer, out, args);
+            }
+
+            // Append to AOF if:
+            // - not from replay
+            // - AOF configured
+            if (!fromReplay && aof != null) {
+                if (!(cmd instanceof EffectCommand)) {
+                    List<Value> logged = cmd.aofRequest(db, args);
+                    effects = logged == null ? null : List.of(logged);
+                }
+                if (effects != null && !effects.isEmpty()) {
+                    log(effects, transactionLog);
+                }
+            }
+        }
+        if (client != null) {
+            client.caching = null;
+        }
+    }
+
+    private void log(List<List<Value>> effects, List<Value> transactionLog) throws IOException {
+        List<Value> requests = transactionLog != null ? transactionLog : new ArrayList<>(effects.size());
+        for (List<Value> request : effects) {
+            requests.add(new Value("array", request));
+        }
+        if (transactionLog != null) {
+            return;
+        }
+        if (requests.size() == 1) {
+            aof.append(requests.get(0));
+        } else {
+            aof.appendTransaction(requests);
+        }
+    }
+
+    private static void trackKeysRead(CommandTable.Spec spec, Client client, Database db, List<Value> args) {
+        ClientTracking tracking = db.getClientTracking();
+        if (!spec.is(CommandTable.READONLY) || tracking == null) {
+            // CLIENT CACHING applies to the command after it
+            if (!spec.name.equals("client")) {
+                client.caching = null;
+            }
+            return;
         }
+        tracking.keysRead(client, spec.keys(args));
     }
 }
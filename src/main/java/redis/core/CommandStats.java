@@ -0,0 +1,59 @@
+package redis.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import redis.utils.LatencyHistogram;
+
+/**
+ * Counters of one command, reported by INFO commandstats and INFO
+ * latencystats.
+ *
+ * A call is counted once the command ran; a request turned down before
+ * (wrong number of arguments) is counted as rejected instead, and a call that
+ * replied with an error as failed.
+ */
+public final class CommandStats {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    void recordCall(long durationNanos, boolean failedCall) {
+        calls.increment();
+        nanos.add(durationNanos);
+        latency.record(durationNanos);
+        if (failedCall) {
+            failed.increment();
+        }
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long micros() {
+        return nanos.sum() / 1000;
+    }
+
+    public long nanos() {
+        return nanos.sum();
+    }
+
+    public long rejectedCalls() {
+        return rejected.sum();
+    }
+
+    public long failedCalls() {
+        return failed.sum();
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+}
@@ -0,0 +1,183 @@
+package redis.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import redis.commands.Command;
+import redis.resp.Value;
+
+/**
+ * The registered commands and their metadata, as reported by COMMAND INFO.
+ *
+ * Names are looked up case-insensitively straight from the request, without
+ * upper-casing it first: the table is open-addressed on a hash that folds
+ * ASCII case, and candidates are compared character by character.
+ */
+public class CommandTable {
+
+    // Command flags, named as in COMMAND INFO
+    public static final int WRITE = 1;
+    public static final int READONLY = 1 << 1;
+    public static final int DENYOOM = 1 << 2;
+    public static final int ADMIN = 1 << 3;
+    public static final int PUBSUB = 1 << 4;
+    public static final int NOSCRIPT = 1 << 5;
+    public static final int BLOCKING = 1 << 6;
+    public static final int LOADING = 1 << 7;
+    public static final int STALE = 1 << 8;
+    public static final int FAST = 1 << 9;
+    public static final int MOVABLEKEYS = 1 << 10;
+
+    private static final String[] FLAG_NAMES = {
+            "write", "readonly", "denyoom", "admin", "pubsub", "noscript",
+            "blocking", "loading", "stale", "fast", "movablekeys" };
+
+    /**
+     * One command and its metadata.
+     */
+    public static final class Spec {
+        public final String name; // lower case
+        public final Command command;
+        // Redis convention: n = exactly n arguments (name included), -n = at least n
+        public final int arity;
+        public final int flags;
+        // Positions of the keys: first, last (-1 = last argument) and step; 0 = no keys
+        public final int firstKey;
+        public final int lastKey;
+        public final int keyStep;
+        public final CommandStats stats = new CommandStats();
+
+        Spec(String name, Command command, int arity, int flags, int firstKey, int lastKey, int keyStep) {
+            this.name = name;
+            this.command = command;
+            this.arity = arity;
+            this.flags = flags;
+            this.firstKey = firstKey;
+            this.lastKey = lastKey;
+            this.keyStep = keyStep;
+        }
+
+        public boolean is(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        public boolean arityMatches(int argc) {
+            return arity >= 0 ? argc == arity : argc >= -arity;
+        }
+
+        public List<String> flagNames() {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < FLAG_NAMES.length; i++) {
+                if (is(1 << i)) {
+                    names.add(FLAG_NAMES[i]);
+                }
+            }
+            return names;
+        }
+
+        /**
+         * The key arguments of a request, from the key positions. Empty for
+         * commands without keys or with movable keys.
+         */
+        public List<String> keys(List<Value> args) {
+            if (firstKey <= 0 || is(MOVABLEKEYS) || args.size() <= firstKey) {
+                return Collections.emptyList();
+            }
+            int last = lastKey < 0 ? args.size() + lastKey : Math.min(lastKey, args.size() - 1);
+            List<String> keys = new ArrayList<>((last - firstKey) / keyStep + 1);
+            for (int i = firstKey; i <= last; i += keyStep) {
+                keys.add(args.get(i).str);
+            }
+            return keys;
+        }
+    }
+
+    private final List<Spec> specs = new ArrayList<>();
+    private Spec[] slots = new Spec[64];
+
+    /**
+     * Register a command. Commands reporting {@link Command#isWriteCommand()}
+     * get the write flag without listing it.
+     */
+    public void register(String name, Command command, int arity, int flags, int firstKey, int lastKey,
+            int keyStep) {
+        if (command.isWriteCommand()) {
+            flags |= WRITE;
+        }
+        Spec spec = new Spec(name.toLowerCase(Locale.ROOT), command, arity, flags, firstKey, lastKey, keyStep);
+        if (lookup(spec.name) != null) {
+            throw new IllegalArgumentException("command already registered: " + name);
+        }
+        specs.add(spec);
+        if (specs.size() * 2 > slots.length) {
+            slots = new Spec[slots.length * 2];
+            for (Spec s : specs) {
+                insert(s);
+            }
+        } else {
+            insert(spec);
+        }
+    }
+
+    private void insert(Spec spec) {
+        int mask = slots.length - 1;
+        int i = hash(spec.name) & mask;
+        while (slots[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = spec;
+    }
+
+    /**
+     * The command with this name in any case, or null.
+     */
+    public Spec lookup(CharSequence name) {
+        int mask = slots.length - 1;
+        int i = hash(name) & mask;
+        Spec spec;
+        while ((spec = slots[i]) != null) {
+            if (equalsIgnoreCase(spec.name, name)) {
+                return spec;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Every command, in registration order.
+     */
+    public List<Spec> all() {
+        return Collections.unmodifiableList(specs);
+    }
+
+    public int size() {
+        return specs.size();
+    }
+
+    private static int hash(CharSequence s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + toLower(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String lower, CharSequence s) {
+        if (lower.length() != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) != toLower(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -1,13 +1,18 @@
 package redis.core;
 
+import redis.jfr.ExpiryCycleEvent;
 import redis.time.Clock;
+import redis.utils.GlobMatcher;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import redis.time.SystemClock;
 
@@ -19,12 +24,54 @@ public class Database {
 
     private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> hashStore = new ConcurrentHashMap<>();
 
+    private final ConcurrentHashMap<String, Stream> streamStore = new ConcurrentHashMap<>();
+
+    // Keyspace notifications, null when not configured
+    private volatile KeyspaceNotifier notifier;
+
+    // Client-side caching invalidation (CLIENT TRACKING), null when not set up
+    private volatile ClientTracking tracking;
+
+    // Spikes of the expiry cycle (LATENCY)
+    private volatile LatencyMonitor latencyMonitor = new LatencyMonitor();
+
+    // Version counters of the WATCHed keys, dropped when nobody watches them
+    private final ConcurrentHashMap<String, WatchedKey> watched = new ConcurrentHashMap<>();
+
+    // Set while EXEC runs a transaction (guarded by this)
+    private boolean inTransaction;
+
+    // INFO stats; adders so that concurrent readers do not contend on them
+    private final LongAdder keyspaceHits = new LongAdder();
+    private final LongAdder keyspaceMisses = new LongAdder();
+    private final LongAdder expiredKeys = new LongAdder();
+
+    private static final class WatchedKey {
+        volatile long version;
+        int watchers; // changed only inside ConcurrentHashMap.compute
+    }
+
+    /**
+     * Body of a transaction, see {@link #atomically}.
+     */
+    public interface Transaction {
+        void run() throws IOException;
+    }
+
     private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "expiry-cleaner");
         t.setDaemon(true);
         return t;
     });
 
+    // Keys with an expiry checked per round of the expiry cycle, and the
+    // time after which the cycle stops even if many keys are still expired
+    private static final int EXPIRE_CYCLE_SAMPLES = 20;
+    private static final long EXPIRE_CYCLE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(25);
+
+    // Where the expiry cycle resumes sampling; cleaner thread only
+    private Iterator<Map.Entry<String, Long>> expiryCursor;
+
     public Database() {
         this(new SystemClock());
     }
@@ -36,50 +83,74 @@ public class Database {
     }
 
     private void removeSampledKeysIfExpired() {
-        long now = clock.nowMillis();
-        List<Map.Entry<String, Long>> entriesToCheck = getRandomExpiryEntries(20);
-        int expiredCount = 20;
-        while (expiredCount / (double) entriesToCheck.size() > 0.25) {
+        // Like Redis' active expiry: sample, and sample again while more than
+        // a quarter of the sampled keys turned out to be expired, within a
+        // time budget so a mass expiry is spread over several cycles
+        ExpiryCycleEvent event = new ExpiryCycleEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int sampled;
+        int expiredCount;
+        do {
+            long now = clock.nowMillis();
+            sampled = 0;
             expiredCount = 0;
-            for (Map.Entry<String, Long> e : entriesToCheck) {
-                if (e.getValue() <= now) {
+            for (int i = 0; i < EXPIRE_CYCLE_SAMPLES; i++) {
+                Map.Entry<String, Long> e = nextExpiryEntry(i == 0);
+                if (e == null) {
+                    break;
+                }
+                sampled++;
+                if (e.getValue() <= now && removeExpiredKey(e.getKey(), now)) {
                     expiredCount++;
-                    String key = e.getKey();
-                    removeExpiredKey(key);
                 }
             }
+            event.rounds++;
+            event.sampled += sampled;
+            event.expired += expiredCount;
+        } while (sampled > 0 && expiredCount / (double) sampled > 0.25
+                && System.nanoTime() - start < EXPIRE_CYCLE_BUDGET_NANOS);
+        latencyMonitor.record(LatencyMonitor.EXPIRE_CYCLE, System.nanoTime() - start);
+        event.commit();
+    }
+
+    /**
+     * Remove a key found expired by the cleaner, unless it was meanwhile
+     * overwritten or given a new expiry.
+     */
+    private synchronized boolean removeExpiredKey(String key, long now) {
+        Long exp = expiryMap.get(key);
+        if (exp == null || exp > now) {
+            return false;
         }
-    }
-
-    private void removeExpiredKey(String key) {
-        switch (getKeyType(key)) {
-            case "string":
-                store.remove(key);
-                break;
-            case "hash":
-                hashStore.remove(key);
-                break;
-            default:
-                break;
-        }
+        store.remove(key);
+        hashStore.remove(key);
+        streamStore.remove(key);
         expiryMap.remove(key);
+        expiredKeys.increment();
+        notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_EXPIRED, "expired", key);
+        return true;
     }
 
-    private List<Map.Entry<String, Long>> getRandomExpiryEntries(int count) {
-        List<Map.Entry<String, Long>> entries = expiryMap.entrySet()
-                .stream()
-                .collect(Collectors.toList());
-
-        int n = entries.size();
-        if (n <= count)
-            return entries;
-
-        Random rand = ThreadLocalRandom.current();
-        return rand.ints(0, n)
-                .distinct()
-                .limit(count)
-                .mapToObj(entries::get)
-                .collect(Collectors.toList());
+    /**
+     * The next key with an expiry, going round the expiry map like Redis'
+     * expire cursor, so sampling never copies the map. Null when no key has
+     * an expiry, or at the end of the map unless {@code restart}, so a round
+     * sees each key at most once. Only called from the cleaner thread.
+     */
+    private Map.Entry<String, Long> nextExpiryEntry(boolean restart) {
+        if (expiryCursor == null || !expiryCursor.hasNext()) {
+            if (!restart) {
+                expiryCursor = null;
+                return null;
+            }
+            // Weakly consistent: keys added or removed meanwhile are fine
+            expiryCursor = expiryMap.entrySet().iterator();
+            if (!expiryCursor.hasNext()) {
+                return null;
+            }
+        }
+        return expiryCursor.next();
     }
 
     private boolean isExpired(String key) {
@@ -90,15 +161,16 @@ public class Database {
             expiryMap.remove(key);
             store.remove(key);
             hashStore.remove(key);
+            streamStore.remove(key);
+            expiredKeys.increment();
+            notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_EXPIRED, "expired", key);
             return true;
         }
         return false;
     }
 
     private boolean matchesGlob(String text, String pattern) {
-        // Convert Redis glob into a regex
-        String regex = pattern.replace("*", ".*");
-        return text.matches(regex);
+        return GlobMatcher.matches(pattern, text);
     }
 
     public synchronized String getKeyType(String key) {
@@ -106,6 +178,8 @@ public class Database {
             return "string";
         if (hashStore.containsKey(key))
             return "hash";
+        if (streamStore.containsKey(key))
+            return "stream";
         return null;
     }
 
@@ -114,6 +188,7 @@ public class Database {
             store.remove(key);
         if (hashStore != null)
             hashStore.remove(key);
+        streamStore.remove(key);
 
         store.put(key, value);
         expiryMap.remove(key); // Remove any old expiry
@@ -142,6 +217,9 @@ public class Database {
         if (hashStore.remove(key) != null)
             removed = true;
 
+        if (streamStore.remove(key) != null)
+            removed = true;
+
         expiryMap.remove(key);
         return removed ? 1 : 0;
     }
@@ -153,7 +231,7 @@ public class Database {
     public synchronized boolean expire(String key, int seconds) {
         long expiryTime = clock.nowMillis() + (seconds * 1000L);
 
-        boolean exists = store.containsKey(key) || hashStore.containsKey(key);
+        boolean exists = containsKey(key);
         if (!exists)
             return false;
 
@@ -166,15 +244,33 @@ public class Database {
         return true;
     }
 
+    public synchronized boolean expireAt(String key, long unixTimeMillis) {
+        boolean exists = containsKey(key);
+        if (!exists)
+            return false;
+
+        if (unixTimeMillis <= clock.nowMillis()) {
+            del(key);
+            return true;
+        }
+
+        expiryMap.put(key, unixTimeMillis);
+        return true;
+    }
+
     public synchronized boolean keyExists(String key) {
         // cleanup expired keys first
         ttl(key);
 
-        return store.containsKey(key) || hashStore.containsKey(key);
+        return containsKey(key);
+    }
+
+    private boolean containsKey(String key) {
+        return store.containsKey(key) || hashStore.containsKey(key) || streamStore.containsKey(key);
     }
 
     public synchronized long ttl(String key) {
-        boolean keyExists = store.containsKey(key) || hashStore.containsKey(key); // Add future stores here: setStore,
+        boolean keyExists = containsKey(key); // Add future stores to containsKey
 
         if (!keyExists) {
             return -2;
@@ -192,6 +288,9 @@ public class Database {
             expiryMap.remove(key);
             store.remove(key);
             hashStore.remove(key);
+            streamStore.remove(key);
+            expiredKeys.increment();
+            notifyKeyspaceEvent(KeyspaceNotifier.NOTIFY_EXPIRED, "expired", key);
             return -2;
         }
 
@@ -278,6 +377,176 @@ public class Database {
         return type != null && !"hash".equals(type);
     }
 
+    public synchronized Stream getStream(String key) {
+        if (isExpired(key)) {
+            return null;
+        }
+        return streamStore.get(key);
+    }
+
+    /**
+     * The stream at {@code key}, created empty if missing.
+     */
+    public synchronized Stream getOrCreateStream(String key) {
+        return streamStore.computeIfAbsent(key, k -> new Stream());
+    }
+
+    /**
+     * Store a stream as is, replacing any value at the key (snapshot loading).
+     */
+    public synchronized void putStream(String key, Stream stream) {
+        store.remove(key);
+        hashStore.remove(key);
+        streamStore.put(key, stream);
+    }
+
+    public synchronized boolean ifStreamKeyTypeMismatch(String key) {
+        String type = getKeyType(key);
+        return type != null && !"stream".equals(type);
+    }
+
+    /**
+     * Run {@code action} under the database lock. Streams are not thread-safe,
+     * so commands that only read them still go through here.
+     */
+    public synchronized <T> T underLock(Supplier<T> action) {
+        return action.get();
+    }
+
+    /**
+     * Wake clients blocked in XREAD/XREADGROUP BLOCK. Called by commands that
+     * add stream entries, under the database lock.
+     */
+    public synchronized void signalStreamWrite() {
+        notifyAll();
+    }
+
+    /**
+     * Run {@code read} under the database lock until it returns non-null, waiting
+     * for {@link #signalStreamWrite} in between. Gives up and returns null after
+     * {@code timeoutMillis}; 0 waits forever. Inside a transaction it never
+     * waits, since waiting would release the lock in the middle of it.
+     */
+    public synchronized <T> T awaitStreams(Supplier<T> read, long timeoutMillis)
+            throws InterruptedException {
+        if (inTransaction) {
+            return read.get();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            T result = read.get();
+            if (result != null) {
+                return result;
+            }
+            if (timeoutMillis == 0) {
+                wait();
+                continue;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return null;
+            }
+            wait(remaining);
+        }
+    }
+
+    /**
+     * Run a transaction (EXEC) holding the database lock throughout, so no
+     * other client's command runs in between.
+     */
+    public synchronized void atomically(Transaction body) throws IOException {
+        boolean outer = inTransaction;
+        inTransaction = true;
+        try {
+            body.run();
+        } finally {
+            inTransaction = outer;
+        }
+    }
+
+    /**
+     * WATCH: start counting changes to the key. Returns its current version,
+     * to be compared with {@link #keyVersion} at EXEC.
+     */
+    public long watch(String key) {
+        return watched.compute(key, (k, w) -> {
+            WatchedKey watchedKey = w == null ? new WatchedKey() : w;
+            watchedKey.watchers++;
+            return watchedKey;
+        }).version;
+    }
+
+    /**
+     * Undo one {@link #watch} of the key.
+     */
+    public void unwatch(String key) {
+        watched.computeIfPresent(key, (k, w) -> --w.watchers == 0 ? null : w);
+    }
+
+    /**
+     * Version of a watched key, bumped on every change; -1 if nobody watches it.
+     */
+    public long keyVersion(String key) {
+        WatchedKey w = watched.get(key);
+        return w == null ? -1 : w.version;
+    }
+
+    private void touchWatchedKey(String key) {
+        if (!watched.isEmpty()) {
+            watched.computeIfPresent(key, (k, w) -> {
+                w.version++;
+                return w;
+            });
+        }
+    }
+
+    public void setKeyspaceNotifier(KeyspaceNotifier notifier) {
+        this.notifier = notifier;
+    }
+
+    public KeyspaceNotifier getKeyspaceNotifier() {
+        return notifier;
+    }
+
+    public void setLatencyMonitor(LatencyMonitor monitor) {
+        this.latencyMonitor = monitor;
+    }
+
+    public void setClientTracking(ClientTracking tracking) {
+        this.tracking = tracking;
+    }
+
+    public ClientTracking getClientTracking() {
+        return tracking;
+    }
+
+    /**
+     * Publish a keyspace notification if that event class is enabled. Called by
+     * commands after they modify a key, and by the database itself for expirations.
+     * Every key change comes through here, so this is also where clients caching
+     * the key are told to drop it, and where WATCHed keys get a new version.
+     */
+    public void notifyKeyspaceEvent(int type, String event, String key) {
+        KeyspaceNotifier n = notifier;
+        if (n != null) {
+            n.notify(type, event, key);
+        }
+        signalModifiedKey(key);
+    }
+
+    /**
+     * A key changed without a keyspace event of its own, as in Redis for a
+     * stream's pending entries (XACK, XCLAIM, XREADGROUP): WATCH and client
+     * tracking still have to see the change.
+     */
+    public void signalModifiedKey(String key) {
+        touchWatchedKey(key);
+        ClientTracking t = tracking;
+        if (t != null) {
+            t.invalidate(key);
+        }
+    }
+
     public Long getExpiry(String key) {
         return expiryMap.get(key);
     }
@@ -306,13 +575,109 @@ public class Database {
             }
         }
 
+        for (String key : new HashSet<>(streamStore.keySet())) {
+            if (ttl(key) >= -1 && matchesGlob(key, pattern)) {
+                result.add(key);
+            }
+        }
+
         return result;
     }
 
+    /**
+     * Point-in-time copy of every live key, taken while holding the database lock.
+     */
+    public static final class Snapshot {
+        public final Map<String, String> strings;
+        public final Map<String, Map<String, String>> hashes;
+        public final Map<String, Stream> streams; // copies, safe to read without the lock
+        public final Map<String, Long> expiries;
+
+        Snapshot(Map<String, String> strings, Map<String, Map<String, String>> hashes, Map<String, Stream> streams,
+                Map<String, Long> expiries) {
+            this.strings = strings;
+            this.hashes = hashes;
+            this.streams = streams;
+            this.expiries = expiries;
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        long now = clock.nowMillis();
+        Map<String, String> strings = new HashMap<>(store.size());
+        Map<String, Map<String, String>> hashes = new HashMap<>(hashStore.size());
+        Map<String, Stream> streams = new HashMap<>(streamStore.size());
+        Map<String, Long> expiries = new HashMap<>(expiryMap.size());
+
+        for (Map.Entry<String, Long> e : expiryMap.entrySet()) {
+            if (e.getValue() > now) {
+                expiries.put(e.getKey(), e.getValue());
+            }
+        }
+        for (Map.Entry<String, String> e : store.entrySet()) {
+            if (!expiryMap.containsKey(e.getKey()) || expiries.containsKey(e.getKey())) {
+                strings.put(e.getKey(), e.getValue());
+            }
+        }
+        for (Map.Entry<String, ConcurrentHashMap<String, String>> e : hashStore.entrySet()) {
+            if (!expiryMap.containsKey(e.getKey()) || expiries.containsKey(e.getKey())) {
+                hashes.put(e.getKey(), new HashMap<>(e.getValue()));
+            }
+        }
+        for (Map.Entry<String, Stream> e : streamStore.entrySet()) {
+            if (!expiryMap.containsKey(e.getKey()) || expiries.containsKey(e.getKey())) {
+                streams.put(e.getKey(), e.getValue().copy());
+            }
+        }
+        return new Snapshot(strings, hashes, streams, expiries);
+    }
+
     public synchronized void flushAll() {
         store.clear();
         hashStore.clear();
+        streamStore.clear();
         expiryMap.clear();
+        // Every watched key may have existed: fail their transactions
+        for (String key : watched.keySet()) {
+            touchWatchedKey(key);
+        }
+        ClientTracking t = tracking;
+        if (t != null) {
+            t.invalidateAll();
+        }
+    }
+
+    /**
+     * Count a key looked up by a read command (keyspace_hits/misses).
+     */
+    public void recordKeyspaceRead(boolean hit) {
+        (hit ? keyspaceHits : keyspaceMisses).increment();
+    }
+
+    public long keyspaceHits() {
+        return keyspaceHits.sum();
+    }
+
+    public long keyspaceMisses() {
+        return keyspaceMisses.sum();
+    }
+
+    /**
+     * Keys removed because they expired, on access or by the cleaner.
+     */
+    public long expiredKeys() {
+        return expiredKeys.sum();
+    }
+
+    /**
+     * The number of keys, counting keys expired but not removed yet.
+     */
+    public int keyCount() {
+        return store.size() + hashStore.size() + streamStore.size();
+    }
+
+    public int expiringKeyCount() {
+        return expiryMap.size();
     }
 
     public void shutdown() {
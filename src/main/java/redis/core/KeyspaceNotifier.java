@@ -0,0 +1,128 @@
+package redis.core;
+
+import redis.pubsub.PubSubManager;
+
+/**
+ * Keyspace notifications ({@code notify-keyspace-events}).
+ *
+ * For an event enabled by the flags, a message is published to
+ * {@code __keyspace@0__:<key>} with the event name as payload (K) and/or to
+ * {@code __keyevent@0__:<event>} with the key name as payload (E).
+ *
+ * Event classes follow Redis: g generic, $ string, l list, s set, h hash,
+ * z sorted set, x expired, e evicted, t stream, m key miss, d module,
+ * n new key, A = "g$lshzxetd". Only the classes of the types this server
+ * has are ever generated.
+ */
+public class KeyspaceNotifier {
+
+    public static final int NOTIFY_KEYSPACE = 1;
+    public static final int NOTIFY_KEYEVENT = 1 << 1;
+    public static final int NOTIFY_GENERIC = 1 << 2;
+    public static final int NOTIFY_STRING = 1 << 3;
+    public static final int NOTIFY_LIST = 1 << 4;
+    public static final int NOTIFY_SET = 1 << 5;
+    public static final int NOTIFY_HASH = 1 << 6;
+    public static final int NOTIFY_ZSET = 1 << 7;
+    public static final int NOTIFY_EXPIRED = 1 << 8;
+    public static final int NOTIFY_EVICTED = 1 << 9;
+    public static final int NOTIFY_STREAM = 1 << 10;
+    public static final int NOTIFY_KEY_MISS = 1 << 11;
+    public static final int NOTIFY_MODULE = 1 << 12;
+    public static final int NOTIFY_NEW = 1 << 13;
+    public static final int NOTIFY_ALL = NOTIFY_GENERIC | NOTIFY_STRING | NOTIFY_LIST | NOTIFY_SET | NOTIFY_HASH
+            | NOTIFY_ZSET | NOTIFY_EXPIRED | NOTIFY_EVICTED | NOTIFY_STREAM | NOTIFY_MODULE;
+
+    private static final String KEYSPACE_PREFIX = "__keyspace@0__:";
+    private static final String KEYEVENT_PREFIX = "__keyevent@0__:";
+
+    private final PubSubManager pubsub;
+    private volatile int flags;
+
+    public KeyspaceNotifier(PubSubManager pubsub, String flags) {
+        this.pubsub = pubsub;
+        setFlags(flags);
+    }
+
+    public void setFlags(String flags) {
+        this.flags = parseFlags(flags);
+    }
+
+    public String getFlags() {
+        return flagsToString(flags);
+    }
+
+    /**
+     * True if events of this class would be published.
+     */
+    public boolean isEnabled(int type) {
+        int f = flags;
+        return (f & type) != 0 && (f & (NOTIFY_KEYSPACE | NOTIFY_KEYEVENT)) != 0;
+    }
+
+    public void notify(int type, String event, String key) {
+        int f = flags;
+        if ((f & type) == 0) {
+            return;
+        }
+        if ((f & NOTIFY_KEYSPACE) != 0) {
+            pubsub.publish(KEYSPACE_PREFIX + key, event);
+        }
+        if ((f & NOTIFY_KEYEVENT) != 0) {
+            pubsub.publish(KEYEVENT_PREFIX + event, key);
+        }
+    }
+
+    /**
+     * Parse a flag string like {@code "KEA"} or {@code "Kx"}.
+     */
+    public static int parseFlags(String s) {
+        int flags = 0;
+        for (int i = 0; i < s.length(); i++) {
+            switch (s.charAt(i)) {
+                case 'A': flags |= NOTIFY_ALL; break;
+                case 'g': flags |= NOTIFY_GENERIC; break;
+                case '$': flags |= NOTIFY_STRING; break;
+                case 'l': flags |= NOTIFY_LIST; break;
+                case 's': flags |= NOTIFY_SET; break;
+                case 'h': flags |= NOTIFY_HASH; break;
+                case 'z': flags |= NOTIFY_ZSET; break;
+                case 'x': flags |= NOTIFY_EXPIRED; break;
+                case 'e': flags |= NOTIFY_EVICTED; break;
+                case 'K': flags |= NOTIFY_KEYSPACE; break;
+                case 'E': flags |= NOTIFY_KEYEVENT; break;
+                case 't': flags |= NOTIFY_STREAM; break;
+                case 'm': flags |= NOTIFY_KEY_MISS; break;
+                case 'd': flags |= NOTIFY_MODULE; break;
+                case 'n': flags |= NOTIFY_NEW; break;
+                default:
+                    throw new IllegalArgumentException("Invalid event class character '" + s.charAt(i)
+                            + "' in notify-keyspace-events");
+            }
+        }
+        return flags;
+    }
+
+    public static String flagsToString(int flags) {
+        StringBuilder sb = new StringBuilder();
+        if ((flags & NOTIFY_ALL) == NOTIFY_ALL) {
+            sb.append('A');
+        } else {
+            if ((flags & NOTIFY_GENERIC) != 0) sb.append('g');
+            if ((flags & NOTIFY_STRING) != 0) sb.append('$');
+            if ((flags & NOTIFY_LIST) != 0) sb.append('l');
+            if ((flags & NOTIFY_SET) != 0) sb.append('s');
+            if ((flags & NOTIFY_HASH) != 0) sb.append('h');
+            if ((flags & NOTIFY_ZSET) != 0) sb.append('z');
+            if ((flags & NOTIFY_EXPIRED) != 0) sb.append('x');
+            if ((flags & NOTIFY_EVICTED) != 0) sb.append('e');
+            if ((flags & NOTIFY_STREAM) != 0) sb.append('t');
+            if ((flags & NOTIFY_MODULE) != 0) sb.append('d');
+        }
+        if ((flags & NOTIFY_KEYSPACE) != 0) sb.append('K');
+        if ((flags & NOTIFY_KEYEVENT) != 0) sb.append('E');
+        if ((flags & NOTIFY_KEY_MISS) != 0) sb.append('m');
+        if ((flags & NOTIFY_NEW) != 0) sb.append('n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package redis.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import redis.time.Clock;
+import redis.time.SystemClock;
+
+/**
+ * LATENCY: spikes of internal events (AOF writes and fsyncs, expiry cycles,
+ * snapshots, slow commands), recorded when they take at least the threshold.
+ *
+ * Each event keeps the last {@link #HISTORY_LEN} seconds in which it spiked,
+ * with the worst duration of that second, and its worst duration ever.
+ * Checking a duration against the threshold is the only cost while nothing
+ * spikes.
+ */
+public class LatencyMonitor {
+
+    // Event names, as reported by LATENCY LATEST
+    public static final String COMMAND = "command";
+    public static final String FAST_COMMAND = "fast-command";
+    public static final String AOF_WRITE = "aof-write";
+    public static final String AOF_FSYNC_ALWAYS = "aof-fsync-always";
+    public static final String AOF_FSYNC = "aof-fsync";
+    public static final String AOF_REWRITE_SNAPSHOT = "aof-rewrite-snapshot";
+    public static final String EXPIRE_CYCLE = "expire-cycle";
+
+    static final int HISTORY_LEN = 160;
+
+    /**
+     * One recorded second: when, and the worst duration in it.
+     */
+    public static final class Sample {
+        public final long timeSeconds;
+        public final long latencyMillis;
+
+        Sample(long timeSeconds, long latencyMillis) {
+            this.timeSeconds = timeSeconds;
+            this.latencyMillis = latencyMillis;
+        }
+    }
+
+    /**
+     * The spikes of one event.
+     */
+    public static final class Series {
+        private final Sample[] samples = new Sample[HISTORY_LEN];
+        private int next; // slot of the next new second
+        private int size;
+        private long maxMillis;
+
+        private synchronized void add(long timeSeconds, long millis) {
+            maxMillis = Math.max(maxMillis, millis);
+            Sample last = size == 0 ? null : samples[(next + HISTORY_LEN - 1) % HISTORY_LEN];
+            if (last != null && last.timeSeconds == timeSeconds) {
+                if (millis > last.latencyMillis) {
+                    samples[(next + HISTORY_LEN - 1) % HISTORY_LEN] = new Sample(timeSeconds, millis);
+                }
+                return;
+            }
+            samples[next] = new Sample(timeSeconds, millis);
+            next = (next + 1) % HISTORY_LEN;
+            size = Math.min(size + 1, HISTORY_LEN);
+        }
+
+        /**
+         * The recorded seconds, oldest first.
+         */
+        public synchronized List<Sample> history() {
+            List<Sample> history = new ArrayList<>(size);
+            for (int i = size; i > 0; i--) {
+                history.add(samples[(next + HISTORY_LEN - i) % HISTORY_LEN]);
+            }
+            return history;
+        }
+
+        public synchronized Sample latest() {
+            return samples[(next + HISTORY_LEN - 1) % HISTORY_LEN];
+        }
+
+        public synchronized long maxMillis() {
+            return maxMillis;
+        }
+    }
+
+    // 0 = monitoring off, as latency-monitor-threshold
+    private final long thresholdNanos;
+    private final Clock clock;
+    private final Map<String, Series> events = new ConcurrentHashMap<>();
+
+    /**
+     * A monitor that records nothing.
+     */
+    public LatencyMonitor() {
+        this(0, new SystemClock());
+    }
+
+    public LatencyMonitor(long thresholdMillis, Clock clock) {
+        this.thresholdNanos = Math.max(0, thresholdMillis) * 1_000_000;
+        this.clock = clock;
+    }
+
+    /**
+     * Record an event that took {@code durationNanos} if that is a spike.
+     */
+    public void record(String event, long durationNanos) {
+        if (thresholdNanos == 0 || durationNanos < thresholdNanos) {
+            return;
+        }
+        events.computeIfAbsent(event, e -> new Series())
+                .add(clock.nowMillis() / 1000, durationNanos / 1_000_000);
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos > 0;
+    }
+
+    public long thresholdMillis() {
+        return thresholdNanos / 1_000_000;
+    }
+
+    /**
+     * Every event that spiked, by name.
+     */
+    public Map<String, Series> events() {
+        return new TreeMap<>(events);
+    }
+
+    /**
+     * The spikes of an event, or null if it never spiked.
+     */
+    public Series series(String event) {
+        return events.get(event);
+    }
+
+    /**
+     * LATENCY RESET: forget the given events, or all of them when none is
+     * given. Returns how many were forgotten.
+     */
+    public int reset(List<String> names) {
+        if (names.isEmpty()) {
+            int count = events.size();
+            events.clear();
+            return count;
+        }
+        int count = 0;
+        for (String name : names) {
+            if (events.remove(name) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,135 @@
+package redis.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import redis.resp.Value;
+
+/**
+ * SLOWLOG: the most recent commands that ran longer than a threshold.
+ *
+ * Entries go into a fixed ring indexed by their id, so recording is an
+ * increment and a store without locking; a reader skips slots that were
+ * overwritten since. Fast commands only cost the comparison with the
+ * threshold, arguments are copied for slow ones only.
+ */
+public class SlowLog {
+
+    public static final long DEFAULT_SLOWER_THAN_MICROS = 10_000;
+    public static final int DEFAULT_MAX_LEN = 128;
+
+    // Kept per entry, as in Redis
+    static final int MAX_ARGS = 32;
+    static final int MAX_ARG_LENGTH = 128;
+
+    /**
+     * One slow command.
+     */
+    public static final class Entry {
+        public final long id;
+        public final long timestampSeconds;
+        public final long durationMicros;
+        public final List<String> args;
+        public final String clientAddress;
+        public final String clientName;
+
+        Entry(long id, long timestampSeconds, long durationMicros, List<String> args, String clientAddress,
+                String clientName) {
+            this.id = id;
+            this.timestampSeconds = timestampSeconds;
+            this.durationMicros = durationMicros;
+            this.args = args;
+            this.clientAddress = clientAddress;
+            this.clientName = clientName;
+        }
+    }
+
+    // Negative = never log, 0 = log every command
+    private final long slowerThanNanos;
+    private final AtomicReferenceArray<Entry> ring;
+    private final AtomicLong nextId = new AtomicLong();
+    // SLOWLOG RESET: entries with a smaller id are gone
+    private volatile long firstId;
+
+    public SlowLog() {
+        this(DEFAULT_SLOWER_THAN_MICROS, DEFAULT_MAX_LEN);
+    }
+
+    public SlowLog(long slowerThanMicros, int maxLen) {
+        if (maxLen < 1) {
+            throw new IllegalArgumentException("slowlog max length must be positive: " + maxLen);
+        }
+        this.slowerThanNanos = slowerThanMicros < 0 ? -1 : slowerThanMicros * 1000;
+        this.ring = new AtomicReferenceArray<>(maxLen);
+    }
+
+    /**
+     * Whether a command that ran this long is logged.
+     */
+    public boolean isSlow(long durationNanos) {
+        return slowerThanNanos >= 0 && durationNanos >= slowerThanNanos;
+    }
+
+    /**
+     * Log a command found slow by {@link #isSlow}. {@code client} is null for
+     * commands not sent by a connection.
+     */
+    public void add(List<Value> args, long durationNanos, long nowMillis, Client client) {
+        long id = nextId.getAndIncrement();
+        String address = client == null ? "" : client.address;
+        String name = client == null ? "" : client.name();
+        ring.set((int) (id % ring.length()),
+                new Entry(id, nowMillis / 1000, durationNanos / 1000, truncate(args), address, name));
+    }
+
+    /**
+     * SLOWLOG GET: up to {@code count} entries, newest first; all if negative.
+     */
+    public List<Entry> get(int count) {
+        long last = nextId.get() - 1;
+        long first = Math.max(firstId, last - ring.length() + 1);
+        List<Entry> entries = new ArrayList<>();
+        for (long id = last; id >= first && (count < 0 || entries.size() < count); id--) {
+            Entry e = ring.get((int) (id % ring.length()));
+            // Skip a slot already reused by a newer entry, or not yet filled
+            if (e != null && e.id == id) {
+                entries.add(e);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * SLOWLOG LEN.
+     */
+    public int length() {
+        return get(-1).size();
+    }
+
+    /**
+     * SLOWLOG RESET.
+     */
+    public void reset() {
+        firstId = nextId.get();
+    }
+
+    private static List<String> truncate(List<Value> args) {
+        int kept = Math.min(args.size(), MAX_ARGS);
+        List<String> copy = new ArrayList<>(kept);
+        for (int i = 0; i < kept; i++) {
+            if (i == MAX_ARGS - 1 && args.size() > MAX_ARGS) {
+                copy.add("... (" + (args.size() - MAX_ARGS + 1) + " more arguments)");
+                break;
+            }
+            String arg = args.get(i).str == null ? "" : args.get(i).str;
+            if (arg.length() > MAX_ARG_LENGTH) {
+                arg = arg.substring(0, MAX_ARG_LENGTH) + "... (" + (arg.length() - MAX_ARG_LENGTH) + " more bytes)";
+            }
+            copy.add(arg);
+        }
+        return Collections.unmodifiableList(copy);
+    }
+}
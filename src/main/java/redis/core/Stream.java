@@ -0,0 +1,565 @@
+package redis.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * An append-only log of field/value entries ordered by {@link StreamId}, with
+ * consumer groups.
+ *
+ * Storage follows Redis' radix tree of listpacks: entries live in nodes of up
+ * to {@link #NODE_CAPACITY} consecutive entries, kept in a sorted map keyed by
+ * the ID each node started with. Inside a node the IDs are packed in a long
+ * array, and entries with the same field names as the node's first entry (the
+ * usual case for events) store only their values. Approximate trimming
+ * ({@code MAXLEN ~}) drops whole nodes, which is what makes it cheap.
+ *
+ * Not thread-safe: streams are only used under the database lock.
+ */
+public class Stream implements Iterable<Stream.Entry> {
+
+    // Redis' stream-node-max-entries default
+    public static final int NODE_CAPACITY = 100;
+
+    /**
+     * One entry as returned to clients.
+     */
+    public static final class Entry {
+        public final StreamId id;
+        // field, value, field, value...; null when the entry no longer exists
+        public final String[] fields;
+
+        Entry(StreamId id, String[] fields) {
+            this.id = id;
+            this.fields = fields;
+        }
+    }
+
+    private static final class Node {
+        private final String[] masterFields;
+        private long[] ids = new long[8]; // ms, seq pairs
+        private String[][] data = new String[4][]; // values only if sameFields[i], else field/value pairs
+        private boolean[] sameFields = new boolean[4];
+        private int start; // entries before it were trimmed
+        private int end;
+
+        Node(String[] masterFields) {
+            this.masterFields = masterFields;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        void append(StreamId id, String[] fieldValues) {
+            if (end == data.length) {
+                int capacity = Math.min(data.length * 2, NODE_CAPACITY);
+                ids = Arrays.copyOf(ids, capacity * 2);
+                data = Arrays.copyOf(data, capacity);
+                sameFields = Arrays.copyOf(sameFields, capacity);
+            }
+            ids[2 * end] = id.ms;
+            ids[2 * end + 1] = id.seq;
+            if (hasMasterFields(fieldValues)) {
+                String[] values = new String[masterFields.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = fieldValues[2 * i + 1];
+                }
+                data[end] = values;
+                sameFields[end] = true;
+            } else {
+                data[end] = fieldValues.clone();
+            }
+            end++;
+        }
+
+        private boolean hasMasterFields(String[] fieldValues) {
+            if (fieldValues.length != masterFields.length * 2) {
+                return false;
+            }
+            for (int i = 0; i < masterFields.length; i++) {
+                if (!masterFields[i].equals(fieldValues[2 * i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        StreamId id(int i) {
+            return new StreamId(ids[2 * i], ids[2 * i + 1]);
+        }
+
+        int compareId(int i, StreamId id) {
+            int c = Long.compare(ids[2 * i], id.ms);
+            return c != 0 ? c : Long.compare(ids[2 * i + 1], id.seq);
+        }
+
+        Entry entry(int i) {
+            if (!sameFields[i]) {
+                return new Entry(id(i), data[i].clone());
+            }
+            String[] values = data[i];
+            String[] fieldValues = new String[values.length * 2];
+            for (int f = 0; f < values.length; f++) {
+                fieldValues[2 * f] = masterFields[f];
+                fieldValues[2 * f + 1] = values[f];
+            }
+            return new Entry(id(i), fieldValues);
+        }
+
+        /**
+         * Index of the first live entry with an ID of at least {@code id}.
+         */
+        int lowerBound(StreamId id) {
+            int lo = start;
+            int hi = end;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareId(mid, id) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void trimHead(int n) {
+            Arrays.fill(data, start, start + n, null);
+            start += n;
+        }
+
+        Node copy() {
+            Node copy = new Node(masterFields);
+            copy.ids = ids.clone();
+            copy.data = data.clone();
+            copy.sameFields = sameFields.clone();
+            copy.start = start;
+            copy.end = end;
+            return copy;
+        }
+    }
+
+    private final TreeMap<StreamId, Node> nodes = new TreeMap<>();
+    private long length;
+    private StreamId lastId = StreamId.MIN;
+    private final Map<String, ConsumerGroup> groups = new LinkedHashMap<>();
+
+    public long length() {
+        return length;
+    }
+
+    public StreamId lastId() {
+        return lastId;
+    }
+
+    /**
+     * ID of the newest entry still in the stream, or null if it is empty.
+     */
+    public StreamId lastEntryId() {
+        Map.Entry<StreamId, Node> last = nodes.lastEntry();
+        if (last == null || last.getValue().size() == 0) {
+            return null;
+        }
+        Node node = last.getValue();
+        return node.id(node.end - 1);
+    }
+
+    /**
+     * Set the last ID, which new IDs must be greater than (XSETID).
+     */
+    public void setLastId(StreamId id) {
+        lastId = id;
+    }
+
+    /**
+     * The ID {@code XADD *} would assign at {@code nowMillis}, or null when the
+     * last ID is already the greatest possible.
+     */
+    public StreamId nextId(long nowMillis) {
+        if (nowMillis > lastId.ms) {
+            return new StreamId(nowMillis, 0);
+        }
+        return lastId.next();
+    }
+
+    /**
+     * Append an entry. The ID must be greater than {@link #lastId()}.
+     */
+    public void add(StreamId id, String[] fieldValues) {
+        Map.Entry<StreamId, Node> last = nodes.lastEntry();
+        Node node = last == null ? null : last.getValue();
+        if (node == null || node.end == NODE_CAPACITY) {
+            String[] fields = new String[fieldValues.length / 2];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fieldValues[2 * i];
+            }
+            node = new Node(fields);
+            nodes.put(id, node);
+        }
+        node.append(id, fieldValues);
+        length++;
+        lastId = id;
+    }
+
+    /**
+     * Entries with IDs in {@code [start, end]}, at most {@code count} of them
+     * when {@code count > 0}.
+     */
+    public List<Entry> range(StreamId start, StreamId end, int count) {
+        List<Entry> result = new ArrayList<>();
+        if (start.compareTo(end) > 0) {
+            return result;
+        }
+        Map.Entry<StreamId, Node> floor = nodes.floorEntry(start);
+        NavigableMap<StreamId, Node> tail = floor == null ? nodes : nodes.tailMap(floor.getKey(), true);
+        for (Node node : tail.values()) {
+            for (int i = node.lowerBound(start); i < node.end; i++) {
+                if (node.compareId(i, end) > 0) {
+                    return result;
+                }
+                result.add(node.entry(i));
+                if (count > 0 && result.size() == count) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All entries, oldest first.
+     */
+    @Override
+    public Iterator<Entry> iterator() {
+        Iterator<Node> nodeIterator = nodes.values().iterator();
+        return new Iterator<Entry>() {
+            private Node node;
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                while (node == null || i == node.end) {
+                    if (!nodeIterator.hasNext()) {
+                        return false;
+                    }
+                    node = nodeIterator.next();
+                    i = node.start;
+                }
+                return true;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return node.entry(i++);
+            }
+        };
+    }
+
+    /**
+     * Entries with IDs greater than {@code id}.
+     */
+    public List<Entry> after(StreamId id, int count) {
+        StreamId next = id.next();
+        return next == null ? new ArrayList<>() : range(next, StreamId.MAX, count);
+    }
+
+    /**
+     * The entry with this ID, or null.
+     */
+    public Entry get(StreamId id) {
+        Map.Entry<StreamId, Node> floor = nodes.floorEntry(id);
+        if (floor == null) {
+            return null;
+        }
+        Node node = floor.getValue();
+        int i = node.lowerBound(id);
+        return i < node.end && node.compareId(i, id) == 0 ? node.entry(i) : null;
+    }
+
+    /**
+     * Trim to at most {@code maxLen} entries, oldest first. Approximate
+     * trimming only removes whole nodes, so it may leave a few more.
+     * Returns the number of entries removed.
+     */
+    public long trim(long maxLen, boolean approximate) {
+        long removed = 0;
+        while (length > maxLen && !nodes.isEmpty()) {
+            Node head = nodes.firstEntry().getValue();
+            int size = head.size();
+            if (length - size >= maxLen) {
+                nodes.pollFirstEntry();
+                length -= size;
+                removed += size;
+                continue;
+            }
+            if (approximate) {
+                break;
+            }
+            int n = (int) (length - maxLen);
+            head.trimHead(n);
+            length -= n;
+            removed += n;
+        }
+        return removed;
+    }
+
+    public ConsumerGroup group(String name) {
+        return groups.get(name);
+    }
+
+    /**
+     * Returns the new group, or null if a group with that name exists.
+     */
+    public ConsumerGroup createGroup(String name, StreamId lastDelivered) {
+        if (groups.containsKey(name)) {
+            return null;
+        }
+        ConsumerGroup group = new ConsumerGroup(name, lastDelivered);
+        groups.put(name, group);
+        return group;
+    }
+
+    public boolean destroyGroup(String name) {
+        return groups.remove(name) != null;
+    }
+
+    public Collection<ConsumerGroup> groups() {
+        return Collections.unmodifiableCollection(groups.values());
+    }
+
+    /**
+     * Deep copy, for snapshots. Entry strings are immutable and shared.
+     */
+    public Stream copy() {
+        Stream copy = new Stream();
+        for (Map.Entry<StreamId, Node> e : nodes.entrySet()) {
+            copy.nodes.put(e.getKey(), e.getValue().copy());
+        }
+        copy.length = length;
+        copy.lastId = lastId;
+        for (ConsumerGroup group : groups.values()) {
+            ConsumerGroup g = copy.createGroup(group.name, group.lastDelivered);
+            for (GroupConsumer c : group.consumers.values()) {
+                g.createConsumer(c.name, c.seenTime);
+            }
+            for (PendingEntry p : group.pending.values()) {
+                g.addPending(p.id, g.consumer(p.consumer.name), p.deliveryTime, p.deliveryCount);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * A consumer group: the last ID delivered to it and its pending entries
+     * list (PEL), the entries delivered to one of its consumers but not yet
+     * acknowledged.
+     */
+    public static final class ConsumerGroup {
+        public final String name;
+        private StreamId lastDelivered;
+        private final TreeMap<StreamId, PendingEntry> pending = new TreeMap<>();
+        private final Map<String, GroupConsumer> consumers = new LinkedHashMap<>();
+
+        ConsumerGroup(String name, StreamId lastDelivered) {
+            this.name = name;
+            this.lastDelivered = lastDelivered;
+        }
+
+        public StreamId lastDelivered() {
+            return lastDelivered;
+        }
+
+        public void setLastDelivered(StreamId id) {
+            lastDelivered = id;
+        }
+
+        public GroupConsumer consumer(String name) {
+            return consumers.get(name);
+        }
+
+        /**
+         * Returns the new consumer, or null if it already exists.
+         */
+        public GroupConsumer createConsumer(String name, long nowMillis) {
+            if (consumers.containsKey(name)) {
+                return null;
+            }
+            GroupConsumer consumer = new GroupConsumer(name, nowMillis);
+            consumers.put(name, consumer);
+            return consumer;
+        }
+
+        /**
+         * Remove a consumer and its pending entries. Returns how many entries
+         * it had pending, or -1 if there is no such consumer.
+         */
+        public int deleteConsumer(String name) {
+            GroupConsumer consumer = consumers.remove(name);
+            if (consumer == null) {
+                return -1;
+            }
+            for (StreamId id : consumer.pending.keySet()) {
+                pending.remove(id);
+            }
+            return consumer.pending.size();
+        }
+
+        public Collection<GroupConsumer> consumers() {
+            return Collections.unmodifiableCollection(consumers.values());
+        }
+
+        public NavigableMap<StreamId, PendingEntry> pending() {
+            return Collections.unmodifiableNavigableMap(pending);
+        }
+
+        /**
+         * Deliver entries never delivered to this group ({@code >}): they are
+         * added to the consumer's pending entries unless {@code noAck}.
+         */
+        public List<Entry> readNew(Stream stream, GroupConsumer consumer, int count, boolean noAck,
+                long nowMillis) {
+            consumer.seenTime = nowMillis;
+            List<Entry> entries = stream.after(lastDelivered, count);
+            for (Entry e : entries) {
+                lastDelivered = e.id;
+                if (!noAck) {
+                    PendingEntry p = pending.get(e.id);
+                    if (p != null) {
+                        p.consumer.pending.remove(e.id);
+                    }
+                    addPending(e.id, consumer, nowMillis, 1);
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * The consumer's own pending entries with IDs greater than {@code after}
+         * (reading history with an explicit ID). Entries trimmed from the stream
+         * come back without fields.
+         */
+        public List<Entry> readPending(Stream stream, GroupConsumer consumer, StreamId after, int count,
+                long nowMillis) {
+            consumer.seenTime = nowMillis;
+            List<Entry> entries = new ArrayList<>();
+            for (StreamId id : consumer.pending.tailMap(after, false).keySet()) {
+                Entry e = stream.get(id);
+                entries.add(e != null ? e : new Entry(id, null));
+                if (count > 0 && entries.size() == count) {
+                    break;
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Returns true if the entry was pending.
+         */
+        public boolean ack(StreamId id) {
+            PendingEntry p = pending.remove(id);
+            if (p == null) {
+                return false;
+            }
+            p.consumer.pending.remove(id);
+            return true;
+        }
+
+        /**
+         * Assign a pending entry to {@code consumer} if it has been idle for at
+         * least {@code minIdleMillis} (XCLAIM). With {@code force} an ID not in
+         * the PEL is added to it, provided it is not past the stream's last ID.
+         * {@code retryCount < 0} increments the delivery count, unless
+         * {@code justId}. Returns the claimed entry, or null.
+         */
+        public PendingEntry claim(Stream stream, StreamId id, GroupConsumer consumer, long minIdleMillis,
+                long deliveryTime, long retryCount, boolean force, boolean justId, long nowMillis) {
+            PendingEntry p = pending.get(id);
+            if (p == null) {
+                if (!force || id.compareTo(stream.lastId()) > 0) {
+                    return null;
+                }
+                p = addPending(id, consumer, deliveryTime, 0);
+            } else {
+                if (nowMillis - p.deliveryTime < minIdleMillis) {
+                    return null;
+                }
+                p.consumer.pending.remove(id);
+                p.consumer = consumer;
+                consumer.pending.put(id, p);
+            }
+            p.deliveryTime = deliveryTime;
+            if (retryCount >= 0) {
+                p.deliveryCount = retryCount;
+            } else if (!justId) {
+                p.deliveryCount++;
+            }
+            consumer.seenTime = nowMillis;
+            return p;
+        }
+
+        private PendingEntry addPending(StreamId id, GroupConsumer consumer, long deliveryTime, long count) {
+            PendingEntry p = new PendingEntry(id, consumer, deliveryTime, count);
+            pending.put(id, p);
+            consumer.pending.put(id, p);
+            return p;
+        }
+    }
+
+    public static final class GroupConsumer {
+        public final String name;
+        private long seenTime;
+        private final TreeMap<StreamId, PendingEntry> pending = new TreeMap<>();
+
+        GroupConsumer(String name, long seenTime) {
+            this.name = name;
+            this.seenTime = seenTime;
+        }
+
+        public long seenTime() {
+            return seenTime;
+        }
+
+        public int pendingCount() {
+            return pending.size();
+        }
+    }
+
+    public static final class PendingEntry {
+        public final StreamId id;
+        private GroupConsumer consumer;
+        private long deliveryTime;
+        private long deliveryCount;
+
+        PendingEntry(StreamId id, GroupConsumer consumer, long deliveryTime, long deliveryCount) {
+            this.id = id;
+            this.consumer = consumer;
+            this.deliveryTime = deliveryTime;
+            this.deliveryCount = deliveryCount;
+        }
+
+        public GroupConsumer consumer() {
+            return consumer;
+        }
+
+        public long deliveryTime() {
+            return deliveryTime;
+        }
+
+        public long deliveryCount() {
+            return deliveryCount;
+        }
+    }
+}
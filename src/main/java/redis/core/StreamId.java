@@ -0,0 +1,89 @@
+package redis.core;
+
+/**
+ * A stream entry ID: {@code <milliseconds>-<sequence>}, both unsigned 64-bit
+ * in Redis and non-negative longs here.
+ */
+public final class StreamId implements Comparable<StreamId> {
+
+    public static final StreamId MIN = new StreamId(0, 0);
+    public static final StreamId MAX = new StreamId(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    public final long ms;
+    public final long seq;
+
+    public StreamId(long ms, long seq) {
+        this.ms = ms;
+        this.seq = seq;
+    }
+
+    /**
+     * Parse {@code ms} or {@code ms-seq}. A missing sequence is {@code defaultSeq}
+     * (0 for the start of a range, {@code Long.MAX_VALUE} for its end). Returns
+     * null if the text is not a valid ID.
+     */
+    public static StreamId parse(String s, long defaultSeq) {
+        int dash = s.indexOf('-');
+        try {
+            if (dash < 0) {
+                return valid(Long.parseLong(s), defaultSeq);
+            }
+            return valid(Long.parseLong(s.substring(0, dash)), Long.parseLong(s.substring(dash + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse a range bound, also accepting {@code -} and {@code +}.
+     */
+    public static StreamId parseRangeBound(String s, boolean start) {
+        if ("-".equals(s)) {
+            return MIN;
+        }
+        if ("+".equals(s)) {
+            return MAX;
+        }
+        return parse(s, start ? 0 : Long.MAX_VALUE);
+    }
+
+    private static StreamId valid(long ms, long seq) {
+        return ms < 0 || seq < 0 ? null : new StreamId(ms, seq);
+    }
+
+    /**
+     * The smallest ID greater than this one, or null if there is none.
+     */
+    public StreamId next() {
+        if (seq < Long.MAX_VALUE) {
+            return new StreamId(ms, seq + 1);
+        }
+        return ms < Long.MAX_VALUE ? new StreamId(ms + 1, 0) : null;
+    }
+
+    @Override
+    public int compareTo(StreamId o) {
+        int c = Long.compare(ms, o.ms);
+        return c != 0 ? c : Long.compare(seq, o.seq);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof StreamId))
+            return false;
+        StreamId other = (StreamId) o;
+        return ms == other.ms && seq == other.seq;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(ms) * 31 + Long.hashCode(seq);
+    }
+
+    @Override
+    public String toString() {
+        return ms + "-" + seq;
+    }
+}
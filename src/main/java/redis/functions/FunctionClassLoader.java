@@ -0,0 +1,117 @@
+package redis.functions;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Loads function libraries from the functions directory (class files, and
+ * jars at its top level).
+ *
+ * Library code only sees its own classes, the function API and an allowlist
+ * of JDK packages: no files, sockets, threads, processes, reflection or
+ * server internals. This keeps functions to computing over what they read
+ * through {@link FunctionContext}; it is not a security sandbox for
+ * untrusted code.
+ */
+final class FunctionClassLoader extends URLClassLoader {
+
+    private static final Map<String, Class<?>> API = Map.of(
+            FunctionLibrary.class.getName(), FunctionLibrary.class,
+            FunctionLibrary.Registrar.class.getName(), FunctionLibrary.Registrar.class,
+            RedisFunction.class.getName(), RedisFunction.class,
+            FunctionContext.class.getName(), FunctionContext.class,
+            FunctionException.class.getName(), FunctionException.class);
+
+    private static final List<String> ALLOWED_PACKAGES = List.of(
+            "java.lang.", "java.util.", "java.math.", "java.time.", "java.text.");
+
+    private static final List<String> DENIED_PACKAGES = List.of(
+            "java.lang.reflect.", "java.lang.ref.", "java.lang.management.", "java.lang.module.",
+            "java.lang.instrument.", "java.util.concurrent.", "java.util.jar.", "java.util.zip.",
+            "java.util.logging.", "java.util.prefs.", "java.util.spi.");
+
+    private static final Set<String> DENIED_CLASSES = Set.of(
+            "java.lang.Class", "java.lang.ClassLoader", "java.lang.System", "java.lang.Runtime",
+            "java.lang.Process", "java.lang.ProcessBuilder", "java.lang.ProcessHandle",
+            "java.lang.Thread", "java.lang.ThreadGroup", "java.lang.ThreadLocal",
+            "java.lang.InheritableThreadLocal", "java.lang.StackWalker", "java.lang.Module",
+            "java.lang.ModuleLayer", "java.lang.SecurityManager");
+
+    // Linked by javac for string concatenation and lambdas
+    private static final Set<String> ALLOWED_INVOKE = Set.of(
+            "java.lang.invoke.StringConcatFactory", "java.lang.invoke.LambdaMetafactory",
+            "java.lang.invoke.MethodHandles$Lookup", "java.lang.invoke.MethodHandles",
+            "java.lang.invoke.MethodHandle", "java.lang.invoke.MethodType", "java.lang.invoke.CallSite");
+
+    FunctionClassLoader(Path dir) throws IOException {
+        super(urls(dir), null);
+    }
+
+    private static URL[] urls(Path dir) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        urls.add(dir.toUri().toURL());
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path jar : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".jar"))::iterator) {
+                urls.add(jar.toUri().toURL());
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        Class<?> api = API.get(name);
+        if (api != null) {
+            return api;
+        }
+        if (isPlatformClass(name)) {
+            if (!isAllowed(name)) {
+                throw new ClassNotFoundException(name + " is not available to functions");
+            }
+            return ClassLoader.getPlatformClassLoader().loadClass(name);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                c = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(c);
+            }
+            return c;
+        }
+    }
+
+    private static boolean isPlatformClass(String name) {
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.") || name.startsWith("com.sun.") || name.startsWith("redis.");
+    }
+
+    static boolean isAllowed(String name) {
+        if (ALLOWED_INVOKE.contains(name)) {
+            return true;
+        }
+        if (name.startsWith("java.lang.invoke.") || DENIED_CLASSES.contains(name)) {
+            return false;
+        }
+        for (String prefix : DENIED_PACKAGES) {
+            if (name.startsWith(prefix)) {
+                return false;
+            }
+        }
+        for (String prefix : ALLOWED_PACKAGES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
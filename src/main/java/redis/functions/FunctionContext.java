@@ -0,0 +1,14 @@
+package redis.functions;
+
+/**
+ * What a running function can do: call commands, all under the same lock
+ * so nothing else runs in between.
+ */
+public interface FunctionContext {
+
+    /**
+     * Run a command and return its reply as a String, Long, List or null.
+     * An error reply is thrown as a {@link FunctionException}.
+     */
+    Object call(String... command);
+}
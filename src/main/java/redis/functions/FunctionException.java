@@ -0,0 +1,16 @@
+package redis.functions;
+
+/**
+ * Error reply of a function, or failure to load a library. The message is
+ * sent to the client as is.
+ */
+public class FunctionException extends RuntimeException {
+
+    public FunctionException(String message) {
+        super(message);
+    }
+
+    public FunctionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
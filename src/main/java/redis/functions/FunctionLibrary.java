@@ -0,0 +1,22 @@
+package redis.functions;
+
+/**
+ * Entry point of a library loaded with FUNCTION LOAD: a public class with a
+ * public no-argument constructor, compiled into the functions directory.
+ */
+public interface FunctionLibrary {
+
+    /**
+     * Receives the library's functions.
+     */
+    interface Registrar {
+        void register(String name, RedisFunction function);
+
+        /**
+         * Register a function that does not write (no-writes), callable with FCALL_RO.
+         */
+        void registerReadOnly(String name, RedisFunction function);
+    }
+
+    void register(Registrar registrar);
+}
@@ -0,0 +1,145 @@
+package redis.functions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The loaded function libraries (FUNCTION LOAD / DELETE / FLUSH / LIST) and
+ * their functions by name (FCALL).
+ *
+ * Libraries are classes implementing {@link FunctionLibrary} in the
+ * configured directory, each loaded by its own {@link FunctionClassLoader} so
+ * that FUNCTION LOAD REPLACE picks up a recompiled class. Libraries are not
+ * persisted: the AOF holds the effects of FCALL, not the code.
+ */
+public class FunctionRegistry {
+
+    /**
+     * A registered function.
+     */
+    public static final class Function {
+        public final String name;
+        public final String library;
+        public final RedisFunction body;
+        public final boolean readOnly;
+
+        Function(String name, String library, RedisFunction body, boolean readOnly) {
+            this.name = name;
+            this.library = library;
+            this.body = body;
+            this.readOnly = readOnly;
+        }
+    }
+
+    private final Path dir; // null = FUNCTION LOAD disabled
+
+    // Library name → its functions, in load order. Guarded by this.
+    private final Map<String, List<Function>> libraries = new LinkedHashMap<>();
+    // Function name → function, across libraries. Guarded by this.
+    private final Map<String, Function> functions = new HashMap<>();
+
+    public FunctionRegistry(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * FUNCTION LOAD: instantiate the class {@code className} from the functions
+     * directory and register its functions. Returns the library name.
+     */
+    public String load(String className, boolean replace) {
+        if (dir == null) {
+            throw new FunctionException("functions are disabled (no functions directory configured)");
+        }
+        FunctionLibrary library;
+        try {
+            Class<?> c = Class.forName(className, true, new FunctionClassLoader(dir));
+            if (!FunctionLibrary.class.isAssignableFrom(c)) {
+                throw new FunctionException("class '" + className + "' does not implement FunctionLibrary");
+            }
+            library = (FunctionLibrary) c.getConstructor().newInstance();
+        } catch (ClassNotFoundException | NoClassDefFoundError e) {
+            throw new FunctionException("cannot load '" + className + "': " + e.getMessage(), e);
+        } catch (ReflectiveOperationException | IOException | LinkageError e) {
+            throw new FunctionException("cannot load '" + className + "': " + e, e);
+        }
+        load(className, library, replace);
+        return className;
+    }
+
+    /**
+     * Register a library instance under {@code name}.
+     */
+    public synchronized void load(String name, FunctionLibrary library, boolean replace) {
+        if (libraries.containsKey(name) && !replace) {
+            throw new FunctionException("Library '" + name + "' already exists");
+        }
+
+        List<Function> registered = new ArrayList<>();
+        library.register(new FunctionLibrary.Registrar() {
+            @Override
+            public void register(String fn, RedisFunction body) {
+                registered.add(new Function(fn, name, body, false));
+            }
+
+            @Override
+            public void registerReadOnly(String fn, RedisFunction body) {
+                registered.add(new Function(fn, name, body, true));
+            }
+        });
+        if (registered.isEmpty()) {
+            throw new FunctionException("No functions registered");
+        }
+        Map<String, Function> byName = new HashMap<>();
+        for (Function f : registered) {
+            Function existing = functions.get(f.name);
+            if (byName.put(f.name, f) != null || (existing != null && !existing.library.equals(name))) {
+                throw new FunctionException("Function " + f.name + " already exists");
+            }
+        }
+
+        delete(name);
+        libraries.put(name, List.copyOf(registered));
+        functions.putAll(byName);
+    }
+
+    /**
+     * FUNCTION DELETE. Returns false if there is no such library.
+     */
+    public synchronized boolean delete(String library) {
+        List<Function> removed = libraries.remove(library);
+        if (removed == null) {
+            return false;
+        }
+        for (Function f : removed) {
+            functions.remove(f.name);
+        }
+        return true;
+    }
+
+    /**
+     * FUNCTION FLUSH.
+     */
+    public synchronized void flush() {
+        libraries.clear();
+        functions.clear();
+    }
+
+    /**
+     * The function with this name, or null.
+     */
+    public synchronized Function get(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * The libraries and their functions, in load order.
+     */
+    public synchronized Map<String, List<Function>> libraries() {
+        return new LinkedHashMap<>(libraries);
+    }
+}
@@ -0,0 +1,16 @@
+package redis.functions;
+
+import java.util.List;
+
+/**
+ * A server-side function, called with FCALL.
+ *
+ * The return value is the reply: null (nil), a String (bulk string), a
+ * Number (integer), a Boolean (1 or 0) or a List of these (array). Throw a
+ * {@link FunctionException} to reply with an error.
+ */
+@FunctionalInterface
+public interface RedisFunction {
+
+    Object call(FunctionContext context, List<String> keys, List<String> args);
+}
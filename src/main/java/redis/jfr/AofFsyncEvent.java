@@ -0,0 +1,26 @@
+package redis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * An fsync of the AOF: after every write with fsync ALWAYS, from the
+ * background thread with EVERYSEC.
+ */
+@Name("redis.AofFsync")
+@Label("AOF Fsync")
+@Category({ "Redis", "Persistence" })
+@Description("The AOF forced to disk")
+@StackTrace(false)
+@Threshold("10 ms")
+public class AofFsyncEvent extends Event {
+
+    @Label("Policy")
+    @Description("The fsync policy: ALWAYS or EVERYSEC")
+    public String policy;
+}
@@ -0,0 +1,22 @@
+package redis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Appended commands written from the AOF buffer to the file (not yet
+ * fsynced).
+ */
+@Name("redis.AofWrite")
+@Label("AOF Write")
+@Category({ "Redis", "Persistence" })
+@Description("Commands appended to the AOF written to the operating system")
+@StackTrace(false)
+@Threshold("10 ms")
+public class AofWriteEvent extends Event {
+}
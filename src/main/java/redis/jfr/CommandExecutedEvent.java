@@ -0,0 +1,43 @@
+package redis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A command run for a client or a function, as timed by the command
+ * processor. Replayed AOF commands are not recorded.
+ */
+@Name("redis.CommandExecuted")
+@Label("Command Executed")
+@Category({ "Redis", "Commands" })
+@Description("A command, with the number of keys it names and the size of its request and reply")
+@StackTrace(false)
+@Threshold("10 ms")
+public class CommandExecutedEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Keys")
+    @Description("Keys named by the arguments; 0 for commands with movable keys")
+    public int keyCount;
+
+    @Label("Bytes In")
+    @Description("Characters in the arguments")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Bytes Out")
+    @Description("Characters in the reply")
+    @DataAmount
+    public long bytesOut;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,31 @@
+package redis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One run of the active expiry: rounds of sampling keys with an expiry and
+ * removing the expired ones.
+ */
+@Name("redis.ExpiryCycle")
+@Label("Expiry Cycle")
+@Category({ "Redis", "Keyspace" })
+@Description("Expired keys sampled and removed in the background")
+@StackTrace(false)
+@Threshold("10 ms")
+public class ExpiryCycleEvent extends Event {
+
+    @Label("Rounds")
+    public int rounds;
+
+    @Label("Keys Sampled")
+    public int sampled;
+
+    @Label("Keys Expired")
+    public int expired;
+}
@@ -0,0 +1,32 @@
+package redis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A PUBLISH or SPUBLISH queueing its message for the subscribers. Delivery
+ * to the sockets happens later, on the delivery threads.
+ */
+@Name("redis.PubSubFanout")
+@Label("Pub/Sub Fan-out")
+@Category({ "Redis", "Pub/Sub" })
+@Description("A published message queued for the matching subscribers")
+@StackTrace(false)
+@Threshold("1 ms")
+public class PubSubFanoutEvent extends Event {
+
+    @Label("Channel")
+    public String channel;
+
+    @Label("Sharded")
+    public boolean sharded;
+
+    @Label("Receivers")
+    @Description("Subscribers the message was queued for, through the channel and matching patterns")
+    public int receivers;
+}
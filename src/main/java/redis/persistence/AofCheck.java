@@ -0,0 +1,125 @@
+package redis.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline AOF checker, the counterpart of redis-check-aof.
+ *
+ * <pre>
+ * java -cp redis.jar redis.persistence.AofCheck [--fix] &lt;file.aof | file.manifest&gt;
+ * </pre>
+ *
+ * Reports where the first invalid entry starts. With {@code --fix} the file is
+ * truncated at that offset, discarding the invalid entry and everything after
+ * it. For a manifest every listed file is checked; only the last incremental
+ * segment may be fixed by truncation. A base in the binary snapshot format
+ * is checked against its own checksum and is never truncated.
+ *
+ * Exit status is 0 when the AOF is valid (or was fixed) and 1 otherwise.
+ */
+public class AofCheck {
+
+    public static void main(String[] args) {
+        boolean fix = false;
+        Path target = null;
+        for (String arg : args) {
+            if ("--fix".equals(arg)) {
+                fix = true;
+            } else if (target == null) {
+                target = Path.of(arg);
+            } else {
+                usage();
+            }
+        }
+        if (target == null) {
+            usage();
+        }
+
+        try {
+            System.exit(check(target, fix) ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("AofCheck failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: AofCheck [--fix] <file.aof | file.manifest>");
+        System.exit(1);
+    }
+
+    /**
+     * Check (and optionally fix) a single AOF file or every file of a manifest.
+     * Returns true if the AOF is valid afterwards.
+     */
+    public static boolean check(Path target, boolean fix) throws IOException, InterruptedException {
+        String name = target.getFileName().toString();
+        if (!name.endsWith(".manifest")) {
+            return checkFile(target, fix);
+        }
+
+        Path dir = target.getParent() == null ? Path.of(".") : target.getParent();
+        AofManifest manifest = AofManifest.load(dir, name.substring(0, name.length() - ".manifest".length()));
+        if (manifest == null) {
+            throw new NoSuchFileException(target.toString());
+        }
+
+        List<AofManifest.AofFile> files = new ArrayList<>(manifest.filesInOrder());
+        boolean valid = true;
+        for (int i = 0; i < files.size(); i++) {
+            boolean last = i == files.size() - 1;
+            valid &= checkFile(dir.resolve(files.get(i).name), fix && last);
+        }
+        return valid;
+    }
+
+    private static boolean checkFile(Path file, boolean fix) throws IOException, InterruptedException {
+        if (SnapshotFile.isSnapshot(file)) {
+            return checkSnapshot(file);
+        }
+
+        AofReader.Result result;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            result = new AofReader().read(channel, req -> {
+            });
+        }
+
+        if (result.isValid()) {
+            System.out.println(file + ": AOF is valid (" + result.entries + " entries, " + result.fileSize
+                    + " bytes)");
+            return true;
+        }
+
+        long diff = result.fileSize - result.validBytes;
+        System.out.println(file + ": " + result.error);
+        System.out.println("AOF analyzed: size=" + result.fileSize + ", ok_up_to=" + result.validBytes
+                + ", diff=" + diff);
+
+        if (!fix) {
+            System.out.println("Run with --fix to truncate the file at offset " + result.validBytes);
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(result.validBytes);
+            channel.force(true);
+        }
+        System.out.println("Successfully truncated AOF " + file + " (discarded " + diff + " bytes)");
+        return true;
+    }
+
+    private static boolean checkSnapshot(Path file) throws IOException {
+        String error = SnapshotFile.verify(file);
+        if (error == null) {
+            System.out.println(file + ": snapshot is valid (" + Files.size(file) + " bytes)");
+            return true;
+        }
+        System.out.println(file + ": " + error);
+        System.out.println("A snapshot cannot be fixed by truncation; rewrite the AOF from a valid copy");
+        return false;
+    }
+}
@@ -0,0 +1,271 @@
+package redis.persistence;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.resp.NullRespWriter;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fast AOF replay path.
+ *
+ * The file is memory-mapped in large windows and decoded straight from bytes
+ * (see {@link AofReader}) by a dedicated "aof-decoder" thread, which hands batches of parsed commands
+ * to the calling thread. The caller applies them through the
+ * {@link CommandProcessor} with a reply writer that discards everything, so
+ * no reply is ever formatted during loading.
+ */
+public class AofLoader {
+
+    private static final int BATCH_SIZE = 512;
+    private static final int QUEUE_CAPACITY = 64;
+
+    // Sentinel batch marking the end of the decoded stream
+    private static final List<Entry> END = new ArrayList<>();
+
+    private static final RespWriter NULL_WRITER = new NullRespWriter();
+
+    private final Database db;
+    private final CommandProcessor processor;
+    private final int mapWindow;
+
+    public AofLoader(Database db, CommandProcessor processor) {
+        this(db, processor, AofReader.DEFAULT_MAP_WINDOW);
+    }
+
+    AofLoader(Database db, CommandProcessor processor, int mapWindow) {
+        this.db = db;
+        this.processor = processor;
+        this.mapWindow = mapWindow;
+    }
+
+    /**
+     * A decoded AOF entry: the upper-cased command name plus its raw arguments.
+     * A null name marks an entry that is not a valid command.
+     */
+    private static final class Entry {
+        final String name;
+        final List<Value> args;
+
+        Entry(String name, List<Value> args) {
+            this.name = name;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Outcome and throughput of a load.
+     */
+    public static final class LoadStats {
+        public final long commandsLoaded;
+        public final long commandsSkipped;
+        public final long bytesLoaded;
+        public final long elapsedNanos;
+        public final boolean truncated;
+        public final boolean corrupted;
+
+        LoadStats(long commandsLoaded, long commandsSkipped, long bytesLoaded, long elapsedNanos,
+                boolean truncated, boolean corrupted) {
+            this.commandsLoaded = commandsLoaded;
+            this.commandsSkipped = commandsSkipped;
+            this.bytesLoaded = bytesLoaded;
+            this.elapsedNanos = elapsedNanos;
+            this.truncated = truncated;
+            this.corrupted = corrupted;
+        }
+
+        LoadStats plus(LoadStats other) {
+            return new LoadStats(commandsLoaded + other.commandsLoaded,
+                    commandsSkipped + other.commandsSkipped,
+                    bytesLoaded + other.bytesLoaded,
+                    elapsedNanos + other.elapsedNanos,
+                    truncated || other.truncated,
+                    corrupted || other.corrupted);
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (bytesLoaded / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+        }
+
+        public double commandsPerSecond() {
+            return elapsedNanos == 0 ? 0 : commandsLoaded / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "Commands replayed: %d%s (%.1f MB in %d ms, %.1f MB/s, %.0f cmds/s)",
+                    commandsLoaded,
+                    commandsSkipped > 0 ? ", skipped: " + commandsSkipped : "",
+                    bytesLoaded / (1024.0 * 1024.0),
+                    elapsedNanos / 1_000_000,
+                    megabytesPerSecond(),
+                    commandsPerSecond());
+        }
+    }
+
+    /**
+     * State shared between the decoder thread and the applying thread.
+     */
+    private static final class DecodeState {
+        volatile AofReader.Result result;
+        // Why the decoder stopped early, rethrown by load
+        volatile Throwable failure;
+    }
+
+    /**
+     * Replay every command in the file against the database (no re-append).
+     * Replay stops at the first invalid entry; the returned stats tell whether
+     * the file ended with a torn entry or is corrupted.
+     */
+    public LoadStats load(Path file) throws IOException {
+        long startNanos = System.nanoTime();
+
+        BlockingQueue<List<Entry>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        DecodeState state = new DecodeState();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                BufferedWriter nullOut = new BufferedWriter(Writer.nullWriter())) {
+
+            Thread decoder = new Thread(() -> decode(channel, queue, state), "aof-decoder");
+            decoder.setDaemon(true);
+            decoder.start();
+
+            long loaded = 0;
+            long skipped = 0;
+            // Requests between MULTI and EXEC, applied once the EXEC is read
+            List<Entry> transaction = null;
+
+            try {
+                while (true) {
+                    List<Entry> batch = queue.take();
+                    if (batch == END) {
+                        break;
+                    }
+                    for (Entry entry : batch) {
+                        if ("MULTI".equals(entry.name)) {
+                            transaction = new ArrayList<>();
+                            continue;
+                        }
+                        if ("EXEC".equals(entry.name) && transaction != null) {
+                            for (Entry queued : transaction) {
+                                if (apply(queued, nullOut)) {
+                                    loaded++;
+                                } else {
+                                    skipped++;
+                                }
+                            }
+                            transaction = null;
+                            continue;
+                        }
+                        if (transaction != null) {
+                            transaction.add(entry);
+                        } else if (apply(entry, nullOut)) {
+                            loaded++;
+                        } else {
+                            skipped++;
+                        }
+                    }
+                }
+                if (transaction != null) {
+                    // No EXEC: the reader reports the file as truncated at the MULTI
+                    skipped += transaction.size();
+                }
+            } catch (InterruptedException e) {
+                decoder.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("AOF load interrupted");
+            }
+
+            Throwable failure = state.failure;
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+
+            AofReader.Result result = state.result;
+            if (result.error != null) {
+                System.err.println("[AOF] " + file.getFileName() + ": " + result.error + ", stopping replay");
+            }
+            return new LoadStats(loaded, skipped, result.validBytes, System.nanoTime() - startNanos,
+                    result.truncated, result.corrupted);
+        }
+    }
+
+    /**
+     * Apply one entry; false if it is not a valid command or failed.
+     */
+    private boolean apply(Entry entry, BufferedWriter nullOut) {
+        if (entry.name == null) {
+            return false;
+        }
+        try {
+            // fromReplay=true => do not append again
+            processor.executeCommand(entry.name, db, NULL_WRITER, nullOut, entry.args, true);
+            return true;
+        } catch (Exception e) {
+            // Log the error but continue replaying remaining commands
+            System.err.println("[AOF] Failed to replay command '" + entry.name + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Runs on the decoder thread. END is queued however decoding ends, so
+     * load never waits forever; a failure is left in {@code state}.
+     */
+    private void decode(FileChannel channel, BlockingQueue<List<Entry>> queue, DecodeState state) {
+        List<List<Entry>> pending = new ArrayList<>(1);
+        pending.add(new ArrayList<>(BATCH_SIZE));
+        boolean interrupted = false;
+        try {
+            state.result = new AofReader(mapWindow).read(channel, req -> {
+                List<Entry> batch = pending.get(0);
+                batch.add(toEntry(req));
+                if (batch.size() == BATCH_SIZE) {
+                    queue.put(batch);
+                    pending.set(0, new ArrayList<>(BATCH_SIZE));
+                }
+            });
+            if (!pending.get(0).isEmpty()) {
+                queue.put(pending.get(0));
+            }
+        } catch (InterruptedException e) {
+            // load gave up and is no longer reading the queue
+            interrupted = true;
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            state.failure = e;
+        } finally {
+            if (!interrupted) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static Entry toEntry(Value req) {
+        if (!"array".equals(req.typ) || req.array == null || req.array.isEmpty()
+                || req.array.get(0).str == null) {
+            return new Entry(null, null);
+        }
+        return new Entry(req.array.get(0).str.toUpperCase(Locale.ROOT), req.array);
+    }
+}
@@ -3,36 +3,113 @@ package redis.persistence;
 import redis.resp.Value;
 import redis.core.CommandProcessor;
 import redis.core.Database;
-import redis.resp.RespParser;
+import redis.core.LatencyMonitor;
+import redis.jfr.AofFsyncEvent;
+import redis.jfr.AofWriteEvent;
 import redis.resp.RespWriter;
-import redis.resp.RespParseException;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
 
+/**
+ * Append-only file persistence.
+ *
+ * Two layouts are supported:
+ * <ul>
+ * <li>single file: every write is appended to one file ({@code aofPath});</li>
+ * <li>multi-part: a directory holding a base file, numbered incremental
+ * segments and a manifest listing them (see {@link AofManifest}). A rewrite
+ * only has to open a new segment and write a new base from a snapshot; the
+ * old base and segments are then deleted, so no large file is ever copied.</li>
+ * </ul>
+ *
+ * The base file is either RESP, like the segments, or a compact binary
+ * snapshot ({@link SnapshotFile}) when {@link AofOptions#snapshotBase} is set.
+ * Replay recognises both, so the option can be changed between restarts.
+ */
 public class AofManager implements Closeable {
     public enum FsyncPolicy {
         ALWAYS, EVERYSEC, NO
     }
 
-    private final Path aofPath;
+    private final Path aofPath; // single-file layout, null when multi-part
+    private final Path dir; // multi-part layout, null when single-file
+    private final String baseName;
     private final RespWriter writer;
-    private final BufferedOutputStream out;
     private final FsyncPolicy policy;
+    private final AofOptions options;
+
+    private volatile AofManifest manifest; // immutable, replaced under this
+    private FileChannel channel;
+    private BufferedOutputStream out;
 
     private final ScheduledExecutorService fsyncScheduler;
     private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicBoolean rewriting = new AtomicBoolean(false);
+
+    // INFO persistence
+    private volatile long lastFsyncMillis; // wall clock, 0 = never
+    // Wall clock of the oldest write not fsynced yet, 0 = none (guarded by this)
+    private volatile long firstUnsyncedMillis;
+    private final LongAdder rewrites = new LongAdder();
+    private volatile long lastRewriteMillis = -1; // duration, -1 = none yet
+    private volatile boolean lastRewriteOk = true;
+    // Spikes of writes, fsyncs and rewrite snapshots (LATENCY)
+    private volatile LatencyMonitor latencyMonitor = new LatencyMonitor();
 
+    // Reused to assemble checksummed batches (guarded by this)
+    private final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream();
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Single-file AOF.
+     */
     public AofManager(Path aofPath, RespWriter writer, FsyncPolicy policy) throws IOException {
+        this(aofPath, null, null, writer, policy, AofOptions.DEFAULTS);
+    }
+
+    public AofManager(Path aofPath, RespWriter writer, FsyncPolicy policy, AofOptions options) throws IOException {
+        this(aofPath, null, null, writer, policy, options);
+    }
+
+    /**
+     * Multi-part AOF stored in {@code dir}, with files named after {@code baseName}.
+     * An existing single-file AOF named {@code baseName} next to the directory is
+     * adopted as the initial base file.
+     */
+    public AofManager(Path dir, String baseName, RespWriter writer, FsyncPolicy policy) throws IOException {
+        this(null, dir, baseName, writer, policy, AofOptions.DEFAULTS);
+    }
+
+    public AofManager(Path dir, String baseName, RespWriter writer, FsyncPolicy policy, AofOptions options)
+            throws IOException {
+        this(null, dir, baseName, writer, policy, options);
+    }
+
+    private AofManager(Path aofPath, Path dir, String baseName, RespWriter writer, FsyncPolicy policy,
+            AofOptions options) throws IOException {
         this.aofPath = aofPath;
+        this.dir = dir;
+        this.baseName = baseName;
         this.writer = writer;
         this.policy = policy;
+        this.options = options;
 
-        Files.createDirectories(aofPath.getParent() == null ? Path.of(".") : aofPath.getParent());
-        OutputStream fos = Files.newOutputStream(aofPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        this.out = new BufferedOutputStream(fos, 64 * 1024);
+        if (dir == null) {
+            Files.createDirectories(aofPath.getParent() == null ? Path.of(".") : aofPath.getParent());
+            openForAppend(aofPath);
+        } else {
+            openMultiPart();
+        }
 
         if (policy == FsyncPolicy.EVERYSEC) {
             fsyncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -46,92 +123,397 @@ public class AofManager implements Closeable {
         }
     }
 
+    private void openMultiPart() throws IOException {
+        Files.createDirectories(dir);
+
+        AofManifest loaded = AofManifest.load(dir, baseName);
+        if (loaded == null) {
+            loaded = new AofManifest(baseName, null, List.of());
+
+            // Upgrade path: adopt an old single-file AOF as the base
+            Path legacy = dir.resolveSibling(baseName);
+            if (Files.isRegularFile(legacy)) {
+                AofManifest.AofFile base = loaded.nextBase("aof");
+                Files.move(legacy, dir.resolve(base.name), StandardCopyOption.ATOMIC_MOVE);
+                loaded = new AofManifest(baseName, base, List.of());
+                System.out.println("[AOF] Moved " + legacy + " into " + dir + " as " + base.name);
+            }
+        }
+
+        if (loaded.lastIncr() == null) {
+            loaded = loaded.withNewIncr();
+            loaded.save(dir);
+        }
+
+        manifest = loaded;
+        openForAppend(dir.resolve(manifest.lastIncr().name));
+    }
+
+    private void openForAppend(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+    }
+
+    public void setLatencyMonitor(LatencyMonitor monitor) {
+        this.latencyMonitor = monitor;
+    }
+
+    public boolean isMultiPart() {
+        return dir != null;
+    }
+
+    public boolean isRewriting() {
+        return rewriting.get();
+    }
+
+    /**
+     * Total size of the AOF files in bytes, the base included. Reads the
+     * file sizes without blocking appends.
+     */
+    public long currentSize() {
+        AofManifest manifest = this.manifest;
+        if (dir == null) {
+            return sizeOf(aofPath);
+        }
+        long size = 0;
+        for (AofManifest.AofFile file : manifest.filesInOrder()) {
+            size += sizeOf(dir.resolve(file.name));
+        }
+        return size;
+    }
+
+    /**
+     * Size of the base file in bytes, 0 without one (single-file layout).
+     */
+    public long baseSize() {
+        AofManifest manifest = this.manifest;
+        return dir == null || manifest.base() == null ? 0 : sizeOf(dir.resolve(manifest.base().name));
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0; // e.g. deleted by a rewrite meanwhile
+        }
+    }
+
+    public long lastFsyncMillis() {
+        return lastFsyncMillis;
+    }
+
+    /**
+     * How long the oldest write not yet fsynced has been waiting, 0 if all
+     * writes are on disk: what a crash could lose.
+     */
+    public long fsyncLagMillis() {
+        long first = firstUnsyncedMillis;
+        return first == 0 ? 0 : Math.max(0, System.currentTimeMillis() - first);
+    }
+
+    public long rewriteCount() {
+        return rewrites.sum();
+    }
+
+    public long lastRewriteMillis() {
+        return lastRewriteMillis;
+    }
+
+    public boolean lastRewriteOk() {
+        return lastRewriteOk;
+    }
+
     public synchronized void append(Object requestArrayObj) throws IOException {
         // write request array as RESP to AOF
         Value requestArray = (Value) requestArrayObj;
-        writer.writeRequest(out, requestArray);
+        if (options.checksums) {
+            batchBuffer.reset();
+            writer.writeRequest(batchBuffer, requestArray);
+            writeBatch();
+        } else {
+            writer.writeRequest(out, requestArray);
+        }
+        flushAppended();
+    }
+
+    /**
+     * Append the writes of a transaction between MULTI and EXEC, as a single
+     * checksummed batch when checksums are on. Replay applies the requests
+     * only once it reaches the EXEC, and a file ending inside the transaction
+     * is treated as truncated at the MULTI.
+     */
+    public synchronized void appendTransaction(List<Value> requests) throws IOException {
+        OutputStream target = out;
+        if (options.checksums) {
+            batchBuffer.reset();
+            target = batchBuffer;
+        }
+        writer.writeRequest(target, command("MULTI"));
+        for (Value request : requests) {
+            writer.writeRequest(target, request);
+        }
+        writer.writeRequest(target, command("EXEC"));
+        if (options.checksums) {
+            writeBatch();
+        }
+        flushAppended();
+    }
+
+    private static Value command(String name) {
+        return new Value("array", List.of(new Value("bulk", name)));
+    }
+
+    private void flushAppended() throws IOException {
+        AofWriteEvent writeEvent = new AofWriteEvent();
+        writeEvent.begin();
+        long start = System.nanoTime();
         out.flush();
         dirty.set(true);
+        if (firstUnsyncedMillis == 0) {
+            firstUnsyncedMillis = System.currentTimeMillis();
+        }
+        latencyMonitor.record(LatencyMonitor.AOF_WRITE, System.nanoTime() - start);
+        writeEvent.commit();
 
         if (policy == FsyncPolicy.ALWAYS) {
+            AofFsyncEvent fsyncEvent = new AofFsyncEvent();
+            fsyncEvent.begin();
+            start = System.nanoTime();
             fsync();
+            latencyMonitor.record(LatencyMonitor.AOF_FSYNC_ALWAYS, System.nanoTime() - start);
+            fsyncEvent.end();
+            if (fsyncEvent.shouldCommit()) {
+                fsyncEvent.policy = policy.name();
+                fsyncEvent.commit();
+            }
         }
     }
 
     /**
-     * Replay AOF file at startup (no re-append).
+     * Frame the contents of batchBuffer as {@code #<length> <crc32c-hex>\r\n<payload>}.
      */
-    public void replay(Database db, CommandProcessor processor, RespWriter respWriter) throws IOException {
-        if (!Files.exists(aofPath)) {
-            System.out.println("[AOF] No AOF file found at " + aofPath + ", skipping replay.");
+    private void writeBatch() throws IOException {
+        crc.reset();
+        crc.update(batchBuffer.toByteArray());
+        String header = (char) AofReader.BATCH_PREFIX + Integer.toString(batchBuffer.size()) + " "
+                + String.format("%08x", crc.getValue()) + "\r\n";
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+        batchBuffer.writeTo(out);
+    }
+
+    /**
+     * Replay AOF file(s) at startup (no re-append).
+     *
+     * A torn tail in the file currently being appended to is truncated away when
+     * {@link AofOptions#loadTruncated} is set; any other invalid data makes the
+     * replay fail, so the server does not start from a partial dataset.
+     */
+    public AofLoader.LoadStats replay(Database db, CommandProcessor processor) throws IOException {
+        AofLoader loader = new AofLoader(db, processor);
+
+        if (dir == null) {
+            if (!Files.exists(aofPath)) {
+                System.out.println("[AOF] No AOF file found at " + aofPath + ", skipping replay.");
+                return null;
+            }
+
+            System.out.println("[AOF] Starting replay from " + aofPath);
+            AofLoader.LoadStats stats = loader.load(aofPath);
+            checkLoaded(aofPath, stats, true);
+            System.out.println("[AOF] Replay complete. " + stats);
+            return stats;
+        }
+
+        List<AofManifest.AofFile> files;
+        synchronized (this) {
+            files = manifest.filesInOrder();
+        }
+
+        System.out.println("[AOF] Starting replay of " + files.size() + " file(s) from " + dir);
+        AofLoader.LoadStats total = null;
+        for (int i = 0; i < files.size(); i++) {
+            AofManifest.AofFile file = files.get(i);
+            Path path = dir.resolve(file.name);
+            if (!Files.exists(path)) {
+                throw new IOException("AOF file " + path + " listed in the manifest does not exist");
+            }
+            AofLoader.LoadStats stats;
+            if (file.type == AofManifest.FileType.BASE && SnapshotFile.isSnapshot(path)) {
+                stats = SnapshotFile.load(path, db);
+            } else {
+                stats = loader.load(path);
+                // Only the segment being appended to can have a torn tail
+                checkLoaded(path, stats, i == files.size() - 1);
+            }
+            System.out.println("[AOF] Loaded " + file.name + ". " + stats);
+            total = total == null ? stats : total.plus(stats);
+        }
+        System.out.println("[AOF] Replay complete. " + total);
+        return total;
+    }
+
+    private void checkLoaded(Path path, AofLoader.LoadStats stats, boolean appendTarget) throws IOException {
+        if (stats.corrupted || (stats.truncated && !appendTarget)) {
+            throw new IOException("Bad file format reading the append only file " + path
+                    + " (valid up to offset " + stats.bytesLoaded
+                    + "); run 'java -cp <jar> redis.persistence.AofCheck --fix " + path + "'");
+        }
+        if (!stats.truncated) {
             return;
         }
+        if (!options.loadTruncated) {
+            throw new IOException("Append only file " + path + " ends with a truncated entry (valid up to offset "
+                    + stats.bytesLoaded + "); enable aof-load-truncated or run AofCheck --fix");
+        }
 
-        System.out.println("[AOF] Starting replay from " + aofPath);
-        int commandsReplayed = 0;
-        int commandsSkipped = 0;
+        synchronized (this) {
+            out.flush();
+            channel.truncate(stats.bytesLoaded);
+            channel.force(true);
+        }
+        System.err.println("[AOF] Truncated torn tail of " + path + " at offset " + stats.bytesLoaded);
+    }
 
-        try (BufferedReader in = Files.newBufferedReader(aofPath);
-                BufferedWriter nullOut = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream()))) {
+    /**
+     * Start a rewrite (compaction) of a multi-part AOF.
+     *
+     * Under the database lock, new writes are redirected to a fresh incremental
+     * segment and a snapshot of the dataset is taken. The snapshot is then
+     * written as the new base file on an "aof-rewrite" thread, after which the
+     * manifest is switched and the old base and segments are deleted.
+     *
+     * Returns false if a rewrite is already in progress.
+     */
+    public boolean rewriteInBackground(Database db) throws IOException {
+        if (dir == null) {
+            throw new IllegalStateException("AOF rewrite requires the multi-part layout");
+        }
+        if (!rewriting.compareAndSet(false, true)) {
+            return false;
+        }
 
-            while (true) {
-                Value req;
-                try {
-                    req = RespParser.readValue(in);
-                } catch (EOFException e) {
-                    // Normal end of file
-                    break;
-                } catch (RespParseException e) {
-                    System.err.println("[AOF] Corrupted entry detected, stopping replay: " + e.getMessage());
-                    break;
+        long start = System.nanoTime();
+        Database.Snapshot snapshot;
+        AofManifest.AofFile newBase;
+        long firstKeptIncrSeq;
+        try {
+            // Write commands execute and append while holding the database
+            // monitor (see CommandProcessor), so no write can straddle the switch.
+            synchronized (db) {
+                // Writes wait for this part, as Redis clients wait for its fork
+                long paused = System.nanoTime();
+                synchronized (this) {
+                    startNewIncr();
+                    firstKeptIncrSeq = manifest.lastIncr().seq;
+                    newBase = manifest.nextBase(options.snapshotBase ? "snap" : "aof");
                 }
+                snapshot = db.snapshot();
+                latencyMonitor.record(LatencyMonitor.AOF_REWRITE_SNAPSHOT, System.nanoTime() - paused);
+            }
+        } catch (IOException | RuntimeException e) {
+            rewriting.set(false);
+            throw e;
+        }
 
-                if (req == null) {
-                    break; // EOF
-                }
+        Thread t = new Thread(() -> {
+            boolean ok = false;
+            try {
+                writeBase(snapshot, newBase);
+                commitRewrite(newBase, firstKeptIncrSeq);
+                ok = true;
+                System.out.println("[AOF] Rewrite complete, new base " + newBase.name);
+            } catch (IOException e) {
+                System.err.println("[AOF] Rewrite failed: " + e.getMessage());
+            } finally {
+                lastRewriteOk = ok;
+                lastRewriteMillis = (System.nanoTime() - start) / 1_000_000;
+                rewrites.increment();
+                rewriting.set(false);
+            }
+        }, "aof-rewrite");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
 
-                if (!"array".equals(req.typ) || req.array == null || req.array.isEmpty()) {
-                    commandsSkipped++;
-                    continue;
-                }
+    private void startNewIncr() throws IOException {
+        fsync();
+        out.close();
 
-                String cmdName = req.array.get(0).str.toUpperCase();
+        AofManifest next = manifest.withNewIncr();
+        next.save(dir);
+        manifest = next;
+        openForAppend(dir.resolve(manifest.lastIncr().name));
+    }
+
+    private void writeBase(Database.Snapshot snapshot, AofManifest.AofFile base) throws IOException {
+        Path tmp = dir.resolve("temp-rewriteaof-" + base.seq + ".aof");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                BufferedOutputStream baseOut = new BufferedOutputStream(Channels.newOutputStream(ch), 64 * 1024)) {
+            if (options.snapshotBase) {
+                SnapshotFile.write(snapshot, baseOut, options.compressionThreshold);
+            } else {
+                new AofRewriter(writer).write(snapshot, baseOut);
+            }
+            baseOut.flush();
+            ch.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, dir.resolve(base.name), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void commitRewrite(AofManifest.AofFile newBase, long firstKeptIncrSeq) throws IOException {
+        List<AofManifest.AofFile> obsolete = new ArrayList<>();
+        synchronized (this) {
+            AofManifest next = manifest.afterRewrite(newBase, firstKeptIncrSeq);
+            next.save(dir);
 
-                try {
-                    // fromReplay=true => do not append again
-                    processor.executeCommand(cmdName, db, respWriter, nullOut, req.array, true);
-                    commandsReplayed++;
-                } catch (Exception e) {
-                    // Log the error but continue replaying remaining commands
-                    System.err.println("[AOF] Failed to replay command '" + cmdName + "': " + e.getMessage());
-                    commandsSkipped++;
+            if (manifest.base() != null) {
+                obsolete.add(manifest.base());
+            }
+            for (AofManifest.AofFile incr : manifest.incrs()) {
+                if (incr.seq < firstKeptIncrSeq) {
+                    obsolete.add(incr);
                 }
             }
+            manifest = next;
         }
 
-        System.out.println("[AOF] Replay complete. Commands replayed: " + commandsReplayed +
-                (commandsSkipped > 0 ? ", skipped: " + commandsSkipped : ""));
+        for (AofManifest.AofFile f : obsolete) {
+            Files.deleteIfExists(dir.resolve(f.name));
+        }
     }
 
     private void fsyncIfDirty() {
         if (!dirty.getAndSet(false))
             return;
         try {
+            AofFsyncEvent event = new AofFsyncEvent();
+            event.begin();
+            long start = System.nanoTime();
             fsync();
+            latencyMonitor.record(LatencyMonitor.AOF_FSYNC, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.policy = policy.name();
+                event.commit();
+            }
         } catch (IOException ignored) {
             System.err.println("[AOF] Failed to fsync AOF file: " + ignored.getMessage());
         }
     }
 
     private synchronized void fsync() throws IOException {
-        // Force OS flush to disk
-        if (out instanceof FilterOutputStream) {
-            out.flush();
-        }
-        // fsync needs underlying FileChannel; easiest: open a FileOutputStream instead
-        // of NIO stream.
-        // Option A: use FileOutputStream and call getFD().sync()
-        // Option B: keep a FileChannel ref and force(true)
+        // Push buffered bytes to the OS, then force them to disk
+        out.flush();
+        channel.force(false);
+        lastFsyncMillis = System.currentTimeMillis();
+        firstUnsyncedMillis = 0;
     }
 
     @Override
@@ -140,8 +522,8 @@ public class AofManager implements Closeable {
             fsyncScheduler.shutdownNow();
         }
         synchronized (this) {
-            out.flush();
             // fsync on close
+            fsync();
             out.close();
         }
     }
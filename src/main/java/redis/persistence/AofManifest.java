@@ -0,0 +1,195 @@
+package redis.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifest of a multi-part AOF directory, in the same layout as Redis 7:
+ *
+ * <pre>
+ * file appendonly.aof.2.base.aof seq 2 type b
+ * file appendonly.aof.5.incr.aof seq 5 type i
+ * file appendonly.aof.6.incr.aof seq 6 type i
+ * </pre>
+ *
+ * The base file holds a compacted image of the dataset, the incremental
+ * segments hold every write logged after it, in sequence order. Instances are
+ * immutable; every change produces a new manifest that is then persisted
+ * atomically with {@link #save(Path)}.
+ */
+public class AofManifest {
+
+    public enum FileType {
+        BASE('b'), INCR('i');
+
+        final char code;
+
+        FileType(char code) {
+            this.code = code;
+        }
+
+        static FileType fromCode(String code) throws IOException {
+            for (FileType t : values()) {
+                if (code.length() == 1 && code.charAt(0) == t.code) {
+                    return t;
+                }
+            }
+            throw new IOException("Unknown AOF file type in manifest: " + code);
+        }
+    }
+
+    public static final class AofFile {
+        public final String name;
+        public final long seq;
+        public final FileType type;
+
+        public AofFile(String name, long seq, FileType type) {
+            this.name = name;
+            this.seq = seq;
+            this.type = type;
+        }
+    }
+
+    private final String baseName;
+    private final AofFile base; // can be null
+    private final List<AofFile> incrs;
+
+    public AofManifest(String baseName, AofFile base, List<AofFile> incrs) {
+        this.baseName = baseName;
+        this.base = base;
+        this.incrs = List.copyOf(incrs);
+    }
+
+    public static Path manifestPath(Path dir, String baseName) {
+        return dir.resolve(baseName + ".manifest");
+    }
+
+    /**
+     * Load the manifest from the directory, or return null if there is none.
+     */
+    public static AofManifest load(Path dir, String baseName) throws IOException {
+        Path path = manifestPath(dir, baseName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        AofFile base = null;
+        List<AofFile> incrs = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.trim().split(" ");
+            if (parts.length != 6 || !"file".equals(parts[0]) || !"seq".equals(parts[2])
+                    || !"type".equals(parts[4])) {
+                throw new IOException("Invalid AOF manifest line: " + line);
+            }
+            AofFile file;
+            try {
+                file = new AofFile(parts[1], Long.parseLong(parts[3]), FileType.fromCode(parts[5]));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid sequence in AOF manifest line: " + line);
+            }
+            if (file.type == FileType.BASE) {
+                if (base != null) {
+                    throw new IOException("AOF manifest lists more than one base file");
+                }
+                base = file;
+            } else {
+                incrs.add(file);
+            }
+        }
+        incrs.sort((a, b) -> Long.compare(a.seq, b.seq));
+        return new AofManifest(baseName, base, incrs);
+    }
+
+    /**
+     * Persist atomically: write a temp file, fsync it, then rename over the old one.
+     */
+    public void save(Path dir) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (base != null) {
+            appendLine(sb, base);
+        }
+        for (AofFile incr : incrs) {
+            appendLine(sb, incr);
+        }
+
+        Path target = manifestPath(dir, baseName);
+        Path tmp = dir.resolve("temp-" + target.getFileName());
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+            ch.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void appendLine(StringBuilder sb, AofFile f) {
+        sb.append("file ").append(f.name)
+                .append(" seq ").append(f.seq)
+                .append(" type ").append(f.type.code)
+                .append('\n');
+    }
+
+    public AofFile base() {
+        return base;
+    }
+
+    public List<AofFile> incrs() {
+        return incrs;
+    }
+
+    /**
+     * Files in replay order: base first, then incremental segments.
+     */
+    public List<AofFile> filesInOrder() {
+        List<AofFile> files = new ArrayList<>(incrs.size() + 1);
+        if (base != null) {
+            files.add(base);
+        }
+        files.addAll(incrs);
+        return files;
+    }
+
+    public AofFile lastIncr() {
+        return incrs.isEmpty() ? null : incrs.get(incrs.size() - 1);
+    }
+
+    /**
+     * New manifest with one more incremental segment appended.
+     */
+    public AofManifest withNewIncr() {
+        long seq = incrs.isEmpty() ? 1 : lastIncr().seq + 1;
+        List<AofFile> next = new ArrayList<>(incrs);
+        next.add(new AofFile(baseName + "." + seq + ".incr.aof", seq, FileType.INCR));
+        return new AofManifest(baseName, base, next);
+    }
+
+    /**
+     * Name of the base file a rewrite should produce next.
+     */
+    public AofFile nextBase(String extension) {
+        long seq = base == null ? 1 : base.seq + 1;
+        return new AofFile(baseName + "." + seq + ".base." + extension, seq, FileType.BASE);
+    }
+
+    /**
+     * New manifest after a rewrite: the new base replaces the old one, and
+     * only incremental segments from {@code firstKeptIncrSeq} on are kept.
+     */
+    public AofManifest afterRewrite(AofFile newBase, long firstKeptIncrSeq) {
+        List<AofFile> kept = new ArrayList<>();
+        for (AofFile incr : incrs) {
+            if (incr.seq >= firstKeptIncrSeq) {
+                kept.add(incr);
+            }
+        }
+        return new AofManifest(baseName, newBase, kept);
+    }
+}
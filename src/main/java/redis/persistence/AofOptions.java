@@ -0,0 +1,29 @@
+package redis.persistence;
+
+/**
+ * Format and recovery options of the AOF.
+ */
+public class AofOptions {
+
+    public static final AofOptions DEFAULTS = new AofOptions(false, true);
+
+    // Write each append as a CRC32C-checksummed batch
+    public final boolean checksums;
+    // Truncate a torn tail at load time instead of refusing to start
+    public final boolean loadTruncated;
+    // Write rewrite base files as binary snapshots (see SnapshotFile) instead of RESP
+    public final boolean snapshotBase;
+    // Minimum value size LZF-compressed in snapshot bases, 0 = no compression
+    public final int compressionThreshold;
+
+    public AofOptions(boolean checksums, boolean loadTruncated) {
+        this(checksums, loadTruncated, false, 0);
+    }
+
+    public AofOptions(boolean checksums, boolean loadTruncated, boolean snapshotBase, int compressionThreshold) {
+        this.checksums = checksums;
+        this.loadTruncated = loadTruncated;
+        this.snapshotBase = snapshotBase;
+        this.compressionThreshold = compressionThreshold;
+    }
+}
@@ -0,0 +1,255 @@
+package redis.persistence;
+
+import redis.resp.RespByteParser;
+import redis.resp.RespParseException;
+import redis.resp.Value;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Scans an AOF file through memory-mapped windows and hands every complete
+ * request to a handler, stopping at the first invalid byte.
+ *
+ * Two entry formats may be mixed in one file:
+ * <ul>
+ * <li>plain RESP requests, as written without checksums;</li>
+ * <li>checksummed batches: a header line {@code #<length> <crc32c-hex>}
+ * followed by {@code length} bytes of RESP requests. A batch is handed to
+ * the handler only once its checksum has been verified.</li>
+ * </ul>
+ *
+ * The scan distinguishes a torn tail (the file ends inside an entry, or the
+ * last batch fails its checksum) from corruption in the middle of the file.
+ */
+public class AofReader {
+
+    public static final byte BATCH_PREFIX = '#';
+
+    static final int DEFAULT_MAP_WINDOW = 256 * 1024 * 1024;
+    private static final int MAX_MAP_WINDOW = Integer.MAX_VALUE - 8;
+
+    public interface EntryHandler {
+        void accept(Value request) throws InterruptedException;
+    }
+
+    public static final class Result {
+        public final long fileSize;
+        public final long validBytes; // offset just past the last good entry
+        public final long entries;
+        public final boolean truncated;
+        public final boolean corrupted;
+        public final String error; // null when the whole file is valid
+
+        Result(long fileSize, long validBytes, long entries, boolean truncated, boolean corrupted, String error) {
+            this.fileSize = fileSize;
+            this.validBytes = validBytes;
+            this.entries = entries;
+            this.truncated = truncated;
+            this.corrupted = corrupted;
+            this.error = error;
+        }
+
+        public boolean isValid() {
+            return !truncated && !corrupted;
+        }
+    }
+
+    private final int mapWindow;
+
+    public AofReader() {
+        this(DEFAULT_MAP_WINDOW);
+    }
+
+    AofReader(int mapWindow) {
+        this.mapWindow = mapWindow;
+    }
+
+    /**
+     * Thrown internally when an entry is malformed.
+     */
+    private static final class Corruption extends Exception {
+        Corruption(String message) {
+            super(message);
+        }
+    }
+
+    public Result read(FileChannel channel, EntryHandler handler) throws IOException, InterruptedException {
+        long size = channel.size();
+        long offset = 0;
+        long entries = 0;
+        int window = mapWindow;
+        CRC32C crc = new CRC32C();
+        List<Value> batch = new ArrayList<>();
+        // Offset of the MULTI of a transaction whose EXEC was not read yet
+        long multiAt = -1;
+
+        while (offset < size) {
+            long length = Math.min(window, size - offset);
+            boolean lastWindow = offset + length >= size;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+            int consumed = 0;
+            try {
+                while (buf.hasRemaining()) {
+                    if (buf.get(buf.position()) == BATCH_PREFIX) {
+                        batch.clear();
+                        int status = readBatch(buf, crc, batch);
+                        if (status == INCOMPLETE) {
+                            break;
+                        }
+                        if (status == CHECKSUM_MISMATCH) {
+                            long at = offset + consumed;
+                            if (offset + buf.position() >= size) {
+                                return new Result(size, multiAt >= 0 ? multiAt : at, entries, true, false,
+                                        "checksum mismatch in last batch at offset " + at);
+                            }
+                            return new Result(size, at, entries, false, true,
+                                    "checksum mismatch in batch at offset " + at);
+                        }
+                        for (Value req : batch) {
+                            multiAt = trackMulti(req, multiAt, offset + consumed);
+                            handler.accept(req);
+                        }
+                        entries += batch.size();
+                    } else {
+                        Value req = RespByteParser.readValue(buf);
+                        if (req == null) {
+                            break; // entry continues past this window
+                        }
+                        multiAt = trackMulti(req, multiAt, offset + consumed);
+                        handler.accept(req);
+                        entries++;
+                    }
+                    consumed = buf.position();
+                }
+            } catch (RespParseException | Corruption e) {
+                long at = offset + consumed;
+                return new Result(size, at, entries, false, true,
+                        "bad format at offset " + at + ": " + e.getMessage());
+            }
+
+            offset += consumed;
+
+            if (consumed < length) {
+                if (lastWindow) {
+                    return new Result(size, multiAt >= 0 ? multiAt : offset, entries, true, false,
+                            "incomplete entry at end of file (offset " + offset + ")");
+                }
+                if (consumed == 0) {
+                    if (window == MAX_MAP_WINDOW) {
+                        return new Result(size, offset, entries, false, true,
+                                "entry at offset " + offset + " exceeds " + MAX_MAP_WINDOW + " bytes");
+                    }
+                    // A single entry larger than the window: map a bigger one
+                    window = (int) Math.min((long) window * 2, MAX_MAP_WINDOW);
+                }
+            }
+        }
+
+        if (multiAt >= 0) {
+            // Crashed in the middle of appending a transaction: drop all of it
+            return new Result(size, multiAt, entries, true, false,
+                    "MULTI at offset " + multiAt + " without EXEC at end of file");
+        }
+        return new Result(size, offset, entries, false, false, null);
+    }
+
+    /**
+     * The offset of the open transaction after reading {@code req}, which
+     * starts at {@code at}; -1 outside a transaction.
+     */
+    private static long trackMulti(Value req, long multiAt, long at) {
+        if (isCommand(req, "MULTI")) {
+            return at;
+        }
+        if (isCommand(req, "EXEC")) {
+            return -1;
+        }
+        return multiAt;
+    }
+
+    private static boolean isCommand(Value req, String name) {
+        return "array".equals(req.typ) && req.array != null && !req.array.isEmpty()
+                && name.equalsIgnoreCase(req.array.get(0).str);
+    }
+
+    private static final int OK = 0;
+    private static final int INCOMPLETE = 1;
+    private static final int CHECKSUM_MISMATCH = 2;
+
+    /**
+     * Read one checksummed batch at the buffer's position. On OK the buffer is
+     * left after the batch and its requests are in {@code out}; on INCOMPLETE the
+     * position is restored; on CHECKSUM_MISMATCH the buffer is left after the batch.
+     */
+    private static int readBatch(ByteBuffer buf, CRC32C crc, List<Value> out)
+            throws Corruption {
+        int start = buf.position();
+        buf.get(); // '#'
+
+        long length = 0;
+        int digits = 0;
+        while (true) {
+            if (!buf.hasRemaining()) {
+                buf.position(start);
+                return INCOMPLETE;
+            }
+            byte b = buf.get();
+            if (b == ' ')
+                break;
+            if (b < '0' || b > '9' || ++digits > 10)
+                throw new Corruption("invalid batch length");
+            length = length * 10 + (b - '0');
+        }
+
+        long expected = 0;
+        for (int i = 0; i < 8; i++) {
+            if (!buf.hasRemaining()) {
+                buf.position(start);
+                return INCOMPLETE;
+            }
+            int d = Character.digit(buf.get(), 16);
+            if (d < 0)
+                throw new Corruption("invalid batch checksum");
+            expected = (expected << 4) | d;
+        }
+        if (buf.remaining() < 2) {
+            buf.position(start);
+            return INCOMPLETE;
+        }
+        if (buf.get() != '\r' || buf.get() != '\n')
+            throw new Corruption("batch header not terminated by CRLF");
+
+        if (buf.remaining() < length) {
+            buf.position(start);
+            return INCOMPLETE;
+        }
+
+        ByteBuffer payload = buf.slice(buf.position(), (int) length);
+        buf.position(buf.position() + (int) length);
+
+        crc.reset();
+        crc.update(payload.duplicate());
+        if (crc.getValue() != expected) {
+            return CHECKSUM_MISMATCH;
+        }
+
+        try {
+            while (payload.hasRemaining()) {
+                Value req = RespByteParser.readValue(payload);
+                if (req == null)
+                    throw new Corruption("incomplete request inside batch");
+                out.add(req);
+            }
+        } catch (RespParseException e) {
+            throw new Corruption("invalid request inside batch: " + e.getMessage());
+        }
+        return OK;
+    }
+}
@@ -0,0 +1,113 @@
+package redis.persistence;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a compacted AOF base file: the minimal command sequence that
+ * recreates a database snapshot.
+ */
+public class AofRewriter {
+
+    // Large hashes are split into several HSET commands of this many fields
+    private static final int HSET_FIELDS_PER_COMMAND = 64;
+
+    private final RespWriter writer;
+
+    public AofRewriter(RespWriter writer) {
+        this.writer = writer;
+    }
+
+    public void write(Database.Snapshot snapshot, OutputStream out) throws IOException {
+        for (Map.Entry<String, String> e : snapshot.strings.entrySet()) {
+            writeCommand(out, "SET", e.getKey(), e.getValue());
+            writeExpiry(out, snapshot, e.getKey());
+        }
+
+        for (Map.Entry<String, Map<String, String>> e : snapshot.hashes.entrySet()) {
+            List<Value> args = null;
+            for (Map.Entry<String, String> field : e.getValue().entrySet()) {
+                if (args == null) {
+                    args = new ArrayList<>(2 + 2 * HSET_FIELDS_PER_COMMAND);
+                    args.add(bulk("HSET"));
+                    args.add(bulk(e.getKey()));
+                }
+                args.add(bulk(field.getKey()));
+                args.add(bulk(field.getValue()));
+                if (args.size() == 2 + 2 * HSET_FIELDS_PER_COMMAND) {
+                    writer.writeRequest(out, new Value("array", args));
+                    args = null;
+                }
+            }
+            if (args != null) {
+                writer.writeRequest(out, new Value("array", args));
+            }
+            writeExpiry(out, snapshot, e.getKey());
+        }
+
+        for (Map.Entry<String, Stream> e : snapshot.streams.entrySet()) {
+            writeStream(out, e.getKey(), e.getValue());
+            writeExpiry(out, snapshot, e.getKey());
+        }
+    }
+
+    /**
+     * One XADD per entry, then the last ID and the consumer groups with their
+     * pending entries, claimed back with their delivery time and count.
+     */
+    private void writeStream(OutputStream out, String key, Stream stream) throws IOException {
+        if (stream.length() == 0) {
+            // XADD is the only way to create a stream: add a dummy entry and trim it
+            writeCommand(out, "XADD", key, "MAXLEN", "0", "0-1", "x", "y");
+        }
+        for (Stream.Entry entry : stream) {
+            List<Value> args = new ArrayList<>(3 + entry.fields.length);
+            args.add(bulk("XADD"));
+            args.add(bulk(key));
+            args.add(bulk(entry.id.toString()));
+            for (String s : entry.fields) {
+                args.add(bulk(s));
+            }
+            writer.writeRequest(out, new Value("array", args));
+        }
+        writeCommand(out, "XSETID", key, stream.lastId().toString());
+
+        for (Stream.ConsumerGroup group : stream.groups()) {
+            writeCommand(out, "XGROUP", "CREATE", key, group.name, group.lastDelivered().toString());
+            for (Stream.GroupConsumer consumer : group.consumers()) {
+                writeCommand(out, "XGROUP", "CREATECONSUMER", key, group.name, consumer.name);
+            }
+            for (Stream.PendingEntry p : group.pending().values()) {
+                writeCommand(out, "XCLAIM", key, group.name, p.consumer().name, "0", p.id.toString(),
+                        "TIME", Long.toString(p.deliveryTime()),
+                        "RETRYCOUNT", Long.toString(p.deliveryCount()), "FORCE", "JUSTID");
+            }
+        }
+    }
+
+    private void writeExpiry(OutputStream out, Database.Snapshot snapshot, String key) throws IOException {
+        Long expiry = snapshot.expiries.get(key);
+        if (expiry != null) {
+            writeCommand(out, "PEXPIREAT", key, Long.toString(expiry));
+        }
+    }
+
+    private void writeCommand(OutputStream out, String... parts) throws IOException {
+        List<Value> args = new ArrayList<>(parts.length);
+        for (String p : parts) {
+            args.add(bulk(p));
+        }
+        writer.writeRequest(out, new Value("array", args));
+    }
+
+    private static Value bulk(String s) {
+        return new Value("bulk", s);
+    }
+}
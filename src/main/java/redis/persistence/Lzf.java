@@ -0,0 +1,173 @@
+package redis.persistence;
+
+import java.io.IOException;
+
+/**
+ * Pure-Java LZF block compressor, producing the same format as liblzf (the
+ * codec Redis uses for RDB strings).
+ *
+ * A compressed block is a sequence of chunks, each starting with a control byte:
+ * <ul>
+ * <li>{@code 000LLLLL}: a literal run of {@code L + 1} bytes follows;</li>
+ * <li>{@code LLLOOOOO [L2] OOOOOOOO}: a back reference of {@code L + 2} bytes
+ * (plus {@code L2} when {@code L == 7}) starting {@code O + 1} bytes back.</li>
+ * </ul>
+ */
+public class Lzf {
+
+    private static final int HASH_LOG = 14;
+    public static final int HASH_SIZE = 1 << HASH_LOG;
+    private static final int MAX_LITERAL = 1 << 5;
+    private static final int MAX_OFFSET = 1 << 13;
+    private static final int MAX_REF = (1 << 8) + (1 << 3); // longest back reference, in bytes
+
+    private Lzf() {
+    }
+
+    /**
+     * Compress {@code in[0..inLen)} into {@code out}. Returns the compressed
+     * length, or 0 if the result would not fit in {@code outLen} bytes (callers
+     * pass {@code inLen - 1} to keep compression only when it saves space).
+     */
+    public static int compress(byte[] in, int inLen, byte[] out, int outLen) {
+        return compress(in, inLen, out, outLen, new int[HASH_SIZE]);
+    }
+
+    /**
+     * Same, with a caller-provided scratch table of {@link #HASH_SIZE} ints.
+     * The table can be reused across calls without clearing: stale entries are
+     * verified against the input before use.
+     */
+    public static int compress(byte[] in, int inLen, byte[] out, int outLen, int[] table) {
+        if (inLen == 0 || outLen == 0) {
+            return 0;
+        }
+
+        // table holds position + 1 of the last occurrence of each hash, 0 = none
+        int ip = 0;
+        int op = 0;
+        int lit = 0;
+        int litCtrl = op++; // control byte of the current literal run
+
+        while (ip < inLen - 2) {
+            int h = hash(in, ip);
+            int ref = table[h] - 1;
+            table[h] = ip + 1;
+            int off = ip - ref - 1;
+
+            if (ref >= 0 && ref < ip && off < MAX_OFFSET
+                    && in[ref] == in[ip] && in[ref + 1] == in[ip + 1] && in[ref + 2] == in[ip + 2]) {
+                int maxLen = Math.min(inLen - ip, MAX_REF);
+                int len = 3;
+                while (len < maxLen && in[ref + len] == in[ip + len]) {
+                    len++;
+                }
+
+                // Close the pending literal run
+                if (lit == 0) {
+                    op = litCtrl;
+                } else {
+                    out[litCtrl] = (byte) (lit - 1);
+                }
+                if (op + 3 > outLen) {
+                    return 0;
+                }
+
+                int stored = len - 2;
+                if (stored < 7) {
+                    out[op++] = (byte) ((stored << 5) | (off >>> 8));
+                } else {
+                    out[op++] = (byte) ((7 << 5) | (off >>> 8));
+                    out[op++] = (byte) (stored - 7);
+                }
+                out[op++] = (byte) off;
+
+                ip += len;
+                lit = 0;
+                litCtrl = op++;
+            } else {
+                if (op >= outLen) {
+                    return 0;
+                }
+                out[op++] = in[ip++];
+                if (++lit == MAX_LITERAL) {
+                    out[litCtrl] = (byte) (lit - 1);
+                    lit = 0;
+                    litCtrl = op++;
+                }
+            }
+        }
+
+        while (ip < inLen) {
+            if (op >= outLen) {
+                return 0;
+            }
+            out[op++] = in[ip++];
+            if (++lit == MAX_LITERAL) {
+                out[litCtrl] = (byte) (lit - 1);
+                lit = 0;
+                litCtrl = op++;
+            }
+        }
+
+        if (lit == 0) {
+            op = litCtrl;
+        } else {
+            out[litCtrl] = (byte) (lit - 1);
+        }
+        return op;
+    }
+
+    /**
+     * Decompress {@code in[inOff..inOff+inLen)} into exactly {@code outLen} bytes.
+     */
+    public static byte[] decompress(byte[] in, int inOff, int inLen, int outLen) throws IOException {
+        byte[] out = new byte[outLen];
+        int ip = inOff;
+        int end = inOff + inLen;
+        int op = 0;
+
+        while (ip < end) {
+            int ctrl = in[ip++] & 0xff;
+            if (ctrl < MAX_LITERAL) {
+                int n = ctrl + 1;
+                if (ip + n > end || op + n > outLen) {
+                    throw new IOException("corrupt LZF data: literal run out of bounds");
+                }
+                System.arraycopy(in, ip, out, op, n);
+                ip += n;
+                op += n;
+            } else {
+                int len = ctrl >>> 5;
+                if (len == 7) {
+                    if (ip >= end) {
+                        throw new IOException("corrupt LZF data: truncated back reference");
+                    }
+                    len += in[ip++] & 0xff;
+                }
+                if (ip >= end) {
+                    throw new IOException("corrupt LZF data: truncated back reference");
+                }
+                int ref = op - ((ctrl & 0x1f) << 8) - (in[ip++] & 0xff) - 1;
+                len += 2;
+                if (ref < 0 || op + len > outLen) {
+                    throw new IOException("corrupt LZF data: back reference out of bounds");
+                }
+                // Byte by byte: source and destination may overlap
+                for (int i = 0; i < len; i++) {
+                    out[op++] = out[ref++];
+                }
+            }
+        }
+
+        if (op != outLen) {
+            throw new IOException("corrupt LZF data: expected " + outLen + " bytes, got " + op);
+        }
+        return out;
+    }
+
+    private static int hash(byte[] in, int p) {
+        int v = ((in[p] & 0xff) << 16) | ((in[p + 1] & 0xff) << 8) | (in[p + 2] & 0xff);
+        return (v * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -0,0 +1,446 @@
+package redis.persistence;
+
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot of the dataset, used as the AOF base file when
+ * {@link AofOptions#snapshotBase} is set (the equivalent of Redis' RDB
+ * preamble). It is smaller and much faster to load than a RESP base: keys are
+ * put straight into the {@link Database} without going through commands.
+ *
+ * <pre>
+ * "RJSNAP" version
+ * [0xFC expiry-ms(8)] 0x00 key value                       string
+ * [0xFC expiry-ms(8)] 0x04 key count (field value)*         hash
+ * [0xFC expiry-ms(8)] 0x05 key raw-len lzf-len lzf-bytes    hash, LZF-compressed block
+ * [0xFC expiry-ms(8)] 0x0F key last-id count (id n (field value)*)* groups   stream
+ * 0xFF crc32c(4)
+ * </pre>
+ *
+ * Strings are a varint header {@code (length << 1) | compressed} followed by
+ * the bytes; a compressed string also carries its raw length. Only strings
+ * and hash blocks of at least {@code compressionThreshold} bytes are
+ * compressed, and only when LZF actually makes them smaller.
+ *
+ * A stream's groups are a count followed by, for each group, its name, last
+ * delivered ID, consumers (name, seen time) and pending entries (ID,
+ * consumer, delivery time, delivery count). IDs are two varints. Version 1
+ * files, written before streams existed, still load.
+ */
+public class SnapshotFile {
+
+    private static final byte[] MAGIC = "RJSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+
+    private static final int OP_STRING = 0x00;
+    private static final int OP_HASH = 0x04;
+    private static final int OP_HASH_LZF = 0x05;
+    private static final int OP_STREAM = 0x0F;
+    private static final int OP_EXPIRY = 0xFC;
+    private static final int OP_EOF = 0xFF;
+
+    private SnapshotFile() {
+    }
+
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * Check a snapshot against its checksum without loading it (AofCheck).
+     * Returns null if it is intact, otherwise what is wrong with it.
+     */
+    public static String verify(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < MAGIC.length + 1 + 1 + 4) {
+            return "snapshot is truncated";
+        }
+        CRC32C crc = new CRC32C();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            byte[] header = readExactly(new DataInputStream(in), MAGIC.length + 1);
+            if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC)) {
+                return "not a snapshot file";
+            }
+            int version = header[MAGIC.length] & 0xFF;
+            if (version < 1 || version > VERSION) {
+                return "unsupported snapshot version " + version;
+            }
+            crc.update(header);
+
+            // Everything up to and including the EOF marker is covered by the checksum
+            byte[] buf = new byte[64 * 1024];
+            long remaining = size - header.length - 4;
+            int last = -1;
+            while (remaining > 0) {
+                int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                if (n < 0) {
+                    return "snapshot is truncated";
+                }
+                crc.update(buf, 0, n);
+                last = buf[n - 1] & 0xFF;
+                remaining -= n;
+            }
+            if (last != OP_EOF) {
+                return "snapshot is truncated (no end marker)";
+            }
+            int stored = new DataInputStream(in).readInt();
+            if ((int) crc.getValue() != stored) {
+                return "snapshot checksum mismatch";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Serialize a snapshot. {@code compressionThreshold <= 0} disables compression.
+     */
+    public static void write(Database.Snapshot snapshot, OutputStream rawOut, int compressionThreshold)
+            throws IOException {
+        CRC32C crc = new CRC32C();
+        CheckedOutputStream checked = new CheckedOutputStream(rawOut, crc);
+        DataOutputStream out = new DataOutputStream(checked);
+        Encoder encoder = new Encoder(compressionThreshold);
+
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+
+        for (Map.Entry<String, String> e : snapshot.strings.entrySet()) {
+            writeExpiry(out, snapshot, e.getKey());
+            out.writeByte(OP_STRING);
+            encoder.writeString(out, utf8(e.getKey()), false);
+            encoder.writeString(out, utf8(e.getValue()), true);
+        }
+
+        for (Map.Entry<String, Map<String, String>> e : snapshot.hashes.entrySet()) {
+            writeExpiry(out, snapshot, e.getKey());
+            encoder.writeHash(out, utf8(e.getKey()), e.getValue());
+        }
+
+        for (Map.Entry<String, Stream> e : snapshot.streams.entrySet()) {
+            writeExpiry(out, snapshot, e.getKey());
+            out.writeByte(OP_STREAM);
+            encoder.writeString(out, utf8(e.getKey()), false);
+            writeStream(out, encoder, e.getValue());
+        }
+
+        out.writeByte(OP_EOF);
+        out.flush();
+        int sum = (int) crc.getValue();
+        new DataOutputStream(rawOut).writeInt(sum);
+        rawOut.flush();
+    }
+
+    private static void writeExpiry(DataOutputStream out, Database.Snapshot snapshot, String key)
+            throws IOException {
+        Long expiry = snapshot.expiries.get(key);
+        if (expiry != null) {
+            out.writeByte(OP_EXPIRY);
+            out.writeLong(expiry);
+        }
+    }
+
+    private static void writeStream(DataOutputStream out, Encoder encoder, Stream stream) throws IOException {
+        writeId(out, stream.lastId());
+        writeVarint(out, stream.length());
+        for (Stream.Entry entry : stream) {
+            writeId(out, entry.id);
+            writeVarint(out, entry.fields.length / 2);
+            for (String s : entry.fields) {
+                encoder.writeString(out, utf8(s), true);
+            }
+        }
+
+        writeVarint(out, stream.groups().size());
+        for (Stream.ConsumerGroup group : stream.groups()) {
+            encoder.writeString(out, utf8(group.name), false);
+            writeId(out, group.lastDelivered());
+            writeVarint(out, group.consumers().size());
+            for (Stream.GroupConsumer consumer : group.consumers()) {
+                encoder.writeString(out, utf8(consumer.name), false);
+                out.writeLong(consumer.seenTime());
+            }
+            writeVarint(out, group.pending().size());
+            for (Stream.PendingEntry p : group.pending().values()) {
+                writeId(out, p.id);
+                encoder.writeString(out, utf8(p.consumer().name), false);
+                out.writeLong(p.deliveryTime());
+                writeVarint(out, p.deliveryCount());
+            }
+        }
+    }
+
+    private static void writeId(DataOutputStream out, StreamId id) throws IOException {
+        writeVarint(out, id.ms);
+        writeVarint(out, id.seq);
+    }
+
+    /**
+     * Scratch buffers reused across values while writing one snapshot.
+     */
+    private static final class Encoder {
+        private final int threshold;
+        private final int[] table = new int[Lzf.HASH_SIZE];
+        private final ByteArrayOutputStream hashBlock = new ByteArrayOutputStream();
+        private byte[] compressed = new byte[0];
+
+        Encoder(int threshold) {
+            this.threshold = threshold;
+        }
+
+        void writeString(DataOutputStream out, byte[] raw, boolean compressible) throws IOException {
+            if (compressible) {
+                int clen = tryCompress(raw, raw.length);
+                if (clen > 0) {
+                    writeVarint(out, ((long) clen << 1) | 1);
+                    writeVarint(out, raw.length);
+                    out.write(compressed, 0, clen);
+                    return;
+                }
+            }
+            writeVarint(out, (long) raw.length << 1);
+            out.write(raw);
+        }
+
+        void writeHash(DataOutputStream out, byte[] key, Map<String, String> fields) throws IOException {
+            hashBlock.reset();
+            DataOutputStream block = new DataOutputStream(hashBlock);
+            writeVarint(block, fields.size());
+            for (Map.Entry<String, String> f : fields.entrySet()) {
+                writeString(block, utf8(f.getKey()), false);
+                writeString(block, utf8(f.getValue()), false);
+            }
+            block.flush();
+
+            byte[] raw = hashBlock.toByteArray();
+            int clen = tryCompress(raw, raw.length);
+            if (clen > 0) {
+                out.writeByte(OP_HASH_LZF);
+                writeString(out, key, false);
+                writeVarint(out, raw.length);
+                writeVarint(out, clen);
+                out.write(compressed, 0, clen);
+            } else {
+                out.writeByte(OP_HASH);
+                writeString(out, key, false);
+                out.write(raw);
+            }
+        }
+
+        /**
+         * Returns the compressed length in {@code compressed}, or 0 when the value
+         * is below the threshold or does not shrink.
+         */
+        private int tryCompress(byte[] raw, int len) {
+            if (threshold <= 0 || len < threshold) {
+                return 0;
+            }
+            if (compressed.length < len) {
+                compressed = new byte[len];
+            }
+            return Lzf.compress(raw, len, compressed, len - 1, table);
+        }
+    }
+
+    /**
+     * Load a snapshot into the database. Keys whose expiry has already passed
+     * are skipped.
+     */
+    public static AofLoader.LoadStats load(Path file, Database db) throws IOException {
+        long startNanos = System.nanoTime();
+        long now = db.getClock().nowMillis();
+        long loaded = 0;
+        long skipped = 0;
+
+        CRC32C crc = new CRC32C();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc));
+
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+
+            Long expiry = null;
+            while (true) {
+                int op = in.readUnsignedByte();
+                if (op == OP_EOF) {
+                    break;
+                }
+                if (op == OP_EXPIRY) {
+                    expiry = in.readLong();
+                    continue;
+                }
+
+                String key = readString(in);
+                boolean expired = expiry != null && expiry <= now;
+
+                switch (op) {
+                    case OP_STRING: {
+                        String value = readString(in);
+                        if (!expired) {
+                            db.setAndRemoveOlder(key, value);
+                        }
+                        break;
+                    }
+                    case OP_HASH:
+                        readHashFields(in, key, expired ? null : db);
+                        break;
+                    case OP_HASH_LZF: {
+                        int rawLen = (int) readVarint(in);
+                        int clen = (int) readVarint(in);
+                        byte[] block = Lzf.decompress(readExactly(in, clen), 0, clen, rawLen);
+                        readHashFields(new DataInputStream(new ByteArrayInputStream(block)), key,
+                                expired ? null : db);
+                        break;
+                    }
+                    case OP_STREAM: {
+                        Stream stream = readStream(in);
+                        if (!expired) {
+                            db.putStream(key, stream);
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IOException("Bad snapshot format: unknown record type " + op + " in " + file);
+                }
+
+                if (expired) {
+                    skipped++;
+                } else {
+                    if (expiry != null) {
+                        db.setExpiry(key, expiry);
+                    }
+                    loaded++;
+                }
+                expiry = null;
+            }
+
+            long expected = crc.getValue();
+            int stored = new DataInputStream(raw).readInt();
+            if ((int) expected != stored) {
+                throw new IOException("Snapshot checksum mismatch in " + file);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + file + " is truncated", e);
+        }
+
+        return new AofLoader.LoadStats(loaded, skipped, Files.size(file), System.nanoTime() - startNanos,
+                false, false);
+    }
+
+    private static void readHashFields(DataInputStream in, String key, Database db) throws IOException {
+        long count = readVarint(in);
+        for (long i = 0; i < count; i++) {
+            String field = readString(in);
+            String value = readString(in);
+            if (db != null) {
+                db.hset(key, field, value);
+            }
+        }
+    }
+
+    private static Stream readStream(DataInputStream in) throws IOException {
+        Stream stream = new Stream();
+        StreamId lastId = readId(in);
+        long length = readVarint(in);
+        for (long i = 0; i < length; i++) {
+            StreamId id = readId(in);
+            String[] fields = new String[(int) readVarint(in) * 2];
+            for (int f = 0; f < fields.length; f++) {
+                fields[f] = readString(in);
+            }
+            stream.add(id, fields);
+        }
+        stream.setLastId(lastId);
+
+        long groups = readVarint(in);
+        for (long g = 0; g < groups; g++) {
+            Stream.ConsumerGroup group = stream.createGroup(readString(in), readId(in));
+            if (group == null) {
+                throw new IOException("Bad snapshot format: duplicate consumer group");
+            }
+            long consumers = readVarint(in);
+            for (long c = 0; c < consumers; c++) {
+                String name = readString(in);
+                group.createConsumer(name, in.readLong());
+            }
+            long pending = readVarint(in);
+            for (long p = 0; p < pending; p++) {
+                StreamId id = readId(in);
+                String name = readString(in);
+                long deliveryTime = in.readLong();
+                long deliveryCount = readVarint(in);
+                Stream.GroupConsumer consumer = group.consumer(name);
+                if (consumer == null) {
+                    throw new IOException("Bad snapshot format: pending entry of unknown consumer " + name);
+                }
+                // Claiming counts as activity: pass the saved seen time along
+                group.claim(stream, id, consumer, 0, deliveryTime, deliveryCount, true, true,
+                        consumer.seenTime());
+            }
+        }
+        return stream;
+    }
+
+    private static StreamId readId(DataInputStream in) throws IOException {
+        return new StreamId(readVarint(in), readVarint(in));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        long header = readVarint(in);
+        int len = (int) (header >>> 1);
+        if ((header & 1) == 0) {
+            return new String(readExactly(in, len), StandardCharsets.UTF_8);
+        }
+        int rawLen = (int) readVarint(in);
+        byte[] raw = Lzf.decompress(readExactly(in, len), 0, len, rawLen);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readExactly(DataInputStream in, int len) throws IOException {
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarint(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Bad snapshot format: varint too long");
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package redis.pubsub;
+
+import java.util.List;
+
+import redis.resp.RespWriter;
+
+/**
+ * A published message waiting in subscribers' outbound queues.
+ *
+ * The RESP frame ({@code ["message", channel, payload]},
+ * {@code ["pmessage", pattern, channel, payload]} for pattern subscribers, or
+ * {@code ["smessage", channel, payload]} for shard channels) is encoded once
+ * when the message is created and the same immutable string is written to
+ * every recipient.
+ */
+public final class Message {
+    public final String pattern; // null unless delivered through a pattern
+    public final String channel;
+    public final String payload;
+    public final String frame;
+
+    public Message(String channel, String payload) {
+        this(null, channel, payload, RespWriter.encodeBulkArray("message", channel, payload));
+    }
+
+    public Message(String pattern, String channel, String payload) {
+        this(pattern, channel, payload, RespWriter.encodeBulkArray("pmessage", pattern, channel, payload));
+    }
+
+    private Message(String pattern, String channel, String payload, String frame) {
+        this.pattern = pattern;
+        this.channel = channel;
+        this.payload = payload;
+        this.frame = frame;
+    }
+
+    public static Message sharded(String channel, String payload) {
+        return new Message(null, channel, payload, RespWriter.encodeBulkArray("smessage", channel, payload));
+    }
+
+    /**
+     * Client-side caching invalidation: {@code ["message", channel, [key, ...]]},
+     * or a null array in place of the keys when everything must be dropped.
+     * The payload is null.
+     */
+    public static Message invalidation(String channel, List<String> keys) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("*3\r\n$7\r\nmessage\r\n");
+        sb.append('$').append(channel.length()).append("\r\n").append(channel).append("\r\n");
+        if (keys == null) {
+            sb.append("*-1\r\n");
+        } else {
+            sb.append('*').append(keys.size()).append("\r\n");
+            for (String key : keys) {
+                sb.append('$').append(key.length()).append("\r\n").append(key).append("\r\n");
+            }
+        }
+        return new Message(null, channel, null, sb.toString());
+    }
+}
@@ -0,0 +1,129 @@
+package redis.pubsub;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import redis.utils.GlobMatcher;
+
+/**
+ * Pattern subscriptions indexed by their literal prefix.
+ *
+ * Patterns hang off a character trie at the node spelling their literal
+ * prefix (the part before the first {@code * ? [ \}). Publishing walks the
+ * trie along the channel name, so only patterns whose prefix is a prefix of
+ * the channel are considered, and each distinct pattern is evaluated once no
+ * matter how many clients subscribed to it. Patterns of the form
+ * {@code prefix*} match every channel under their node without running the
+ * matcher at all.
+ *
+ * Lookups are lock-free; changes are serialized on the index.
+ */
+class PatternIndex {
+
+    static final class Entry {
+        final String pattern;
+        final int prefixLength;
+        final boolean matchesAllBelow; // "<prefix>*"
+        final SubscriberSet subscribers = new SubscriberSet();
+
+        Entry(String pattern) {
+            this.pattern = pattern;
+            this.prefixLength = GlobMatcher.literalPrefixLength(pattern);
+            this.matchesAllBelow = prefixLength == pattern.length() - 1 && pattern.charAt(prefixLength) == '*';
+        }
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new ConcurrentHashMap<>();
+        final Map<String, Entry> patterns = new ConcurrentHashMap<>();
+
+        boolean isEmpty() {
+            return children.isEmpty() && patterns.isEmpty();
+        }
+    }
+
+    private final Node root = new Node();
+    private volatile int size; // distinct patterns, written under the index lock
+
+    /**
+     * Returns true if the subscriber was not already subscribed to the pattern.
+     */
+    synchronized boolean add(String pattern, Subscriber subscriber) {
+        int prefixLength = GlobMatcher.literalPrefixLength(pattern);
+        Node node = root;
+        for (int i = 0; i < prefixLength; i++) {
+            node = node.children.computeIfAbsent(pattern.charAt(i), c -> new Node());
+        }
+        Entry entry = node.patterns.get(pattern);
+        if (entry == null) {
+            entry = new Entry(pattern);
+            node.patterns.put(pattern, entry);
+            size = size + 1;
+        }
+        return entry.subscribers.add(subscriber);
+    }
+
+    /**
+     * Returns true if the subscriber was subscribed to the pattern.
+     */
+    synchronized boolean remove(String pattern, Subscriber subscriber) {
+        return remove(root, pattern, 0, GlobMatcher.literalPrefixLength(pattern), subscriber);
+    }
+
+    private boolean remove(Node node, String pattern, int depth, int prefixLength, Subscriber subscriber) {
+        if (depth < prefixLength) {
+            char c = pattern.charAt(depth);
+            Node child = node.children.get(c);
+            if (child == null || !remove(child, pattern, depth + 1, prefixLength, subscriber)) {
+                return false;
+            }
+            if (child.isEmpty()) {
+                node.children.remove(c);
+            }
+            return true;
+        }
+
+        Entry entry = node.patterns.get(pattern);
+        if (entry == null || !entry.subscribers.remove(subscriber)) {
+            return false;
+        }
+        if (entry.subscribers.isEmpty()) {
+            node.patterns.remove(pattern);
+            size = size - 1;
+        }
+        return true;
+    }
+
+    /**
+     * Hand every pattern matching the channel (with at least one subscriber) to the consumer.
+     */
+    void forEachMatch(String channel, Consumer<Entry> consumer) {
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            if (!node.patterns.isEmpty()) {
+                for (Entry entry : node.patterns.values()) {
+                    if (!entry.subscribers.isEmpty() && (entry.matchesAllBelow
+                            || GlobMatcher.matches(entry.pattern, entry.prefixLength, channel, depth))) {
+                        consumer.accept(entry);
+                    }
+                }
+            }
+            if (depth == channel.length()) {
+                return;
+            }
+            node = node.children.get(channel.charAt(depth++));
+            if (node == null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Number of distinct patterns; a plain read, never blocked by subscribes.
+     */
+    int size() {
+        return size;
+    }
+}
@@ -1,129 +1,445 @@
 package redis.pubsub;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import redis.resp.RespWriter;
+import redis.config.ClientOutputBufferLimit;
+import redis.jfr.PubSubFanoutEvent;
+import redis.time.Clock;
+import redis.time.SystemClock;
+import redis.utils.GlobMatcher;
+import redis.utils.HashSlot;
 
+/**
+ * Channel and pattern subscriptions and message fan-out.
+ *
+ * Clients are identified by their {@link Subscriber}, created once per
+ * connection, which also records what the client is subscribed to. The maps
+ * here only go from channel or pattern to subscribers.
+ *
+ * Pattern subscriptions are kept in a {@link PatternIndex}, so a publish only
+ * evaluates the patterns that can match the channel.
+ *
+ * Shard channels (SSUBSCRIBE/SPUBLISH) are split by hash slot across
+ * independent {@link ShardChannels} partitions, each with its own registry
+ * and delivery executor.
+ *
+ * {@link #publish} only appends the message to each subscriber's bounded
+ * queue; the queues are written out by tasks on the delivery executor, one
+ * task per subscriber at a time. A slow or stalled subscriber therefore only
+ * delays itself. A subscriber whose queue breaks the pubsub
+ * {@link ClientOutputBufferLimit} is disconnected, as in Redis.
+ */
 public class PubSubManager {
-    // Channel → Set of subscribers (their output writers)
-    private final Map<String, Set<Subscriber>> channelSubscribers = new ConcurrentHashMap<>();
 
-    // Track which channels each client is subscribed to
-    private final Map<BufferedWriter, Set<String>> clientChannels = new ConcurrentHashMap<>();
+    private static final Logger LOG = Logger.getLogger(PubSubManager.class.getName());
 
-    private final RespWriter writer = new RespWriter();
+    // Channel → subscribers, with a maintained count for PUBSUB NUMSUB
+    private final Map<String, SubscriberSet> channelSubscribers = new ConcurrentHashMap<>();
+
+    // Pattern → subscribers, indexed by literal prefix
+    private final PatternIndex patternIndex = new PatternIndex();
+
+    // Shard channel partitions, indexed by hash slot % length
+    private final ShardChannels[] shards;
+
+    private final Executor deliveryExecutor;
+    private final ClientOutputBufferLimit outputLimit;
+    private final Clock clock;
+
+    // Subscribers disconnected for exceeding the output buffer limit
+    private final LongAdder outputLimitDisconnections = new LongAdder();
+    // PUBLISH and SPUBLISH calls, and the messages they queued for subscribers
+    private final LongAdder published = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+
+    /**
+     * Deliver on the publisher's thread, without output limits. Used by tests and tools.
+     */
+    public PubSubManager() {
+        this(Runnable::run, ClientOutputBufferLimit.NONE, new SystemClock());
+    }
+
+    public PubSubManager(Executor deliveryExecutor, ClientOutputBufferLimit outputLimit, Clock clock) {
+        this(deliveryExecutor, List.of(deliveryExecutor), outputLimit, clock);
+    }
+
+    /**
+     * @param shardExecutors one delivery executor per shard channel partition
+     */
+    public PubSubManager(Executor deliveryExecutor, List<? extends Executor> shardExecutors,
+            ClientOutputBufferLimit outputLimit, Clock clock) {
+        if (shardExecutors.isEmpty()) {
+            throw new IllegalArgumentException("at least one shard is required");
+        }
+        this.deliveryExecutor = deliveryExecutor;
+        this.outputLimit = outputLimit;
+        this.clock = clock;
+        this.shards = new ShardChannels[shardExecutors.size()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardChannels(shardExecutors.get(i));
+        }
+    }
+
+    public long outputLimitDisconnections() {
+        return outputLimitDisconnections.sum();
+    }
+
+    public long publishedMessages() {
+        return published.sum();
+    }
+
+    /**
+     * Messages queued for subscribers by all publishes (the fan-out).
+     */
+    public long queuedDeliveries() {
+        return deliveries.sum();
+    }
 
     /**
      * Subscribe a client to a channel.
-     * Returns the total number of channels this client is subscribed to.
+     * Returns the total number of channels and patterns this client is subscribed to.
      */
-    public Integer subscribe(BufferedWriter out, String channel) {
-        Subscriber subscriber = new Subscriber(out);
+    public int subscribe(Subscriber subscriber, String channel) {
+        if (subscriber.track(subscriber.channels, channel)) {
+            // compute/computeIfPresent keep adding and pruning a channel atomic
+            channelSubscribers.compute(channel, (k, subs) -> {
+                if (subs == null) {
+                    subs = new SubscriberSet();
+                }
+                subs.add(subscriber);
+                return subs;
+            });
+        }
+        return subscriber.subscriptionCount();
+    }
 
-        channelSubscribers.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
-        clientChannels.computeIfAbsent(out, k -> ConcurrentHashMap.newKeySet()).add(channel);
+    /**
+     * Subscribe a client to a glob-style pattern.
+     * Returns the total number of channels and patterns this client is subscribed to.
+     */
+    public int psubscribe(Subscriber subscriber, String pattern) {
+        if (subscriber.track(subscriber.patterns, pattern)) {
+            patternIndex.add(pattern, subscriber);
+        }
+        return subscriber.subscriptionCount();
+    }
 
-        return clientChannels.get(out).size();
+    private ShardChannels shardOf(String channel) {
+        return shards[HashSlot.of(channel) % shards.length];
     }
 
     /**
-     * Check if a client is currently subscribed to any channels.
+     * Subscribe a client to a shard channel.
+     * Returns the number of shard channels this client is subscribed to.
      */
-    public boolean isSubscribed(BufferedWriter out) {
-        Set<String> channels = clientChannels.get(out);
-        return channels != null && !channels.isEmpty();
+    public int ssubscribe(Subscriber subscriber, String channel) {
+        if (subscriber.track(subscriber.shardChannels, channel)) {
+            shardOf(channel).register(channel, subscriber);
+        }
+        return subscriber.shardSubscriptionCount();
     }
 
     /**
-     * Unsubscribe a client from a channel.
-     * Returns the remaining number of channels this client is subscribed to.
+     * Unsubscribe a client from a shard channel.
+     * Returns the remaining number of shard channels this client is subscribed to.
      */
-    public Integer unsubscribe(BufferedWriter out, String channel) {
-        Subscriber subscriber = new Subscriber(out);
+    public int sunsubscribe(Subscriber subscriber, String channel) {
+        if (subscriber.untrack(subscriber.shardChannels, channel)) {
+            shardOf(channel).unregister(channel, subscriber);
+        }
+        return subscriber.shardSubscriptionCount();
+    }
 
-        // Remove from channel's subscriber set
-        Set<Subscriber> subscribers = channelSubscribers.get(channel);
-        if (subscribers != null) {
-            subscribers.remove(subscriber);
-            if (subscribers.isEmpty()) {
-                channelSubscribers.remove(channel);
+    /**
+     * Unsubscribe a client from all of its shard channels (SUNSUBSCRIBE without arguments).
+     * Returns the shard channels it was subscribed to.
+     */
+    public List<String> sunsubscribeAll(Subscriber subscriber) {
+        List<String> removed = new ArrayList<>();
+        for (String channel : subscriber.shardChannels) {
+            if (subscriber.untrack(subscriber.shardChannels, channel)) {
+                shardOf(channel).unregister(channel, subscriber);
+                removed.add(channel);
             }
         }
+        return removed;
+    }
 
-        // Update client's subscription tracking
-        Set<String> channels = clientChannels.get(out);
-        if (channels != null) {
-            channels.remove(channel);
-            if (channels.isEmpty()) {
-                clientChannels.remove(out);
-                return 0;
+    /**
+     * Publish a message to a shard channel, on that channel's partition.
+     * Returns the number of clients the message was queued for.
+     */
+    public int spublish(String channel, String message) {
+        published.increment();
+        ShardChannels shard = shardOf(channel);
+        SubscriberSet subs = shard.channelSubscribers.get(channel);
+        if (subs == null || subs.isEmpty()) {
+            return 0;
+        }
+        PubSubFanoutEvent event = new PubSubFanoutEvent();
+        event.begin();
+        int delivered = enqueue(subs, Message.sharded(channel, message), shard.deliveryExecutor);
+        deliveries.add(delivered);
+        commit(event, channel, true, delivered);
+        return delivered;
+    }
+
+    /**
+     * Number of distinct patterns with at least one subscriber (PUBSUB NUMPAT).
+     */
+    public int patternCount() {
+        return patternIndex.size();
+    }
+
+    /**
+     * Number of channels with at least one subscriber.
+     */
+    public int channelCount() {
+        int count = 0;
+        for (SubscriberSet subs : channelSubscribers.values()) {
+            if (!subs.isEmpty()) {
+                count++;
             }
-            return channels.size();
         }
-        return 0;
+        return count;
     }
 
     /**
-     * Unsubscribe a client from ALL channels.
+     * Active channels, optionally only those matching a glob pattern (PUBSUB CHANNELS).
      */
-    public void unsubscribeAll(BufferedWriter out) {
-        Set<String> channels = clientChannels.remove(out);
-        if (channels != null) {
-            Subscriber subscriber = new Subscriber(out);
-            for (String channel : channels) {
-                Set<Subscriber> subs = channelSubscribers.get(channel);
-                if (subs != null) {
-                    subs.remove(subscriber);
-                    if (subs.isEmpty()) {
-                        channelSubscribers.remove(channel);
-                    }
-                }
+    public List<String> channels(String pattern) {
+        return activeChannels(channelSubscribers, pattern, new ArrayList<>());
+    }
+
+    /**
+     * Number of clients subscribed to a channel, not counting patterns (PUBSUB NUMSUB).
+     */
+    public int numsub(String channel) {
+        SubscriberSet subs = channelSubscribers.get(channel);
+        return subs == null ? 0 : subs.size();
+    }
+
+    /**
+     * Active shard channels, optionally only those matching a glob pattern (PUBSUB SHARDCHANNELS).
+     */
+    public List<String> shardChannels(String pattern) {
+        List<String> result = new ArrayList<>();
+        for (ShardChannels shard : shards) {
+            activeChannels(shard.channelSubscribers, pattern, result);
+        }
+        return result;
+    }
+
+    /**
+     * Number of clients subscribed to a shard channel (PUBSUB SHARDNUMSUB).
+     */
+    public int shardNumsub(String channel) {
+        return shardOf(channel).numsub(channel);
+    }
+
+    private static List<String> activeChannels(Map<String, SubscriberSet> registry, String pattern,
+            List<String> result) {
+        for (Map.Entry<String, SubscriberSet> e : registry.entrySet()) {
+            if (!e.getValue().isEmpty() && (pattern == null || GlobMatcher.matches(pattern, e.getKey()))) {
+                result.add(e.getKey());
             }
         }
+        return result;
+    }
+
+    /**
+     * Unsubscribe a client from a channel.
+     * Returns the remaining number of channels and patterns this client is subscribed to.
+     */
+    public int unsubscribe(Subscriber subscriber, String channel) {
+        if (subscriber.untrack(subscriber.channels, channel)) {
+            unregister(channel, subscriber);
+        }
+        return subscriber.subscriptionCount();
+    }
+
+    /**
+     * Unsubscribe a client from a pattern.
+     * Returns the remaining number of channels and patterns this client is subscribed to.
+     */
+    public int punsubscribe(Subscriber subscriber, String pattern) {
+        if (subscriber.untrack(subscriber.patterns, pattern)) {
+            patternIndex.remove(pattern, subscriber);
+        }
+        return subscriber.subscriptionCount();
+    }
+
+    /**
+     * Unsubscribe a client from all of its patterns (PUNSUBSCRIBE without arguments).
+     * Returns the patterns it was subscribed to.
+     */
+    public List<String> punsubscribeAll(Subscriber subscriber) {
+        List<String> removed = new ArrayList<>();
+        for (String pattern : subscriber.patterns) {
+            if (subscriber.untrack(subscriber.patterns, pattern)) {
+                patternIndex.remove(pattern, subscriber);
+                removed.add(pattern);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Unsubscribe a client from all of its channels (UNSUBSCRIBE without arguments).
+     * Returns the channels it was subscribed to.
+     */
+    public List<String> unsubscribeAllChannels(Subscriber subscriber) {
+        List<String> removed = new ArrayList<>();
+        for (String channel : subscriber.channels) {
+            if (subscriber.untrack(subscriber.channels, channel)) {
+                unregister(channel, subscriber);
+                removed.add(channel);
+            }
+        }
+        return removed;
+    }
+
+    private void unregister(String channel, Subscriber subscriber) {
+        channelSubscribers.computeIfPresent(channel, (k, subs) -> {
+            subs.remove(subscriber);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    /**
+     * Unsubscribe a client from ALL channels and patterns (connection closed).
+     */
+    public void unsubscribeAll(Subscriber subscriber) {
+        unsubscribeAllChannels(subscriber);
+        punsubscribeAll(subscriber);
+        sunsubscribeAll(subscriber);
     }
 
     /**
      * Publish a message to a channel.
-     * Returns the number of clients that received the message.
+     * Returns the number of clients the message was queued for.
      */
     public int publish(String channel, String message) {
-        Set<Subscriber> subscribers = channelSubscribers.get(channel);
-        if (subscribers == null || subscribers.isEmpty()) {
-            return 0;
+        PubSubFanoutEvent event = new PubSubFanoutEvent();
+        event.begin();
+        int delivered = 0;
+
+        SubscriberSet subs = channelSubscribers.get(channel);
+        if (subs != null && !subs.isEmpty()) {
+            // Encoded once, shared by every subscriber's queue
+            delivered += enqueue(subs, new Message(channel, message), deliveryExecutor);
+        }
+
+        if (patternIndex.size() > 0) {
+            int[] matched = { 0 };
+            patternIndex.forEachMatch(channel,
+                    entry -> matched[0] += enqueue(entry.subscribers,
+                            new Message(entry.pattern, channel, message), deliveryExecutor));
+            delivered += matched[0];
         }
+        published.increment();
+        deliveries.add(delivered);
+        commit(event, channel, false, delivered);
+        return delivered;
+    }
 
+    private static void commit(PubSubFanoutEvent event, String channel, boolean sharded, int receivers) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.channel = channel;
+            event.sharded = sharded;
+            event.receivers = receivers;
+            event.commit();
+        }
+    }
+
+    /**
+     * Send a message on {@code channel} to one subscriber only, if it is
+     * subscribed to that channel (client tracking invalidations, which go to
+     * the connection named by CLIENT TRACKING REDIRECT). Returns true if the
+     * message was queued.
+     */
+    public boolean sendTo(Subscriber subscriber, Message message) {
+        if (!subscriber.channels.contains(message.channel)) {
+            return false;
+        }
+        return offer(subscriber, message, clock.nowMillis(), deliveryExecutor);
+    }
+
+    private int enqueue(SubscriberSet subs, Message m, Executor executor) {
+        long now = clock.nowMillis();
         int delivered = 0;
-        List<Subscriber> toRemove = new ArrayList<>();
+        for (Subscriber sub : subs) {
+            if (offer(sub, m, now, executor)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
 
-        for (Subscriber sub : subscribers) {
+    private boolean offer(Subscriber sub, Message m, long now, Executor executor) {
+        if (sub.offer(m, outputLimit, now)) {
+            scheduleDelivery(sub, executor);
+            return true;
+        }
+        long pendingBytes = sub.pendingBytes();
+        if (sub.close()) {
+            LOG.warning(() -> "Disconnecting subscriber with " + pendingBytes
+                    + " bytes of undelivered messages (pubsub output buffer limit " + outputLimit + ")");
+            outputLimitDisconnections.increment();
+            drop(sub, true);
+        }
+        return false;
+    }
+
+    private void scheduleDelivery(Subscriber sub, Executor executor) {
+        if (!sub.startDraining()) {
+            return; // a delivery task is already running for it
+        }
+        executor.execute(() -> {
             try {
-                synchronized (sub.lock) {
-                    // Redis Pub/Sub message format: ["message", channel, data]
-                    writer.writeArrayHeader(sub.out, 3);
-                    writer.writeBulk(sub.out, "message");
-                    writer.writeBulk(sub.out, channel);
-                    writer.writeBulk(sub.out, message);
-                    sub.out.flush();
+                while (sub.drain()) {
+                    // messages arrived while writing, go again
                 }
-                delivered++;
             } catch (IOException e) {
-                // Client disconnected, mark for removal
-                toRemove.add(sub);
+                // Client disconnected
+                drop(sub, false);
             }
-        }
+        });
+    }
 
-        // Clean up dead connections
-        for (Subscriber dead : toRemove) {
-            subscribers.remove(dead);
-            clientChannels.remove(dead.out);
+    private void drop(Subscriber sub, boolean disconnect) {
+        sub.close();
+        unsubscribeAll(sub);
+        if (!disconnect) {
+            return;
         }
-
-        return delivered;
+        if (sub.connection != null) {
+            // Closing the socket ends the client's handler, and fails a delivery
+            // stalled writing to it; closing the writer would wait for that write.
+            try {
+                sub.connection.close();
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Error closing slow subscriber", e);
+            }
+            return;
+        }
+        // No socket (not a network connection): close the writer, on the
+        // delivery executor as it may block behind a stalled write
+        deliveryExecutor.execute(() -> {
+            try {
+                sub.out.close();
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Error closing slow subscriber", e);
+            }
+        });
     }
 }
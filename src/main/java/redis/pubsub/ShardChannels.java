@@ -0,0 +1,50 @@
+package redis.pubsub;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * One partition of the sharded pub/sub channels: its own channel registry
+ * and its own delivery executor. Channels are assigned to partitions by hash
+ * slot, so SPUBLISH traffic on channels in different partitions never touches
+ * the same map or delivery threads. Which shard channels a client is
+ * subscribed to is kept on its {@link Subscriber}.
+ */
+final class ShardChannels {
+
+    // Shard channel → subscribers
+    final Map<String, SubscriberSet> channelSubscribers = new ConcurrentHashMap<>();
+
+    final Executor deliveryExecutor;
+
+    ShardChannels(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    void register(String channel, Subscriber subscriber) {
+        // compute/computeIfPresent keep adding and pruning a channel atomic
+        channelSubscribers.compute(channel, (k, subs) -> {
+            if (subs == null) {
+                subs = new SubscriberSet();
+            }
+            subs.add(subscriber);
+            return subs;
+        });
+    }
+
+    void unregister(String channel, Subscriber subscriber) {
+        channelSubscribers.computeIfPresent(channel, (k, subs) -> {
+            subs.remove(subscriber);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    /**
+     * Number of clients subscribed to a channel of this partition.
+     */
+    int numsub(String channel) {
+        SubscriberSet subs = channelSubscribers.get(channel);
+        return subs == null ? 0 : subs.size();
+    }
+}
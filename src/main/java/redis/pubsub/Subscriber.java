@@ -1,27 +1,195 @@
 package redis.pubsub;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import redis.config.ClientOutputBufferLimit;
+
+/**
+ * The pub/sub side of one client connection, created once with the
+ * connection: its output writer, the channels, patterns and shard channels it
+ * is subscribed to, and a queue of messages waiting to be written to it.
+ * Publishers only enqueue; the queue is drained by at most one delivery task
+ * at a time, so messages keep their order.
+ *
+ * Subscribers are compared by identity. The subscription count is kept in a
+ * counter, so checking whether a connection is in subscribed mode is a single
+ * read.
+ *
+ * The queued bytes are this client's output buffer and are held to the
+ * pubsub {@link ClientOutputBufferLimit}.
+ */
 public class Subscriber {
     public final BufferedWriter out;
-    public final Object lock; // For thread-safe writes
+    public final Object lock; // Serializes deliveries with the connection's own replies
+    // The socket under out, null when not a network connection
+    final Closeable connection;
+
+    // What this client is subscribed to; the registries live in PubSubManager
+    final Set<String> channels = ConcurrentHashMap.newKeySet();
+    final Set<String> patterns = ConcurrentHashMap.newKeySet();
+    final Set<String> shardChannels = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    private final Queue<Message> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    // When the queue last went over the soft limit, 0 when under it
+    private volatile long softLimitReachedAt;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean closed;
 
     public Subscriber(BufferedWriter out) {
+        this(out, null);
+    }
+
+    /**
+     * A subscriber whose connection is closed by closing {@code connection},
+     * which unblocks a delivery stalled writing to {@code out}.
+     */
+    public Subscriber(BufferedWriter out, Closeable connection) {
         this.out = out;
         this.lock = new Object();
+        this.connection = connection;
+    }
+
+    /**
+     * Number of channels, patterns and shard channels this client is subscribed to.
+     */
+    public int subscriptionCount() {
+        return subscriptions.get();
+    }
+
+    /**
+     * True while the connection is in subscribed mode.
+     */
+    public boolean isSubscribed() {
+        return subscriptions.get() > 0;
+    }
+
+    public int channelSubscriptionCount() {
+        return channels.size();
+    }
+
+    public int patternSubscriptionCount() {
+        return patterns.size();
+    }
+
+    public int shardSubscriptionCount() {
+        return shardChannels.size();
+    }
+
+    /**
+     * Record a subscription in one of this client's sets. Returns true if it is new.
+     */
+    boolean track(Set<String> set, String name) {
+        if (set.add(name)) {
+            subscriptions.incrementAndGet();
+            return true;
+        }
+        return false;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o)
+    /**
+     * Forget a subscription. Returns true if the client had it.
+     */
+    boolean untrack(Set<String> set, String name) {
+        if (set.remove(name)) {
+            subscriptions.decrementAndGet();
             return true;
-        if (!(o instanceof Subscriber))
+        }
+        return false;
+    }
+
+    /**
+     * Queue a message. Returns false if the subscriber is closed or queueing
+     * the message would break the output buffer limit.
+     */
+    boolean offer(Message message, ClientOutputBufferLimit limit, long nowMillis) {
+        if (closed) {
+            return false;
+        }
+        long size = message.frame.length();
+        long bytes = pendingBytes.addAndGet(size);
+        if (limit.isHardLimitReached(bytes) || softLimitExpired(limit, bytes, nowMillis)) {
+            pendingBytes.addAndGet(-size);
+            return false;
+        }
+        pending.add(message);
+        return true;
+    }
+
+    private boolean softLimitExpired(ClientOutputBufferLimit limit, long bytes, long nowMillis) {
+        if (!limit.isSoftLimitReached(bytes)) {
+            softLimitReachedAt = 0;
             return false;
-        return out.equals(((Subscriber) o).out);
+        }
+        long since = softLimitReachedAt;
+        if (since == 0) {
+            softLimitReachedAt = nowMillis;
+            return false;
+        }
+        return nowMillis - since >= limit.softSeconds * 1000;
+    }
+
+    /**
+     * Claim the right to drain the queue. Returns true if the caller must now
+     * run {@link #drain}.
+     */
+    boolean startDraining() {
+        return !pending.isEmpty() && draining.compareAndSet(false, true);
+    }
+
+    /**
+     * Write every queued message and flush once. Returns true if messages were
+     * queued meanwhile and the caller should drain again.
+     */
+    boolean drain() throws IOException {
+        try {
+            synchronized (lock) {
+                Message m;
+                while ((m = pending.poll()) != null) {
+                    pendingBytes.addAndGet(-m.frame.length());
+                    if (closed) {
+                        continue;
+                    }
+                    out.write(m.frame);
+                }
+                if (!closed) {
+                    out.flush();
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        return startDraining();
+    }
+
+    /**
+     * Size of the messages queued but not yet written.
+     */
+    public long pendingBytes() {
+        return pendingBytes.get();
     }
 
-    @Override
-    public int hashCode() {
-        return out.hashCode();
+    /**
+     * Stop delivering: queued and future messages are discarded. Returns false
+     * if the subscriber was already closed.
+     */
+    synchronized boolean close() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        pending.clear();
+        pendingBytes.set(0);
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package redis.pubsub;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The subscribers of one channel or pattern, with a size counter maintained
+ * on every add and remove. {@link #size()} is a single volatile read, so
+ * PUBSUB NUMSUB and the empty checks on the publish path never have to sum
+ * the concurrent set's internal counters.
+ */
+final class SubscriberSet implements Iterable<Subscriber> {
+
+    private final Set<Subscriber> members = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Returns true if the subscriber was not in the set.
+     */
+    boolean add(Subscriber subscriber) {
+        if (members.add(subscriber)) {
+            size.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the subscriber was in the set.
+     */
+    boolean remove(Subscriber subscriber) {
+        if (members.remove(subscriber)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    public Iterator<Subscriber> iterator() {
+        return members.iterator();
+    }
+}
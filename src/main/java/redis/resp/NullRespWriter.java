@@ -0,0 +1,34 @@
+package redis.resp;
+
+import java.io.BufferedWriter;
+
+/**
+ * RespWriter that discards every reply without formatting it.
+ * Used when commands are applied for their side effects only (AOF loading).
+ */
+public class NullRespWriter extends RespWriter {
+
+    @Override
+    public void writeSimple(BufferedWriter out, String s) {
+    }
+
+    @Override
+    public void writeError(BufferedWriter out, String s) {
+    }
+
+    @Override
+    public void writeError(BufferedWriter out, String code, String s) {
+    }
+
+    @Override
+    public void writeBulk(BufferedWriter out, String s) {
+    }
+
+    @Override
+    public void writeInt(BufferedWriter out, long n) {
+    }
+
+    @Override
+    public void writeArrayHeader(BufferedWriter out, int n) {
+    }
+}
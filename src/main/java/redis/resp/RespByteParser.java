@@ -0,0 +1,157 @@
+package redis.resp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte-oriented RESP decoder working directly on a {@link ByteBuffer}
+ * (typically a memory-mapped file region).
+ *
+ * Unlike {@link RespParser} it never blocks: when the buffer ends in the
+ * middle of a value, {@link #readValue(ByteBuffer)} returns null and leaves
+ * the buffer position where the value started, so the caller can supply
+ * more bytes and retry.
+ */
+public class RespByteParser {
+
+    private RespByteParser() {
+    }
+
+    /**
+     * Decode the next value starting at the buffer's position.
+     * Returns null if the buffer does not hold a complete value.
+     */
+    public static Value readValue(ByteBuffer buf) throws RespParseException {
+        int start = buf.position();
+        Value value = parse(buf);
+        if (value == null) {
+            buf.position(start);
+        }
+        return value;
+    }
+
+    private static Value parse(ByteBuffer buf) throws RespParseException {
+        if (!buf.hasRemaining()) {
+            return null;
+        }
+
+        byte prefix = buf.get();
+        switch (prefix) {
+            case '*': { // Array
+                long count = readLong(buf);
+                if (count == Long.MIN_VALUE) {
+                    return null;
+                }
+                if (count < 0) {
+                    return new Value("null", null);
+                }
+                List<Value> elements = new ArrayList<>((int) Math.min(count, 1024));
+                for (long i = 0; i < count; i++) {
+                    Value element = parse(buf);
+                    if (element == null) {
+                        return null;
+                    }
+                    elements.add(element);
+                }
+                return new Value("array", elements);
+            }
+
+            case '$': { // Bulk string
+                long length = readLong(buf);
+                if (length == Long.MIN_VALUE) {
+                    return null;
+                }
+                if (length == -1) {
+                    return new Value("null", null);
+                }
+                if (length < 0 || length > Integer.MAX_VALUE) {
+                    throw new RespParseException("Invalid bulk length: " + length);
+                }
+                if (buf.remaining() < length + 2) {
+                    return null;
+                }
+                byte[] bytes = new byte[(int) length];
+                buf.get(bytes);
+                if (buf.get() != '\r' || buf.get() != '\n') {
+                    throw new RespParseException("Bulk string not terminated by CRLF");
+                }
+                return new Value("bulk", new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            case '+': { // Simple string
+                String line = readLine(buf);
+                return line == null ? null : new Value("string", line);
+            }
+
+            case ':': { // Integer
+                String line = readLine(buf);
+                return line == null ? null : new Value("integer", line);
+            }
+
+            case '-': { // Error
+                String line = readLine(buf);
+                return line == null ? null : new Value("error", line);
+            }
+
+            default:
+                throw new RespParseException("Unknown RESP prefix: " + (char) prefix);
+        }
+    }
+
+    /**
+     * Read a CRLF-terminated signed integer.
+     * Returns Long.MIN_VALUE if the line is incomplete.
+     */
+    private static long readLong(ByteBuffer buf) throws RespParseException {
+        if (!buf.hasRemaining()) {
+            return Long.MIN_VALUE;
+        }
+
+        boolean negative = false;
+        if (buf.get(buf.position()) == '-') {
+            negative = true;
+            buf.get();
+        }
+
+        long n = 0;
+        int digits = 0;
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            if (b == '\r') {
+                if (!buf.hasRemaining()) {
+                    return Long.MIN_VALUE;
+                }
+                if (buf.get() != '\n' || digits == 0) {
+                    throw new RespParseException("Invalid integer line");
+                }
+                return negative ? -n : n;
+            }
+            if (b < '0' || b > '9' || digits >= 18) {
+                throw new RespParseException("Invalid integer line");
+            }
+            n = n * 10 + (b - '0');
+            digits++;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static String readLine(ByteBuffer buf) {
+        int start = buf.position();
+        while (buf.hasRemaining()) {
+            if (buf.get() == '\r') {
+                if (!buf.hasRemaining()) {
+                    return null;
+                }
+                if (buf.get() == '\n') {
+                    int end = buf.position() - 2;
+                    byte[] bytes = new byte[end - start];
+                    buf.get(start, bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+}
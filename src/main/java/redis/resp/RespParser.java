@@ -13,6 +13,8 @@ public class RespParser {
 		switch (prefix) {
 			case '*': // Array
 				int count = Integer.parseInt(reader.readLine());
+				if (count == -1)
+					return new Value("null", null); // Null array
 				List<Value> elements = new ArrayList<>();
 				for (int i = 0; i < count; i++) {
 					elements.add(readValue(reader));
@@ -6,28 +6,74 @@ import java.io.OutputStream;
 import java.util.List;
 
 public class RespWriter {
+
+    // Error replies and characters written so far; a writer belongs to one connection
+    private long errors;
+    private long written;
+
     public void writeSimple(BufferedWriter out, String s) throws IOException {
-        out.write("+" + s + "\r\n");
+        write(out, "+" + s + "\r\n");
     }
 
     public void writeError(BufferedWriter out, String s) throws IOException {
-        out.write("-ERR " + s + "\r\n");
+        errors++;
+        write(out, "-ERR " + s + "\r\n");
+    }
+
+    /**
+     * Error reply with its own code instead of ERR, e.g. EXECABORT.
+     */
+    public void writeError(BufferedWriter out, String code, String s) throws IOException {
+        errors++;
+        write(out, "-" + code + " " + s + "\r\n");
+    }
+
+    /**
+     * The number of error replies written, to tell whether a command failed.
+     */
+    public long errorCount() {
+        return errors;
+    }
+
+    /**
+     * The number of characters written, to size a command's reply.
+     */
+    public long writtenChars() {
+        return written;
     }
 
     public void writeBulk(BufferedWriter out, String s) throws IOException {
         if (s == null) {
-            out.write("$-1\r\n");
+            write(out, "$-1\r\n");
             return;
         }
-        out.write("$" + s.length() + "\r\n" + s + "\r\n");
+        write(out, "$" + s.length() + "\r\n" + s + "\r\n");
     }
 
     public void writeInt(BufferedWriter out, long n) throws IOException {
-        out.write(":" + n + "\r\n");
+        write(out, ":" + n + "\r\n");
     }
 
     public void writeArrayHeader(BufferedWriter out, int n) throws IOException {
-        out.write("*" + n + "\r\n");
+        write(out, "*" + n + "\r\n");
+    }
+
+    /**
+     * Encode an array of bulk strings once, in the same form as
+     * {@link #writeArrayHeader} followed by {@link #writeBulk} calls, so the
+     * result can be written to many clients without re-encoding.
+     */
+    public static String encodeBulkArray(String... items) {
+        int size = 16;
+        for (String s : items) {
+            size += s.length() + 16;
+        }
+        StringBuilder sb = new StringBuilder(size);
+        sb.append('*').append(items.length).append("\r\n");
+        for (String s : items) {
+            sb.append('$').append(s.length()).append("\r\n").append(s).append("\r\n");
+        }
+        return sb.toString();
     }
 
     /**
@@ -48,4 +94,9 @@ public class RespWriter {
             out.write("\r\n".getBytes());
         }
     }
+
+    private void write(BufferedWriter out, String s) throws IOException {
+        written += s.length();
+        out.write(s);
+    }
 }
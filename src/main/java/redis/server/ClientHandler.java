@@ -5,6 +5,8 @@ import java.net.Socket;
 import java.net.SocketException;
 
 import redis.resp.RespParser;
+import redis.core.Client;
+import redis.core.ClientTracking;
 import redis.core.CommandProcessor;
 import redis.core.Database;
 import redis.pubsub.PubSubManager;
@@ -12,6 +14,7 @@ import redis.resp.RespParseException;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
+import java.util.Locale;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -26,6 +29,7 @@ public class ClientHandler implements Runnable {
     private final RespWriter writer = new RespWriter();
     private final CommandProcessor commandProcessor;
     private BufferedWriter out; // Stored as field for cleanup access
+    private Client connection;
 
     public ClientHandler(Socket client, Database sharedDB, CommandProcessor commandProcessor, PubSubManager pubsub) {
         this.client = client;
@@ -35,7 +39,7 @@ public class ClientHandler implements Runnable {
     }
 
     private static final Set<String> PUBSUB_ALLOWED_COMMANDS = Set.of(
-            "SUBSCRIBE", "UNSUBSCRIBE", "PSUBSCRIBE", "PUNSUBSCRIBE", "PING", "QUIT");
+            "SUBSCRIBE", "UNSUBSCRIBE", "PSUBSCRIBE", "PUNSUBSCRIBE", "SSUBSCRIBE", "SUNSUBSCRIBE", "PING", "QUIT");
 
     private boolean isPubSubAllowedCommand(String command) {
         return PUBSUB_ALLOWED_COMMANDS.contains(command);
@@ -45,6 +49,9 @@ public class ClientHandler implements Runnable {
     public void run() {
         try (BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()))) {
             out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream()));
+            connection = new Client(out, client.getInetAddress().getHostAddress() + ":" + client.getPort(),
+                    client, db.getClock().nowMillis());
+            commandProcessor.clients().register(connection);
             while (true) {
                 try {
                     // Parse next RESP message
@@ -61,14 +68,23 @@ public class ClientHandler implements Runnable {
                         continue;
                     }
 
-                    String command = request.array.get(0).str.toUpperCase();
+                    // Looked up case-insensitively by the command table
+                    String command = request.array.get(0).str;
 
-                    if (pubsub.isSubscribed(out) && !isPubSubAllowedCommand(command)) {
+                    if (connection.isSubscribed() && !isPubSubAllowedCommand(command.toUpperCase(Locale.ROOT))) {
                         continue;
                     }
 
-                    commandProcessor.executeCommand(command, db, writer, out, request.array, false);
-                    out.flush();
+                    // Hold the delivery lock so pub/sub messages are never
+                    // written into the middle of a reply
+                    synchronized (connection.subscriber.lock) {
+                        commandProcessor.executeCommand(command, connection, db, writer, request.array);
+                        out.flush();
+                    }
+                    if (connection.isClosingAfterReply()) {
+                        LOG.info(() -> "Client killed: " + client.getRemoteSocketAddress());
+                        break;
+                    }
                 } catch (RespParseException e) {
                     // Invalid RESP format - send error but keep connection open
                     writer.writeError(out, "invalid RESP format: " + e.getMessage());
@@ -98,7 +114,13 @@ public class ClientHandler implements Runnable {
             LOG.log(Level.WARNING, "Failed to initialize client handler for " + client.getRemoteSocketAddress(), e);
         } finally {
             if (out != null) {
-                pubsub.unsubscribeAll(out); // Clean up subscriptions
+                pubsub.unsubscribeAll(connection.subscriber); // Clean up subscriptions
+                commandProcessor.clients().unregister(connection);
+                connection.unwatchAll(db);
+                ClientTracking tracking = db.getClientTracking();
+                if (tracking != null) {
+                    tracking.disable(connection);
+                }
                 try {
                     out.close();
                 } catch (IOException ignored) {
@@ -0,0 +1,228 @@
+package redis.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import redis.core.CommandProcessor;
+import redis.core.CommandStats;
+import redis.core.CommandTable;
+import redis.core.Database;
+import redis.persistence.AofManager;
+import redis.pubsub.PubSubManager;
+
+/**
+ * Serves the server counters to Prometheus at {@code /metrics}, in the text
+ * exposition format, on a port of its own.
+ *
+ * The page is built on the listener's own thread from the same counters as
+ * INFO (adders, sizes of concurrent maps), so a scrape never takes the
+ * database or AOF locks that commands need.
+ */
+public class MetricsServer implements Closeable {
+
+    // Upper bounds of the command latency histogram buckets, in seconds
+    private static final double[] LATENCY_BUCKETS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5 };
+    private static final long[] LATENCY_BOUNDS_NANOS = new long[LATENCY_BUCKETS.length + 1];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            LATENCY_BOUNDS_NANOS[i] = Math.round(LATENCY_BUCKETS[i] * 1e9);
+        }
+        LATENCY_BOUNDS_NANOS[LATENCY_BUCKETS.length] = Long.MAX_VALUE; // +Inf
+    }
+
+    private final CommandProcessor processor;
+    private final Database db;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "metrics-http");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Start listening on {@code port} (0 = any free port).
+     */
+    public MetricsServer(int port, CommandProcessor processor, Database db) throws IOException {
+        this.processor = processor;
+        this.db = db;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * The metrics page.
+     */
+    String render() {
+        StringBuilder page = new StringBuilder(16 * 1024);
+        commands(page);
+
+        header(page, "redis_connected_clients", "gauge", "Client connections open.");
+        sample(page, "redis_connected_clients", processor.clients().size());
+        header(page, "redis_connections_received_total", "counter", "Client connections accepted.");
+        sample(page, "redis_connections_received_total", processor.clients().totalRegistered());
+
+        Runtime runtime = Runtime.getRuntime();
+        header(page, "redis_memory_used_bytes", "gauge", "JVM heap in use.");
+        sample(page, "redis_memory_used_bytes", runtime.totalMemory() - runtime.freeMemory());
+        header(page, "redis_memory_max_bytes", "gauge", "JVM heap limit.");
+        sample(page, "redis_memory_max_bytes", runtime.maxMemory());
+
+        header(page, "redis_db_keys", "gauge", "Keys in the database.");
+        sample(page, "redis_db_keys", db.keyCount());
+        header(page, "redis_db_keys_expiring", "gauge", "Keys with an expiry.");
+        sample(page, "redis_db_keys_expiring", db.expiringKeyCount());
+        header(page, "redis_keyspace_hits_total", "counter", "Keys found by read commands.");
+        sample(page, "redis_keyspace_hits_total", db.keyspaceHits());
+        header(page, "redis_keyspace_misses_total", "counter", "Keys not found by read commands.");
+        sample(page, "redis_keyspace_misses_total", db.keyspaceMisses());
+        header(page, "redis_expired_keys_total", "counter", "Keys removed because they expired.");
+        sample(page, "redis_expired_keys_total", db.expiredKeys());
+
+        aof(page);
+        pubsub(page);
+        return page.toString();
+    }
+
+    private void commands(StringBuilder page) {
+        header(page, "redis_commands_total", "counter", "Commands processed, by command.");
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            if (spec.stats.calls() > 0) {
+                sample(page, "redis_commands_total", "cmd", spec.name, spec.stats.calls());
+            }
+        }
+        header(page, "redis_commands_failed_total", "counter", "Commands that replied with an error.");
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            if (spec.stats.failedCalls() > 0) {
+                sample(page, "redis_commands_failed_total", "cmd", spec.name, spec.stats.failedCalls());
+            }
+        }
+        header(page, "redis_commands_rejected_total", "counter", "Requests rejected before running.");
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            if (spec.stats.rejectedCalls() > 0) {
+                sample(page, "redis_commands_rejected_total", "cmd", spec.name, spec.stats.rejectedCalls());
+            }
+        }
+
+        header(page, "redis_command_duration_seconds", "histogram", "Command latency, by command.");
+        for (CommandTable.Spec spec : processor.commands().all()) {
+            CommandStats stats = spec.stats;
+            if (stats.calls() == 0) {
+                continue;
+            }
+            long[] counts = stats.latency().cumulativeCounts(LATENCY_BOUNDS_NANOS);
+            for (int i = 0; i < counts.length; i++) {
+                String le = i < LATENCY_BUCKETS.length ? format(LATENCY_BUCKETS[i]) : "+Inf";
+                page.append("redis_command_duration_seconds_bucket{cmd=\"").append(spec.name)
+                        .append("\",le=\"").append(le).append("\"} ").append(counts[i]).append('\n');
+            }
+            page.append("redis_command_duration_seconds_sum{cmd=\"").append(spec.name).append("\"} ")
+                    .append(format(stats.nanos() / 1e9)).append('\n');
+            page.append("redis_command_duration_seconds_count{cmd=\"").append(spec.name).append("\"} ")
+                    .append(counts[counts.length - 1]).append('\n');
+        }
+    }
+
+    private void aof(StringBuilder page) {
+        AofManager aof = processor.aof();
+        header(page, "redis_aof_enabled", "gauge", "1 if the AOF is on.");
+        sample(page, "redis_aof_enabled", aof == null ? 0 : 1);
+        if (aof == null) {
+            return;
+        }
+        header(page, "redis_aof_current_size_bytes", "gauge", "Size of the AOF files.");
+        sample(page, "redis_aof_current_size_bytes", aof.currentSize());
+        header(page, "redis_aof_fsync_lag_seconds", "gauge", "Age of the oldest write not fsynced yet.");
+        page.append("redis_aof_fsync_lag_seconds ").append(format(aof.fsyncLagMillis() / 1000.0)).append('\n');
+        header(page, "redis_aof_rewrite_in_progress", "gauge", "1 while the AOF is rewritten.");
+        sample(page, "redis_aof_rewrite_in_progress", aof.isRewriting() ? 1 : 0);
+    }
+
+    private void pubsub(StringBuilder page) {
+        PubSubManager pubsub = processor.pubsub();
+        if (pubsub == null) {
+            return;
+        }
+        header(page, "redis_pubsub_channels", "gauge", "Channels with subscribers.");
+        sample(page, "redis_pubsub_channels", pubsub.channelCount());
+        header(page, "redis_pubsub_patterns", "gauge", "Patterns with subscribers.");
+        sample(page, "redis_pubsub_patterns", pubsub.patternCount());
+        header(page, "redis_pubsub_messages_published_total", "counter", "PUBLISH and SPUBLISH calls.");
+        sample(page, "redis_pubsub_messages_published_total", pubsub.publishedMessages());
+        header(page, "redis_pubsub_messages_queued_total", "counter",
+                "Messages queued for subscribers (the fan-out of the publishes).");
+        sample(page, "redis_pubsub_messages_queued_total", pubsub.queuedDeliveries());
+        header(page, "redis_pubsub_output_limit_disconnections_total", "counter",
+                "Subscribers disconnected for exceeding the output buffer limit.");
+        sample(page, "redis_pubsub_output_limit_disconnections_total", pubsub.outputLimitDisconnections());
+    }
+
+    private static void header(StringBuilder page, String name, String type, String help) {
+        page.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        page.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder page, String name, long value) {
+        page.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder page, String name, String label, String labelValue, long value) {
+        page.append(name).append('{').append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    private static String format(double d) {
+        String s = String.format(Locale.ROOT, "%.9f", d);
+        // Trim trailing zeros, keeping one digit after the point
+        int end = s.length();
+        while (end > s.indexOf('.') + 2 && s.charAt(end - 1) == '0') {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -4,14 +4,25 @@ import java.io.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import redis.config.ClientOutputBufferLimit;
 import redis.config.ServerConfig;
+import redis.core.ClientTracking;
 import redis.core.CommandProcessor;
 import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.core.LatencyMonitor;
+import redis.core.SlowLog;
+import redis.functions.FunctionRegistry;
 import redis.persistence.AofManager;
+import redis.persistence.AofOptions;
 import redis.pubsub.PubSubManager;
 import redis.resp.RespWriter;
+import redis.time.SystemClock;
 
 import java.net.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 
 public class RedisServer {
@@ -21,7 +32,15 @@ public class RedisServer {
     private final ServerConfig config;
     private final ExecutorService threadPool;
     private final Database db = new Database();
-    private final PubSubManager pubsub = new PubSubManager();
+    // Writes published messages to subscribers, off the publishers' threads
+    private final ExecutorService pubsubDelivery = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "pubsub-delivery");
+        t.setDaemon(true);
+        return t;
+    });
+    // One delivery pool per shard channel partition (SSUBSCRIBE/SPUBLISH)
+    private final List<ExecutorService> shardDelivery = new ArrayList<>();
+    private final PubSubManager pubsub;
 
     private ServerSocket serverSocket;
     private volatile boolean running = true;
@@ -30,6 +49,7 @@ public class RedisServer {
     private final RespWriter writer = new RespWriter();;
     private AofManager aofManager;
     private CommandProcessor commandProcessor;
+    private MetricsServer metricsServer; // null when not configured
 
     public RedisServer() {
         this(ServerConfig.fromEnv());
@@ -37,6 +57,16 @@ public class RedisServer {
 
     public RedisServer(ServerConfig config) {
         this.config = config;
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            String name = "pubsub-shard-" + i;
+            shardDelivery.add(Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }));
+        }
+        this.pubsub = new PubSubManager(pubsubDelivery, shardDelivery,
+                config.outputBufferLimit(ClientOutputBufferLimit.ClientClass.PUBSUB), new SystemClock());
         this.threadPool = (config.maxThreads <= 0)
                 ? Executors.newCachedThreadPool()
                 : Executors.newFixedThreadPool(config.maxThreads);
@@ -45,7 +75,15 @@ public class RedisServer {
     public void start() {
         if (config.aofEnabled) {
             try {
-                aofManager = new AofManager(config.aofPath, writer, config.fsyncPolicy);
+                AofOptions options = new AofOptions(config.aofChecksum, config.aofLoadTruncated,
+                        config.aofSnapshotBase, config.aofCompressionThreshold);
+                if (config.aofMultiPart()) {
+                    Path parent = config.aofPath.getParent() == null ? Path.of(".") : config.aofPath.getParent();
+                    aofManager = new AofManager(parent.resolve(config.aofDirName),
+                            config.aofPath.getFileName().toString(), writer, config.fsyncPolicy, options);
+                } else {
+                    aofManager = new AofManager(config.aofPath, writer, config.fsyncPolicy, options);
+                }
             } catch (IOException e) {
                 LOG.log(Level.SEVERE, "Failed to initialize AOF manager", e);
                 return; // Cannot start server without AOF if required
@@ -54,13 +92,38 @@ public class RedisServer {
             LOG.info("AOF disabled");
         }
 
-        commandProcessor = new CommandProcessor(pubsub, aofManager);
+        commandProcessor = new CommandProcessor(pubsub, aofManager, new FunctionRegistry(config.functionsDir));
+        commandProcessor.setSlowLog(new SlowLog(config.slowlogLogSlowerThan, config.slowlogMaxLen));
+        LatencyMonitor latencyMonitor = new LatencyMonitor(config.latencyMonitorThreshold, new SystemClock());
+        commandProcessor.setLatencyMonitor(latencyMonitor);
+        db.setLatencyMonitor(latencyMonitor);
+        if (aofManager != null) {
+            aofManager.setLatencyMonitor(latencyMonitor);
+        }
 
         if (config.aofEnabled && aofManager != null) {
             try {
-                aofManager.replay(db, commandProcessor, writer);
+                aofManager.replay(db, commandProcessor);
             } catch (IOException e) {
                 LOG.log(Level.SEVERE, "Failed to replay AOF file", e);
+                stop();
+                return; // Do not serve (and append to) a partially loaded dataset
+            }
+        }
+
+        // Enabled only after loading: replayed commands are not events
+        if (!config.notifyKeyspaceEvents.isEmpty()) {
+            db.setKeyspaceNotifier(new KeyspaceNotifier(pubsub, config.notifyKeyspaceEvents));
+        }
+        db.setClientTracking(new ClientTracking(pubsub, config.trackingTableMaxKeys));
+
+        if (config.metricsPort > 0) {
+            try {
+                metricsServer = new MetricsServer(config.metricsPort, commandProcessor, db);
+                LOG.info(() -> "Metrics available at http://localhost:" + config.metricsPort + "/metrics");
+            } catch (IOException e) {
+                // Serving data matters more than exporting metrics
+                LOG.log(Level.WARNING, "Failed to start the metrics listener on port " + config.metricsPort, e);
             }
         }
 
@@ -124,6 +187,19 @@ public class RedisServer {
             threadPool.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        pubsubDelivery.shutdownNow();
+        shardDelivery.forEach(ExecutorService::shutdownNow);
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+
+        if (aofManager != null) {
+            try {
+                aofManager.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Error closing AOF", e);
+            }
+        }
 
         System.err.println("Redis server stopped.");
     }
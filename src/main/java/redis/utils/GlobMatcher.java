@@ -0,0 +1,123 @@
+package redis.utils;
+
+/**
+ * Redis-style glob matching, as used by KEYS and PSUBSCRIBE:
+ * {@code *} (any run), {@code ?} (any char), {@code [abc]}, {@code [^abc]},
+ * {@code [a-z]} and {@code \} to escape the next character.
+ *
+ * Runs in O(pattern * text) worst case with no allocation: a {@code *} is
+ * handled by remembering the last star and backtracking to it on mismatch.
+ */
+public final class GlobMatcher {
+
+    private GlobMatcher() {
+    }
+
+    public static boolean matches(String pattern, String text) {
+        return matches(pattern, 0, text, 0);
+    }
+
+    /**
+     * Match {@code pattern[p..]} against {@code text[t..]}.
+     */
+    public static boolean matches(String pattern, int p, String text, int t) {
+        int plen = pattern.length();
+        int tlen = text.length();
+        int starP = -1;
+        int starT = -1;
+
+        while (t < tlen) {
+            if (p < plen) {
+                if (pattern.charAt(p) == '*') {
+                    while (p < plen && pattern.charAt(p) == '*') {
+                        p++;
+                    }
+                    if (p == plen) {
+                        return true;
+                    }
+                    starP = p;
+                    starT = t;
+                    continue;
+                }
+                int next = matchOne(pattern, p, text.charAt(t));
+                if (next >= 0) {
+                    p = next;
+                    t++;
+                    continue;
+                }
+            }
+            if (starP < 0) {
+                return false;
+            }
+            // Let the last star absorb one more character and retry
+            p = starP;
+            t = ++starT;
+        }
+
+        while (p < plen && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == plen;
+    }
+
+    /**
+     * Length of the literal prefix of a pattern (up to the first special character).
+     */
+    public static int literalPrefixLength(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return i;
+            }
+        }
+        return pattern.length();
+    }
+
+    /**
+     * Match the single-character token at {@code pattern[p]} against {@code c}.
+     * Returns the index after the token, or -1 if it does not match.
+     */
+    private static int matchOne(String pattern, int p, char c) {
+        int plen = pattern.length();
+        char pc = pattern.charAt(p);
+
+        if (pc == '?') {
+            return p + 1;
+        }
+        if (pc == '\\' && p + 1 < plen) {
+            return pattern.charAt(p + 1) == c ? p + 2 : -1;
+        }
+        if (pc != '[') {
+            return pc == c ? p + 1 : -1;
+        }
+
+        int i = p + 1;
+        boolean negate = i < plen && pattern.charAt(i) == '^';
+        if (negate) {
+            i++;
+        }
+        boolean matched = false;
+        while (i < plen && pattern.charAt(i) != ']') {
+            char lc = pattern.charAt(i);
+            if (lc == '\\' && i + 1 < plen) {
+                matched |= pattern.charAt(i + 1) == c;
+                i += 2;
+            } else if (i + 2 < plen && pattern.charAt(i + 1) == '-') {
+                char start = lc;
+                char end = pattern.charAt(i + 2);
+                if (start > end) {
+                    char tmp = start;
+                    start = end;
+                    end = tmp;
+                }
+                matched |= c >= start && c <= end;
+                i += 3;
+            } else {
+                matched |= lc == c;
+                i++;
+            }
+        }
+        int next = i < plen ? i + 1 : i; // an unterminated class runs to the end
+        return matched != negate ? next : -1;
+    }
+}
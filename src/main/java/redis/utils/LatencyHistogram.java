@@ -0,0 +1,105 @@
+package redis.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of durations in nanoseconds, in the style of
+ * HdrHistogram: values below 32 get a bucket each, and every power of two
+ * above is split into 16 buckets, so a recorded value is known to within
+ * 1/16 at any magnitude.
+ *
+ * Recording is a couple of atomic increments, without allocation or locking.
+ * Reads do not stop writers and may miss records made while they scan.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // Longer durations (over 18 minutes) are recorded as this
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucket(MAX_VALUE) + 1);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long v = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(bucket(v));
+        long m;
+        while (v > (m = max.get()) && !max.compareAndSet(m, v)) {
+            // retry
+        }
+    }
+
+    /**
+     * The number of values recorded.
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Cumulative counts for ascending {@code bounds}, in one pass: for each
+     * bound, the values recorded in buckets up to its own, so values a little
+     * above a bound (within its bucket) are counted under it. A bound of
+     * {@code Long.MAX_VALUE} counts every value.
+     */
+    public long[] cumulativeCounts(long[] bounds) {
+        long[] result = new long[bounds.length];
+        long total = 0;
+        int j = 0;
+        for (int i = 0; i < counts.length() && j < bounds.length; i++) {
+            while (j < bounds.length && i > bucket(Math.max(0, Math.min(bounds[j], MAX_VALUE)))) {
+                result[j++] = total;
+            }
+            total += counts.get(i);
+        }
+        while (j < bounds.length) {
+            result[j++] = total;
+        }
+        return result;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * The value at or below which {@code percentile} percent of the recorded
+     * values fall: the top of its bucket, or the largest value recorded if
+     * smaller. 0 when nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int bucket(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestInBucket(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BITS) - 1;
+        long sub = bucket - ((long) shift << SUB_BITS);
+        return ((sub + 1) << shift) - 1;
+    }
+}
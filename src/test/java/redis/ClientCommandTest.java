@@ -0,0 +1,143 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.SlowLog;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class ClientCommandTest {
+
+    FakeClock clock;
+    Database db;
+    PubSubManager pubsub;
+    CommandProcessor processor;
+
+    StringWriter replies;
+    Client client;
+    AtomicBoolean otherClosed;
+    Client other;
+
+    @BeforeEach
+    void beforeEach() {
+        clock = new FakeClock(1_000_000);
+        db = new Database(clock);
+        pubsub = new PubSubManager();
+        processor = new CommandProcessor(pubsub);
+
+        replies = new StringWriter();
+        client = new Client(new BufferedWriter(replies), "10.0.0.1:5000", () -> {
+        }, clock.nowMillis());
+        processor.clients().register(client);
+        otherClosed = new AtomicBoolean();
+        other = new Client(new BufferedWriter(new StringWriter()), "10.0.0.2:6000", () -> otherClosed.set(true),
+                clock.nowMillis());
+        processor.clients().register(other);
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(Client c, String... args) throws IOException {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        int start = replies.getBuffer().length();
+        processor.executeCommand(args[0], c, db, new RespWriter(), values);
+        c.out.flush();
+        return replies.toString().substring(start);
+    }
+
+    private String bulk(String reply) {
+        return reply.substring(reply.indexOf("\r\n") + 2, reply.length() - 2);
+    }
+
+    @Test
+    @DisplayName("CLIENT LIST should show one line per connection with its figures")
+    void testList() throws IOException {
+        execute(other, "SUBSCRIBE", "news", "sport");
+        execute(other, "PSUBSCRIBE", "n*");
+        clock.advanceMillis(5_000);
+        execute(client, "SET", "key", "value");
+        clock.advanceMillis(2_000);
+
+        String[] lines = bulk(execute(client, "CLIENT", "LIST")).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id=" + client.id + " addr=10.0.0.1:5000 name= age=7 idle=2 flags=N "),
+                lines[0]);
+        assertTrue(lines[0].contains(" tot-cmds=1 tot-net-in=11 tot-net-out=5 cmd=set "), lines[0]);
+        assertTrue(lines[1].startsWith("id=" + other.id + " addr=10.0.0.2:6000 name= age=7 idle=7 flags=P "),
+                lines[1]);
+        assertTrue(lines[1].contains(" sub=2 psub=1 ssub=0 multi=-1 "), lines[1]);
+        assertTrue(lines[1].contains(" cmd=psubscribe "), lines[1]);
+
+        String pubsubOnly = bulk(execute(client, "CLIENT", "LIST", "TYPE", "pubsub"));
+        assertTrue(pubsubOnly.startsWith("id=" + other.id + " "), pubsubOnly);
+        assertEquals(1, pubsubOnly.split("\n").length);
+        String byId = bulk(execute(client, "CLIENT", "LIST", "ID", String.valueOf(client.id)));
+        assertTrue(byId.startsWith("id=" + client.id + " "), byId);
+        assertEquals("-ERR Unknown client type 'master'\r\n", execute(client, "CLIENT", "LIST", "TYPE", "master"));
+    }
+
+    @Test
+    @DisplayName("CLIENT SETNAME should name the connection in CLIENT INFO and the slow log")
+    void testSetName() throws IOException {
+        assertEquals("$-1\r\n", execute(client, "CLIENT", "GETNAME"));
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "SETNAME", "worker-1"));
+        assertEquals("$8\r\nworker-1\r\n", execute(client, "CLIENT", "GETNAME"));
+        assertTrue(execute(client, "CLIENT", "SETNAME", "bad name").startsWith("-ERR Client names cannot"));
+        assertTrue(execute(client, "CLIENT", "INFO").contains(" name=worker-1 "));
+
+        processor.setSlowLog(new SlowLog(0, 10));
+        execute(client, "PING");
+        assertEquals("worker-1", processor.slowLog().get(1).get(0).clientName);
+    }
+
+    @Test
+    @DisplayName("CLIENT NO-EVICT should be shown in the flags")
+    void testNoEvict() throws IOException {
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "NO-EVICT", "on"));
+        assertTrue(execute(client, "CLIENT", "INFO").contains(" flags=e "));
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "NO-EVICT", "off"));
+        assertTrue(execute(client, "CLIENT", "INFO").contains(" flags=N "));
+        assertEquals("-ERR syntax error\r\n", execute(client, "CLIENT", "NO-EVICT", "maybe"));
+    }
+
+    @Test
+    @DisplayName("CLIENT KILL should close the matching connections")
+    void testKill() throws IOException {
+        assertEquals("-ERR No such client\r\n", execute(client, "CLIENT", "KILL", "10.0.0.9:1"));
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "KILL", "10.0.0.2:6000"));
+        assertTrue(otherClosed.getAndSet(false));
+
+        assertEquals(":0\r\n", execute(client, "CLIENT", "KILL", "ID", String.valueOf(client.id)));
+        assertFalse(client.isClosingAfterReply());
+        assertEquals(":1\r\n", execute(client, "CLIENT", "KILL", "ID", String.valueOf(other.id)));
+        assertTrue(otherClosed.getAndSet(false));
+
+        clock.advanceMillis(10_000);
+        assertEquals(":0\r\n", execute(client, "CLIENT", "KILL", "MAXAGE", "11"));
+        assertEquals(":2\r\n", execute(client, "CLIENT", "KILL", "MAXAGE", "10", "SKIPME", "no"));
+        assertTrue(otherClosed.get());
+        assertTrue(client.isClosingAfterReply());
+
+        assertEquals("-ERR syntax error\r\n", execute(client, "CLIENT", "KILL", "ID", "1", "ADDR"));
+    }
+}
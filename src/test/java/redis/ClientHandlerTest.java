@@ -84,6 +84,20 @@ class ClientHandlerTest {
         }
     }
 
+    @Test
+    void testClientKillSelfClosesAfterReply() throws Exception {
+        try (Socket socket = startServer()) {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            out.write(resp("CLIENT", "KILL", "SKIPME", "no"));
+            out.flush();
+
+            assertEquals(":1", in.readLine());
+            assertNull(in.readLine()); // closed by the server
+        }
+    }
+
     // -------------------------
     // STRING COMMANDS
     // -------------------------
@@ -0,0 +1,243 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.Client;
+import redis.core.ClientTracking;
+import redis.core.CommandTable;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class ClientTrackingTest {
+
+    PubSubManager pubsub;
+    FakeClock clock;
+    Database db;
+    CommandProcessor processor;
+
+    // The caching client and the connection receiving its invalidations
+    StringWriter replies;
+    Client client;
+    StringWriter received;
+    Client redirect;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        pubsub = new PubSubManager();
+        clock = new FakeClock(0);
+        db = new Database(clock);
+        db.setClientTracking(new ClientTracking(pubsub, 0));
+        processor = new CommandProcessor(pubsub);
+
+        replies = new StringWriter();
+        client = connect(replies);
+        received = new StringWriter();
+        redirect = connect(received);
+        execute(redirect, "SUBSCRIBE", ClientTracking.INVALIDATE_CHANNEL);
+        received.getBuffer().setLength(0);
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private Client connect(StringWriter sink) {
+        Client c = new Client(new BufferedWriter(sink));
+        processor.clients().register(c);
+        return c;
+    }
+
+    private String execute(Client c, String... args) throws IOException {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        StringWriter sink = c == client ? replies : received;
+        int start = sink.getBuffer().length();
+        processor.executeCommand(args[0].toUpperCase(), c, db, new RespWriter(), values);
+        c.out.flush();
+        return sink.toString().substring(start);
+    }
+
+    private String invalidation(String... keys) {
+        StringBuilder sb = new StringBuilder("*3\r\n$7\r\nmessage\r\n$20\r\n__redis__:invalidate\r\n");
+        sb.append('*').append(keys.length).append("\r\n");
+        for (String key : keys) {
+            sb.append('$').append(key.length()).append("\r\n").append(key).append("\r\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    @DisplayName("CLIENT ID should return a distinct id per connection")
+    void testClientId() throws IOException {
+        assertEquals(":" + client.id + "\r\n", execute(client, "CLIENT", "ID"));
+        assertNotEquals(client.id, redirect.id);
+    }
+
+    @Test
+    @DisplayName("should invalidate a read key once when it changes")
+    void testDefaultMode() throws IOException {
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id)));
+        assertEquals(":" + redirect.id + "\r\n", execute(client, "CLIENT", "GETREDIR"));
+
+        execute(client, "SET", "foo", "1");
+        execute(client, "SET", "bar", "1");
+        execute(client, "GET", "foo");
+        assertEquals("", received.toString());
+
+        execute(client, "SET", "bar", "2"); // never read
+        assertEquals("", received.toString());
+
+        execute(client, "SET", "foo", "2");
+        assertEquals(invalidation("foo"), received.toString());
+
+        // Forgotten until it is read again
+        execute(client, "SET", "foo", "3");
+        assertEquals(invalidation("foo"), received.toString());
+        assertEquals(0, db.getClientTracking().trackedKeys());
+    }
+
+    @Test
+    @DisplayName("should invalidate a key written while it is being read")
+    void testWriteDuringRead() throws IOException {
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id));
+        execute(client, "SET", "foo", "1");
+        // A read that another client's write overtakes before the reply
+        Client writer = connect(new StringWriter());
+        processor.commands().register("SLOWGET", (d, w, out, args) -> {
+            String value = d.get(args.get(1).str);
+            execute(writer, "SET", "foo", "2");
+            w.writeBulk(out, value);
+        }, 2, CommandTable.READONLY, 1, 1, 1);
+
+        assertEquals("$1\r\n1\r\n", execute(client, "SLOWGET", "foo"));
+        assertEquals(invalidation("foo"), received.toString());
+    }
+
+    @Test
+    @DisplayName("should invalidate keys that expire")
+    void testExpiry() throws IOException {
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id));
+        execute(client, "SET", "foo", "1");
+        execute(client, "EXPIRE", "foo", "1");
+        execute(client, "MGET", "foo", "other");
+
+        clock.advanceMillis(2000);
+        execute(client, "GET", "foo");
+        assertEquals(invalidation("foo"), received.toString());
+    }
+
+    @Test
+    @DisplayName("should stop tracking after CLIENT TRACKING off")
+    void testOff() throws IOException {
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id));
+        execute(client, "GET", "foo");
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "TRACKING", "off"));
+        assertEquals(":-1\r\n", execute(client, "CLIENT", "GETREDIR"));
+
+        execute(client, "SET", "foo", "1");
+        assertEquals("", received.toString());
+    }
+
+    @Test
+    @DisplayName("BCAST should report every change under a prefix without reads")
+    void testBroadcast() throws IOException {
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "TRACKING", "on", "REDIRECT",
+                String.valueOf(redirect.id), "BCAST", "PREFIX", "user:", "PREFIX", "order:"));
+
+        execute(client, "SET", "user:1", "a");
+        execute(client, "HSET", "order:7", "f", "v");
+        execute(client, "SET", "other", "x");
+        assertEquals(invalidation("user:1") + invalidation("order:7"), received.toString());
+        assertEquals(0, db.getClientTracking().trackedKeys());
+    }
+
+    @Test
+    @DisplayName("OPTIN should only track reads right after CLIENT CACHING yes")
+    void testOptIn() throws IOException {
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id), "OPTIN");
+
+        execute(client, "GET", "a");
+        assertEquals("+OK\r\n", execute(client, "CLIENT", "CACHING", "yes"));
+        execute(client, "GET", "b");
+        execute(client, "GET", "c");
+
+        execute(client, "MSET", "a", "1", "b", "1", "c", "1");
+        assertEquals(invalidation("b"), received.toString());
+    }
+
+    @Test
+    @DisplayName("OPTOUT should skip reads right after CLIENT CACHING no")
+    void testOptOut() throws IOException {
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id), "OPTOUT");
+
+        execute(client, "CLIENT", "CACHING", "no");
+        execute(client, "GET", "a");
+        execute(client, "GET", "b");
+
+        execute(client, "MSET", "a", "1", "b", "1");
+        assertEquals(invalidation("b"), received.toString());
+    }
+
+    @Test
+    @DisplayName("should evict the oldest keys when the table is full")
+    void testEviction() throws IOException {
+        db.setClientTracking(new ClientTracking(pubsub, 2));
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id));
+
+        execute(client, "GET", "a");
+        execute(client, "GET", "b");
+        execute(client, "GET", "c");
+        assertEquals(invalidation("a"), received.toString());
+        assertEquals(2, db.getClientTracking().trackedKeys());
+    }
+
+    @Test
+    @DisplayName("FLUSHALL should send a null key list")
+    void testFlushAll() throws IOException {
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id));
+        execute(client, "GET", "a");
+        execute(client, "FLUSHALL");
+        assertEquals("*3\r\n$7\r\nmessage\r\n$20\r\n__redis__:invalidate\r\n*-1\r\n", received.toString());
+    }
+
+    @Test
+    @DisplayName("should not write to a redirect connection that is not subscribed")
+    void testRedirectNotSubscribed() throws IOException {
+        execute(redirect, "UNSUBSCRIBE");
+        received.getBuffer().setLength(0);
+        execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(redirect.id));
+        execute(client, "GET", "a");
+        execute(client, "SET", "a", "1");
+        assertEquals("", received.toString());
+    }
+
+    @Test
+    @DisplayName("should reject invalid option combinations")
+    void testErrors() throws IOException {
+        String id = String.valueOf(redirect.id);
+        assertTrue(execute(client, "CLIENT", "TRACKING", "on").startsWith("-ERR"));
+        assertTrue(execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", "999999").startsWith("-ERR"));
+        assertTrue(execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", id, "PREFIX", "a").startsWith("-ERR"));
+        assertTrue(execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", id, "OPTIN", "OPTOUT")
+                .startsWith("-ERR"));
+        assertTrue(execute(client, "CLIENT", "TRACKING", "on", "REDIRECT", id, "BCAST", "PREFIX", "a",
+                "PREFIX", "ab").startsWith("-ERR"));
+        assertTrue(execute(client, "CLIENT", "CACHING", "yes").startsWith("-ERR"));
+        assertNull(client.tracking());
+    }
+}
@@ -227,6 +227,25 @@ public class DatabaseTest {
                 assertEquals(false, db.stringStoreContainsKey("temp"));
             }
 
+            @Test
+            @DisplayName("the expiry cycle should remove keys expired all at once")
+            void testActiveExpiryOfManyKeys() throws InterruptedException {
+                for (int i = 0; i < 5000; i++) {
+                    db.set("k" + i, "v");
+                    db.expire("k" + i, 1);
+                }
+                db.set("kept", "v");
+                clock.advanceSeconds(2);
+
+                // The cleaner starts after 5 seconds and samples without reading the keys
+                long deadline = System.currentTimeMillis() + 15_000;
+                while (db.keyCount() > 1 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(100);
+                }
+                assertEquals(1, db.keyCount());
+                assertEquals(5000, db.expiredKeys());
+            }
+
             @Test
             @DisplayName("'expire' should overwrite existing expiry time")
             void testExpireOverwritesTTL() throws InterruptedException {
@@ -0,0 +1,216 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.functions.FunctionException;
+import redis.functions.FunctionLibrary;
+import redis.functions.FunctionRegistry;
+import redis.mocks.FakeClock;
+import redis.persistence.AofManager;
+import redis.persistence.AofManager.FsyncPolicy;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class FunctionsTest {
+
+    // Compare-and-set, plus a few functions exercising replies and errors
+    static class TestLibrary implements FunctionLibrary {
+        @Override
+        public void register(Registrar registrar) {
+            registrar.register("cas", (ctx, keys, args) -> {
+                if (!Objects.equals(ctx.call("GET", keys.get(0)), args.get(0))) {
+                    return 0L;
+                }
+                ctx.call("SET", keys.get(0), args.get(1));
+                return 1L;
+            });
+            registrar.registerReadOnly("getboth", (ctx, keys, args) ->
+                    List.of(ctx.call("GET", keys.get(0)), ctx.call("EXISTS", keys.get(1)), true));
+            registrar.registerReadOnly("sneaky", (ctx, keys, args) -> ctx.call("SET", keys.get(0), "x"));
+            registrar.register("fail", (ctx, keys, args) -> {
+                ctx.call("SET", "before", "1");
+                throw new FunctionException("custom failure");
+            });
+            registrar.register("wrongtype", (ctx, keys, args) -> ctx.call("INCR", keys.get(0)));
+        }
+    }
+
+    Database db;
+    FunctionRegistry functions;
+    CommandProcessor processor;
+
+    @BeforeEach
+    void beforeEach() {
+        db = new Database(new FakeClock(0));
+        functions = new FunctionRegistry(null);
+        functions.load("test", new TestLibrary(), false);
+        processor = new CommandProcessor(new PubSubManager(), null, functions);
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        StringWriter sink = new StringWriter();
+        BufferedWriter out = new BufferedWriter(sink);
+        processor.executeCommand(args[0], db, new RespWriter(), out, values, false);
+        out.flush();
+        return sink.toString();
+    }
+
+    @Test
+    @DisplayName("FCALL should run a read-modify-write function in one call")
+    void testCompareAndSet() throws IOException {
+        execute("SET", "k", "old");
+        assertEquals(":0\r\n", execute("FCALL", "cas", "1", "k", "other", "new"));
+        assertEquals("old", db.get("k"));
+        assertEquals(":1\r\n", execute("FCALL", "cas", "1", "k", "old", "new"));
+        assertEquals("new", db.get("k"));
+    }
+
+    @Test
+    @DisplayName("should convert replies both ways")
+    void testReplies() throws IOException {
+        execute("SET", "a", "1");
+        assertEquals("*3\r\n$1\r\n1\r\n:0\r\n:1\r\n", execute("FCALL_RO", "getboth", "2", "a", "b"));
+    }
+
+    @Test
+    @DisplayName("should report errors from functions and enforce read-only mode")
+    void testErrors() throws IOException {
+        assertEquals("-ERR Function not found\r\n", execute("FCALL", "nope", "0"));
+        assertEquals("-ERR Number of keys can't be greater than number of args\r\n",
+                execute("FCALL", "cas", "3", "k"));
+        assertEquals("-ERR Can not execute a function with write flag using fcall_ro.\r\n",
+                execute("FCALL_RO", "cas", "1", "k", "a", "b"));
+        assertEquals("-ERR Write commands are not allowed from read-only functions\r\n",
+                execute("FCALL", "sneaky", "1", "k"));
+        assertNull(db.get("k"));
+
+        assertEquals("-ERR custom failure\r\n", execute("FCALL", "fail", "0"));
+        assertEquals("1", db.get("before")); // no rollback, as in Redis
+
+        execute("SET", "s", "text");
+        assertTrue(execute("FCALL", "wrongtype", "1", "s").startsWith("-ERR value is not an integer"));
+    }
+
+    @Test
+    @DisplayName("FUNCTION LIST, DELETE and FLUSH should manage libraries")
+    void testFunctionCommand() throws IOException {
+        assertThrows(FunctionException.class, () -> functions.load("test", new TestLibrary(), false));
+        assertThrows(FunctionException.class, () -> functions.load("other", new TestLibrary(), false));
+        functions.load("test", new TestLibrary(), true);
+
+        String list = execute("FUNCTION", "LIST");
+        assertTrue(list.startsWith("*1\r\n*6\r\n$12\r\nlibrary_name\r\n$4\r\ntest\r\n$6\r\nengine\r\n$4\r\nJAVA\r\n"));
+        assertTrue(list.contains("$7\r\ngetboth\r\n$11\r\ndescription\r\n$-1\r\n$5\r\nflags\r\n*1\r\n+no-writes\r\n"));
+
+        assertEquals("-ERR Library not found\r\n", execute("FUNCTION", "DELETE", "missing"));
+        assertEquals("+OK\r\n", execute("FUNCTION", "DELETE", "test"));
+        assertEquals("-ERR Function not found\r\n", execute("FCALL", "cas", "1", "k", "a", "b"));
+
+        functions.load("test", new TestLibrary(), false);
+        assertEquals("+OK\r\n", execute("FUNCTION", "FLUSH"));
+        assertEquals("*0\r\n", execute("FUNCTION", "LIST"));
+        assertTrue(execute("FUNCTION", "LOAD", "com.example.Lib").contains("functions are disabled"));
+    }
+
+    @Test
+    @DisplayName("should log the effects of FCALL to the AOF, not the call")
+    void testAofLogsEffects(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("appendonly.aof");
+        try (AofManager aof = new AofManager(file, new RespWriter(), FsyncPolicy.NO)) {
+            processor = new CommandProcessor(new PubSubManager(), aof, functions);
+            execute("SET", "k", "old");
+            execute("FCALL", "cas", "1", "k", "old", "new");
+            execute("FCALL", "cas", "1", "k", "old", "newer"); // no write, nothing logged
+        }
+
+        String content = Files.readString(file);
+        assertFalse(content.contains("FCALL"));
+        assertTrue(content.endsWith("*1\r\n$5\r\nMULTI\r\n*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$3\r\nnew\r\n"
+                + "*1\r\n$4\r\nEXEC\r\n"));
+    }
+
+    @Test
+    @DisplayName("should log FCALL inside EXEC in order with the transaction's other writes")
+    void testAofLogsEffectsInTransaction(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("appendonly.aof");
+        Client client = new Client(new BufferedWriter(new StringWriter()));
+        try (AofManager aof = new AofManager(file, new RespWriter(), FsyncPolicy.NO)) {
+            processor = new CommandProcessor(new PubSubManager(), aof, functions);
+            for (String[] args : new String[][] {
+                    {"MULTI"}, {"SET", "k", "old"}, {"FCALL", "cas", "1", "k", "old", "new"},
+                    {"SET", "other", "1"}, {"EXEC"}}) {
+                List<Value> values = new ArrayList<>();
+                for (String arg : args) {
+                    values.add(new Value("bulk", arg));
+                }
+                processor.executeCommand(args[0], client, db, new RespWriter(), values);
+            }
+        }
+
+        assertEquals("*1\r\n$5\r\nMULTI\r\n"
+                + "*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$3\r\nold\r\n"
+                + "*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$3\r\nnew\r\n"
+                + "*3\r\n$3\r\nSET\r\n$5\r\nother\r\n$1\r\n1\r\n"
+                + "*1\r\n$4\r\nEXEC\r\n", Files.readString(file));
+    }
+
+    @Test
+    @DisplayName("FUNCTION LOAD should load compiled classes with only the allowed JDK classes")
+    void testLoadFromDirectory(@TempDir Path dir) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assumptions.assumeTrue(compiler != null, "needs a JDK");
+
+        Path src = dir.resolve("src/lib");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Counter.java"), "package lib;\n"
+                + "import redis.functions.*;\n"
+                + "public class Counter implements FunctionLibrary {\n"
+                + "  public void register(Registrar r) {\n"
+                + "    r.register(\"bump\", (ctx, keys, args) -> \"now \" + ctx.call(\"INCRBY\", keys.get(0), args.get(0)));\n"
+                + "    r.register(\"escape\", (ctx, keys, args) -> new java.io.File(\"/\").list().length);\n"
+                + "  }\n"
+                + "}\n");
+        Path classes = dir.resolve("classes");
+        int status = compiler.run(null, null, null, "-d", classes.toString(),
+                "-cp", System.getProperty("java.class.path"), src.resolve("Counter.java").toString());
+        assertEquals(0, status);
+
+        processor = new CommandProcessor(new PubSubManager(), null, new FunctionRegistry(classes));
+        assertEquals("$11\r\nlib.Counter\r\n", execute("FUNCTION", "LOAD", "lib.Counter"));
+        assertEquals("$5\r\nnow 5\r\n", execute("FCALL", "bump", "1", "n", "5"));
+        String escape = execute("FCALL", "escape", "0");
+        assertTrue(escape.contains("NoClassDefFoundError: java/io/File"), escape);
+        assertTrue(execute("FUNCTION", "LOAD", "redis.core.Database").startsWith("-ERR cannot load"));
+        assertTrue(execute("FUNCTION", "LOAD", "lib.Missing").startsWith("-ERR cannot load"));
+        assertTrue(execute("FUNCTION", "LOAD", "lib.Counter").contains("already exists"));
+        assertEquals("$11\r\nlib.Counter\r\n", execute("FUNCTION", "LOAD", "REPLACE", "lib.Counter"));
+    }
+}
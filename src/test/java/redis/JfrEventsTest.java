@@ -0,0 +1,111 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.*;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class JfrEventsTest {
+
+    Database db;
+    PubSubManager pubsub;
+    CommandProcessor processor;
+
+    @BeforeEach
+    void beforeEach() {
+        db = new Database(new FakeClock(0));
+        pubsub = new PubSubManager();
+        processor = new CommandProcessor(pubsub);
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private void execute(String... args) throws IOException {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        BufferedWriter out = new BufferedWriter(new StringWriter());
+        processor.executeCommand(args[0], db, new RespWriter(), out, values, false);
+    }
+
+    private List<RecordedEvent> record(String event, Runnable body) throws IOException {
+        Path file = Files.createTempFile("redis", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(event).withThreshold(Duration.ZERO);
+            recording.start();
+            body.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().equals(event))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Commands should be recorded with their keys and request and reply sizes")
+    void testCommandExecuted() throws IOException {
+        List<RecordedEvent> events = record("redis.CommandExecuted", () -> {
+            try {
+                execute("MSET", "a", "1", "b", "22");
+                execute("GET", "b");
+                execute("INCR", "a", "b");
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+
+        assertEquals(2, events.size()); // INCR was rejected before running
+        RecordedEvent mset = events.get(0);
+        assertEquals("mset", mset.getString("command"));
+        assertEquals(2, mset.getInt("keyCount"));
+        assertEquals("MSETa1b22".length(), mset.getLong("bytesIn"));
+        assertEquals("+OK\r\n".length(), mset.getLong("bytesOut"));
+        assertFalse(mset.getBoolean("failed"));
+
+        RecordedEvent get = events.get(1);
+        assertEquals("get", get.getString("command"));
+        assertEquals(1, get.getInt("keyCount"));
+        assertEquals("$2\r\n22\r\n".length(), get.getLong("bytesOut"));
+    }
+
+    @Test
+    @DisplayName("A publish should be recorded with the number of subscribers it reached")
+    void testPubSubFanout() throws IOException {
+        pubsub.subscribe(new Client(new BufferedWriter(new StringWriter())).subscriber, "news");
+        pubsub.psubscribe(new Client(new BufferedWriter(new StringWriter())).subscriber, "n*");
+
+        List<RecordedEvent> events = record("redis.PubSubFanout", () -> pubsub.publish("news", "hello"));
+
+        assertEquals(1, events.size());
+        assertEquals("news", events.get(0).getString("channel"));
+        assertEquals(2, events.get(0).getInt("receivers"));
+        assertFalse(events.get(0).getBoolean("sharded"));
+    }
+}
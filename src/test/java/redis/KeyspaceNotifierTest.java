@@ -0,0 +1,140 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import redis.commands.DelCommand;
+import redis.commands.HSetCommand;
+import redis.commands.SetCommand;
+import redis.core.Database;
+import redis.core.KeyspaceNotifier;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.pubsub.Subscriber;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class KeyspaceNotifierTest {
+
+    @Nested
+    @DisplayName("Flags")
+    class Flags {
+
+        @Test
+        @DisplayName("'A' should expand to every event class and format back as 'A'")
+        void testAllAlias() {
+            int flags = KeyspaceNotifier.parseFlags("KEA");
+            assertEquals(KeyspaceNotifier.NOTIFY_ALL,
+                    flags & KeyspaceNotifier.NOTIFY_ALL);
+            assertEquals("AKE", KeyspaceNotifier.flagsToString(flags));
+        }
+
+        @Test
+        @DisplayName("should round-trip individual classes")
+        void testRoundTrip() {
+            assertEquals("g$xK", KeyspaceNotifier.flagsToString(KeyspaceNotifier.parseFlags("Kg$x")));
+            assertEquals("", KeyspaceNotifier.flagsToString(KeyspaceNotifier.parseFlags("")));
+        }
+
+        @Test
+        @DisplayName("should reject unknown characters")
+        void testInvalid() {
+            assertThrows(IllegalArgumentException.class, () -> KeyspaceNotifier.parseFlags("KQ"));
+        }
+
+        @Test
+        @DisplayName("should need K or E in addition to an event class")
+        void testIsEnabled() {
+            PubSubManager pubsub = new PubSubManager();
+            assertFalse(new KeyspaceNotifier(pubsub, "g").isEnabled(KeyspaceNotifier.NOTIFY_GENERIC));
+            assertFalse(new KeyspaceNotifier(pubsub, "K$").isEnabled(KeyspaceNotifier.NOTIFY_GENERIC));
+            assertTrue(new KeyspaceNotifier(pubsub, "Kg").isEnabled(KeyspaceNotifier.NOTIFY_GENERIC));
+        }
+    }
+
+    @Nested
+    @DisplayName("Events")
+    class Events {
+        PubSubManager pubsub;
+        FakeClock clock;
+        Database db;
+        StringWriter received;
+        Subscriber subscriber;
+
+        @BeforeEach
+        void beforeEach() {
+            pubsub = new PubSubManager();
+            clock = new FakeClock(0);
+            db = new Database(clock);
+            received = new StringWriter();
+            subscriber = new Subscriber(new BufferedWriter(received));
+            pubsub.psubscribe(subscriber, "__key*__:*");
+        }
+
+        @AfterEach
+        void afterEach() {
+            db.shutdown();
+        }
+
+        private void execute(redis.commands.Command cmd, String... args) throws IOException {
+            List<Value> values = new ArrayList<>();
+            for (String arg : args) {
+                values.add(new Value("bulk", arg));
+            }
+            cmd.execute(db, new RespWriter(), new BufferedWriter(new StringWriter()), values);
+        }
+
+        @Test
+        @DisplayName("should publish keyspace and keyevent messages for SET")
+        void testSetEvent() throws IOException {
+            db.setKeyspaceNotifier(new KeyspaceNotifier(pubsub, "KEA"));
+            execute(new SetCommand(), "SET", "foo", "bar");
+
+            String out = received.toString();
+            assertTrue(out.contains("__keyspace@0__:foo\r\n$3\r\nset\r\n"));
+            assertTrue(out.contains("__keyevent@0__:set\r\n$3\r\nfoo\r\n"));
+        }
+
+        @Test
+        @DisplayName("should only publish the enabled channel kind and classes")
+        void testFiltering() throws IOException {
+            db.setKeyspaceNotifier(new KeyspaceNotifier(pubsub, "Eg"));
+            execute(new SetCommand(), "SET", "foo", "bar");
+            execute(new HSetCommand(), "HSET", "h", "f", "v");
+            assertEquals("", received.toString());
+
+            execute(new DelCommand(), "DEL", "foo", "missing");
+            String out = received.toString();
+            assertTrue(out.contains("__keyevent@0__:del\r\n$3\r\nfoo\r\n"));
+            assertFalse(out.contains("missing"));
+            assertFalse(out.contains("__keyspace@0__"));
+        }
+
+        @Test
+        @DisplayName("should publish 'expired' when a key is found expired")
+        void testExpiredEvent() throws IOException {
+            db.setKeyspaceNotifier(new KeyspaceNotifier(pubsub, "Ex"));
+            execute(new SetCommand(), "SET", "foo", "bar", "PX", "100");
+            assertEquals("", received.toString());
+
+            clock.advanceMillis(200);
+            assertNull(db.get("foo"));
+            assertTrue(received.toString().contains("__keyevent@0__:expired\r\n$3\r\nfoo\r\n"));
+        }
+
+        @Test
+        @DisplayName("should publish nothing without a notifier")
+        void testDisabled() throws IOException {
+            execute(new SetCommand(), "SET", "foo", "bar");
+            execute(new DelCommand(), "DEL", "foo");
+            assertEquals("", received.toString());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.mocks.CommandRunner;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.server.MetricsServer;
+
+public class MetricsServerTest {
+
+    Database db;
+    PubSubManager pubsub;
+    CommandProcessor processor;
+    MetricsServer metrics;
+    HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        db = new Database(new FakeClock(0));
+        pubsub = new PubSubManager();
+        processor = new CommandProcessor(pubsub);
+        metrics = new MetricsServer(0, processor, db);
+    }
+
+    @AfterEach
+    void afterEach() {
+        metrics.close();
+        db.shutdown();
+    }
+
+    private void execute(String... args) throws IOException {
+        CommandRunner.execute(processor, db, args);
+    }
+
+    private HttpResponse<String> request(String method) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + metrics.port() + "/metrics"))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("GET /metrics should serve the counters in Prometheus text format")
+    void testScrape() throws Exception {
+        execute("SET", "a", "1");
+        execute("GET", "a");
+        execute("GET", "missing");
+        execute("INCR");
+        pubsub.subscribe(new Client(new BufferedWriter(new StringWriter())).subscriber, "news");
+        pubsub.subscribe(new Client(new BufferedWriter(new StringWriter())).subscriber, "news");
+        execute("PUBLISH", "news", "hello");
+
+        HttpResponse<String> response = request("GET");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        String page = response.body();
+        assertTrue(page.contains("# TYPE redis_commands_total counter\n"), page);
+        assertTrue(page.contains("redis_commands_total{cmd=\"get\"} 2\n"), page);
+        assertTrue(page.contains("redis_commands_rejected_total{cmd=\"incr\"} 1\n"), page);
+        assertTrue(page.contains("# TYPE redis_command_duration_seconds histogram\n"), page);
+        assertTrue(page.contains("redis_command_duration_seconds_bucket{cmd=\"get\",le=\"+Inf\"} 2\n"), page);
+        assertTrue(page.contains("redis_command_duration_seconds_bucket{cmd=\"get\",le=\"0.00025\"} "), page);
+        assertTrue(page.contains("redis_command_duration_seconds_count{cmd=\"get\"} 2\n"), page);
+        assertTrue(page.contains("redis_db_keys 1\n"), page);
+        assertTrue(page.contains("redis_keyspace_hits_total 1\n"), page);
+        assertTrue(page.contains("redis_keyspace_misses_total 1\n"), page);
+        assertTrue(page.contains("redis_aof_enabled 0\n"), page);
+        assertTrue(page.contains("redis_pubsub_channels 1\n"), page);
+        assertTrue(page.contains("redis_pubsub_messages_published_total 1\n"), page);
+        assertTrue(page.contains("redis_pubsub_messages_queued_total 2\n"), page);
+    }
+
+    @Test
+    @DisplayName("/metrics should answer HEAD and refuse other methods")
+    void testMethods() throws Exception {
+        assertEquals(200, request("HEAD").statusCode());
+        assertEquals(405, request("POST").statusCode());
+    }
+}
@@ -0,0 +1,206 @@
+package redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.mocks.FakeClock;
+import redis.persistence.AofManager;
+import redis.persistence.AofManager.FsyncPolicy;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class TransactionTest {
+
+    Database db;
+    CommandProcessor processor;
+    StringWriter output;
+    Client client;
+    StringWriter otherOutput;
+    Client other;
+
+    @BeforeEach
+    void beforeEach() {
+        db = new Database(new FakeClock(0));
+        processor = new CommandProcessor(new PubSubManager());
+        output = new StringWriter();
+        client = new Client(new BufferedWriter(output));
+        otherOutput = new StringWriter();
+        other = new Client(new BufferedWriter(otherOutput));
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(Client c, String... args) throws IOException {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        StringWriter sink = c == client ? output : otherOutput;
+        int start = sink.getBuffer().length();
+        processor.executeCommand(args[0], c, db, new RespWriter(), values);
+        c.out.flush();
+        return sink.toString().substring(start);
+    }
+
+    @Test
+    @DisplayName("should queue commands and run them at EXEC")
+    void testMultiExec() throws IOException {
+        assertEquals("+OK\r\n", execute(client, "MULTI"));
+        assertEquals("+QUEUED\r\n", execute(client, "SET", "a", "1"));
+        assertEquals("+QUEUED\r\n", execute(client, "incr", "a"));
+        assertEquals("+QUEUED\r\n", execute(client, "GET", "a"));
+        assertNull(db.get("a"));
+
+        assertEquals("*3\r\n+OK\r\n:2\r\n$1\r\n2\r\n", execute(client, "EXEC"));
+        assertFalse(client.inTransaction());
+        assertEquals("$1\r\n2\r\n", execute(client, "GET", "a"));
+    }
+
+    @Test
+    @DisplayName("should report command errors inside the EXEC reply and run the others")
+    void testRuntimeErrorDoesNotAbort() throws IOException {
+        execute(client, "SET", "s", "text");
+        execute(client, "MULTI");
+        execute(client, "INCR", "s");
+        execute(client, "SET", "b", "1");
+        String reply = execute(client, "EXEC");
+        assertTrue(reply.startsWith("*2\r\n-ERR"));
+        assertTrue(reply.endsWith("+OK\r\n"));
+        assertEquals("1", db.get("b"));
+    }
+
+    @Test
+    @DisplayName("should abort EXEC after a request was rejected while queueing")
+    void testQueueErrorAborts() throws IOException {
+        execute(client, "MULTI");
+        execute(client, "SET", "a", "1");
+        assertTrue(execute(client, "GET").startsWith("-ERR wrong number"));
+        assertTrue(execute(client, "NOPE").startsWith("-ERR unknown command"));
+        assertEquals("-EXECABORT Transaction discarded because of previous errors.\r\n", execute(client, "EXEC"));
+        assertNull(db.get("a"));
+    }
+
+    @Test
+    @DisplayName("DISCARD should drop the queue; EXEC and DISCARD need MULTI")
+    void testDiscard() throws IOException {
+        assertEquals("-ERR EXEC without MULTI\r\n", execute(client, "EXEC"));
+        assertEquals("-ERR DISCARD without MULTI\r\n", execute(client, "DISCARD"));
+        execute(client, "MULTI");
+        assertEquals("-ERR MULTI calls can not be nested\r\n", execute(client, "MULTI"));
+        execute(client, "SET", "a", "1");
+        assertEquals("+OK\r\n", execute(client, "DISCARD"));
+        assertFalse(client.inTransaction());
+        assertNull(db.get("a"));
+    }
+
+    @Test
+    @DisplayName("EXEC should fail when a watched key changed")
+    void testWatchConflict() throws IOException {
+        execute(client, "SET", "counter", "1");
+        assertEquals("+OK\r\n", execute(client, "WATCH", "counter"));
+        execute(other, "INCR", "counter");
+
+        execute(client, "MULTI");
+        execute(client, "SET", "counter", "10");
+        assertEquals("*-1\r\n", execute(client, "EXEC"));
+        assertEquals("2", db.get("counter"));
+        assertEquals(-1, db.keyVersion("counter"));
+    }
+
+    @Test
+    @DisplayName("EXEC should fail when a watched stream's pending entries changed")
+    void testWatchStreamGroupState() throws IOException {
+        execute(client, "XADD", "s", "1-1", "f", "v");
+        execute(client, "XGROUP", "CREATE", "s", "g", "0");
+
+        String[][] changes = {
+                { "XREADGROUP", "GROUP", "g", "c1", "STREAMS", "s", ">" },
+                { "XCLAIM", "s", "g", "c2", "0", "1-1" },
+                { "XACK", "s", "g", "1-1" },
+        };
+        for (String[] change : changes) {
+            execute(client, "WATCH", "s");
+            execute(other, change);
+            execute(client, "MULTI");
+            execute(client, "PING");
+            assertEquals("*-1\r\n", execute(client, "EXEC"), change[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("EXEC should succeed when watched keys are unchanged, and then unwatch them")
+    void testWatchNoConflict() throws IOException {
+        execute(client, "WATCH", "counter", "missing");
+        execute(other, "SET", "unrelated", "x");
+        execute(client, "MULTI");
+        assertEquals("-ERR WATCH inside MULTI is not allowed\r\n", execute(client, "WATCH", "x"));
+        execute(client, "SET", "counter", "1");
+        assertEquals("*1\r\n+OK\r\n", execute(client, "EXEC"));
+        assertEquals(-1, db.keyVersion("counter"));
+
+        // No longer watched: a later change does not affect the next EXEC
+        execute(other, "SET", "counter", "5");
+        execute(client, "MULTI");
+        execute(client, "GET", "counter");
+        assertEquals("*1\r\n$1\r\n5\r\n", execute(client, "EXEC"));
+    }
+
+    @Test
+    @DisplayName("UNWATCH, expiry and FLUSHALL should be taken into account")
+    void testUnwatchAndFlush() throws IOException {
+        execute(client, "WATCH", "a");
+        execute(other, "SET", "a", "1");
+        assertEquals("+OK\r\n", execute(client, "UNWATCH"));
+        execute(client, "MULTI");
+        execute(client, "GET", "a");
+        assertEquals("*1\r\n$1\r\n1\r\n", execute(client, "EXEC"));
+
+        execute(client, "WATCH", "a");
+        execute(other, "FLUSHALL");
+        execute(client, "MULTI");
+        execute(client, "SET", "a", "2");
+        assertEquals("*-1\r\n", execute(client, "EXEC"));
+    }
+
+    @Test
+    @DisplayName("should log the writes of a transaction to the AOF between MULTI and EXEC")
+    void testAofLogging(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("appendonly.aof");
+        try (AofManager aof = new AofManager(file, new RespWriter(), FsyncPolicy.NO)) {
+            processor = new CommandProcessor(new PubSubManager(), aof);
+            execute(client, "MULTI");
+            execute(client, "SET", "a", "1");
+            execute(client, "GET", "a");
+            execute(client, "EXPIRE", "a", "100");
+            execute(client, "EXEC");
+
+            // Read-only transactions leave nothing in the file
+            execute(client, "MULTI");
+            execute(client, "GET", "a");
+            execute(client, "EXEC");
+        }
+
+        String content = Files.readString(file);
+        assertTrue(content.startsWith("*1\r\n$5\r\nMULTI\r\n*3\r\n$3\r\nSET\r\n"));
+        assertTrue(content.contains("PEXPIREAT"));
+        assertFalse(content.contains("GET"));
+        assertTrue(content.endsWith("*1\r\n$4\r\nEXEC\r\n"));
+    }
+}
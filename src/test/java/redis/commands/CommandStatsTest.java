@@ -0,0 +1,95 @@
+package redis.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.CommandProcessor;
+import redis.core.CommandStats;
+import redis.core.Database;
+import redis.mocks.CommandRunner;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.resp.NullRespWriter;
+import redis.resp.Value;
+
+public class CommandStatsTest {
+
+    CommandProcessor processor;
+    Database db;
+
+    @BeforeEach
+    void beforeEach() {
+        processor = new CommandProcessor(new PubSubManager());
+        db = new Database(new FakeClock(0));
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        return CommandRunner.execute(processor, db, args);
+    }
+
+    private CommandStats stats(String name) {
+        return processor.commands().lookup(name).stats;
+    }
+
+    @Test
+    @DisplayName("should count calls, rejected and failed calls per command")
+    void testCounters() throws IOException {
+        execute("SET", "a", "1");
+        execute("SET", "s", "text");
+        execute("INCR", "a");
+        execute("INCR", "s"); // fails: not an integer
+        execute("INCR"); // rejected: wrong arity
+        execute("NOPE");
+
+        assertEquals(2, stats("set").calls());
+        assertEquals(2, stats("incr").calls());
+        assertEquals(1, stats("incr").failedCalls());
+        assertEquals(1, stats("incr").rejectedCalls());
+        assertEquals(0, stats("get").calls());
+        assertEquals(2, stats("incr").latency().count());
+    }
+
+    @Test
+    @DisplayName("should not count commands replayed from the AOF")
+    void testReplayNotCounted() throws IOException {
+        List<Value> args = List.of(new Value("bulk", "SET"), new Value("bulk", "k"), new Value("bulk", "v"));
+        processor.executeCommand("SET", db, new NullRespWriter(), new BufferedWriter(new StringWriter()), args,
+                true);
+        assertEquals("v", db.get("k"));
+        assertEquals(0, stats("set").calls());
+    }
+
+    @Test
+    @DisplayName("INFO commandstats and latencystats should list the commands called")
+    void testInfo() throws IOException {
+        execute("SET", "a", "1");
+        execute("GET", "a");
+        execute("GET");
+
+        String commandstats = execute("INFO", "commandstats");
+        assertTrue(commandstats.contains("# Commandstats\r\n"), commandstats);
+        assertTrue(commandstats.matches("(?s).*cmdstat_set:calls=1,usec=\\d+,usec_per_call=\\d+\\.\\d\\d,"
+                + "rejected_calls=0,failed_calls=0\r\n.*"), commandstats);
+        assertTrue(commandstats.contains(",rejected_calls=1,failed_calls=0\r\n"), commandstats);
+        assertFalse(commandstats.contains("cmdstat_del"));
+        assertFalse(commandstats.contains("Latencystats"));
+
+        String latencystats = execute("INFO", "LATENCYSTATS");
+        assertTrue(latencystats.matches("(?s).*latency_percentiles_usec_get:p50=\\d+\\.\\d{3},"
+                + "p99=\\d+\\.\\d{3},p99\\.9=\\d+\\.\\d{3}\r\n.*"), latencystats);
+
+        String all = execute("INFO", "all");
+        assertTrue(all.contains("# Commandstats") && all.contains("# Latencystats"));
+    }
+}
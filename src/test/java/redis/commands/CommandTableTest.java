@@ -0,0 +1,81 @@
+package redis.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static redis.mocks.CommandRunner.args;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.CommandProcessor;
+import redis.core.CommandTable;
+import redis.core.Database;
+import redis.mocks.CommandRunner;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+
+public class CommandTableTest {
+
+    CommandProcessor processor;
+    Database db;
+
+    @BeforeEach
+    void beforeEach() {
+        processor = new CommandProcessor(new PubSubManager());
+        db = new Database(new FakeClock(0));
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        return CommandRunner.execute(processor, db, args);
+    }
+
+    @Test
+    @DisplayName("should find commands in any case")
+    void testLookupIgnoresCase() {
+        CommandTable table = processor.commands();
+        assertEquals("get", table.lookup("GET").name);
+        assertEquals("get", table.lookup("get").name);
+        assertEquals("hgetall", table.lookup("hGeTaLl").name);
+        assertNull(table.lookup("GETX"));
+        assertNull(table.lookup(""));
+    }
+
+    @Test
+    @DisplayName("should dispatch mixed-case names and check arity before running the command")
+    void testDispatch() throws IOException {
+        assertEquals("+OK\r\n", execute("set", "k", "v"));
+        assertEquals("$1\r\nv\r\n", execute("Get", "k"));
+        assertEquals("-ERR wrong number of arguments for 'get' command\r\n", execute("GET", "k", "extra"));
+        assertEquals("-ERR wrong number of arguments for 'mset' command\r\n", execute("MSET", "k"));
+        assertEquals("-ERR unknown command 'nope'\r\n", execute("nope"));
+    }
+
+    @Test
+    @DisplayName("should take key positions and the write flag from the metadata")
+    void testKeys() {
+        CommandTable table = processor.commands();
+        assertEquals(List.of("a", "b"), table.lookup("MSET").keys(args("MSET", "a", "1", "b", "2")));
+        assertEquals(List.of("a", "b"), table.lookup("MGET").keys(args("MGET", "a", "b")));
+        assertEquals(List.of(), table.lookup("XREAD").keys(args("XREAD", "STREAMS", "s", "0")));
+        assertTrue(table.lookup("SET").is(CommandTable.WRITE));
+        assertFalse(table.lookup("GET").is(CommandTable.WRITE));
+        assertEquals(List.of("readonly", "fast"), table.lookup("GET").flagNames());
+    }
+
+    @Test
+    @DisplayName("COMMAND COUNT and COMMAND INFO should report the table")
+    void testCommandInfo() throws IOException {
+        int count = processor.commands().size();
+        assertEquals(":" + count + "\r\n", execute("COMMAND", "COUNT"));
+        assertEquals("*2\r\n"
+                + "*6\r\n$3\r\nget\r\n:2\r\n*2\r\n+readonly\r\n+fast\r\n:1\r\n:1\r\n:1\r\n"
+                + "*-1\r\n", execute("COMMAND", "INFO", "get", "nope"));
+        assertTrue(execute("COMMAND").startsWith("*" + count + "\r\n*6\r\n$4\r\nping\r\n"));
+    }
+}
@@ -0,0 +1,110 @@
+package redis.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.mocks.CommandRunner;
+import redis.mocks.FakeClock;
+import redis.persistence.AofManager;
+import redis.persistence.AofManager.FsyncPolicy;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+
+public class InfoTest {
+
+    FakeClock clock;
+    Database db;
+    PubSubManager pubsub;
+    CommandProcessor processor;
+
+    @BeforeEach
+    void beforeEach() {
+        clock = new FakeClock(0);
+        db = new Database(clock);
+        pubsub = new PubSubManager();
+        processor = new CommandProcessor(pubsub);
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        return CommandRunner.execute(processor, db, args);
+    }
+
+    @Test
+    @DisplayName("INFO should list the default sections, and only the ones asked for")
+    void testSections() throws IOException {
+        String info = execute("INFO");
+        for (String section : List.of("Server", "Clients", "Memory", "Persistence", "Stats", "Keyspace")) {
+            assertTrue(info.contains("# " + section + "\r\n"), section);
+        }
+        assertFalse(info.contains("# Commandstats"));
+        assertTrue(info.contains("\r\nredis_mode:standalone\r\n"));
+        assertTrue(info.contains("\r\naof_enabled:0\r\n"));
+
+        String stats = execute("INFO", "STATS");
+        assertTrue(stats.contains("# Stats\r\n"));
+        assertFalse(stats.contains("# Server"));
+        assertTrue(execute("INFO", "everything").contains("# Latencystats"));
+        assertEquals("$0\r\n\r\n", execute("INFO", "nosuchsection"));
+    }
+
+    @Test
+    @DisplayName("INFO stats and keyspace should count hits, misses, expired keys and subscriptions")
+    void testStats() throws IOException {
+        execute("SET", "a", "1");
+        execute("HSET", "h", "f", "v");
+        execute("SET", "gone", "x");
+        execute("EXPIRE", "gone", "1");
+        execute("GET", "a");
+        execute("MGET", "a", "missing");
+        execute("HGET", "h", "f");
+
+        String keyspace = execute("INFO", "keyspace");
+        assertTrue(keyspace.contains("db0:keys=3,expires=1\r\n"), keyspace);
+
+        clock.advanceSeconds(2);
+        execute("GET", "gone");
+        pubsub.subscribe(new Client(new BufferedWriter(new StringWriter())).subscriber, "news");
+        processor.clients().register(new Client(new BufferedWriter(new StringWriter())));
+
+        String stats = execute("INFO", "stats", "clients");
+        assertTrue(stats.contains("keyspace_hits:3\r\n"), stats);
+        assertTrue(stats.contains("keyspace_misses:2\r\n"), stats);
+        assertTrue(stats.contains("expired_keys:1\r\n"), stats);
+        assertTrue(stats.contains("pubsub_channels:1\r\n"), stats);
+        assertTrue(stats.contains("total_connections_received:1\r\n"), stats);
+        assertTrue(stats.contains("connected_clients:1\r\n"), stats);
+        assertTrue(stats.contains("total_commands_processed:9\r\n"), stats);
+        assertTrue(execute("INFO", "keyspace").contains("db0:keys=2,expires=0\r\n"));
+    }
+
+    @Test
+    @DisplayName("INFO persistence should report the AOF")
+    void testPersistence(@TempDir Path dir) throws IOException {
+        try (AofManager aof = new AofManager(dir.resolve("appendonly.aof"), new RespWriter(), FsyncPolicy.ALWAYS)) {
+            processor = new CommandProcessor(pubsub, aof);
+            execute("SET", "k", "v");
+            String info = execute("INFO", "persistence");
+            assertTrue(info.contains("aof_enabled:1\r\n"));
+            assertTrue(info.contains("aof_rewrite_in_progress:0\r\n"));
+            assertTrue(info.contains("aof_current_size:" + "*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$1\r\nv\r\n".length()
+                    + "\r\n"), info);
+            assertFalse(info.contains("aof_last_fsync_time:0\r\n"), info);
+        }
+    }
+}
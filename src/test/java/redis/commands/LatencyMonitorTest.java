@@ -0,0 +1,122 @@
+package redis.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.LatencyMonitor;
+import redis.mocks.CommandRunner;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+
+public class LatencyMonitorTest {
+
+    private static final long MS = 1_000_000;
+
+    FakeClock clock;
+    LatencyMonitor monitor;
+    CommandProcessor processor;
+    Database db;
+
+    @BeforeEach
+    void beforeEach() {
+        clock = new FakeClock(1_000_000);
+        monitor = new LatencyMonitor(10, clock);
+        processor = new CommandProcessor(new PubSubManager());
+        processor.setLatencyMonitor(monitor);
+        db = new Database(clock);
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        return CommandRunner.execute(processor, db, args);
+    }
+
+    @Test
+    @DisplayName("should keep the worst spike per second, over the threshold only")
+    void testRecording() {
+        monitor.record(LatencyMonitor.AOF_FSYNC, 9 * MS);
+        assertNull(monitor.series(LatencyMonitor.AOF_FSYNC));
+
+        monitor.record(LatencyMonitor.AOF_FSYNC, 12 * MS);
+        monitor.record(LatencyMonitor.AOF_FSYNC, 30 * MS);
+        monitor.record(LatencyMonitor.AOF_FSYNC, 20 * MS);
+        clock.advanceSeconds(1);
+        monitor.record(LatencyMonitor.AOF_FSYNC, 15 * MS);
+
+        LatencyMonitor.Series series = monitor.series(LatencyMonitor.AOF_FSYNC);
+        List<LatencyMonitor.Sample> history = series.history();
+        assertEquals(2, history.size());
+        assertEquals(1000, history.get(0).timeSeconds);
+        assertEquals(30, history.get(0).latencyMillis);
+        assertEquals(15, series.latest().latencyMillis);
+        assertEquals(30, series.maxMillis());
+
+        assertFalse(new LatencyMonitor().isEnabled());
+    }
+
+    @Test
+    @DisplayName("should keep a bounded history per event")
+    void testBoundedHistory() {
+        for (int i = 0; i < 200; i++) {
+            monitor.record(LatencyMonitor.EXPIRE_CYCLE, (10 + i) * MS);
+            clock.advanceSeconds(1);
+        }
+        List<LatencyMonitor.Sample> history = monitor.series(LatencyMonitor.EXPIRE_CYCLE).history();
+        assertEquals(160, history.size());
+        assertEquals(50, history.get(0).latencyMillis);
+        assertEquals(209, history.get(159).latencyMillis);
+    }
+
+    @Test
+    @DisplayName("LATENCY LATEST, HISTORY and RESET")
+    void testCommands() throws IOException {
+        monitor.record(LatencyMonitor.AOF_WRITE, 25 * MS);
+        monitor.record(LatencyMonitor.EXPIRE_CYCLE, 11 * MS);
+
+        assertEquals("*2\r\n"
+                + "*4\r\n$9\r\naof-write\r\n:1000\r\n:25\r\n:25\r\n"
+                + "*4\r\n$12\r\nexpire-cycle\r\n:1000\r\n:11\r\n:11\r\n", execute("LATENCY", "LATEST"));
+        assertEquals("*1\r\n*2\r\n:1000\r\n:25\r\n", execute("LATENCY", "HISTORY", "aof-write"));
+        assertEquals("*0\r\n", execute("LATENCY", "HISTORY", "nope"));
+        assertEquals(":1\r\n", execute("LATENCY", "RESET", "aof-write", "nope"));
+        assertEquals(":1\r\n", execute("LATENCY", "RESET"));
+        assertEquals("*0\r\n", execute("LATENCY", "LATEST"));
+    }
+
+    @Test
+    @DisplayName("slow commands should be recorded as command events")
+    void testCommandEvent() throws IOException {
+        execute("XREAD", "BLOCK", "30", "STREAMS", "s", "$");
+        LatencyMonitor.Series series = monitor.series(LatencyMonitor.COMMAND);
+        assertNotNull(series);
+        assertTrue(series.maxMillis() >= 10);
+        assertNull(monitor.series(LatencyMonitor.FAST_COMMAND));
+    }
+
+    @Test
+    @DisplayName("LATENCY DOCTOR should summarize the spikes")
+    void testDoctor() throws IOException {
+        assertTrue(execute("LATENCY", "DOCTOR").contains("No latency spike over 10 ms"));
+        monitor.record(LatencyMonitor.AOF_FSYNC_ALWAYS, 40 * MS);
+        clock.advanceSeconds(4);
+        monitor.record(LatencyMonitor.AOF_FSYNC_ALWAYS, 20 * MS);
+
+        String report = execute("LATENCY", "DOCTOR");
+        assertTrue(report.contains("1. aof-fsync-always: 2 latency spikes (average 30 ms, mean deviation 10 ms,"
+                + " period 4 sec). Worst all time event 40 ms."), report);
+        assertTrue(report.contains("REDIS_AOF_FSYNC=EVERYSEC"), report);
+
+        processor.setLatencyMonitor(new LatencyMonitor());
+        assertTrue(execute("LATENCY", "DOCTOR").contains("disabled"));
+    }
+}
@@ -10,8 +10,10 @@ import java.util.List;
 
 import org.junit.jupiter.api.*;
 
+import redis.core.Client;
 import redis.core.Database;
 import redis.pubsub.PubSubManager;
+import redis.pubsub.Subscriber;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 
@@ -22,6 +24,7 @@ public class PubSubCommandsTest {
     RespWriter writer;
     StringWriter output;
     BufferedWriter out;
+    Client client;
 
     @BeforeEach
     void beforeEach() {
@@ -30,6 +33,7 @@ public class PubSubCommandsTest {
         writer = new RespWriter();
         output = new StringWriter();
         out = new BufferedWriter(output);
+        client = new Client(out);
     }
 
     private List<Value> makeArgs(String... args) {
@@ -49,20 +53,20 @@ public class PubSubCommandsTest {
         @DisplayName("should subscribe to a single channel")
         void testSubscribeSingleChannel() throws IOException {
             SubscribeCommand cmd = new SubscribeCommand(pubsub);
-            cmd.execute(db, writer, out, makeArgs("SUBSCRIBE", "news"));
+            cmd.execute(client, db, writer, makeArgs("SUBSCRIBE", "news"));
             out.flush();
 
             String result = output.toString();
             assertTrue(result.contains("subscribe"));
             assertTrue(result.contains("news"));
-            assertTrue(pubsub.isSubscribed(out));
+            assertTrue(client.isSubscribed());
         }
 
         @Test
         @DisplayName("should subscribe to multiple channels")
         void testSubscribeMultipleChannels() throws IOException {
             SubscribeCommand cmd = new SubscribeCommand(pubsub);
-            cmd.execute(db, writer, out, makeArgs("SUBSCRIBE", "news", "sports", "weather"));
+            cmd.execute(client, db, writer, makeArgs("SUBSCRIBE", "news", "sports", "weather"));
             out.flush();
 
             String result = output.toString();
@@ -70,19 +74,19 @@ public class PubSubCommandsTest {
             assertTrue(result.contains("news"));
             assertTrue(result.contains("sports"));
             assertTrue(result.contains("weather"));
-            assertTrue(pubsub.isSubscribed(out));
+            assertTrue(client.isSubscribed());
         }
 
         @Test
         @DisplayName("should return error for missing channel argument")
         void testSubscribeMissingChannel() throws IOException {
             SubscribeCommand cmd = new SubscribeCommand(pubsub);
-            cmd.execute(db, writer, out, makeArgs("SUBSCRIBE"));
+            cmd.execute(client, db, writer, makeArgs("SUBSCRIBE"));
             out.flush();
 
             String result = output.toString();
             assertTrue(result.contains("ERR") || result.toLowerCase().contains("wrong number"));
-            assertFalse(pubsub.isSubscribed(out));
+            assertFalse(client.isSubscribed());
         }
     }
 
@@ -94,53 +98,88 @@ public class PubSubCommandsTest {
         @DisplayName("should unsubscribe from a specific channel")
         void testUnsubscribeSingleChannel() throws IOException {
             // First subscribe
-            pubsub.subscribe(out, "news");
-            pubsub.subscribe(out, "sports");
-            assertTrue(pubsub.isSubscribed(out));
+            pubsub.subscribe(client.subscriber, "news");
+            pubsub.subscribe(client.subscriber, "sports");
+            assertTrue(client.isSubscribed());
 
             // Then unsubscribe from one
             UnsubscribeCommand cmd = new UnsubscribeCommand(pubsub);
-            cmd.execute(db, writer, out, makeArgs("UNSUBSCRIBE", "news"));
+            cmd.execute(client, db, writer, makeArgs("UNSUBSCRIBE", "news"));
             out.flush();
 
             String result = output.toString();
             assertTrue(result.contains("unsubscribe"));
             assertTrue(result.contains("news"));
             // Still subscribed to sports
-            assertTrue(pubsub.isSubscribed(out));
+            assertTrue(client.isSubscribed());
         }
 
         @Test
         @DisplayName("should unsubscribe from multiple channels")
         void testUnsubscribeMultipleChannels() throws IOException {
-            pubsub.subscribe(out, "news");
-            pubsub.subscribe(out, "sports");
-            pubsub.subscribe(out, "weather");
+            pubsub.subscribe(client.subscriber, "news");
+            pubsub.subscribe(client.subscriber, "sports");
+            pubsub.subscribe(client.subscriber, "weather");
 
             UnsubscribeCommand cmd = new UnsubscribeCommand(pubsub);
-            cmd.execute(db, writer, out, makeArgs("UNSUBSCRIBE", "news", "sports"));
+            cmd.execute(client, db, writer, makeArgs("UNSUBSCRIBE", "news", "sports"));
             out.flush();
 
             String result = output.toString();
             assertTrue(result.contains("unsubscribe"));
             // Still subscribed to weather
-            assertTrue(pubsub.isSubscribed(out));
+            assertTrue(client.isSubscribed());
         }
 
         @Test
         @DisplayName("should unsubscribe from all channels when no channels specified")
         void testUnsubscribeAll() throws IOException {
-            pubsub.subscribe(out, "news");
-            pubsub.subscribe(out, "sports");
-            assertTrue(pubsub.isSubscribed(out));
+            pubsub.subscribe(client.subscriber, "news");
+            pubsub.subscribe(client.subscriber, "sports");
+            assertTrue(client.isSubscribed());
 
             UnsubscribeCommand cmd = new UnsubscribeCommand(pubsub);
-            cmd.execute(db, writer, out, makeArgs("UNSUBSCRIBE"));
+            cmd.execute(client, db, writer, makeArgs("UNSUBSCRIBE"));
             out.flush();
 
             String result = output.toString();
             assertTrue(result.contains("unsubscribe"));
-            assertFalse(pubsub.isSubscribed(out));
+            assertFalse(client.isSubscribed());
+        }
+    }
+
+    @Nested
+    @DisplayName("PSubscribeCommand")
+    class PSubscribeCommandTest {
+
+        @Test
+        @DisplayName("should subscribe to patterns and confirm each one")
+        void testPsubscribe() throws IOException {
+            new PSubscribeCommand(pubsub).execute(client, db, writer, makeArgs("PSUBSCRIBE", "news.*", "sports.*"));
+            out.flush();
+
+            String result = output.toString();
+            assertTrue(result.contains("psubscribe"));
+            assertTrue(result.contains("news.*"));
+            assertTrue(result.endsWith(":2\r\n"));
+            assertTrue(client.isSubscribed());
+        }
+
+        @Test
+        @DisplayName("PUNSUBSCRIBE without arguments should leave channel subscriptions")
+        void testPunsubscribeAll() throws IOException {
+            pubsub.subscribe(client.subscriber, "news");
+            pubsub.psubscribe(client.subscriber, "a*");
+            pubsub.psubscribe(client.subscriber, "b*");
+
+            new PUnsubscribeCommand(pubsub).execute(client, db, writer, makeArgs("PUNSUBSCRIBE"));
+            out.flush();
+
+            String result = output.toString();
+            assertTrue(result.contains("punsubscribe"));
+            assertTrue(result.endsWith(":1\r\n"));
+            assertTrue(client.isSubscribed());
+            assertEquals(0, pubsub.patternCount());
         }
     }
 
@@ -153,7 +192,7 @@ public class PubSubCommandsTest {
         void testPublishToSubscribers() throws IOException {
             // Create a subscriber
             StringWriter subOutput = new StringWriter();
-            BufferedWriter subscriber = new BufferedWriter(subOutput);
+            Subscriber subscriber = new Subscriber(new BufferedWriter(subOutput));
             pubsub.subscribe(subscriber, "news");
 
             // Publish message
@@ -203,9 +242,9 @@ public class PubSubCommandsTest {
         @DisplayName("should deliver message to multiple subscribers")
         void testPublishMultipleSubscribers() throws IOException {
             // Create multiple subscribers
-            BufferedWriter sub1 = new BufferedWriter(new StringWriter());
-            BufferedWriter sub2 = new BufferedWriter(new StringWriter());
-            BufferedWriter sub3 = new BufferedWriter(new StringWriter());
+            Subscriber sub1 = new Subscriber(new BufferedWriter(new StringWriter()));
+            Subscriber sub2 = new Subscriber(new BufferedWriter(new StringWriter()));
+            Subscriber sub3 = new Subscriber(new BufferedWriter(new StringWriter()));
             pubsub.subscribe(sub1, "news");
             pubsub.subscribe(sub2, "news");
             pubsub.subscribe(sub3, "news");
@@ -218,4 +257,59 @@ public class PubSubCommandsTest {
             assertTrue(result.contains(":3"));
         }
     }
+
+    @Nested
+    @DisplayName("PubSubCommand")
+    class PubSubCommandTest {
+
+        @Test
+        @DisplayName("CHANNELS should list matching channels")
+        void testChannels() throws IOException {
+            pubsub.subscribe(new Subscriber(new BufferedWriter(new StringWriter())), "news");
+            pubsub.subscribe(new Subscriber(new BufferedWriter(new StringWriter())), "sports");
+
+            new PubSubCommand(pubsub).execute(db, writer, out, makeArgs("PUBSUB", "CHANNELS", "n*"));
+            out.flush();
+            assertEquals("*1\r\n$4\r\nnews\r\n", output.toString());
+        }
+
+        @Test
+        @DisplayName("NUMSUB should reply with channel/count pairs")
+        void testNumsub() throws IOException {
+            pubsub.subscribe(new Subscriber(new BufferedWriter(new StringWriter())), "news");
+            pubsub.subscribe(new Subscriber(new BufferedWriter(new StringWriter())), "news");
+
+            new PubSubCommand(pubsub).execute(db, writer, out, makeArgs("PUBSUB", "numsub", "news", "none"));
+            out.flush();
+            assertEquals("*4\r\n$4\r\nnews\r\n:2\r\n$4\r\nnone\r\n:0\r\n", output.toString());
+        }
+
+        @Test
+        @DisplayName("NUMPAT should reply with the number of patterns")
+        void testNumpat() throws IOException {
+            pubsub.psubscribe(new Subscriber(new BufferedWriter(new StringWriter())), "a*");
+
+            new PubSubCommand(pubsub).execute(db, writer, out, makeArgs("PUBSUB", "NUMPAT"));
+            out.flush();
+            assertEquals(":1\r\n", output.toString());
+        }
+
+        @Test
+        @DisplayName("SHARDNUMSUB should count shard channel subscribers")
+        void testShardNumsub() throws IOException {
+            pubsub.ssubscribe(new Subscriber(new BufferedWriter(new StringWriter())), "orders");
+
+            new PubSubCommand(pubsub).execute(db, writer, out, makeArgs("PUBSUB", "SHARDNUMSUB", "orders"));
+            out.flush();
+            assertEquals("*2\r\n$6\r\norders\r\n:1\r\n", output.toString());
+        }
+
+        @Test
+        @DisplayName("should reject unknown subcommands")
+        void testUnknownSubcommand() throws IOException {
+            new PubSubCommand(pubsub).execute(db, writer, out, makeArgs("PUBSUB", "FOO"));
+            out.flush();
+            assertTrue(output.toString().startsWith("-ERR unknown subcommand 'FOO'"));
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package redis.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static redis.mocks.CommandRunner.args;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import redis.core.Client;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.SlowLog;
+import redis.mocks.CommandRunner;
+import redis.mocks.FakeClock;
+import redis.pubsub.PubSubManager;
+import redis.resp.RespWriter;
+
+public class SlowLogTest {
+
+    CommandProcessor processor;
+    Database db;
+
+    @BeforeEach
+    void beforeEach() {
+        processor = new CommandProcessor(new PubSubManager());
+        db = new Database(new FakeClock(1_700_000_000_000L));
+    }
+
+    @AfterEach
+    void afterEach() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        return CommandRunner.execute(processor, db, args);
+    }
+
+    @Test
+    @DisplayName("should log every command over the threshold with its client address")
+    void testLogsSlowCommands() throws IOException {
+        processor.setSlowLog(new SlowLog(0, 128));
+        StringWriter sink = new StringWriter();
+        Client client = new Client(new BufferedWriter(sink), "10.0.0.1:5000");
+        processor.executeCommand("SET", client, db, new RespWriter(), args("SET", "k", "v"));
+
+        List<SlowLog.Entry> entries = processor.slowLog().get(-1);
+        assertEquals(1, entries.size());
+        SlowLog.Entry e = entries.get(0);
+        assertEquals(0, e.id);
+        assertEquals(1_700_000_000L, e.timestampSeconds);
+        assertEquals(List.of("SET", "k", "v"), e.args);
+        assertEquals("10.0.0.1:5000", e.clientAddress);
+
+        // The SLOWLOG call itself is logged after it replied
+        String reply = execute("SLOWLOG", "GET", "1");
+        assertTrue(reply.startsWith("*1\r\n*6\r\n:0\r\n:1700000000\r\n:"), reply);
+        assertTrue(reply.endsWith("*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$1\r\nv\r\n"
+                + "$13\r\n10.0.0.1:5000\r\n$0\r\n\r\n"), reply);
+    }
+
+    @Test
+    @DisplayName("should keep only the newest entries and skip fast commands")
+    void testBoundedAndThreshold() throws IOException {
+        processor.setSlowLog(new SlowLog(0, 3));
+        for (int i = 0; i < 5; i++) {
+            execute("SET", "k" + i, "v");
+        }
+        List<SlowLog.Entry> entries = processor.slowLog().get(-1);
+        assertEquals(3, entries.size());
+        assertEquals(List.of(4L, 3L, 2L), List.of(entries.get(0).id, entries.get(1).id, entries.get(2).id));
+        assertEquals(List.of("SET", "k4", "v"), entries.get(0).args);
+        assertEquals(2, processor.slowLog().get(2).size());
+
+        processor.setSlowLog(new SlowLog(60_000_000, 3));
+        execute("SET", "a", "b");
+        assertEquals(0, processor.slowLog().length());
+
+        processor.setSlowLog(new SlowLog(-1, 3));
+        assertFalse(processor.slowLog().isSlow(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("should truncate long argument lists and long arguments")
+    void testTruncation() throws IOException {
+        processor.setSlowLog(new SlowLog(0, 10));
+        List<String> many = new ArrayList<>(List.of("MSET"));
+        many.addAll(Collections.nCopies(40, "x"));
+        execute(many.toArray(new String[0]));
+        execute("SET", "k", "y".repeat(200));
+
+        List<SlowLog.Entry> entries = processor.slowLog().get(-1);
+        List<String> set = entries.get(0).args;
+        assertEquals("y".repeat(128) + "... (72 more bytes)", set.get(2));
+        List<String> mset = entries.get(1).args;
+        assertEquals(32, mset.size());
+        assertEquals("... (10 more arguments)", mset.get(31));
+    }
+
+    @Test
+    @DisplayName("SLOWLOG LEN and RESET")
+    void testLenAndReset() throws IOException {
+        processor.setSlowLog(new SlowLog(0, 10));
+        execute("SET", "a", "1");
+        execute("GET", "a");
+        assertEquals(":2\r\n", execute("SLOWLOG", "LEN"));
+        assertEquals("+OK\r\n", execute("SLOWLOG", "RESET"));
+        // LEN and RESET themselves were logged too
+        assertEquals(":1\r\n", execute("SLOWLOG", "LEN"));
+        assertEquals("-ERR count should be greater than or equal to -1\r\n", execute("SLOWLOG", "GET", "-2"));
+        assertTrue(execute("SLOWLOG", "NOPE").startsWith("-ERR unknown subcommand"));
+    }
+}
@@ -0,0 +1,284 @@
+package redis.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.mocks.FakeClock;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+public class StreamCommandsTest {
+
+    private FakeClock clock;
+    private Database db;
+    private CommandProcessor processor;
+    private RespWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock(1_000L);
+        db = new Database(clock);
+        processor = new CommandProcessor();
+        writer = new RespWriter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.shutdown();
+    }
+
+    private String execute(String... args) throws IOException {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        StringWriter received = new StringWriter();
+        BufferedWriter out = new BufferedWriter(received);
+        processor.executeCommand(args[0], db, writer, out, values, false);
+        out.flush();
+        return received.toString();
+    }
+
+    @Nested
+    @DisplayName("XADD / XRANGE / XLEN / XTRIM")
+    class Entries {
+
+        @Test
+        @DisplayName("should assign time-based IDs that keep increasing within a millisecond")
+        void testAutoIds() throws IOException {
+            assertEquals("$6\r\n1000-0\r\n", execute("XADD", "s", "*", "f", "v"));
+            assertEquals("$6\r\n1000-1\r\n", execute("XADD", "s", "*", "f", "v"));
+            assertEquals("$6\r\n1000-2\r\n", execute("XADD", "s", "1000-*", "f", "v"));
+            clock.advanceMillis(5);
+            assertEquals("$6\r\n1005-0\r\n", execute("XADD", "s", "*", "f", "v"));
+            assertEquals(":4\r\n", execute("XLEN", "s"));
+            assertEquals("+stream\r\n", execute("TYPE", "s"));
+        }
+
+        @Test
+        @DisplayName("should reject IDs not greater than the last one")
+        void testExplicitIds() throws IOException {
+            assertTrue(execute("XADD", "s", "0-0", "f", "v").contains("greater than 0-0"));
+            assertEquals("$3\r\n5-1\r\n", execute("XADD", "s", "5-1", "f", "v"));
+            assertTrue(execute("XADD", "s", "5-1", "f", "v").contains("equal or smaller"));
+            assertTrue(execute("XADD", "s", "4", "f", "v").contains("equal or smaller"));
+            assertEquals("$3\r\n6-0\r\n", execute("XADD", "s", "6", "f", "v"));
+        }
+
+        @Test
+        @DisplayName("should return entries in a range with their fields")
+        void testRange() throws IOException {
+            execute("XADD", "s", "1-0", "name", "a", "n", "1");
+            execute("XADD", "s", "2-0", "name", "b", "n", "2");
+            execute("XADD", "s", "3-0", "other", "c");
+
+            assertEquals("*2\r\n"
+                    + "*2\r\n$3\r\n2-0\r\n*4\r\n$4\r\nname\r\n$1\r\nb\r\n$1\r\nn\r\n$1\r\n2\r\n"
+                    + "*2\r\n$3\r\n3-0\r\n*2\r\n$5\r\nother\r\n$1\r\nc\r\n",
+                    execute("XRANGE", "s", "2", "+"));
+            assertEquals("*1\r\n*2\r\n$3\r\n1-0\r\n*4\r\n$4\r\nname\r\n$1\r\na\r\n$1\r\nn\r\n$1\r\n1\r\n",
+                    execute("XRANGE", "s", "-", "+", "COUNT", "1"));
+            assertEquals("*0\r\n", execute("XRANGE", "missing", "-", "+"));
+        }
+
+        @Test
+        @DisplayName("should trim exactly, or by whole nodes with ~")
+        void testTrim() throws IOException {
+            for (int i = 1; i <= 250; i++) {
+                execute("XADD", "s", i + "-0", "f", "v" + i);
+            }
+            // 250 entries in nodes of 100: ~ can only drop the first node
+            assertEquals(":100\r\n", execute("XTRIM", "s", "MAXLEN", "~", "120"));
+            assertEquals(":150\r\n", execute("XLEN", "s"));
+            assertEquals(":30\r\n", execute("XTRIM", "s", "MAXLEN", "120"));
+            assertEquals(":120\r\n", execute("XLEN", "s"));
+            assertTrue(execute("XRANGE", "s", "-", "+", "COUNT", "1").contains("131-0"));
+
+            execute("XADD", "s", "MAXLEN", "=", "10", "*", "f", "v");
+            assertEquals(":10\r\n", execute("XLEN", "s"));
+        }
+
+        @Test
+        @DisplayName("should refuse to operate on keys of another type")
+        void testWrongType() throws IOException {
+            execute("SET", "str", "v");
+            assertTrue(execute("XADD", "str", "*", "f", "v").startsWith("-ERR WRONGTYPE"));
+            assertTrue(execute("XLEN", "str").startsWith("-ERR WRONGTYPE"));
+        }
+
+        @Test
+        @DisplayName("NOMKSTREAM should not create a missing stream")
+        void testNoMkStream() throws IOException {
+            assertEquals("$-1\r\n", execute("XADD", "s", "NOMKSTREAM", "*", "f", "v"));
+            assertEquals(":0\r\n", execute("EXISTS", "s"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Consumer groups")
+    class Groups {
+
+        @BeforeEach
+        void addEntries() throws IOException {
+            execute("XADD", "s", "1-0", "f", "a");
+            execute("XADD", "s", "2-0", "f", "b");
+            execute("XADD", "s", "3-0", "f", "c");
+        }
+
+        @Test
+        @DisplayName("should deliver each entry to one consumer and track it until XACK")
+        void testReadAndAck() throws IOException {
+            assertEquals("+OK\r\n", execute("XGROUP", "CREATE", "s", "g", "0"));
+            assertTrue(execute("XGROUP", "CREATE", "s", "g", "0").contains("BUSYGROUP"));
+
+            String first = execute("XREADGROUP", "GROUP", "g", "alice", "COUNT", "2", "STREAMS", "s", ">");
+            assertTrue(first.contains("1-0") && first.contains("2-0") && !first.contains("3-0"));
+            String second = execute("XREADGROUP", "GROUP", "g", "bob", "STREAMS", "s", ">");
+            assertTrue(second.contains("3-0") && !second.contains("1-0"));
+            assertEquals("*-1\r\n", execute("XREADGROUP", "GROUP", "g", "bob", "STREAMS", "s", ">"));
+
+            assertEquals("*4\r\n:3\r\n$3\r\n1-0\r\n$3\r\n3-0\r\n"
+                    + "*2\r\n*2\r\n$5\r\nalice\r\n$1\r\n2\r\n*2\r\n$3\r\nbob\r\n$1\r\n1\r\n",
+                    execute("XPENDING", "s", "g"));
+
+            // Re-reading history only returns the consumer's own pending entries
+            String history = execute("XREADGROUP", "GROUP", "g", "alice", "STREAMS", "s", "0");
+            assertTrue(history.contains("1-0") && history.contains("2-0") && !history.contains("3-0"));
+
+            assertEquals(":2\r\n", execute("XACK", "s", "g", "1-0", "3-0", "9-0"));
+            assertEquals("*4\r\n:1\r\n$3\r\n2-0\r\n$3\r\n2-0\r\n*1\r\n*2\r\n$5\r\nalice\r\n$1\r\n1\r\n",
+                    execute("XPENDING", "s", "g"));
+        }
+
+        @Test
+        @DisplayName("NOACK should deliver without adding to the pending entries list")
+        void testNoAck() throws IOException {
+            execute("XGROUP", "CREATE", "s", "g", "0");
+            execute("XREADGROUP", "GROUP", "g", "c", "NOACK", "STREAMS", "s", ">");
+            assertEquals("*4\r\n:0\r\n$-1\r\n$-1\r\n*-1\r\n", execute("XPENDING", "s", "g"));
+        }
+
+        @Test
+        @DisplayName("$ should start the group after the current last entry")
+        void testCreateAtEnd() throws IOException {
+            execute("XGROUP", "CREATE", "s", "g", "$");
+            assertEquals("*-1\r\n", execute("XREADGROUP", "GROUP", "g", "c", "STREAMS", "s", ">"));
+            execute("XADD", "s", "4-0", "f", "d");
+            assertTrue(execute("XREADGROUP", "GROUP", "g", "c", "STREAMS", "s", ">").contains("4-0"));
+        }
+
+        @Test
+        @DisplayName("should report NOGROUP for a missing group or key")
+        void testNoGroup() throws IOException {
+            assertTrue(execute("XREADGROUP", "GROUP", "g", "c", "STREAMS", "s", ">").startsWith("-ERR NOGROUP"));
+            assertTrue(execute("XGROUP", "CREATE", "missing", "g", "0").contains("requires the key to exist"));
+            assertEquals("+OK\r\n", execute("XGROUP", "CREATE", "missing", "g", "$", "MKSTREAM"));
+            assertEquals(":0\r\n", execute("XLEN", "missing"));
+        }
+
+        @Test
+        @DisplayName("XCLAIM should move entries idle long enough to another consumer")
+        void testClaim() throws IOException {
+            execute("XGROUP", "CREATE", "s", "g", "0");
+            execute("XREADGROUP", "GROUP", "g", "alice", "COUNT", "1", "STREAMS", "s", ">");
+            clock.advanceMillis(100);
+            execute("XREADGROUP", "GROUP", "g", "alice", "COUNT", "1", "STREAMS", "s", ">");
+
+            // 1-0 has been idle for 100ms, 2-0 for 0ms
+            assertEquals("*1\r\n$3\r\n1-0\r\n",
+                    execute("XCLAIM", "s", "g", "bob", "50", "1-0", "2-0", "JUSTID"));
+
+            String extended = execute("XPENDING", "s", "g", "-", "+", "10");
+            assertEquals("*2\r\n"
+                    + "*4\r\n$3\r\n1-0\r\n$3\r\nbob\r\n:0\r\n:1\r\n"
+                    + "*4\r\n$3\r\n2-0\r\n$5\r\nalice\r\n:0\r\n:1\r\n", extended);
+
+            clock.advanceMillis(100);
+            String claimed = execute("XCLAIM", "s", "g", "bob", "50", "2-0");
+            assertTrue(claimed.contains("2-0") && claimed.contains("$1\r\nb\r\n"));
+            assertTrue(execute("XPENDING", "s", "g", "-", "+", "10", "bob")
+                    .endsWith("*4\r\n$3\r\n2-0\r\n$3\r\nbob\r\n:0\r\n:2\r\n"));
+        }
+
+        @Test
+        @DisplayName("DELCONSUMER should drop the consumer's pending entries")
+        void testDeleteConsumer() throws IOException {
+            execute("XGROUP", "CREATE", "s", "g", "0");
+            execute("XREADGROUP", "GROUP", "g", "c", "STREAMS", "s", ">");
+            assertEquals(":3\r\n", execute("XGROUP", "DELCONSUMER", "s", "g", "c"));
+            assertEquals(":0\r\n", execute("XGROUP", "DELCONSUMER", "s", "g", "c"));
+            assertEquals(":1\r\n", execute("XGROUP", "CREATECONSUMER", "s", "g", "c"));
+            assertEquals(":1\r\n", execute("XGROUP", "DESTROY", "s", "g"));
+            assertTrue(execute("XPENDING", "s", "g").startsWith("-ERR NOGROUP"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Blocking reads")
+    class Blocking {
+
+        @Test
+        @DisplayName("XREAD BLOCK should return as soon as an entry is added")
+        void testXReadWakesUp() throws Exception {
+            execute("XADD", "s", "1-0", "f", "old");
+            CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return execute("XREAD", "BLOCK", "0", "STREAMS", "s", "$");
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(50);
+            assertFalse(read.isDone());
+            execute("XADD", "s", "2-0", "f", "new");
+
+            String reply = read.get(5, TimeUnit.SECONDS);
+            assertTrue(reply.contains("2-0") && reply.contains("new") && !reply.contains("old"));
+        }
+
+        @Test
+        @DisplayName("XREADGROUP BLOCK should be woken by XADD and deliver to the group")
+        void testXReadGroupWakesUp() throws Exception {
+            execute("XGROUP", "CREATE", "s", "g", "$", "MKSTREAM");
+            CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return execute("XREADGROUP", "GROUP", "g", "c", "BLOCK", "5000", "STREAMS", "s", ">");
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(50);
+            execute("XADD", "s", "1-0", "f", "v");
+
+            assertTrue(read.get(5, TimeUnit.SECONDS).contains("1-0"));
+            Stream.ConsumerGroup group = db.getStream("s").group("g");
+            assertEquals(new StreamId(1, 0), group.lastDelivered());
+            assertEquals(1, group.pending().size());
+        }
+
+        @Test
+        @DisplayName("should time out with a null reply")
+        void testTimeout() throws IOException {
+            assertEquals("*-1\r\n", execute("XREAD", "BLOCK", "20", "STREAMS", "s", "$"));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package redis.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import redis.config.ClientOutputBufferLimit.ClientClass;
+
+public class ClientOutputBufferLimitTest {
+
+    @Test
+    void testDefaults() {
+        Map<ClientClass, ClientOutputBufferLimit> limits = ClientOutputBufferLimit.parse(
+                ClientOutputBufferLimit.DEFAULT_SPEC);
+        assertEquals(0, limits.get(ClientClass.NORMAL).hardLimitBytes);
+        assertEquals(32L * 1024 * 1024, limits.get(ClientClass.PUBSUB).hardLimitBytes);
+        assertEquals(8L * 1024 * 1024, limits.get(ClientClass.PUBSUB).softLimitBytes);
+        assertEquals(60, limits.get(ClientClass.PUBSUB).softSeconds);
+        assertEquals(256L * 1024 * 1024, limits.get(ClientClass.REPLICA).hardLimitBytes);
+    }
+
+    @Test
+    void testOverrideKeepsOtherClasses() {
+        Map<ClientClass, ClientOutputBufferLimit> limits = ClientOutputBufferLimit.parse("pubsub 1mb 512k 5");
+        assertEquals(1024 * 1024, limits.get(ClientClass.PUBSUB).hardLimitBytes);
+        assertEquals(512_000, limits.get(ClientClass.PUBSUB).softLimitBytes);
+        assertEquals(5, limits.get(ClientClass.PUBSUB).softSeconds);
+        assertEquals(256L * 1024 * 1024, limits.get(ClientClass.REPLICA).hardLimitBytes);
+    }
+
+    @Test
+    void testLimitChecks() {
+        ClientOutputBufferLimit limit = new ClientOutputBufferLimit(100, 10, 1);
+        assertFalse(limit.isHardLimitReached(99));
+        assertTrue(limit.isHardLimitReached(100));
+        assertTrue(limit.isSoftLimitReached(10));
+        assertFalse(ClientOutputBufferLimit.NONE.isHardLimitReached(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testInvalidSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> ClientOutputBufferLimit.parse("pubsub 1mb 1mb"));
+        assertThrows(IllegalArgumentException.class, () -> ClientOutputBufferLimit.parse("master 1 1 1"));
+        assertThrows(IllegalArgumentException.class, () -> ClientOutputBufferLimit.parse("pubsub 1xb 1 1"));
+    }
+}
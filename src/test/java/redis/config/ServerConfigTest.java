@@ -0,0 +1,39 @@
+package redis.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import redis.persistence.AofManager.FsyncPolicy;
+
+public class ServerConfigTest {
+
+    @Test
+    void testShortConstructorKeepsSingleFileAof() {
+        ServerConfig config = new ServerConfig(6380, true, Path.of("data.aof"), FsyncPolicy.ALWAYS, 4);
+
+        assertEquals(6380, config.port);
+        assertEquals(Path.of("data.aof"), config.aofPath);
+        assertEquals(FsyncPolicy.ALWAYS, config.fsyncPolicy);
+        assertFalse(config.aofMultiPart());
+        assertEquals(0, config.metricsPort);
+    }
+
+    @Test
+    void testBuilderOverridesOnlyWhatIsSet() {
+        ServerConfig config = ServerConfig.builder()
+                .aofDirName(ServerConfig.DEFAULT_AOF_DIRNAME)
+                .slowlogMaxLen(16)
+                .metricsPort(9121)
+                .build();
+
+        assertTrue(config.aofMultiPart());
+        assertEquals(16, config.slowlogMaxLen);
+        assertEquals(9121, config.metricsPort);
+        assertEquals(6379, config.port);
+        assertEquals(ServerConfig.DEFAULT_TRACKING_TABLE_MAX_KEYS, config.trackingTableMaxKeys);
+        assertTrue(config.aofLoadTruncated);
+    }
+}
@@ -0,0 +1,38 @@
+package redis.mocks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.resp.RespWriter;
+import redis.resp.Value;
+
+/**
+ * Runs commands without a client connection, the way AOF replay and tools
+ * do, and returns the reply as sent on the wire.
+ */
+public final class CommandRunner {
+
+    private CommandRunner() {
+    }
+
+    public static List<Value> args(String... args) {
+        List<Value> values = new ArrayList<>();
+        for (String arg : args) {
+            values.add(new Value("bulk", arg));
+        }
+        return values;
+    }
+
+    public static String execute(CommandProcessor processor, Database db, String... args) throws IOException {
+        StringWriter sink = new StringWriter();
+        BufferedWriter out = new BufferedWriter(sink);
+        processor.executeCommand(args[0], db, new RespWriter(), out, args(args), false);
+        out.flush();
+        return sink.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package redis.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+
+public class AofLoaderTest {
+
+    private Path tempAof;
+    private Database db;
+    private CommandProcessor processor;
+
+    private static String resp(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("*").append(parts.length).append("\r\n");
+        for (String p : parts) {
+            sb.append("$").append(p.getBytes(StandardCharsets.UTF_8).length).append("\r\n");
+            sb.append(p).append("\r\n");
+        }
+        return sb.toString();
+    }
+
+    private void write(String content) throws IOException {
+        Files.writeString(tempAof, content, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempAof = Files.createTempFile("redis-aof-loader", ".aof");
+        db = new Database();
+        processor = new CommandProcessor();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        db.shutdown();
+        Files.deleteIfExists(tempAof);
+    }
+
+    @Test
+    void testLoadAppliesCommands() throws IOException {
+        write(resp("SET", "a", "1"));
+        write(resp("set", "b", "héllo"));
+        write(resp("HSET", "h", "f", "v"));
+        write(resp("INCR", "a"));
+
+        AofLoader.LoadStats stats = new AofLoader(db, processor).load(tempAof);
+
+        assertEquals(4, stats.commandsLoaded);
+        assertEquals(Files.size(tempAof), stats.bytesLoaded);
+        assertFalse(stats.truncated);
+        assertEquals("2", db.get("a"));
+        assertEquals("héllo", db.get("b"));
+        assertEquals("v", db.hashget("h", "f"));
+    }
+
+    @Test
+    void testEntriesSpanningMapWindows() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append(resp("SET", "key" + i, "value" + i));
+        }
+        sb.append(resp("SET", "big", "x".repeat(300)));
+        write(sb.toString());
+
+        // Tiny window forces remapping mid-entry and window growth
+        AofLoader.LoadStats stats = new AofLoader(db, processor, 64).load(tempAof);
+
+        assertEquals(2001, stats.commandsLoaded);
+        assertEquals("value1999", db.get("key1999"));
+        assertEquals(300, db.get("big").length());
+    }
+
+    @Test
+    void testTruncatedTailStopsReplay() throws IOException {
+        write(resp("SET", "a", "1"));
+        String partial = resp("SET", "b", "2");
+        write(partial.substring(0, partial.length() - 3));
+
+        AofLoader.LoadStats stats = new AofLoader(db, processor).load(tempAof);
+
+        assertEquals(1, stats.commandsLoaded);
+        assertTrue(stats.truncated);
+        assertEquals("1", db.get("a"));
+        assertNull(db.get("b"));
+    }
+
+    @Test
+    void testTransactionIsAppliedAtExec() throws IOException {
+        write(resp("MULTI"));
+        write(resp("SET", "a", "1"));
+        write(resp("INCR", "a"));
+        write(resp("EXEC"));
+
+        AofLoader.LoadStats stats = new AofLoader(db, processor).load(tempAof);
+
+        assertEquals(2, stats.commandsLoaded);
+        assertFalse(stats.truncated);
+        assertEquals("2", db.get("a"));
+    }
+
+    @Test
+    void testTransactionWithoutExecIsDropped() throws IOException {
+        write(resp("SET", "a", "1"));
+        long multiAt = Files.size(tempAof);
+        write(resp("MULTI"));
+        write(resp("SET", "a", "2"));
+        write(resp("SET", "b", "2"));
+
+        AofLoader.LoadStats stats = new AofLoader(db, processor).load(tempAof);
+
+        assertEquals(1, stats.commandsLoaded);
+        assertEquals(2, stats.commandsSkipped);
+        assertTrue(stats.truncated);
+        assertEquals(multiAt, stats.bytesLoaded);
+        assertEquals("1", db.get("a"));
+        assertNull(db.get("b"));
+    }
+
+    @Test
+    void testCorruptedEntryStopsReplay() throws IOException {
+        write(resp("SET", "a", "1"));
+        write("garbage\r\n");
+        write(resp("SET", "b", "2"));
+
+        AofLoader.LoadStats stats = new AofLoader(db, processor).load(tempAof);
+
+        assertEquals(1, stats.commandsLoaded);
+        assertTrue(stats.corrupted);
+        assertNull(db.get("b"));
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        AofLoader.LoadStats stats = new AofLoader(db, processor).load(tempAof);
+        assertEquals(0, stats.commandsLoaded);
+        assertEquals(0, stats.bytesLoaded);
+    }
+
+    @Test
+    @Timeout(10)
+    void testDecoderFailureIsRethrownInsteadOfHanging() throws IOException {
+        write(resp("SET", "a", "1"));
+
+        // A negative window makes mapping the file throw IllegalArgumentException
+        assertThrows(IllegalArgumentException.class, () -> new AofLoader(db, processor, -1).load(tempAof));
+    }
+}
@@ -3,13 +3,24 @@ package redis.persistence;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.core.Stream;
+import redis.core.StreamId;
+import redis.mocks.FakeClock;
 import redis.resp.RespWriter;
 import redis.resp.Value;
 import redis.persistence.AofManager.FsyncPolicy;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -64,4 +75,469 @@ public class AofManagerTest {
         assertEquals("$3", lines.get(1));
         assertEquals("SET", lines.get(2));
     }
+
+    @Test
+    void testMultiPartLayoutCreatesManifestAndSegment(@TempDir Path dir) throws IOException {
+        Path aofDir = dir.resolve("appendonlydir");
+        try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO)) {
+            multi.append(new Value("array", List.of(
+                    new Value("bulk", "SET"),
+                    new Value("bulk", "key"),
+                    new Value("bulk", "value"))));
+        }
+
+        assertEquals(List.of("file appendonly.aof.1.incr.aof seq 1 type i"),
+                Files.readAllLines(aofDir.resolve("appendonly.aof.manifest")));
+        assertEquals("*3", Files.readAllLines(aofDir.resolve("appendonly.aof.1.incr.aof")).get(0));
+    }
+
+    @Test
+    void testMultiPartAdoptsLegacyFileAsBase(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("appendonly.aof"), "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\n1\r\n");
+
+        Path aofDir = dir.resolve("appendonlydir");
+        Database db = new Database();
+        try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO)) {
+            multi.replay(db, new CommandProcessor());
+        } finally {
+            db.shutdown();
+        }
+
+        assertFalse(Files.exists(dir.resolve("appendonly.aof")));
+        assertTrue(Files.exists(aofDir.resolve("appendonly.aof.1.base.aof")));
+        assertEquals("1", db.get("a"));
+    }
+
+    @Test
+    void testRewriteCompactsIntoNewBase(@TempDir Path dir) throws Exception {
+        Path aofDir = dir.resolve("appendonlydir");
+        Database db = new Database();
+        try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO)) {
+            CommandProcessor processor = new CommandProcessor(null, multi);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            for (int i = 0; i < 100; i++) {
+                processor.executeCommand("INCR", db, writer, out, args("INCR", "counter"), false);
+            }
+            processor.executeCommand("HSET", db, writer, out, args("HSET", "h", "f", "v"), false);
+
+            assertTrue(multi.rewriteInBackground(db));
+            processor.executeCommand("SET", db, writer, out, args("SET", "after", "rewrite"), false);
+            while (multi.isRewriting()) {
+                Thread.sleep(10);
+            }
+        } finally {
+            db.shutdown();
+        }
+
+        List<String> manifest = Files.readAllLines(aofDir.resolve("appendonly.aof.manifest"));
+        assertEquals(List.of(
+                "file appendonly.aof.1.base.aof seq 1 type b",
+                "file appendonly.aof.2.incr.aof seq 2 type i"), manifest);
+        assertFalse(Files.exists(aofDir.resolve("appendonly.aof.1.incr.aof")));
+
+        Database restored = new Database();
+        try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO)) {
+            multi.replay(restored, new CommandProcessor());
+            assertEquals("100", restored.get("counter"));
+            assertEquals("v", restored.hashget("h", "f"));
+            assertEquals("rewrite", restored.get("after"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testRewriteWithSnapshotBase(@TempDir Path dir) throws Exception {
+        Path aofDir = dir.resolve("appendonlydir");
+        AofOptions options = new AofOptions(false, true, true, 64);
+        Database db = new Database();
+        try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO, options)) {
+            CommandProcessor processor = new CommandProcessor(null, multi);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            processor.executeCommand("SET", db, writer, out, args("SET", "big", "0123456789".repeat(50)), false);
+            processor.executeCommand("HSET", db, writer, out, args("HSET", "h", "f", "v"), false);
+
+            assertTrue(multi.rewriteInBackground(db));
+            processor.executeCommand("SET", db, writer, out, args("SET", "after", "rewrite"), false);
+            while (multi.isRewriting()) {
+                Thread.sleep(10);
+            }
+        } finally {
+            db.shutdown();
+        }
+
+        Path base = aofDir.resolve("appendonly.aof.1.base.snap");
+        assertTrue(SnapshotFile.isSnapshot(base));
+        assertTrue(Files.size(base) < 200);
+
+        Database restored = new Database();
+        try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO)) {
+            multi.replay(restored, new CommandProcessor());
+            assertEquals("0123456789".repeat(50), restored.get("big"));
+            assertEquals("v", restored.hashget("h", "f"));
+            assertEquals("rewrite", restored.get("after"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testChecksummedBatchesReplay(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            checked.append(new Value("array", args("SET", "a", "1")));
+            checked.append(new Value("array", args("SET", "b", "2")));
+        }
+
+        assertTrue(Files.readString(aof).startsWith("#27 "));
+
+        Database db = new Database();
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            AofLoader.LoadStats stats = checked.replay(db, new CommandProcessor());
+            assertEquals(2, stats.commandsLoaded);
+            assertEquals("2", db.get("b"));
+        } finally {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    void testTransactionIsAppendedAsOneBatch(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            checked.appendTransaction(List.of(
+                    new Value("array", args("SET", "a", "1")),
+                    new Value("array", args("SET", "b", "2"))));
+        }
+
+        String content = Files.readString(aof);
+        assertEquals(1, content.chars().filter(c -> c == '#').count());
+        assertTrue(content.contains("*1\r\n$5\r\nMULTI\r\n*3\r\n$3\r\nSET"));
+        assertTrue(content.endsWith("*1\r\n$4\r\nEXEC\r\n"));
+
+        Database db = new Database();
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            AofLoader.LoadStats stats = checked.replay(db, new CommandProcessor());
+            assertEquals(2, stats.commandsLoaded);
+            assertEquals("1", db.get("a"));
+            assertEquals("2", db.get("b"));
+        } finally {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    void testTornTailIsTruncatedWhenAllowed(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            checked.append(new Value("array", args("SET", "a", "1")));
+            checked.append(new Value("array", args("SET", "b", "2")));
+        }
+        long firstBatchEnd = Files.readString(aof).indexOf("#", 1);
+        try (FileChannel ch = FileChannel.open(aof, StandardOpenOption.WRITE)) {
+            ch.truncate(Files.size(aof) - 4);
+        }
+
+        Database db = new Database();
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            checked.replay(db, new CommandProcessor());
+        } finally {
+            db.shutdown();
+        }
+
+        assertEquals("1", db.get("a"));
+        assertNull(db.get("b"));
+        assertEquals(firstBatchEnd, Files.size(aof));
+    }
+
+    @Test
+    void testTornTailFailsWhenNotAllowed(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        Files.writeString(aof, "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\n1\r\n*3\r\n$3\r\nSE");
+
+        Database db = new Database();
+        try (AofManager strict = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(false, false))) {
+            assertThrows(IOException.class, () -> strict.replay(db, new CommandProcessor()));
+        } finally {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    void testMidFileCorruptionFailsReplay(@TempDir Path dir) throws Exception {
+        Path aof = dir.resolve("appendonly.aof");
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            checked.append(new Value("array", args("SET", "a", "1")));
+            checked.append(new Value("array", args("SET", "b", "2")));
+        }
+        byte[] bytes = Files.readAllBytes(aof);
+        bytes[20] ^= 1; // flip a bit inside the first batch
+        Files.write(aof, bytes);
+
+        Database db = new Database();
+        try (AofManager checked = new AofManager(aof, writer, FsyncPolicy.NO, new AofOptions(true, true))) {
+            assertThrows(IOException.class, () -> checked.replay(db, new CommandProcessor()));
+        } finally {
+            db.shutdown();
+        }
+
+        assertFalse(AofCheck.check(aof, false));
+        assertTrue(AofCheck.check(aof, true));
+        assertEquals(0, Files.size(aof));
+    }
+
+    @Test
+    void testRelativeExpiriesAreLoggedAsAbsolute(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        Database db = new Database(new FakeClock(1_000_000));
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            CommandProcessor processor = new CommandProcessor(null, single);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            processor.executeCommand("SET", db, writer, out, args("SET", "session", "abc", "EX", "60"), false);
+            processor.executeCommand("SET", db, writer, out, args("SET", "k", "v"), false);
+            processor.executeCommand("EXPIRE", db, writer, out, args("EXPIRE", "k", "120"), false);
+            processor.executeCommand("SET", db, writer, out, args("SET", "gone", "old"), false);
+            processor.executeCommand("SET", db, writer, out, args("SET", "gone", "x", "PX", "0"), false);
+        } finally {
+            db.shutdown();
+        }
+
+        String content = Files.readString(aof);
+        assertTrue(content.contains("$4\r\nPXAT\r\n$7\r\n1060000\r\n"));
+        assertTrue(content.contains("$9\r\nPEXPIREAT\r\n$1\r\nk\r\n$7\r\n1120000\r\n"));
+        assertFalse(content.contains("EXPIRE\r\n"));
+        assertTrue(content.contains("$3\r\nDEL\r\n$4\r\ngone\r\n"));
+
+        // Restart 90s later: the session must stay expired, k keeps its original deadline
+        FakeClock later = new FakeClock(1_090_000);
+        Database restored = new Database(later);
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            single.replay(restored, new CommandProcessor());
+            assertNull(restored.get("session"));
+            assertNull(restored.getExpiry("session"));
+            assertEquals(1_120_000L, restored.getExpiry("k"));
+            assertEquals(30, restored.ttl("k"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testSetThatDidNotWriteIsNotLogged(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        Database db = new Database(new FakeClock(1_000_000));
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            CommandProcessor processor = new CommandProcessor(null, single);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "s", "1-1", "f", "v"), false);
+            processor.executeCommand("HSET", db, writer, out, args("HSET", "h", "f", "v"), false);
+            for (String key : new String[] { "s", "h" }) {
+                // A null reply and an error: neither touches the key
+                processor.executeCommand("SET", db, writer, out, args("SET", key, "x", "XX", "EX", "100"), false);
+                processor.executeCommand("SET", db, writer, out, args("SET", key, "x", "EX", "nope"), false);
+            }
+            assertEquals(1, db.getStream("s").length());
+            assertEquals("v", db.hashget("h", "f"));
+        } finally {
+            db.shutdown();
+        }
+
+        String content = Files.readString(aof);
+        assertFalse(content.contains("DEL"));
+        assertFalse(content.contains("$3\r\nSET\r\n"));
+
+        Database restored = new Database(new FakeClock(2_000_000));
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            single.replay(restored, new CommandProcessor());
+            assertEquals(1, restored.getStream("s").length());
+            assertEquals("v", restored.hashget("h", "f"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testStreamsReplayWithTheSameIds(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        FakeClock clock = new FakeClock(1_000_000);
+        Database db = new Database(clock);
+        String before;
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            CommandProcessor processor = new CommandProcessor(null, single);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            processor.executeCommand("XGROUP", db, writer, out, args("XGROUP", "CREATE", "s", "g", "$", "MKSTREAM"), false);
+            for (int i = 0; i < 150; i++) {
+                processor.executeCommand("XADD", db, writer, out, args("XADD", "s", "MAXLEN", "~", "60", "*", "n", "" + i), false);
+                clock.advanceMillis(i % 3);
+            }
+            processor.executeCommand("XREADGROUP", db, writer, out,
+                    args("XREADGROUP", "GROUP", "g", "alice", "COUNT", "5", "BLOCK", "10", "STREAMS", "s", ">"), false);
+            clock.advanceMillis(1_000);
+            // Claim two of alice's five entries
+            List<Value> claim = args("XCLAIM", "s", "g", "bob", "500");
+            db.getStream("s").group("g").pending().keySet().stream().limit(2)
+                    .forEach(id -> claim.add(new Value("bulk", id.toString())));
+            processor.executeCommand("XCLAIM", db, writer, out, claim, false);
+            before = describe(db.getStream("s"));
+        } finally {
+            db.shutdown();
+        }
+
+        String content = Files.readString(aof);
+        assertFalse(content.contains("$1\r\n*\r\n"));
+        assertFalse(content.contains("XREADGROUP"));
+
+        Database restored = new Database(new FakeClock(5_000_000));
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            single.replay(restored, new CommandProcessor());
+            assertEquals(before, describe(restored.getStream("s")));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testRejectedXAddIsNotLogged(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        Database db = new Database(new FakeClock(1_000_000));
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            CommandProcessor processor = new CommandProcessor(null, single);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            processor.executeCommand("SET", db, writer, out, args("SET", "str", "x"), false);
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "s", "5-0", "f", "v"), false);
+            long logged = Files.size(aof);
+
+            // Not above the top ID, invalid, no stream to add to, wrong type
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "s", "5-0", "f", "v"), false);
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "s", "bad", "f", "v"), false);
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "new", "NOMKSTREAM", "*", "f", "v"), false);
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "str", "*", "f", "v"), false);
+            assertEquals(logged, Files.size(aof));
+        } finally {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    void testReadGroupLogsOnlyWhatChanged(@TempDir Path dir) throws IOException {
+        Path aof = dir.resolve("appendonly.aof");
+        FakeClock clock = new FakeClock(1_000_000);
+        Database db = new Database(clock);
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            CommandProcessor processor = new CommandProcessor(null, single);
+            BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+            processor.executeCommand("XADD", db, writer, out, args("XADD", "s", "1-0", "f", "v"), false);
+            processor.executeCommand("XGROUP", db, writer, out, args("XGROUP", "CREATE", "s", "g", "0"), false);
+            processor.executeCommand("XREADGROUP", db, writer, out,
+                    args("XREADGROUP", "GROUP", "g", "c", "STREAMS", "s", ">"), false);
+            long logged = Files.size(aof);
+
+            // Empty polls, re-reading history, errors and claiming nothing change nothing
+            for (int i = 0; i < 3; i++) {
+                processor.executeCommand("XREADGROUP", db, writer, out,
+                        args("XREADGROUP", "GROUP", "g", "c", "BLOCK", "1", "STREAMS", "s", ">"), false);
+            }
+            processor.executeCommand("XREADGROUP", db, writer, out,
+                    args("XREADGROUP", "GROUP", "g", "c", "STREAMS", "s", "0"), false);
+            processor.executeCommand("XREADGROUP", db, writer, out,
+                    args("XREADGROUP", "GROUP", "missing", "c", "STREAMS", "s", ">"), false);
+            processor.executeCommand("XCLAIM", db, writer, out, args("XCLAIM", "s", "g", "c", "60000", "1-0"), false);
+            assertEquals(logged, Files.size(aof));
+
+            // Nothing delivered, but the consumer is new
+            processor.executeCommand("XREADGROUP", db, writer, out,
+                    args("XREADGROUP", "GROUP", "g", "idle", "BLOCK", "1", "STREAMS", "s", ">"), false);
+            assertTrue(Files.readString(aof).endsWith("$14\r\nCREATECONSUMER\r\n$1\r\ns\r\n$1\r\ng\r\n$4\r\nidle\r\n"));
+        } finally {
+            db.shutdown();
+        }
+
+        // Restarted much later: the entry has been pending since its delivery
+        clock.advanceMillis(8_000_000);
+        Database restored = new Database(clock);
+        try (AofManager single = new AofManager(aof, writer, FsyncPolicy.NO)) {
+            single.replay(restored, new CommandProcessor());
+            Stream.ConsumerGroup group = restored.getStream("s").group("g");
+            assertEquals("1-0", group.lastDelivered().toString());
+            assertEquals(1_000_000L, group.pending().get(StreamId.parse("1-0", 0)).deliveryTime());
+            assertEquals(1L, group.pending().get(StreamId.parse("1-0", 0)).deliveryCount());
+            assertNotNull(group.consumer("idle"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testRewriteKeepsStreamsAndGroups(@TempDir Path dir) throws Exception {
+        for (boolean snapshotBase : new boolean[] { false, true }) {
+            Path aofDir = dir.resolve("appendonlydir-" + snapshotBase);
+            AofOptions options = new AofOptions(false, true, snapshotBase, 64);
+            Database db = new Database(new FakeClock(1_000_000));
+            String before;
+            try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO, options)) {
+                CommandProcessor processor = new CommandProcessor(null, multi);
+                BufferedWriter out = new BufferedWriter(Writer.nullWriter());
+                for (int i = 1; i <= 5; i++) {
+                    processor.executeCommand("XADD", db, writer, out, args("XADD", "s", i + "-0", "f", "v" + i), false);
+                }
+                processor.executeCommand("XGROUP", db, writer, out, args("XGROUP", "CREATE", "s", "g", "0"), false);
+                processor.executeCommand("XREADGROUP", db, writer, out,
+                        args("XREADGROUP", "GROUP", "g", "c", "COUNT", "3", "STREAMS", "s", ">"), false);
+                processor.executeCommand("XACK", db, writer, out, args("XACK", "s", "g", "2-0"), false);
+                processor.executeCommand("XGROUP", db, writer, out,
+                        args("XGROUP", "CREATECONSUMER", "s", "g", "idle"), false);
+                processor.executeCommand("XADD", db, writer, out, args("XADD", "empty", "1-0", "f", "v"), false);
+                processor.executeCommand("XTRIM", db, writer, out, args("XTRIM", "empty", "MAXLEN", "0"), false);
+                before = describe(db.getStream("s"));
+
+                assertTrue(multi.rewriteInBackground(db));
+                while (multi.isRewriting()) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                db.shutdown();
+            }
+
+            Database restored = new Database(new FakeClock(2_000_000));
+            try (AofManager multi = new AofManager(aofDir, "appendonly.aof", writer, FsyncPolicy.NO, options)) {
+                multi.replay(restored, new CommandProcessor());
+                assertEquals(before, describe(restored.getStream("s")));
+                assertEquals(0, restored.getStream("empty").length());
+                assertEquals("1-0", restored.getStream("empty").lastId().toString());
+            } finally {
+                restored.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Everything replay must reproduce: entries, last ID, groups and their
+     * pending entries with their delivery times and counts.
+     */
+    private static String describe(Stream stream) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(stream.length()).append(' ').append(stream.lastId()).append('\n');
+        for (Stream.Entry e : stream) {
+            sb.append(e.id).append(' ').append(String.join(",", e.fields)).append('\n');
+        }
+        for (Stream.ConsumerGroup g : stream.groups()) {
+            sb.append(g.name).append(' ').append(g.lastDelivered()).append('\n');
+            for (Stream.GroupConsumer c : g.consumers()) {
+                sb.append("  consumer ").append(c.name).append(' ').append(c.pendingCount()).append('\n');
+            }
+            for (Stream.PendingEntry p : g.pending().values()) {
+                sb.append("  pending ").append(p.id).append(' ').append(p.consumer().name).append(' ')
+                        .append(p.deliveryTime()).append(' ').append(p.deliveryCount()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Value> args(String... parts) {
+        List<Value> values = new ArrayList<>();
+        for (String p : parts) {
+            values.add(new Value("bulk", p));
+        }
+        return values;
+    }
 }
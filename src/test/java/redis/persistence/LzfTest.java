@@ -0,0 +1,73 @@
+package redis.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LzfTest {
+
+    private static byte[] roundTrip(byte[] raw) throws IOException {
+        byte[] out = new byte[raw.length];
+        int clen = Lzf.compress(raw, raw.length, out, raw.length - 1);
+        assertTrue(clen > 0, "expected input to compress");
+        assertTrue(clen < raw.length);
+        return Lzf.decompress(out, 0, clen, raw.length);
+    }
+
+    @Test
+    void testRepetitiveTextRoundTrips() throws IOException {
+        byte[] raw = "the quick brown fox jumps over the lazy dog, ".repeat(200)
+                .getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(raw, roundTrip(raw));
+    }
+
+    @Test
+    void testLongRunsUseOverlappingReferences() throws IOException {
+        // A run of one byte is encoded as a reference one byte back that overlaps itself
+        byte[] raw = new byte[5000];
+        java.util.Arrays.fill(raw, (byte) 'a');
+        raw[4999] = 'b';
+
+        byte[] out = new byte[raw.length];
+        int clen = Lzf.compress(raw, raw.length, out, raw.length - 1);
+        assertTrue(clen < 100, "run should compress to a handful of references, got " + clen);
+        assertArrayEquals(raw, Lzf.decompress(out, 0, clen, raw.length));
+    }
+
+    @Test
+    void testIncompressibleInputIsRejected() {
+        byte[] raw = new byte[4096];
+        new Random(42).nextBytes(raw);
+        byte[] out = new byte[raw.length];
+        assertEquals(0, Lzf.compress(raw, raw.length, out, raw.length - 1));
+    }
+
+    @Test
+    void testReusedTableGivesSameOutput() throws IOException {
+        int[] table = new int[Lzf.HASH_SIZE];
+        byte[] first = "abcabcabcabcabcabcabcabc-first-value".repeat(10).getBytes(StandardCharsets.UTF_8);
+        byte[] second = "xyzxyzxyz-second-value-xyzxyzxyz".repeat(10).getBytes(StandardCharsets.UTF_8);
+
+        byte[] out = new byte[first.length];
+        Lzf.compress(first, first.length, out, first.length - 1, table);
+
+        byte[] reused = new byte[second.length];
+        int clen = Lzf.compress(second, second.length, reused, second.length - 1, table);
+        byte[] fresh = new byte[second.length];
+        assertEquals(Lzf.compress(second, second.length, fresh, second.length - 1), clen);
+        assertArrayEquals(second, Lzf.decompress(reused, 0, clen, second.length));
+    }
+
+    @Test
+    void testCorruptInputIsDetected() {
+        byte[] raw = "hello hello hello hello hello".getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[raw.length];
+        int clen = Lzf.compress(raw, raw.length, out, raw.length - 1);
+        assertThrows(IOException.class, () -> Lzf.decompress(out, 0, clen, raw.length + 5));
+        assertThrows(IOException.class, () -> Lzf.decompress(new byte[] { (byte) 0x20, 0x10 }, 0, 2, 4));
+    }
+}
@@ -0,0 +1,103 @@
+package redis.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import redis.core.CommandProcessor;
+import redis.core.Database;
+import redis.resp.RespWriter;
+
+/**
+ * Compares rewrite base formats: RESP, uncompressed snapshot and
+ * LZF-compressed snapshot. Not a unit test; run it by hand:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes redis.persistence.SnapshotCompressionBenchmark [keys] [value-size]
+ * </pre>
+ */
+public class SnapshotCompressionBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int valueSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        Database db = new Database();
+        populate(db, keys, valueSize);
+        Database.Snapshot snapshot = db.snapshot();
+        db.shutdown();
+
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        System.out.printf("%d keys, ~%d byte values (%d rounds, best time)%n", keys, valueSize, ROUNDS);
+        System.out.printf("%-16s %12s %12s %12s%n", "format", "size (KB)", "save (ms)", "load (ms)");
+
+        run("resp", dir.resolve("base.aof"), snapshot, -1);
+        run("snapshot", dir.resolve("plain.snap"), snapshot, 0);
+        run("snapshot+lzf", dir.resolve("lzf.snap"), snapshot, 64);
+
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Files.delete(p);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Keys with semi-structured values (JSON-like, partly random) so that the
+     * compression ratio resembles typical application data.
+     */
+    private static void populate(Database db, int keys, int valueSize) {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys; i++) {
+            sb.setLength(0);
+            while (sb.length() < valueSize) {
+                sb.append("{\"id\":").append(random.nextInt(1_000_000))
+                        .append(",\"name\":\"user").append(random.nextInt(1000))
+                        .append("\",\"active\":").append(random.nextBoolean()).append('}');
+            }
+            if (i % 10 == 0) {
+                db.hset("hash:" + i, "profile", sb.toString());
+                db.hset("hash:" + i, "visits", Integer.toString(random.nextInt(100)));
+            } else {
+                db.set("key:" + i, sb.toString());
+            }
+        }
+    }
+
+    private static void run(String name, Path file, Database.Snapshot snapshot, int threshold)
+            throws IOException, InterruptedException {
+        long bestSave = Long.MAX_VALUE;
+        long bestLoad = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+                if (threshold < 0) {
+                    new AofRewriter(new RespWriter()).write(snapshot, out);
+                } else {
+                    SnapshotFile.write(snapshot, out, threshold);
+                }
+            }
+            bestSave = Math.min(bestSave, System.nanoTime() - start);
+
+            Database target = new Database();
+            start = System.nanoTime();
+            if (threshold < 0) {
+                new AofLoader(target, new CommandProcessor()).load(file);
+            } else {
+                SnapshotFile.load(file, target);
+            }
+            bestLoad = Math.min(bestLoad, System.nanoTime() - start);
+            target.shutdown();
+        }
+
+        System.out.printf("%-16s %12d %12.1f %12.1f%n", name, Files.size(file) / 1024,
+                bestSave / 1e6, bestLoad / 1e6);
+    }
+}
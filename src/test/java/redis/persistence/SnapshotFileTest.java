@@ -0,0 +1,157 @@
+package redis.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redis.core.Database;
+import redis.mocks.FakeClock;
+
+public class SnapshotFileTest {
+
+    private static Path save(Database db, Path file, int threshold) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            SnapshotFile.write(db.snapshot(), out, threshold);
+        }
+        return file;
+    }
+
+    @Test
+    void testRoundTripWithCompression(@TempDir Path dir) throws IOException {
+        FakeClock clock = new FakeClock(1_000_000L);
+        Database db = new Database(clock);
+        Database restored = new Database(clock);
+        try {
+            db.set("small", "v");
+            db.set("big", "abcdefgh".repeat(100));
+            db.set("unicode", "héllo wörld ".repeat(20));
+            for (int i = 0; i < 50; i++) {
+                db.hset("h", "field" + i, "value-" + i);
+            }
+            db.expireAt("small", 2_000_000L);
+
+            Path file = save(db, dir.resolve("dump.snap"), 64);
+            assertTrue(SnapshotFile.isSnapshot(file));
+
+            AofLoader.LoadStats stats = SnapshotFile.load(file, restored);
+            assertEquals(4, stats.commandsLoaded);
+            assertEquals("v", restored.get("small"));
+            assertEquals(2_000_000L, restored.getExpiry("small"));
+            assertEquals("abcdefgh".repeat(100), restored.get("big"));
+            assertEquals("héllo wörld ".repeat(20), restored.get("unicode"));
+            assertEquals(50, restored.hlen("h"));
+            assertEquals("value-49", restored.hashget("h", "field49"));
+        } finally {
+            db.shutdown();
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testCompressionShrinksFile(@TempDir Path dir) throws IOException {
+        Database db = new Database();
+        try {
+            for (int i = 0; i < 100; i++) {
+                db.set("key" + i, ("payload " + i + " ").repeat(50));
+            }
+            long plain = Files.size(save(db, dir.resolve("plain.snap"), 0));
+            long compressed = Files.size(save(db, dir.resolve("lzf.snap"), 64));
+            assertTrue(compressed * 3 < plain, "compressed=" + compressed + " plain=" + plain);
+        } finally {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    void testExpiredKeysAreSkippedOnLoad(@TempDir Path dir) throws IOException {
+        FakeClock clock = new FakeClock(1_000L);
+        Database db = new Database(clock);
+        Database restored = new Database(clock);
+        try {
+            db.set("gone", "x");
+            db.hset("h", "f", "v");
+            db.expireAt("gone", 5_000L);
+            db.expireAt("h", 5_000L);
+            db.set("kept", "y");
+            Path file = save(db, dir.resolve("dump.snap"), 64);
+
+            clock.advanceMillis(10_000L);
+            AofLoader.LoadStats stats = SnapshotFile.load(file, restored);
+            assertEquals(1, stats.commandsLoaded);
+            assertEquals(2, stats.commandsSkipped);
+            assertNull(restored.get("gone"));
+            assertFalse(restored.containsHashKey("h"));
+            assertEquals("y", restored.get("kept"));
+        } finally {
+            db.shutdown();
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testChecksumMismatchIsDetected(@TempDir Path dir) throws IOException {
+        Database db = new Database();
+        Database restored = new Database();
+        try {
+            db.set("a", "1".repeat(200));
+            Path file = save(db, dir.resolve("dump.snap"), 64);
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(file, bytes);
+
+            assertThrows(IOException.class, () -> SnapshotFile.load(file, restored));
+        } finally {
+            db.shutdown();
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testTruncatedCompressedHashIsReportedAsTruncated(@TempDir Path dir) throws IOException {
+        Database db = new Database();
+        Database restored = new Database();
+        try {
+            for (int i = 0; i < 200; i++) {
+                db.hset("h", "field" + i, "value-" + i);
+            }
+            Path file = save(db, dir.resolve("dump.snap"), 64);
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+            IOException e = assertThrows(IOException.class, () -> SnapshotFile.load(file, restored));
+            assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+        } finally {
+            db.shutdown();
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void testAofCheckVerifiesSnapshotChecksum(@TempDir Path dir) throws Exception {
+        Database db = new Database();
+        try {
+            db.set("a", "1".repeat(200));
+            db.hset("h", "f", "v");
+            Path file = save(db, dir.resolve("base.snap"), 64);
+            assertNull(SnapshotFile.verify(file));
+            assertTrue(AofCheck.check(file, false));
+
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+            assertEquals("snapshot checksum mismatch", SnapshotFile.verify(file));
+            // Never truncated, even with --fix
+            assertFalse(AofCheck.check(file, true));
+            assertEquals(bytes.length, Files.size(file));
+        } finally {
+            db.shutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package redis.pubsub;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import redis.resp.RespWriter;
+
+/**
+ * Measures PUBLISH fan-out throughput (messages/sec and subscriber
+ * deliveries/sec) against the number of subscribers, comparing the shared
+ * pre-encoded frame with encoding the message once per subscriber. Delivery
+ * runs inline so the numbers are the full cost of encoding and writing.
+ * Not a unit test; run it by hand:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes redis.pubsub.PubSubFanoutBenchmark [payload-bytes]
+ * </pre>
+ */
+public class PubSubFanoutBenchmark {
+
+    private static final int[] SUBSCRIBER_COUNTS = { 1, 10, 100, 1000, 5000 };
+    private static final long TARGET_DELIVERIES = 5_000_000L;
+
+    public static void main(String[] args) throws IOException {
+        int payloadSize = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        String payload = "x".repeat(payloadSize);
+
+        System.out.printf("payload %d bytes%n", payloadSize);
+        System.out.printf("%12s %18s %18s %18s%n", "subscribers", "shared msgs/s", "per-sub msgs/s",
+                "shared deliv/s");
+
+        for (int n : SUBSCRIBER_COUNTS) {
+            int messages = (int) Math.max(10, TARGET_DELIVERIES / n);
+            // Warm up both paths, then measure
+            shared(n, messages / 10, payload);
+            perSubscriber(n, messages / 10, payload);
+            double sharedRate = shared(n, messages, payload);
+            double perSubRate = perSubscriber(n, messages, payload);
+            System.out.printf("%12d %18.0f %18.0f %18.0f%n", n, sharedRate, perSubRate, sharedRate * n);
+        }
+    }
+
+    private static List<BufferedWriter> clients(int n) {
+        List<BufferedWriter> clients = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            clients.add(new BufferedWriter(Writer.nullWriter()));
+        }
+        return clients;
+    }
+
+    private static double shared(int subscribers, int messages, String payload) {
+        PubSubManager pubsub = new PubSubManager();
+        for (BufferedWriter client : clients(subscribers)) {
+            pubsub.subscribe(new Subscriber(client), "bench");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            pubsub.publish("bench", payload);
+        }
+        return messages / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * The previous fan-out: four RespWriter calls and a flush per subscriber.
+     */
+    private static double perSubscriber(int subscribers, int messages, String payload) throws IOException {
+        RespWriter writer = new RespWriter();
+        List<BufferedWriter> clients = clients(subscribers);
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            for (BufferedWriter out : clients) {
+                writer.writeArrayHeader(out, 3);
+                writer.writeBulk(out, "message");
+                writer.writeBulk(out, "bench");
+                writer.writeBulk(out, payload);
+                out.flush();
+            }
+        }
+        return messages / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -3,16 +3,29 @@ package redis.pubsub;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.*;
 
+import redis.config.ClientOutputBufferLimit;
+import redis.mocks.FakeClock;
+import redis.time.SystemClock;
+
 public class PubSubManagerTest {
 
     PubSubManager pubsub;
-    BufferedWriter client1;
-    BufferedWriter client2;
-    BufferedWriter client3;
+    Subscriber client1;
+    Subscriber client2;
+    Subscriber client3;
     StringWriter output1;
     StringWriter output2;
     StringWriter output3;
@@ -23,9 +36,9 @@ public class PubSubManagerTest {
         output1 = new StringWriter();
         output2 = new StringWriter();
         output3 = new StringWriter();
-        client1 = new BufferedWriter(output1);
-        client2 = new BufferedWriter(output2);
-        client3 = new BufferedWriter(output3);
+        client1 = new Subscriber(new BufferedWriter(output1));
+        client2 = new Subscriber(new BufferedWriter(output2));
+        client3 = new Subscriber(new BufferedWriter(output3));
     }
 
     @Nested
@@ -83,14 +96,14 @@ public class PubSubManagerTest {
         @Test
         @DisplayName("should return false for client with no subscriptions")
         void testNotSubscribed() {
-            assertFalse(pubsub.isSubscribed(client1));
+            assertFalse(client1.isSubscribed());
         }
 
         @Test
         @DisplayName("should return true for client with subscriptions")
         void testIsSubscribed() {
             pubsub.subscribe(client1, "news");
-            assertTrue(pubsub.isSubscribed(client1));
+            assertTrue(client1.isSubscribed());
         }
 
         @Test
@@ -99,7 +112,7 @@ public class PubSubManagerTest {
             pubsub.subscribe(client1, "news");
             pubsub.subscribe(client1, "sports");
             pubsub.unsubscribeAll(client1);
-            assertFalse(pubsub.isSubscribed(client1));
+            assertFalse(client1.isSubscribed());
         }
     }
 
@@ -138,7 +151,7 @@ public class PubSubManagerTest {
             pubsub.subscribe(client1, "news");
             pubsub.subscribe(client2, "news");
             pubsub.unsubscribe(client1, "news");
-            assertTrue(pubsub.isSubscribed(client2));
+            assertTrue(client2.isSubscribed());
         }
     }
 
@@ -153,7 +166,7 @@ public class PubSubManagerTest {
             pubsub.subscribe(client1, "sports");
             pubsub.subscribe(client1, "weather");
             pubsub.unsubscribeAll(client1);
-            assertFalse(pubsub.isSubscribed(client1));
+            assertFalse(client1.isSubscribed());
         }
 
         @Test
@@ -163,7 +176,7 @@ public class PubSubManagerTest {
             pubsub.subscribe(client2, "news");
             pubsub.subscribe(client2, "sports");
             pubsub.unsubscribeAll(client1);
-            assertTrue(pubsub.isSubscribed(client2));
+            assertTrue(client2.isSubscribed());
         }
 
         @Test
@@ -217,7 +230,7 @@ public class PubSubManagerTest {
         void testPublishWritesToOutput() throws Exception {
             pubsub.subscribe(client1, "news");
             pubsub.publish("news", "Hello World!");
-            client1.flush();
+            client1.out.flush();
             String output = output1.toString();
             // Check that output contains the message components
             assertTrue(output.contains("message"));
@@ -226,6 +239,359 @@ public class PubSubManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Pattern Subscriptions")
+    class PatternSubscriptions {
+
+        @Test
+        @DisplayName("should count patterns together with channels")
+        void testPsubscribeCount() {
+            assertEquals(1, pubsub.subscribe(client1, "news"));
+            assertEquals(2, pubsub.psubscribe(client1, "news.*"));
+            assertEquals(2, pubsub.psubscribe(client1, "news.*"));
+            assertEquals(1, pubsub.unsubscribe(client1, "news"));
+            assertTrue(client1.isSubscribed());
+            assertEquals(0, pubsub.punsubscribe(client1, "news.*"));
+            assertFalse(client1.isSubscribed());
+        }
+
+        @Test
+        @DisplayName("should deliver pmessage frames to matching patterns only")
+        void testPatternDelivery() throws Exception {
+            pubsub.psubscribe(client1, "news.*");
+            pubsub.psubscribe(client2, "sports.*");
+            pubsub.psubscribe(client3, "*");
+
+            assertEquals(2, pubsub.publish("news.tech", "hi"));
+            client1.out.flush();
+            client2.out.flush();
+            assertEquals("*4\r\n$8\r\npmessage\r\n$6\r\nnews.*\r\n$9\r\nnews.tech\r\n$2\r\nhi\r\n",
+                    output1.toString());
+            assertEquals("", output2.toString());
+        }
+
+        @Test
+        @DisplayName("should count a client once per matching channel and pattern")
+        void testChannelAndPatternBothDeliver() {
+            pubsub.subscribe(client1, "news.tech");
+            pubsub.psubscribe(client1, "news.*");
+            pubsub.psubscribe(client1, "news.te?h");
+            assertEquals(3, pubsub.publish("news.tech", "hi"));
+            assertEquals(1, pubsub.publish("news.sports", "hi"));
+        }
+
+        @Test
+        @DisplayName("should track distinct patterns and drop them when unused")
+        void testPatternCount() {
+            pubsub.psubscribe(client1, "a*");
+            pubsub.psubscribe(client2, "a*");
+            pubsub.psubscribe(client2, "b?");
+            assertEquals(2, pubsub.patternCount());
+
+            pubsub.punsubscribe(client1, "a*");
+            assertEquals(2, pubsub.patternCount());
+            assertEquals(2, pubsub.punsubscribeAll(client2).size());
+            assertEquals(0, pubsub.patternCount());
+            assertEquals(0, pubsub.publish("abc", "x"));
+        }
+
+        @Test
+        @DisplayName("should match many patterns correctly")
+        void testManyPatterns() {
+            for (int i = 0; i < 1000; i++) {
+                pubsub.psubscribe(client1, "tenant:" + i + ":*");
+            }
+            pubsub.psubscribe(client2, "tenant:*:events");
+            pubsub.psubscribe(client3, "tenant:[0-4]*");
+
+            assertEquals(3, pubsub.publish("tenant:42:events", "x"));
+            assertEquals(1, pubsub.publish("tenant:999:other", "x"));
+            assertEquals(0, pubsub.publish("other", "x"));
+        }
+
+        @Test
+        @DisplayName("unsubscribeAll should also remove patterns")
+        void testUnsubscribeAllRemovesPatterns() {
+            pubsub.psubscribe(client1, "news.*");
+            pubsub.unsubscribeAll(client1);
+            assertFalse(client1.isSubscribed());
+            assertEquals(0, pubsub.patternCount());
+        }
+    }
+
+    @Nested
+    @DisplayName("Sharded Pub/Sub")
+    class Sharded {
+
+        PubSubManager sharded;
+        List<List<Runnable>> shardTasks;
+
+        @BeforeEach
+        void setUp() {
+            shardTasks = new ArrayList<>();
+            List<java.util.concurrent.Executor> executors = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                List<Runnable> tasks = new ArrayList<>();
+                shardTasks.add(tasks);
+                executors.add(tasks::add);
+            }
+            sharded = new PubSubManager(Runnable::run, executors, ClientOutputBufferLimit.NONE, new SystemClock());
+        }
+
+        @Test
+        @DisplayName("should count shard channels separately from channels")
+        void testSsubscribeCounts() {
+            sharded.subscribe(client1, "news");
+            assertEquals(1, sharded.ssubscribe(client1, "orders"));
+            assertEquals(2, sharded.ssubscribe(client1, "users"));
+            assertEquals(3, client1.subscriptionCount());
+
+            assertEquals(1, sharded.sunsubscribe(client1, "orders"));
+            assertEquals(1, sharded.sunsubscribeAll(client1).size());
+            assertTrue(client1.isSubscribed());
+            sharded.unsubscribe(client1, "news");
+            assertFalse(client1.isSubscribed());
+        }
+
+        @Test
+        @DisplayName("should deliver smessage frames on the channel's own partition")
+        void testSpublishUsesShardExecutor() throws Exception {
+            sharded.ssubscribe(client1, "orders");
+            sharded.ssubscribe(client2, "orders");
+            sharded.subscribe(client3, "orders");
+
+            assertEquals(2, sharded.spublish("orders", "o1"));
+            int shard = redis.utils.HashSlot.of("orders") % 4;
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i == shard ? 2 : 0, shardTasks.get(i).size());
+            }
+            shardTasks.get(shard).forEach(Runnable::run);
+
+            assertEquals("*3\r\n$8\r\nsmessage\r\n$6\r\norders\r\n$2\r\no1\r\n", output1.toString());
+            client3.out.flush();
+            assertEquals("", output3.toString());
+        }
+
+        @Test
+        @DisplayName("PUBLISH should not reach shard channel subscribers")
+        void testPublishIgnoresShardChannels() {
+            sharded.ssubscribe(client1, "orders");
+            assertEquals(0, sharded.publish("orders", "x"));
+            assertEquals(0, sharded.spublish("other", "x"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Introspection")
+    class Introspection {
+
+        @Test
+        @DisplayName("channels should list active channels, filtered by pattern")
+        void testChannels() {
+            pubsub.subscribe(client1, "news.tech");
+            pubsub.subscribe(client2, "news.sports");
+            pubsub.subscribe(client2, "weather");
+            pubsub.unsubscribe(client2, "weather");
+
+            List<String> all = pubsub.channels(null);
+            assertEquals(2, all.size());
+            assertTrue(all.containsAll(List.of("news.tech", "news.sports")));
+            assertEquals(List.of("news.tech"), pubsub.channels("*.t?ch"));
+        }
+
+        @Test
+        @DisplayName("numsub should count channel subscribers only")
+        void testNumsub() {
+            pubsub.subscribe(client1, "news");
+            pubsub.subscribe(client2, "news");
+            pubsub.subscribe(client2, "news");
+            pubsub.psubscribe(client3, "n*");
+
+            assertEquals(2, pubsub.numsub("news"));
+            assertEquals(0, pubsub.numsub("other"));
+
+            pubsub.unsubscribeAll(client1);
+            assertEquals(1, pubsub.numsub("news"));
+        }
+
+        @Test
+        @DisplayName("pattern count should track distinct patterns")
+        void testPatternCount() {
+            pubsub.psubscribe(client1, "a*");
+            pubsub.psubscribe(client2, "a*");
+            pubsub.psubscribe(client2, "b?");
+            assertEquals(2, pubsub.patternCount());
+
+            pubsub.punsubscribe(client1, "a*");
+            assertEquals(2, pubsub.patternCount());
+            pubsub.punsubscribeAll(client2);
+            assertEquals(0, pubsub.patternCount());
+        }
+
+        @Test
+        @DisplayName("shard channels should be listed and counted across partitions")
+        void testShardChannels() {
+            PubSubManager sharded = new PubSubManager(Runnable::run, List.of(Runnable::run, Runnable::run,
+                    Runnable::run), ClientOutputBufferLimit.NONE, new SystemClock());
+            sharded.ssubscribe(client1, "orders");
+            sharded.ssubscribe(client2, "orders");
+            sharded.ssubscribe(client1, "users");
+            sharded.subscribe(client3, "plain");
+
+            List<String> all = sharded.shardChannels(null);
+            assertEquals(2, all.size());
+            assertTrue(all.containsAll(List.of("orders", "users")));
+            assertEquals(List.of("users"), sharded.shardChannels("u*"));
+            assertEquals(2, sharded.shardNumsub("orders"));
+            assertEquals(0, sharded.shardNumsub("plain"));
+            assertEquals(List.of("plain"), sharded.channels(null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Async Delivery")
+    class AsyncDelivery {
+
+        @Test
+        @DisplayName("a stalled subscriber should not block the publisher or other subscribers")
+        void testStalledSubscriberDoesNotBlock() throws Exception {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch fastReceived = new CountDownLatch(1);
+            Writer stalled = new Writer() {
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            StringWriter fastOutput = new StringWriter();
+            Writer fast = new Writer() {
+                @Override
+                public void write(char[] cbuf, int off, int len) {
+                    fastOutput.write(cbuf, off, len);
+                }
+
+                @Override
+                public void flush() {
+                    fastReceived.countDown();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try {
+                PubSubManager async = new PubSubManager(executor, ClientOutputBufferLimit.NONE, new SystemClock());
+                // Tiny buffer so the stalled writer blocks on the first message
+                async.subscribe(new Subscriber(new BufferedWriter(stalled, 1)), "news");
+                async.subscribe(new Subscriber(new BufferedWriter(fast)), "news");
+
+                assertTimeoutPreemptively(java.time.Duration.ofSeconds(5), () -> {
+                    for (int i = 0; i < 50; i++) {
+                        assertEquals(2, async.publish("news", "msg" + i));
+                    }
+                });
+                assertTrue(fastReceived.await(5, TimeUnit.SECONDS));
+                assertTrue(fastOutput.toString().contains("msg0"));
+            } finally {
+                release.countDown();
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("should disconnect a subscriber that reaches the hard limit")
+        void testSlowSubscriberIsDropped() {
+            List<Runnable> tasks = new ArrayList<>();
+            // Each frame below is 34 bytes
+            PubSubManager async = new PubSubManager(tasks::add, new ClientOutputBufferLimit(100, 0, 0),
+                    new FakeClock(0));
+            async.subscribe(client1, "news");
+            async.subscribe(client2, "news");
+
+            assertEquals(2, async.publish("news", "a"));
+            assertEquals(2, async.publish("news", "b"));
+            // Nothing has been drained yet: the third message breaks the limit for both
+            assertEquals(0, async.publish("news", "c"));
+
+            assertFalse(client1.isSubscribed());
+            assertFalse(client2.isSubscribed());
+            assertEquals(2, async.outputLimitDisconnections());
+            assertEquals(0, async.publish("news", "d"));
+        }
+
+        @Test
+        @DisplayName("should close the socket of a dropped subscriber, not wait on its writer")
+        void testDroppedSubscriberSocketIsClosed() {
+            List<Runnable> tasks = new ArrayList<>();
+            PubSubManager async = new PubSubManager(tasks::add, new ClientOutputBufferLimit(50, 0, 0),
+                    new FakeClock(0));
+            AtomicBoolean closed = new AtomicBoolean();
+            Subscriber slow = new Subscriber(new BufferedWriter(new StringWriter()), () -> closed.set(true));
+            async.subscribe(slow, "news");
+
+            assertEquals(1, async.publish("news", "a"));
+            assertEquals(0, async.publish("news", "b"));
+
+            // Closed right away: a delivery stalled on the writer must not hold it up
+            assertTrue(closed.get());
+            assertFalse(slow.isSubscribed());
+        }
+
+        @Test
+        @DisplayName("should disconnect a subscriber that stays over the soft limit")
+        void testSoftLimitOverTime() throws Exception {
+            List<Runnable> tasks = new ArrayList<>();
+            FakeClock clock = new FakeClock(0);
+            PubSubManager async = new PubSubManager(tasks::add, new ClientOutputBufferLimit(0, 50, 10), clock);
+            async.subscribe(client1, "news");
+
+            assertEquals(1, async.publish("news", "a"));
+            assertEquals(1, async.publish("news", "b")); // 68 bytes: over the soft limit from now
+            clock.advanceSeconds(5);
+            assertEquals(1, async.publish("news", "c"));
+
+            // Draining brings it back under the limit, which resets the timer
+            tasks.remove(0).run();
+            clock.advanceSeconds(20);
+            assertEquals(1, async.publish("news", "d"));
+            assertEquals(1, async.publish("news", "e"));
+            clock.advanceSeconds(10);
+            assertEquals(0, async.publish("news", "f"));
+            assertFalse(client1.isSubscribed());
+            assertEquals(1, async.outputLimitDisconnections());
+        }
+
+        @Test
+        @DisplayName("should deliver queued messages in publish order")
+        void testMessagesKeepOrder() throws Exception {
+            List<Runnable> tasks = new ArrayList<>();
+            PubSubManager async = new PubSubManager(tasks::add, ClientOutputBufferLimit.NONE, new SystemClock());
+            async.subscribe(client1, "news");
+
+            async.publish("news", "first");
+            async.publish("news", "second");
+            assertEquals(1, tasks.size(), "one delivery task per subscriber at a time");
+            tasks.get(0).run();
+
+            String output = output1.toString();
+            assertTrue(output.indexOf("first") < output.indexOf("second"));
+        }
+    }
+
     @Nested
     @DisplayName("Edge Cases")
     class EdgeCases {
@@ -244,7 +610,7 @@ public class PubSubManagerTest {
         void testSpecialCharacterChannel() {
             int count = pubsub.subscribe(client1, "channel:special:123");
             assertEquals(1, count);
-            assertTrue(pubsub.isSubscribed(client1));
+            assertTrue(client1.isSubscribed());
         }
 
         @Test
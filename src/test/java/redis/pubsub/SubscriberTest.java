@@ -38,86 +38,54 @@ public class SubscriberTest {
     }
 
     @Nested
-    @DisplayName("Equals")
-    class Equals {
+    @DisplayName("Identity")
+    class Identity {
 
         @Test
-        @DisplayName("should return true for same instance")
+        @DisplayName("should equal itself only")
         void testEqualsSameInstance() {
-            StringWriter sw = new StringWriter();
-            BufferedWriter bw = new BufferedWriter(sw);
-            Subscriber sub = new Subscriber(bw);
+            Subscriber sub = new Subscriber(new BufferedWriter(new StringWriter()));
 
             assertTrue(sub.equals(sub));
+            assertFalse(sub.equals(null));
         }
 
         @Test
-        @DisplayName("should return true for subscribers with same BufferedWriter")
-        void testEqualsSameWriter() {
-            StringWriter sw = new StringWriter();
-            BufferedWriter bw = new BufferedWriter(sw);
+        @DisplayName("subscribers of the same writer should be distinct clients")
+        void testSameWriterIsDistinct() {
+            BufferedWriter bw = new BufferedWriter(new StringWriter());
             Subscriber sub1 = new Subscriber(bw);
             Subscriber sub2 = new Subscriber(bw);
 
-            assertTrue(sub1.equals(sub2));
-            assertTrue(sub2.equals(sub1));
-        }
-
-        @Test
-        @DisplayName("should return false for subscribers with different BufferedWriters")
-        void testEqualsDifferentWriters() {
-            BufferedWriter bw1 = new BufferedWriter(new StringWriter());
-            BufferedWriter bw2 = new BufferedWriter(new StringWriter());
-            Subscriber sub1 = new Subscriber(bw1);
-            Subscriber sub2 = new Subscriber(bw2);
-
             assertFalse(sub1.equals(sub2));
         }
-
-        @Test
-        @DisplayName("should return false for null")
-        void testEqualsNull() {
-            BufferedWriter bw = new BufferedWriter(new StringWriter());
-            Subscriber sub = new Subscriber(bw);
-
-            assertFalse(sub.equals(null));
-        }
     }
 
     @Nested
-    @DisplayName("HashCode")
-    class HashCodeTests {
+    @DisplayName("Subscription count")
+    class SubscriptionCount {
 
         @Test
-        @DisplayName("should return same hashCode for equal subscribers")
-        void testHashCodeConsistency() {
-            StringWriter sw = new StringWriter();
-            BufferedWriter bw = new BufferedWriter(sw);
-            Subscriber sub1 = new Subscriber(bw);
-            Subscriber sub2 = new Subscriber(bw);
-
-            assertEquals(sub1.hashCode(), sub2.hashCode());
-        }
-
-        @Test
-        @DisplayName("should return same hashCode on multiple calls")
-        void testHashCodeStable() {
-            BufferedWriter bw = new BufferedWriter(new StringWriter());
-            Subscriber sub = new Subscriber(bw);
-
-            int hash1 = sub.hashCode();
-            int hash2 = sub.hashCode();
-
-            assertEquals(hash1, hash2);
-        }
-
-        @Test
-        @DisplayName("hashCode should be based on BufferedWriter")
-        void testHashCodeBasedOnWriter() {
-            BufferedWriter bw = new BufferedWriter(new StringWriter());
-            Subscriber sub = new Subscriber(bw);
-
-            assertEquals(bw.hashCode(), sub.hashCode());
+        @DisplayName("should count channels, patterns and shard channels once each")
+        void testCount() {
+            PubSubManager pubsub = new PubSubManager();
+            Subscriber sub = new Subscriber(new BufferedWriter(new StringWriter()));
+            assertFalse(sub.isSubscribed());
+
+            pubsub.subscribe(sub, "news");
+            pubsub.subscribe(sub, "news");
+            pubsub.psubscribe(sub, "n*");
+            pubsub.ssubscribe(sub, "orders");
+            assertEquals(3, sub.subscriptionCount());
+            assertEquals(1, sub.shardSubscriptionCount());
+            assertTrue(sub.isSubscribed());
+
+            pubsub.unsubscribe(sub, "missing");
+            assertEquals(3, sub.subscriptionCount());
+
+            pubsub.unsubscribeAll(sub);
+            assertEquals(0, sub.subscriptionCount());
+            assertFalse(sub.isSubscribed());
         }
     }
 }
@@ -0,0 +1,61 @@
+package redis.resp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class RespByteParserTest {
+
+    private ByteBuffer buffer(String input) {
+        return ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testArrayOfBulkStrings() throws RespParseException {
+        ByteBuffer buf = buffer("*2\r\n$3\r\nGET\r\n$3\r\nkey\r\n");
+        Value val = RespByteParser.readValue(buf);
+        assertEquals("array", val.typ);
+        assertEquals(2, val.array.size());
+        assertEquals("GET", val.array.get(0).str);
+        assertEquals("key", val.array.get(1).str);
+        assertEquals(0, buf.remaining());
+    }
+
+    @Test
+    void testMultiByteBulkString() throws RespParseException {
+        Value val = RespByteParser.readValue(buffer("$2\r\né\r\n"));
+        assertEquals("bulk", val.typ);
+        assertEquals("é", val.str);
+    }
+
+    @Test
+    void testSimpleTypes() throws RespParseException {
+        ByteBuffer buf = buffer("+OK\r\n:42\r\n-ERR x\r\n$-1\r\n");
+        assertEquals("OK", RespByteParser.readValue(buf).str);
+        assertEquals("42", RespByteParser.readValue(buf).str);
+        assertEquals("ERR x", RespByteParser.readValue(buf).str);
+        assertEquals("null", RespByteParser.readValue(buf).typ);
+    }
+
+    @Test
+    void testIncompleteValueRestoresPosition() throws RespParseException {
+        ByteBuffer buf = buffer("*2\r\n$3\r\nGET\r\n$3\r\nke");
+        assertNull(RespByteParser.readValue(buf));
+        assertEquals(0, buf.position());
+    }
+
+    @Test
+    void testUnknownPrefix() {
+        assertThrows(RespParseException.class, () -> RespByteParser.readValue(buffer("?x\r\n")));
+    }
+
+    @Test
+    void testInvalidLength() {
+        assertThrows(RespParseException.class, () -> RespByteParser.readValue(buffer("$abc\r\n")));
+    }
+}
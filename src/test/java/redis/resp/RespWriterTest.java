@@ -68,4 +68,13 @@ public class RespWriterTest {
         writer.writeArrayHeader(out, 5);
         assertEquals("*5\r\n", getOutput());
     }
+
+    @Test
+    void testEncodeBulkArrayMatchesStreamingWrites() throws IOException {
+        writer.writeArrayHeader(out, 3);
+        writer.writeBulk(out, "message");
+        writer.writeBulk(out, "news");
+        writer.writeBulk(out, "");
+        assertEquals(getOutput(), RespWriter.encodeBulkArray("message", "news", ""));
+    }
 }
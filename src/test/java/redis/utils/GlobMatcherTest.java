@@ -0,0 +1,56 @@
+package redis.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class GlobMatcherTest {
+
+    @Test
+    void testStarAndQuestionMark() {
+        assertTrue(GlobMatcher.matches("*", ""));
+        assertTrue(GlobMatcher.matches("news.*", "news.sports"));
+        assertTrue(GlobMatcher.matches("news.*", "news."));
+        assertFalse(GlobMatcher.matches("news.*", "newsXsports"));
+        assertTrue(GlobMatcher.matches("h?llo", "hello"));
+        assertFalse(GlobMatcher.matches("h?llo", "hllo"));
+        assertTrue(GlobMatcher.matches("a*b*c", "aXXbYYbZc"));
+        assertFalse(GlobMatcher.matches("a*b*c", "aXXbYYbZ"));
+    }
+
+    @Test
+    void testCharacterClasses() {
+        assertTrue(GlobMatcher.matches("h[ae]llo", "hallo"));
+        assertFalse(GlobMatcher.matches("h[ae]llo", "hillo"));
+        assertTrue(GlobMatcher.matches("h[^e]llo", "hallo"));
+        assertFalse(GlobMatcher.matches("h[^e]llo", "hello"));
+        assertTrue(GlobMatcher.matches("user:[0-9]", "user:7"));
+        assertTrue(GlobMatcher.matches("user:[9-0]", "user:7"));
+        assertFalse(GlobMatcher.matches("user:[0-9]", "user:x"));
+    }
+
+    @Test
+    void testEscapes() {
+        assertTrue(GlobMatcher.matches("what\\?", "what?"));
+        assertFalse(GlobMatcher.matches("what\\?", "whatx"));
+        assertTrue(GlobMatcher.matches("a\\*b", "a*b"));
+        assertFalse(GlobMatcher.matches("a\\*b", "aXb"));
+    }
+
+    @Test
+    void testRegexCharactersAreLiteral() {
+        assertTrue(GlobMatcher.matches("a.b", "a.b"));
+        assertFalse(GlobMatcher.matches("a.b", "axb"));
+        assertTrue(GlobMatcher.matches("(x)+", "(x)+"));
+    }
+
+    @Test
+    void testLiteralPrefixLength() {
+        assertEquals(5, GlobMatcher.literalPrefixLength("news.*"));
+        assertEquals(0, GlobMatcher.literalPrefixLength("*"));
+        assertEquals(4, GlobMatcher.literalPrefixLength("news"));
+        assertEquals(1, GlobMatcher.literalPrefixLength("a[bc]"));
+    }
+}
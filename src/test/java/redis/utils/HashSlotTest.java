@@ -0,0 +1,35 @@
+package redis.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class HashSlotTest {
+
+    @Test
+    void testCrc16CheckValue() {
+        byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x31C3, HashSlot.crc16(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void testKnownSlots() {
+        // Values from CLUSTER KEYSLOT
+        assertEquals(12182, HashSlot.of("foo"));
+        assertEquals(5061, HashSlot.of("bar"));
+        assertEquals(866, HashSlot.of("hello"));
+    }
+
+    @Test
+    void testHashTags() {
+        assertEquals(HashSlot.of("user1000"), HashSlot.of("{user1000}.following"));
+        assertEquals(HashSlot.of("{user1000}.following"), HashSlot.of("{user1000}.followers"));
+        // Empty tag: the whole key is hashed
+        assertEquals(HashSlot.crc16("foo{}{bar}".getBytes(StandardCharsets.UTF_8), 0, 10) & 16383,
+                HashSlot.of("foo{}{bar}"));
+        // Only the first tag counts
+        assertEquals(HashSlot.of("bar"), HashSlot.of("foo{bar}{zap}"));
+    }
+}
@@ -0,0 +1,62 @@
+package redis.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        // Each bucket starts right after the previous one ends
+        for (int b = 1; b <= LatencyHistogram.bucket((1L << 40) - 1); b++) {
+            long first = LatencyHistogram.highestInBucket(b - 1) + 1;
+            assertEquals(b, LatencyHistogram.bucket(first));
+            assertEquals(b, LatencyHistogram.bucket(LatencyHistogram.highestInBucket(b)));
+        }
+    }
+
+    @Test
+    void testPrecision() {
+        for (long v = 1; v < 1L << 40; v = v * 3 + 1) {
+            long top = LatencyHistogram.highestInBucket(LatencyHistogram.bucket(v));
+            assertTrue(top >= v && top - v <= v / 16, "value " + v + " bucket top " + top);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+        assertEquals(1000, h.count());
+        assertEquals(1_000_000, h.max());
+        assertEquals(500_000, h.percentile(50), 500_000 / 16.0);
+        assertEquals(990_000, h.percentile(99), 990_000 / 16.0);
+        assertEquals(1_000_000, h.percentile(99.9), 1_000_000 / 16.0);
+        assertEquals(1_000_000, h.percentile(100));
+    }
+
+    @Test
+    void testOutOfRangeValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(Long.MAX_VALUE);
+        assertEquals(2, h.count());
+        assertEquals(0, h.percentile(50));
+        assertEquals((1L << 40) - 1, h.percentile(100));
+    }
+
+    @Test
+    void testCumulativeCounts() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(50);
+        h.record(1000);
+        h.record(1000);
+        h.record(5_000_000);
+        assertArrayEquals(new long[] { 0, 1, 3, 3, 4 },
+                h.cumulativeCounts(new long[] { 10, 100, 1000, 1_000_000, Long.MAX_VALUE }));
+    }
+}